@@ -0,0 +1,64 @@
+package com.zikworks.tools.a2600.bmp2pf.benchmarks;
+
+import com.zikworks.tools.a2600.bmp2pf.BitmapImageReader;
+import com.zikworks.tools.a2600.bmp2pf.impl.NarrowBitmapImageReader;
+import com.zikworks.tools.a2600.bmp2pf.impl.PlayfieldLineData;
+import com.zikworks.tools.a2600.bmp2pf.impl.WideBitmapImageReader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reading a single row with the narrow (1 pixel per bit) and wide (4
+ * pixels per bit) readers.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BitmapImageReaderBenchmark {
+    private static final int HEIGHT = 192;
+
+    /**
+     * Playfield width in bits, 20 for symmetrical and 40 for asymmetrical.
+     */
+    @Param({"20", "40"})
+    public int playfieldWidth;
+
+    private BitmapImageReader narrowReader;
+    private BitmapImageReader wideReader;
+    private int line;
+
+    @Setup
+    public void setUp() {
+        BufferedImage narrow = SyntheticImages.create(playfieldWidth, HEIGHT);
+        BufferedImage wide = SyntheticImages.create(playfieldWidth * 4, HEIGHT);
+        narrowReader = new NarrowBitmapImageReader(narrow, 1);
+        wideReader = new WideBitmapImageReader(wide, 1);
+    }
+
+    @Benchmark
+    public PlayfieldLineData narrowReadLine() {
+        line = (line + 1) % HEIGHT;
+        return narrowReader.read(line);
+    }
+
+    @Benchmark
+    public PlayfieldLineData wideReadLine() {
+        line = (line + 1) % HEIGHT;
+        return wideReader.read(line);
+    }
+}
@@ -0,0 +1,81 @@
+package com.zikworks.tools.a2600.bmp2pf.benchmarks;
+
+import com.zikworks.tools.a2600.bmp2pf.PlayfieldGenerator;
+import com.zikworks.tools.a2600.bmp2pf.PlayfieldLayout;
+import com.zikworks.tools.a2600.bmp2pf.Utilities;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Full conversions of a BMP file on disk to an output file, the way the
+ * command line tool runs them.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GenerateBenchmark {
+
+    /**
+     * Image height in pixels.
+     */
+    @Param({"192", "4096", "65536"})
+    public int height;
+
+    /**
+     * Name of a PlayfieldLayout constant.
+     */
+    @Param({"SYMMETRICAL_MIRROR", "ASYMMETRICAL_REPEAT", "ASYMMETRICAL_MIRROR"})
+    public String layout;
+
+    @Param({"false", "true"})
+    public boolean fullScale;
+
+    private Path directory;
+    private Path inputFile;
+    private Path outputFile;
+    private PlayfieldGenerator generator;
+
+    @Setup
+    public void setUp() throws IOException, ReflectiveOperationException {
+        PlayfieldLayout playfieldLayout = (PlayfieldLayout) PlayfieldLayout.class.getField(layout).get(null);
+        int width = playfieldLayout.getWidth() * (fullScale ? 4 : 1);
+
+        directory = Files.createTempDirectory("bmp2pf-benchmark-");
+        inputFile = SyntheticImages.writeBmp(directory.resolve("input.bmp"), width, height);
+        outputFile = directory.resolve("output.asm");
+        generator = PlayfieldGenerator.builder()
+                .withLayout(playfieldLayout)
+                .withFullScale(fullScale)
+                .withQuiet(true)
+                .build();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Utilities.deleteDirectory(directory);
+    }
+
+    @Benchmark
+    public Path generate() throws IOException {
+        generator.generate(inputFile, outputFile);
+        return outputFile;
+    }
+}
@@ -0,0 +1,78 @@
+package com.zikworks.tools.a2600.bmp2pf.benchmarks;
+
+import com.zikworks.tools.a2600.bmp2pf.PlayfieldLayout;
+import com.zikworks.tools.a2600.bmp2pf.PlayfieldTable;
+import com.zikworks.tools.a2600.bmp2pf.impl.LayoutPlayfieldLineDataParser;
+import com.zikworks.tools.a2600.bmp2pf.impl.NarrowBitmapImageReader;
+import com.zikworks.tools.a2600.bmp2pf.impl.PlayfieldLineData;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing a single row into its register bytes, for every built-in
+ * layout and a custom one.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LineDataParserBenchmark {
+    private static final int ROWS = 192;
+    private static final String CUSTOM_LAYOUT = "PF1DataA=4-11;PF2DataA=19-12;PF1DataB=24-31;PF2DataB=39-32;width=40";
+
+    /**
+     * Name of a PlayfieldLayout constant, or CUSTOM for a PF1/PF2-only layout.
+     */
+    @Param({"SYMMETRICAL_MIRROR", "SYMMETRICAL_REPEAT", "ASYMMETRICAL_REPEAT", "ASYMMETRICAL_MIRROR", "CUSTOM"})
+    public String layout;
+
+    private LayoutPlayfieldLineDataParser parser;
+    private PlayfieldTable table;
+    private PlayfieldLineData[] lines;
+    private long[] collisions;
+    private int[] collisionWidths;
+    private int row;
+
+    @Setup
+    public void setUp() throws ReflectiveOperationException {
+        PlayfieldLayout playfieldLayout = layout.equals("CUSTOM")
+                ? PlayfieldLayout.parse(CUSTOM_LAYOUT)
+                : (PlayfieldLayout) PlayfieldLayout.class.getField(layout).get(null);
+        parser = new LayoutPlayfieldLineDataParser(playfieldLayout);
+        table = new PlayfieldTable(parser.getOutputSections(), false, ROWS, 1);
+
+        NarrowBitmapImageReader reader = new NarrowBitmapImageReader(
+                SyntheticImages.create(parser.getExpectedWidth(), ROWS), 1);
+        lines = new PlayfieldLineData[ROWS];
+        collisions = new long[ROWS];
+        collisionWidths = new int[ROWS];
+        for (int i = 0; i < ROWS; i++) {
+            lines[i] = reader.read(i);
+            collisions[i] = lines[i].getCollisions();
+            collisionWidths[i] = lines[i].getCollisionWidth();
+        }
+    }
+
+    @Benchmark
+    public PlayfieldTable parseLineData() {
+        row = (row + 1) % ROWS;
+
+        // Symmetrical layouts widen the collision data in place, so put it back first
+        PlayfieldLineData lineData = lines[row].withCollisions(collisions[row], collisionWidths[row]);
+        parser.parseLineData(lineData, table, row);
+        return table;
+    }
+}
@@ -0,0 +1,73 @@
+package com.zikworks.tools.a2600.bmp2pf.benchmarks;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+
+/**
+ * Creates playfield-like test images, so the benchmarks do not depend on
+ * checked-in files.  Rows are made of runs of lit pixels with a color per
+ * row, about half of them repeat the row before, and some pixels are
+ * marked as collisions.  The same seed always gives the same image.
+ */
+public final class SyntheticImages {
+    private static final int OFF = 0x000000;
+    private static final int COLLISION_RED = 0x80;
+    private static final long SEED = 2600;
+
+    private SyntheticImages() {
+    }
+
+    /**
+     * Create an image.
+     *
+     * @param width  Width in pixels
+     * @param height Height in pixels
+     * @return A new image
+     */
+    public static BufferedImage create(int width, int height) {
+        SplittableRandom random = new SplittableRandom(SEED);
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        int[] row = new int[width];
+        for (int y = 0; y < height; y++) {
+            if (y == 0 || random.nextBoolean()) {
+                fillRow(row, random);
+            }
+            image.setRGB(0, y, width, 1, row, 0, width);
+        }
+        return image;
+    }
+
+    /**
+     * Create an image and write it as a 24-bit BMP file, the format read
+     * straight from disk by the generator.
+     *
+     * @param file   File to write
+     * @param width  Width in pixels
+     * @param height Height in pixels
+     * @return The file
+     * @throws IOException Error writing the file
+     */
+    public static Path writeBmp(Path file, int width, int height) throws IOException {
+        if (!ImageIO.write(create(width, height), "bmp", file.toFile())) {
+            throw new IOException("No BMP writer available");
+        }
+        return file;
+    }
+
+    private static void fillRow(int[] row, SplittableRandom random) {
+        // NTSC color in the blue channel, PAL color in the green channel
+        int color = (random.nextInt(1, 128) << 1) | (random.nextInt(1, 128) << 9);
+        int x = 0;
+        while (x < row.length) {
+            int run = random.nextInt(1, 9);
+            boolean lit = random.nextBoolean();
+            for (int i = 0; i < run && x < row.length; i++, x++) {
+                int collision = lit && random.nextInt(4) == 0 ? COLLISION_RED << 16 : 0;
+                row[x] = lit ? color | collision : OFF;
+            }
+        }
+    }
+}
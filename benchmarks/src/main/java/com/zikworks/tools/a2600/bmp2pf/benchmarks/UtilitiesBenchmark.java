@@ -0,0 +1,46 @@
+package com.zikworks.tools.a2600.bmp2pf.benchmarks;
+
+import com.zikworks.tools.a2600.bmp2pf.Utilities;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The bit helpers used for every register and collision byte.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UtilitiesBenchmark {
+    private int value;
+    private long bits = 0x5A5A_A5A5_C3L;
+
+    @Benchmark
+    public String getByte() {
+        value = (value + 1) & 0xFF;
+        return Utilities.getByte(value);
+    }
+
+    @Benchmark
+    public int reverseByte() {
+        value = (value + 1) & 0xFF;
+        return Utilities.reverseByte(value);
+    }
+
+    @Benchmark
+    public long reverseBits() {
+        bits = Long.rotateLeft(bits, 1);
+        return Utilities.reverseBits(bits, 20);
+    }
+}
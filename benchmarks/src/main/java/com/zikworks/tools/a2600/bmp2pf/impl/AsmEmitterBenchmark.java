@@ -0,0 +1,78 @@
+package com.zikworks.tools.a2600.bmp2pf.impl;
+
+import com.zikworks.tools.a2600.bmp2pf.PlayfieldLayout;
+import com.zikworks.tools.a2600.bmp2pf.benchmarks.SyntheticImages;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Formatting single lines of DASM source, and packing the collision bits
+ * of a row.  Lives in the impl package as AsmEmitter is package-private.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AsmEmitterBenchmark {
+    private static final int ROWS = 192;
+    private static final int ROW_BYTES = PlayfieldLayout.MAX_WIDTH / Byte.SIZE;
+
+    private AsmEmitter emitter;
+    private PlayfieldLineData[] lines;
+    private byte[] collisionBytes;
+    private int row;
+
+    @Setup
+    public void setUp() {
+        emitter = new AsmEmitter(OutputStream.nullOutputStream(), AsmOutputWriter.WRITE_BLOCK_SIZE);
+        NarrowBitmapImageReader reader = new NarrowBitmapImageReader(SyntheticImages.create(40, ROWS), 1);
+        lines = new PlayfieldLineData[ROWS];
+        collisionBytes = new byte[ROWS * ROW_BYTES];
+        for (int i = 0; i < ROWS; i++) {
+            lines[i] = reader.read(i);
+            lines[i].getCollisionBytes(collisionBytes, i * ROW_BYTES);
+        }
+    }
+
+    @Benchmark
+    public byte[] getCollisionBytes() {
+        row = (row + 1) % ROWS;
+        lines[row].getCollisionBytes(collisionBytes, row * ROW_BYTES);
+        return collisionBytes;
+    }
+
+    @Benchmark
+    public AsmEmitter collisionLine() throws IOException {
+        row = (row + 1) % ROWS;
+        emitter.collisionLine(collisionBytes, row * ROW_BYTES, ROW_BYTES);
+        return emitter;
+    }
+
+    @Benchmark
+    public AsmEmitter dataLine() throws IOException {
+        row = (row + 1) % ROWS;
+        emitter.dataLine(collisionBytes[row]);
+        return emitter;
+    }
+
+    @Benchmark
+    public AsmEmitter colorLine() throws IOException {
+        row = (row + 1) % ROWS;
+        emitter.colorLine(lines[row].getNtscColor(), lines[row].getPalColor());
+        return emitter;
+    }
+}
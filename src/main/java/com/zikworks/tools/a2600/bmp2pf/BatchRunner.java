@@ -0,0 +1,290 @@
+package com.zikworks.tools.a2600.bmp2pf;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.DefaultParser;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Runs many conversions listed in a manifest file on a bounded pool of threads.
+ * <p>
+ * The manifest is a properties file where every key has the form
+ * {@code <job>.<long option>}, using the same long option names as the
+ * command line.  Options without an argument are enabled with {@code true}.
+ * Relative file paths are resolved against the manifest's directory.
+ * <pre>
+ * title.file=art/title.bmp
+ * title.out=build/title.asm
+ * title.asymmetrical=true
+ * title.kernel=2
+ * </pre>
+ * Options that apply to the whole run can only be given on the command
+ * line: a shared pack file, as every job hands its tables to the same
+ * {@link TablePack}, and the options that pick the mode and threads of the
+ * run itself.
+ */
+public class BatchRunner {
+
+    /**
+     * Outcome of a single conversion in the batch.
+     *
+     * @param name    Job name from the manifest
+     * @param success Whether the conversion completed
+     * @param millis  Wall clock time taken by the conversion
+     * @param message Error message when the conversion failed
+     */
+    public record JobResult(String name, boolean success, long millis, String message) {
+    }
+
+    /**
+     * Options that apply to the whole run rather than to one conversion.
+     */
+    private static final Set<CommandLineOption> RUN_OPTIONS = EnumSet.of(
+            CommandLineOption.PACK_FILE,
+            CommandLineOption.BATCH,
+            CommandLineOption.JOBS,
+            CommandLineOption.WATCH,
+            CommandLineOption.CHECK,
+            CommandLineOption.SERVER,
+            CommandLineOption.SOCKET);
+
+    private final Path manifestFile;
+    private final int threads;
+    private final Options options;
+    private final List<String> sharedArguments;
+    private final TablePack tablePack;
+    private final Set<ResultCache> resultCaches = ConcurrentHashMap.newKeySet();
+    private final StatsReport statsReport = new StatsReport();
+
+    public BatchRunner(Path manifestFile, int threads, Options options) {
+        this(manifestFile, threads, options, List.of());
+    }
+
+    /**
+     * Create a runner that adds the same arguments to every job, before
+     * the ones from the manifest.
+     *
+     * @param manifestFile    Manifest listing the conversions
+     * @param threads         Number of conversions to run in parallel
+     * @param options         Options understood in the manifest
+     * @param sharedArguments Command line arguments added to every job
+     */
+    public BatchRunner(Path manifestFile, int threads, Options options, List<String> sharedArguments) {
+        this(manifestFile, threads, options, sharedArguments, null);
+    }
+
+    /**
+     * Create a runner whose jobs all hand their tables to a shared pack.
+     * The pack is written by the caller once the jobs are done.
+     *
+     * @param manifestFile    Manifest listing the conversions
+     * @param threads         Number of conversions to run in parallel
+     * @param options         Options understood in the manifest
+     * @param sharedArguments Command line arguments added to every job
+     * @param tablePack       Pack the tables of every job are added to, or null
+     */
+    public BatchRunner(Path manifestFile, int threads, Options options, List<String> sharedArguments,
+                       TablePack tablePack) {
+        this.manifestFile = manifestFile;
+        this.threads = threads;
+        this.options = options;
+        this.sharedArguments = sharedArguments;
+        this.tablePack = tablePack;
+    }
+
+    public Path getManifestFile() {
+        return manifestFile;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * Get the report the stats of every conversion run by this runner's
+     * builders are collected in.
+     *
+     * @return Stats report
+     */
+    public StatsReport getStatsReport() {
+        return statsReport;
+    }
+
+    /**
+     * Run every conversion in the manifest.  A failing conversion does not
+     * stop the others.
+     *
+     * @return Result of each conversion, ordered by job name
+     * @throws IOException Error reading the manifest
+     */
+    public List<JobResult> run() throws IOException {
+        Map<String, List<String>> jobArguments = readManifest();
+
+        List<Future<JobResult>> futures = new ArrayList<>();
+        try (ExecutorService executor = Executors.newFixedThreadPool(threads)) {
+            jobArguments.forEach((name, arguments) ->
+                    futures.add(executor.submit(() -> runJob(name, arguments))));
+        }
+
+        List<JobResult> results = new ArrayList<>();
+        for (Future<JobResult> future : futures) {
+            try {
+                results.add(future.get());
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while waiting for batch jobs", ex);
+            } catch (ExecutionException ex) {
+                throw new IOException("Batch job failed unexpectedly", ex.getCause());
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Print a summary of the batch results, including the time spent in
+     * each stage and the hit and miss counts of any result cache the jobs
+     * used.
+     *
+     * @param results   Results returned by run
+     * @param wallClock Total time taken by the batch in milliseconds
+     */
+    public void printSummary(List<JobResult> results, long wallClock) {
+        int failed = 0;
+        System.out.println("Batch summary:");
+        for (JobResult result : results) {
+            if (result.success()) {
+                System.out.printf(" - %s: OK (%d ms)%n", result.name(), result.millis());
+            } else {
+                failed++;
+                System.out.printf(" - %s: FAILED (%d ms) %s%n", result.name(), result.millis(), result.message());
+            }
+        }
+        System.out.printf("%d converted, %d failed in %d ms%n", results.size() - failed, failed, wallClock);
+        statsReport.printSummary(System.out);
+        for (ResultCache resultCache : resultCaches) {
+            System.out.printf("Cache %s: %d hits, %d misses%n",
+                    resultCache.getDirectory(), resultCache.getHits(), resultCache.getMisses());
+        }
+    }
+
+    /**
+     * Create a generator builder for every job in the manifest, without
+     * running them.
+     *
+     * @return Builders keyed by job name
+     * @throws IOException Error reading the manifest, or a job has invalid options
+     */
+    public Map<String, PlayfieldGeneratorBuilder> createBuilders() throws IOException {
+        Map<String, PlayfieldGeneratorBuilder> builders = new TreeMap<>();
+        for (Map.Entry<String, List<String>> job : readManifest().entrySet()) {
+            try {
+                builders.put(job.getKey(), createBuilder(job.getValue()));
+            } catch (ParseException | IOException | RuntimeException ex) {
+                throw new IOException("Invalid job " + job.getKey() + ": " + ex.getMessage(), ex);
+            }
+        }
+        return builders;
+    }
+
+    private JobResult runJob(String name, List<String> arguments) {
+        long start = System.nanoTime();
+        try {
+            createBuilder(arguments).build().generate();
+            return new JobResult(name, true, elapsed(start), null);
+        } catch (NoSuchFileException ex) {
+            return new JobResult(name, false, elapsed(start), "File not found: " + ex.getMessage());
+        } catch (ParseException | IOException | RuntimeException ex) {
+            return new JobResult(name, false, elapsed(start), ex.getMessage());
+        }
+    }
+
+    private PlayfieldGeneratorBuilder createBuilder(List<String> arguments) throws ParseException, IOException {
+        CommandLine commandLine = new DefaultParser().parse(options, arguments.toArray(String[]::new));
+        for (CommandLineOption required : List.of(CommandLineOption.INPUT_FILE, CommandLineOption.OUTPUT_FILE)) {
+            if (!commandLine.hasOption(required.toOption())) {
+                throw new IOException("Missing " + required.getLongOption());
+            }
+        }
+        PlayfieldGeneratorBuilder builder = PlayfieldGenerator.builder(commandLine)
+                .addStatsListener(statsReport)
+                .withTablePack(tablePack);
+        if (builder.getResultCache() != null) {
+            resultCaches.add(builder.getResultCache());
+        }
+        return builder;
+    }
+
+    /**
+     * Read the manifest into a list of command line arguments per job.
+     *
+     * @return Arguments keyed by job name
+     * @throws IOException Error reading the manifest
+     */
+    private Map<String, List<String>> readManifest() throws IOException {
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(manifestFile)) {
+            properties.load(reader);
+        }
+
+        Path baseDirectory = manifestFile.toAbsolutePath().getParent();
+        Map<String, List<String>> jobArguments = new TreeMap<>();
+        for (String key : properties.stringPropertyNames()) {
+            int dot = key.indexOf('.');
+            if (dot < 1) {
+                throw new IOException("Invalid manifest key, expected <job>.<option>: " + key);
+            }
+
+            String name = key.substring(0, dot);
+            String option = key.substring(dot + 1);
+            String value = properties.getProperty(key).trim();
+            List<String> arguments = jobArguments.computeIfAbsent(name, ign -> {
+                List<String> shared = new ArrayList<>(sharedArguments);
+                shared.add("--" + CommandLineOption.QUIET.getLongOption());
+                return shared;
+            });
+
+            if (!options.hasLongOption(option)) {
+                throw new IOException("Unknown option in manifest: " + key);
+            }
+            if (RUN_OPTIONS.stream().anyMatch(runOption -> runOption.getLongOption().equals(option))) {
+                throw new IOException("Option " + option + " can only be given on the command line: " + key);
+            }
+
+            if (options.getOption(option).hasArg()) {
+                if (option.equals(CommandLineOption.INPUT_FILE.getLongOption())
+                        || option.equals(CommandLineOption.OUTPUT_FILE.getLongOption())
+                        || option.equals(CommandLineOption.CACHE.getLongOption())
+                        || option.equals(CommandLineOption.STATS.getLongOption())) {
+                    value = baseDirectory.resolve(value).toString();
+                }
+                arguments.add("--" + option);
+                arguments.add(value);
+            } else if (Boolean.parseBoolean(value)) {
+                arguments.add("--" + option);
+            }
+        }
+        return jobArguments;
+    }
+
+    private static long elapsed(long start) {
+        return (System.nanoTime() - start) / 1_000_000;
+    }
+}
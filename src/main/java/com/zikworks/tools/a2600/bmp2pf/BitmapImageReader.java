@@ -1,27 +1,99 @@
 package com.zikworks.tools.a2600.bmp2pf;
 
+import com.zikworks.tools.a2600.bmp2pf.impl.BufferedImageScanlineSource;
 import com.zikworks.tools.a2600.bmp2pf.impl.PlayfieldLineData;
 
-import java.awt.Color;
 import java.awt.image.BufferedImage;
-import java.awt.image.ColorModel;
+import java.awt.image.IndexColorModel;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.Iterator;
 
 public abstract class BitmapImageReader implements Iterator<PlayfieldLineData> {
 
-    private final BufferedImage bufferedImage;
-    private final ColorModel colorModel;
+    /**
+     * Set in a classified pixel when it turns its playfield bit on.
+     */
+    protected static final int PIXEL_BIT = 1 << 16;
+
+    /**
+     * Set in a classified pixel when it is a collision pixel.
+     */
+    protected static final int PIXEL_COLLIDE = 1 << 17;
+
+    private final ScanlineSource scanlineSource;
+    private final boolean hasAlpha;
+    private final int imageWidth;
     private final int imageHeight;
     private final int kernelLines;
+    private final int[] rowBuffer;
+    private final IndexColorModel palette;
+    private int[] paletteClasses;
     private int currentLine;
+    private int step;
 
     public BitmapImageReader(BufferedImage bufferedImage, int kernelLines) {
-        this.bufferedImage = bufferedImage;
-        this.colorModel = bufferedImage.getColorModel();
-        this.imageHeight = bufferedImage.getHeight();
+        this(new BufferedImageScanlineSource(bufferedImage), kernelLines);
+    }
+
+    public BitmapImageReader(ScanlineSource scanlineSource, int kernelLines) {
+        this.scanlineSource = scanlineSource;
+        this.hasAlpha = scanlineSource.hasAlpha();
+        this.imageWidth = scanlineSource.getWidth();
+        this.imageHeight = scanlineSource.getHeight();
         this.kernelLines = kernelLines;
+        this.rowBuffer = new int[imageWidth];
+        this.palette = scanlineSource.getPalette();
         this.currentLine = 0;
+        this.step = kernelLines;
+    }
+
+    /**
+     * Classify every entry of an indexed image's palette, so its rows are
+     * classified with one lookup per pixel.
+     *
+     * @return Classified pixel for each palette index
+     */
+    private int[] classifyPalette() {
+        // Every value a pixel can hold gets an entry, those past the end of the palette included
+        int[] classes = new int[Math.max(1 << palette.getPixelSize(), palette.getMapSize())];
+        for (int i = 0; i < classes.length; i++) {
+            classes[i] = classify(palette.getRGB(i));
+        }
+        return classes;
+    }
+
+    /**
+     * Switch the iteration to start at the last line read by the kernel and
+     * work up to the first one.  This is the order the output tables are
+     * written in, so lines can be handled as soon as they are read.
+     *
+     * @return This reader
+     */
+    public BitmapImageReader bottomUp() {
+        this.currentLine = (getLineCount() - 1) * kernelLines;
+        this.step = -kernelLines;
+        return this;
+    }
+
+    /**
+     * Get the number of lines this reader returns, one per kernel loop.
+     *
+     * @return Number of lines
+     */
+    public int getLineCount() {
+        return (imageHeight + kernelLines - 1) / kernelLines;
+    }
+
+    /**
+     * Read the line for one loop of the kernel, without affecting the
+     * iteration.
+     *
+     * @param index Kernel loop index, 0 being the top of the image
+     * @return The playfield line data for the line
+     */
+    public PlayfieldLineData read(int index) {
+        return readLine(index * kernelLines);
     }
 
     public abstract void checkWidth(int expectedWidth) throws IOException;
@@ -33,7 +105,7 @@ public abstract class BitmapImageReader implements Iterator<PlayfieldLineData> {
      */
     @Override
     public boolean hasNext() {
-        return currentLine < imageHeight;
+        return currentLine >= 0 && currentLine < imageHeight;
     }
 
     /**
@@ -44,18 +116,89 @@ public abstract class BitmapImageReader implements Iterator<PlayfieldLineData> {
     @Override
     public PlayfieldLineData next() {
         int line = currentLine;
-        currentLine += kernelLines;
+        currentLine += step;
         return readLine(line);
     }
 
     protected abstract PlayfieldLineData readLine(int line);
 
     protected int getImageWidth() {
-        return bufferedImage.getWidth();
+        return imageWidth;
+    }
+
+    /**
+     * Read a full scanline as ARGB values.  The returned array is reused on
+     * the next call.
+     *
+     * @param y Line number to read
+     * @return ARGB values for the line, one per pixel
+     */
+    protected int[] getRow(int y) {
+        try {
+            return scanlineSource.readRow(y, rowBuffer);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    /**
+     * Read a full scanline as palette indices.  The returned array is
+     * reused on the next call.
+     *
+     * @param y Line number to read
+     * @return Palette index of each pixel, or null if the source cannot read them
+     */
+    private int[] getIndexRow(int y) {
+        try {
+            return scanlineSource.readIndexRow(y, rowBuffer);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
     }
 
-    protected int getRGB(int x, int y) {
-        return bufferedImage.getRGB(x, y);
+    /**
+     * Read a full scanline as classified pixels, each holding the NTSC
+     * color in bits 0-7 and the PAL color in bits 8-15 when PIXEL_BIT is
+     * set, and PIXEL_COLLIDE for collision pixels.  Indexed images are
+     * classified by palette index when the source can read them.  The
+     * returned array is reused on the next call.
+     *
+     * @param y Line number to read
+     * @return Classified pixels for the line
+     */
+    protected int[] getPixels(int y) {
+        if (palette != null) {
+            int[] row = getIndexRow(y);
+            if (row != null) {
+                if (paletteClasses == null) {
+                    paletteClasses = classifyPalette();
+                }
+                for (int x = 0; x < imageWidth; x++) {
+                    row[x] = paletteClasses[row[x]];
+                }
+                return row;
+            }
+        }
+
+        int[] row = getRow(y);
+        for (int x = 0; x < imageWidth; x++) {
+            row[x] = classify(row[x]);
+        }
+        return row;
+    }
+
+    /**
+     * Classify a single ARGB pixel.
+     *
+     * @param rgb ARGB value of the pixel
+     * @return Classified pixel, as returned by getPixels
+     */
+    protected int classify(int rgb) {
+        int pixel = isCollision(rgb) ? PIXEL_COLLIDE : 0;
+        if (getBit(rgb)) {
+            pixel |= PIXEL_BIT | getPalColor(rgb) << 8 | getNtscColor(rgb);
+        }
+        return pixel;
     }
 
     protected boolean getBit(int rgb) {
@@ -63,24 +206,19 @@ public abstract class BitmapImageReader implements Iterator<PlayfieldLineData> {
             return false;
         }
 
-        int ntscColor = getNtscColor(rgb);
-        int palColor = getPalColor(rgb);
-        boolean isVisible = !colorModel.hasAlpha() || colorModel.getAlpha(rgb) > 0;
-        return isVisible && ((ntscColor > 0) || (palColor > 0));
+        boolean isVisible = !hasAlpha || (rgb >>> 24) > 0;
+        return isVisible && ((getNtscColor(rgb) > 0) || (getPalColor(rgb) > 0));
     }
 
     protected int getNtscColor(int rgb) {
-        Color color = new Color(rgb);
-        return color.getBlue();
+        return rgb & 0xFF;
     }
 
     protected int getPalColor(int rgb) {
-        Color color = new Color(rgb);
-        return color.getGreen();
+        return (rgb >>> 8) & 0xFF;
     }
 
     protected boolean isCollision(int rgb) {
-        Color color = new Color(rgb);
-        return color.getRed() > 7;
+        return ((rgb >>> 16) & 0xFF) > 7;
     }
 }
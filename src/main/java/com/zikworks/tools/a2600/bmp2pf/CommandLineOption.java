@@ -7,20 +7,44 @@ import org.apache.commons.cli.Option;
  */
 public enum CommandLineOption {
 
-    INPUT_FILE("f", "file", true, true, "BMP file to parse"),
-    OUTPUT_FILE("o", "out", true, true, "Output file name"),
+    INPUT_FILE("f", "file", false, true, "BMP file to parse (required unless --batch is used)"),
+    OUTPUT_FILE("o", "out", false, true, "Output file name (required unless --batch is used)"),
     BUFFER_OUTPUT("b", "buffer", false, true, "Add a buffer of empty rows to the output file"),
     FULL_SCALE("x", "full-scale", false, false, "Input BMP has each bit as 4 pixels wide"),
     SYMMETRICAL("s", "symmetrical", false, false, "Generate symmetrical playfield (default)"),
     ASYMMETRICAL("a", "asymmetrical", false, false, "Generate asymmetrical playfield"),
     MIRRORED("m", "mirrored", false, false, "When asymmetrical mirror PF registers"),
     REPEATED("r", "repeated", false, false, "When asymmetrical repeat PF registers"),
+    LAYOUT(null, "layout", false, true, "Custom register layout, in place of -s/-a/-m/-r (see README)"),
     KERNEL("k", "kernel", false, true, "Number of scan lines per kernel loop (default 1)"),
     COLLISION_RESOLUTION("c", "collision-resolution", false, true, "Number of scan lines per collision line"),
     NO_COLOR(null, "no-color", false, false, "Do not add color info to output file"),
     NO_COLLISION(null, "no-collision", false, false, "Do not add collision info to output file"),
     SEPARATE_COLLISION(null, "separate-collision-file", false, false, "Use a separate output file for collision data"),
-    OUTPUT_SECTION_PREFIX(null, "output-section-prefix", false, true, "Add a prefix to all of the PFnData sections");
+    OUTPUT_SECTION_PREFIX(null, "output-section-prefix", false, true, "Add a prefix to all of the PFnData sections"),
+    BINARY(null, "binary", false, false, "Write each section as a raw .bin file and the output file as an incbin include"),
+    COMPRESS(null, "compress", false, true, "Fold repeated rows together: rows (row index table) or runs (run lengths)"),
+    PACK(null, "pack", false, false, "Pack identical and overlapping tables into shared blobs"),
+    PACK_FILE(null, "pack-file", false, true, "Pack the tables of every conversion into one shared source file"),
+    PAGE_LAYOUT(null, "page-layout", false, false, "Group the tables into pages, aligning each page instead of each table"),
+    FRAMES(null, "frames", false, false, "Convert every image of an animated GIF or multi-image TIFF as a frame"),
+    FRAME_HEIGHT(null, "frame-height", false, true, "Split the input into frames of this many pixel rows (sprite sheets)"),
+    DELTA(null, "delta", false, false, "Store frames after the first as patch lists of the bytes that change"),
+    DELTA_BUDGET(null, "delta-budget", false, true, "Most cycles applying a step of a patch list may take (default 1520)"),
+    CHANGE_MASK(null, "change-mask", false, false, "Add a table marking the registers each row changes"),
+    SKIP_KERNEL(null, "skip-kernel", false, false, "Group stores into routines so kernels skip unchanged registers"),
+    PARALLEL_READ(null, "parallel-read", false, false, "Read images of 4096+ kernel lines in row blocks on every core"),
+    CACHE(null, "cache", false, true, "Directory to cache output in, so unchanged conversions are skipped"),
+    CACHE_SIZE(null, "cache-size", false, true, "Maximum size of the cache in megabytes (default 256)"),
+    STATS(null, "stats", false, true, "Write stage timings and counts of each conversion to a JSON file"),
+    WATCH(null, "watch", false, false, "Keep running and convert again whenever an input file changes"),
+    SERVER(null, "server", false, false, "Serve conversion requests on stdin/stdout until stdin ends"),
+    SOCKET(null, "socket", false, true, "Serve conversion requests on a Unix domain socket at the given path"),
+    DATA(null, "data", false, true, "Base64 encoded image, instead of --file (server requests only)"),
+    QUIET("q", "quiet", false, false, "Do not print progress messages"),
+    BATCH(null, "batch", false, true, "Properties file listing many conversions to run"),
+    JOBS("j", "jobs", false, true, "Number of batch conversions to run in parallel (default number of processors)"),
+    CHECK(null, "check", false, false, "Only check the headers of the input files, or of every image in a directory");
 
     final Option option;
 
@@ -40,4 +64,13 @@ public enum CommandLineOption {
     public Option toOption() {
         return option;
     }
+
+    /**
+     * Get the long name of the option, as used on the command line and in batch manifests.
+     *
+     * @return Long option name
+     */
+    public String getLongOption() {
+        return option.getLongOpt();
+    }
 }
@@ -0,0 +1,526 @@
+package com.zikworks.tools.a2600.bmp2pf;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+
+/**
+ * Timings and counts of a single conversion, broken down by stage.
+ * <p>
+ * Stage times are measured with {@link #start()} and
+ * {@link #lap(Stage, long)}, which do nothing when the stats are disabled,
+ * so instrumented code costs next to nothing when nobody is listening.
+ * When rows are read in parallel the read, parse and encode times are
+ * summed over all threads, so they can add up to more than the total.
+ * <p>
+ * Instances are not thread-safe, apart from {@link #merge(ConversionStats)}.
+ */
+public class ConversionStats {
+
+    /**
+     * A stage of a conversion.
+     */
+    public enum Stage {
+        /**
+         * Opening the input file, and decoding it when it is not read straight from disk.
+         */
+        DECODE("decode"),
+        /**
+         * Checking the image width against the layout.
+         */
+        WIDTH_CHECK("widthCheck"),
+        /**
+         * Reading rows of pixels into line data.
+         */
+        READ("read"),
+        /**
+         * Parsing line data into register values.
+         */
+        PARSE("parse"),
+        /**
+         * Storing the colors and packing the collision bits of each row.
+         */
+        ENCODE("encode"),
+        /**
+         * Formatting the output files, excluding the time spent writing them.
+         */
+        FORMAT("format"),
+        /**
+         * Writing bytes to the output files.
+         */
+        WRITE("write"),
+        /**
+         * Moving or copying the finished files into the output directory.
+         */
+        PUBLISH("publish"),
+        /**
+         * Looking up and storing results in the result cache.
+         */
+        CACHE("cache");
+
+        private final String key;
+
+        Stage(String key) {
+            this.key = key;
+        }
+
+        /**
+         * Get the name of the stage in JSON reports.
+         *
+         * @return Stage name
+         */
+        public String getKey() {
+            return key;
+        }
+    }
+
+    /**
+     * Receives the stats of every conversion once it has finished.
+     */
+    @FunctionalInterface
+    public interface Listener {
+
+        /**
+         * Called after a conversion has finished successfully.
+         *
+         * @param stats Stats of the conversion
+         * @throws IOException Error handling the stats, such as writing a report
+         */
+        void conversionFinished(ConversionStats stats) throws IOException;
+    }
+
+    private final boolean enabled;
+    private final String inputFile;
+    private final String outputFile;
+    private final Thread thread;
+    private final long startNanos;
+    private final long startAllocatedBytes;
+    private final long[] stageNanos = new long[Stage.values().length];
+    private long totalNanos;
+    private long allocatedBytes;
+    private int imageWidth;
+    private int imageHeight;
+    private int rows;
+    private int collisionRows;
+    private int tableBytes;
+    private int compressedTableBytes;
+    private int paddingBytes;
+    private int alignedPaddingBytes;
+    private int alignedCrossingTables;
+    private int registerWrites;
+    private int skippedRegisterWrites;
+    private int savedCycles;
+    private int filesWritten;
+    private long bytesWritten;
+    private boolean cacheHit;
+
+    /**
+     * Start collecting the stats of a conversion on the current thread.
+     *
+     * @param enabled    Whether to measure anything
+     * @param inputFile  Description of the input, usually its path
+     * @param outputFile Output file, or null when converting in memory
+     */
+    public ConversionStats(boolean enabled, String inputFile, String outputFile) {
+        this.enabled = enabled;
+        this.inputFile = inputFile;
+        this.outputFile = outputFile;
+        this.thread = Thread.currentThread();
+        this.startNanos = enabled ? System.nanoTime() : 0;
+        this.startAllocatedBytes = enabled ? currentThreadAllocatedBytes() : 0;
+    }
+
+    /**
+     * Create stats for work done on another thread as part of this
+     * conversion.  Call this on that thread, and pass the result to merge
+     * on the same thread once the work is done.
+     *
+     * @return New, empty stats
+     */
+    public ConversionStats createChild() {
+        return new ConversionStats(enabled, inputFile, outputFile);
+    }
+
+    /**
+     * Add the stage times and allocations of a child to these stats.
+     *
+     * @param child Stats created by createChild
+     */
+    public synchronized void merge(ConversionStats child) {
+        if (!enabled) {
+            return;
+        }
+        for (int i = 0; i < stageNanos.length; i++) {
+            stageNanos[i] += child.stageNanos[i];
+        }
+
+        // Allocations on this thread are already counted when the conversion finishes
+        if (child.thread != thread) {
+            allocatedBytes += currentThreadAllocatedBytes() - child.startAllocatedBytes;
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Get the time to measure a stage from.
+     *
+     * @return Current time in nanoseconds, or 0 when disabled
+     */
+    public long start() {
+        return enabled ? System.nanoTime() : 0;
+    }
+
+    /**
+     * Add the time since start to a stage.
+     *
+     * @param stage Stage to add the time to
+     * @param start Value returned by start, or by the previous lap
+     * @return Current time, to measure the next stage from
+     */
+    public long lap(Stage stage, long start) {
+        if (!enabled) {
+            return 0;
+        }
+        long now = System.nanoTime();
+        stageNanos[stage.ordinal()] += now - start;
+        return now;
+    }
+
+    /**
+     * Add time to a stage.  The time can be negative, to take out time
+     * that was measured separately.
+     *
+     * @param stage Stage to add the time to
+     * @param nanos Time in nanoseconds
+     */
+    public void add(Stage stage, long nanos) {
+        if (enabled) {
+            stageNanos[stage.ordinal()] += nanos;
+        }
+    }
+
+    /**
+     * Wrap an output file stream so the bytes written to it and the time
+     * spent writing them are counted.
+     *
+     * @param out Stream of a new output file
+     * @return Counting stream, or the stream itself when disabled
+     */
+    public OutputStream countWrites(OutputStream out) {
+        if (!enabled) {
+            return out;
+        }
+        filesWritten++;
+        return new FilterOutputStream(out) {
+            @Override
+            public void write(int value) throws IOException {
+                long start = System.nanoTime();
+                out.write(value);
+                bytesWritten++;
+                lap(Stage.WRITE, start);
+            }
+
+            @Override
+            public void write(byte[] bytes, int offset, int length) throws IOException {
+                long start = System.nanoTime();
+                out.write(bytes, offset, length);
+                bytesWritten += length;
+                lap(Stage.WRITE, start);
+            }
+
+            @Override
+            public void close() throws IOException {
+                long start = System.nanoTime();
+                super.close();
+                lap(Stage.WRITE, start);
+            }
+        };
+    }
+
+    /**
+     * Record the size of the image and of the table it was read into.
+     *
+     * @param imageWidth    Image width in pixels
+     * @param imageHeight   Image height in pixels
+     * @param rows          Number of rows in the table, including buffer rows
+     * @param collisionRows Number of collision rows in the table
+     */
+    public void setImageSize(int imageWidth, int imageHeight, int rows, int collisionRows) {
+        this.imageWidth = imageWidth;
+        this.imageHeight = imageHeight;
+        this.rows = rows;
+        this.collisionRows = collisionRows;
+    }
+
+    /**
+     * Record the size of the register and color tables written, before and
+     * after any compression.  Collision data is not included.
+     *
+     * @param tableBytes           Size of the tables with one entry per row
+     * @param compressedTableBytes Size of the tables as written, including any index table
+     */
+    public void setTableBytes(int tableBytes, int compressedTableBytes) {
+        this.tableBytes = tableBytes;
+        this.compressedTableBytes = compressedTableBytes;
+    }
+
+    /**
+     * Add the bytes lost to page alignment in a planned output file, and
+     * the bytes lost and tables crossing a page with every table aligned
+     * on its own.
+     *
+     * @param paddingBytes          Padding with the page layout
+     * @param alignedPaddingBytes   Padding with every table aligned on its own
+     * @param alignedCrossingTables Tables crossing a page with every table aligned on its own
+     */
+    public void addPadding(int paddingBytes, int alignedPaddingBytes, int alignedCrossingTables) {
+        this.paddingBytes += paddingBytes;
+        this.alignedPaddingBytes += alignedPaddingBytes;
+        this.alignedCrossingTables += alignedCrossingTables;
+    }
+
+    /**
+     * Add the register writes a kernel makes drawing a table, the writes a
+     * change mask or skip kernel leaves out, and the cycles that saves.
+     *
+     * @param registerWrites        Writes storing every register on every row
+     * @param skippedRegisterWrites Writes of registers that do not change
+     * @param savedCycles           Cycles saved, negative if skipping costs more than it saves
+     */
+    public void addRegisterWrites(int registerWrites, int skippedRegisterWrites, int savedCycles) {
+        this.registerWrites += registerWrites;
+        this.skippedRegisterWrites += skippedRegisterWrites;
+        this.savedCycles += savedCycles;
+    }
+
+    public void setCacheHit(boolean cacheHit) {
+        this.cacheHit = cacheHit;
+    }
+
+    /**
+     * Stop the clock, once the conversion has finished.
+     */
+    public void finish() {
+        if (enabled) {
+            totalNanos = System.nanoTime() - startNanos;
+            allocatedBytes += currentThreadAllocatedBytes() - startAllocatedBytes;
+        }
+    }
+
+    public String getInputFile() {
+        return inputFile;
+    }
+
+    public String getOutputFile() {
+        return outputFile;
+    }
+
+    /**
+     * Get the time spent in a stage.
+     *
+     * @param stage Stage
+     * @return Time in nanoseconds
+     */
+    public long getNanos(Stage stage) {
+        return stageNanos[stage.ordinal()];
+    }
+
+    /**
+     * Get the wall clock time of the whole conversion.
+     *
+     * @return Time in nanoseconds
+     */
+    public long getTotalNanos() {
+        return totalNanos;
+    }
+
+    /**
+     * Get an estimate of the bytes allocated by the conversion, from the
+     * allocation counters of the threads that worked on it.
+     *
+     * @return Allocated bytes, or 0 if the JVM does not count allocations
+     */
+    public long getAllocatedBytes() {
+        return allocatedBytes;
+    }
+
+    public int getImageWidth() {
+        return imageWidth;
+    }
+
+    public int getImageHeight() {
+        return imageHeight;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getCollisionRows() {
+        return collisionRows;
+    }
+
+    public int getTableBytes() {
+        return tableBytes;
+    }
+
+    public int getCompressedTableBytes() {
+        return compressedTableBytes;
+    }
+
+    /**
+     * Get how many times smaller the compressed tables are.
+     *
+     * @return Table bytes divided by compressed table bytes, 1 if nothing was written
+     */
+    public double getCompressionRatio() {
+        return compressedTableBytes > 0 ? (double) tableBytes / compressedTableBytes : 1.0;
+    }
+
+    public int getPaddingBytes() {
+        return paddingBytes;
+    }
+
+    public int getAlignedPaddingBytes() {
+        return alignedPaddingBytes;
+    }
+
+    public int getAlignedCrossingTables() {
+        return alignedCrossingTables;
+    }
+
+    public int getRegisterWrites() {
+        return registerWrites;
+    }
+
+    public int getSkippedRegisterWrites() {
+        return skippedRegisterWrites;
+    }
+
+    public int getSavedCycles() {
+        return savedCycles;
+    }
+
+    public int getFilesWritten() {
+        return filesWritten;
+    }
+
+    public long getBytesWritten() {
+        return bytesWritten;
+    }
+
+    public boolean isCacheHit() {
+        return cacheHit;
+    }
+
+    /**
+     * Format the stats as a JSON object on a single line.
+     *
+     * @return JSON object
+     */
+    public String toJson() {
+        StringBuilder json = new StringBuilder("{");
+        json.append("\"input\":").append(quote(inputFile));
+        json.append(",\"output\":").append(outputFile == null ? "null" : quote(outputFile));
+        json.append(",\"cacheHit\":").append(cacheHit);
+        json.append(",\"imageWidth\":").append(imageWidth);
+        json.append(",\"imageHeight\":").append(imageHeight);
+        json.append(",\"rows\":").append(rows);
+        json.append(",\"collisionRows\":").append(collisionRows);
+        json.append(",\"tableBytes\":").append(tableBytes);
+        json.append(",\"compressedTableBytes\":").append(compressedTableBytes);
+        json.append(",\"compressionRatio\":").append(String.format(Locale.ROOT, "%.3f", getCompressionRatio()));
+        json.append(",\"paddingBytes\":").append(paddingBytes);
+        json.append(",\"alignedPaddingBytes\":").append(alignedPaddingBytes);
+        json.append(",\"alignedCrossingTables\":").append(alignedCrossingTables);
+        json.append(",\"registerWrites\":").append(registerWrites);
+        json.append(",\"skippedRegisterWrites\":").append(skippedRegisterWrites);
+        json.append(",\"savedCycles\":").append(savedCycles);
+        json.append(",\"filesWritten\":").append(filesWritten);
+        json.append(",\"bytesWritten\":").append(bytesWritten);
+        json.append(",\"allocatedBytes\":").append(allocatedBytes);
+        json.append(",\"totalMillis\":").append(millis(totalNanos));
+        json.append(",\"stageMillis\":").append(stagesToJson(stageNanos));
+        return json.append('}').toString();
+    }
+
+    /**
+     * Write the stats to a JSON file.
+     *
+     * @param file File to write
+     * @throws IOException Error writing the file
+     */
+    public void write(Path file) throws IOException {
+        Files.writeString(file, toJson() + System.lineSeparator());
+    }
+
+    /**
+     * Format stage times as a JSON object of milliseconds.
+     *
+     * @param stageNanos Time of each stage in nanoseconds, indexed by ordinal
+     * @return JSON object
+     */
+    static String stagesToJson(long[] stageNanos) {
+        StringBuilder json = new StringBuilder("{");
+        for (Stage stage : Stage.values()) {
+            if (stage.ordinal() > 0) {
+                json.append(',');
+            }
+            json.append('"').append(stage.getKey()).append("\":").append(millis(stageNanos[stage.ordinal()]));
+        }
+        return json.append('}').toString();
+    }
+
+    /**
+     * Format nanoseconds as milliseconds with 3 decimals.
+     *
+     * @param nanos Time in nanoseconds
+     * @return Milliseconds
+     */
+    static String millis(long nanos) {
+        return String.format(Locale.ROOT, "%.3f", nanos / 1_000_000.0);
+    }
+
+    /**
+     * Quote a string for JSON.
+     *
+     * @param value String to quote
+     * @return Quoted and escaped string
+     */
+    static String quote(String value) {
+        StringBuilder quoted = new StringBuilder("\"");
+        for (char c : value.toCharArray()) {
+            switch (c) {
+                case '"' -> quoted.append("\\\"");
+                case '\\' -> quoted.append("\\\\");
+                case '\n' -> quoted.append("\\n");
+                case '\r' -> quoted.append("\\r");
+                case '\t' -> quoted.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        quoted.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        quoted.append(c);
+                    }
+                }
+            }
+        }
+        return quoted.append('"').toString();
+    }
+
+    private static long currentThreadAllocatedBytes() {
+        if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean threadBean
+                && threadBean.isThreadAllocatedMemorySupported()
+                && threadBean.isThreadAllocatedMemoryEnabled()) {
+            return threadBean.getCurrentThreadAllocatedBytes();
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,25 @@
+package com.zikworks.tools.a2600.bmp2pf;
+
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Outcome of checking an input image against the options of a generator,
+ * using only the image's header.
+ *
+ * @param file        Checked image file
+ * @param description Format, size and bit depth of the image, or null if the header could not be read
+ * @param problems    Reasons the image would fail to convert
+ * @param warnings    Things that convert, but may not be what was intended
+ */
+public record ImageCheck(Path file, String description, List<String> problems, List<String> warnings) {
+
+    /**
+     * Whether the image would convert.
+     *
+     * @return true if no problems were found; false otherwise
+     */
+    public boolean isOk() {
+        return problems.isEmpty();
+    }
+}
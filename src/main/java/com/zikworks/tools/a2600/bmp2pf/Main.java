@@ -3,17 +3,98 @@ package com.zikworks.tools.a2600.bmp2pf;
 import org.apache.commons.cli.CommandLine;
 import org.apache.commons.cli.CommandLineParser;
 import org.apache.commons.cli.DefaultParser;
+import org.apache.commons.cli.MissingOptionException;
+import org.apache.commons.cli.Option;
 import org.apache.commons.cli.Options;
 import org.apache.commons.cli.ParseException;
 import org.apache.commons.cli.help.HelpFormatter;
 
 import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
 
 public class Main {
 
     public static void main(String[] args) {
 
-        Options options = new Options()
+        Options options = createOptions();
+        CommandLineParser commandLineParser = new DefaultParser();
+
+        try {
+            CommandLine commandLine = commandLineParser.parse(options, args);
+            if (commandLine.hasOption(CommandLineOption.SERVER.toOption())) {
+                new PlayfieldServer(createOptions()).serve(System.in, System.out);
+                return;
+            }
+            if (commandLine.hasOption(CommandLineOption.SOCKET.toOption())) {
+                Path socketPath = Path.of(commandLine.getOptionValue(CommandLineOption.SOCKET.toOption()));
+                System.out.println("Serving requests on " + socketPath);
+                new PlayfieldServer(createOptions()).serve(socketPath);
+                return;
+            }
+
+            if (commandLine.hasOption(CommandLineOption.CHECK.toOption())) {
+                if (!runCheck(commandLine, options)) {
+                    System.exit(1);
+                }
+                return;
+            }
+
+            boolean watch = commandLine.hasOption(CommandLineOption.WATCH.toOption());
+            TablePack tablePack = createTablePack(commandLine);
+            if (watch && tablePack != null) {
+                throw new IllegalArgumentException("A pack file cannot be used while watching");
+            }
+            if (commandLine.hasOption(CommandLineOption.BATCH.toOption())) {
+                if (watch) {
+                    watchBatch(commandLine, options);
+                } else {
+                    if (!runBatch(commandLine, options, tablePack)) {
+                        System.exit(1);
+                    }
+                }
+                return;
+            }
+
+            List<String> missing = Stream.of(CommandLineOption.INPUT_FILE, CommandLineOption.OUTPUT_FILE)
+                    .map(CommandLineOption::toOption)
+                    .filter(option -> !commandLine.hasOption(option))
+                    .map(Option::getOpt)
+                    .toList();
+            if (!missing.isEmpty()) {
+                throw new MissingOptionException(missing);
+            }
+
+            if (watch) {
+                PlayfieldGeneratorBuilder builder = PlayfieldGenerator.builder(commandLine);
+                String name = Path.of(builder.getInputFile()).getFileName().toString();
+                new PlayfieldWatcher(List.of(PlayfieldWatcher.createJob(name, builder))).run();
+                return;
+            }
+
+            PlayfieldGenerator generator = PlayfieldGenerator.builder(commandLine)
+                    .withTablePack(tablePack)
+                    .build();
+            generator.generate();
+            writeTablePack(tablePack, commandLine);
+            System.out.println("Done.");
+        } catch (ParseException | IllegalArgumentException ex) {
+            System.err.println(ex.getMessage());
+            showHelp(options);
+        } catch (IOException ex) {
+            System.err.println("Failed to convert BMP file: " + ex.getMessage());
+        }
+    }
+
+    /**
+     * Create the options understood on the command line and in batch manifests.
+     *
+     * @return Command line options
+     */
+    static Options createOptions() {
+        return new Options()
                 .addOption(CommandLineOption.INPUT_FILE.toOption())
                 .addOption(CommandLineOption.OUTPUT_FILE.toOption())
                 .addOption(CommandLineOption.BUFFER_OUTPUT.toOption())
@@ -22,26 +103,165 @@ public class Main {
                 .addOption(CommandLineOption.ASYMMETRICAL.toOption())
                 .addOption(CommandLineOption.REPEATED.toOption())
                 .addOption(CommandLineOption.MIRRORED.toOption())
+                .addOption(CommandLineOption.LAYOUT.toOption())
                 .addOption(CommandLineOption.KERNEL.toOption())
                 .addOption(CommandLineOption.COLLISION_RESOLUTION.toOption())
                 .addOption(CommandLineOption.NO_COLOR.toOption())
                 .addOption(CommandLineOption.NO_COLLISION.toOption())
                 .addOption(CommandLineOption.SEPARATE_COLLISION.toOption())
-                .addOption(CommandLineOption.OUTPUT_SECTION_PREFIX.toOption());
+                .addOption(CommandLineOption.OUTPUT_SECTION_PREFIX.toOption())
+                .addOption(CommandLineOption.BINARY.toOption())
+                .addOption(CommandLineOption.COMPRESS.toOption())
+                .addOption(CommandLineOption.PACK.toOption())
+                .addOption(CommandLineOption.PACK_FILE.toOption())
+                .addOption(CommandLineOption.PAGE_LAYOUT.toOption())
+                .addOption(CommandLineOption.FRAMES.toOption())
+                .addOption(CommandLineOption.FRAME_HEIGHT.toOption())
+                .addOption(CommandLineOption.DELTA.toOption())
+                .addOption(CommandLineOption.DELTA_BUDGET.toOption())
+                .addOption(CommandLineOption.CHANGE_MASK.toOption())
+                .addOption(CommandLineOption.SKIP_KERNEL.toOption())
+                .addOption(CommandLineOption.PARALLEL_READ.toOption())
+                .addOption(CommandLineOption.CACHE.toOption())
+                .addOption(CommandLineOption.CACHE_SIZE.toOption())
+                .addOption(CommandLineOption.STATS.toOption())
+                .addOption(CommandLineOption.WATCH.toOption())
+                .addOption(CommandLineOption.SERVER.toOption())
+                .addOption(CommandLineOption.SOCKET.toOption())
+                .addOption(CommandLineOption.QUIET.toOption())
+                .addOption(CommandLineOption.BATCH.toOption())
+                .addOption(CommandLineOption.JOBS.toOption())
+                .addOption(CommandLineOption.CHECK.toOption());
+    }
 
-        CommandLineParser commandLineParser = new DefaultParser();
+    /**
+     * Run every job of a batch and print the summary.
+     *
+     * @param commandLine Command line
+     * @param options     Command line options
+     * @param tablePack   Shared pack the jobs hand their tables to, or null
+     * @return true if every job succeeded; false otherwise
+     * @throws IOException Error reading the manifest or writing the pack file or stats
+     */
+    private static boolean runBatch(CommandLine commandLine, Options options, TablePack tablePack)
+            throws IOException {
+        BatchRunner batchRunner = createBatchRunner(commandLine, options, tablePack);
+        System.out.println("Running batch " + batchRunner.getManifestFile() + " with "
+                + batchRunner.getThreads() + " threads");
+        long start = System.nanoTime();
+        List<BatchRunner.JobResult> results = batchRunner.run();
+        batchRunner.printSummary(results, (System.nanoTime() - start) / 1_000_000);
+        writeTablePack(tablePack, commandLine);
+        if (commandLine.hasOption(CommandLineOption.STATS.toOption())) {
+            batchRunner.getStatsReport().write(
+                    Path.of(commandLine.getOptionValue(CommandLineOption.STATS.toOption())));
+        }
+        return results.stream().allMatch(BatchRunner.JobResult::success);
+    }
 
-        try {
-            CommandLine commandLine = commandLineParser.parse(options, args);
-            PlayfieldGenerator generator = PlayfieldGenerator.builder(commandLine).build();
-            generator.generate();
-            System.out.println("Done.");
-        } catch (ParseException ex) {
-            System.err.println(ex.getMessage());
-            showHelp(options);
-        } catch (IOException ex) {
-            System.err.println("Failed to convert BMP file: " + ex.getMessage());
+    private static void watchBatch(CommandLine commandLine, Options options) throws IOException {
+        List<PlayfieldWatcher.Job> jobs = new ArrayList<>();
+        BatchRunner batchRunner = createBatchRunner(commandLine, options, null);
+        Path statsFile = commandLine.hasOption(CommandLineOption.STATS.toOption())
+                ? Path.of(commandLine.getOptionValue(CommandLineOption.STATS.toOption()))
+                : null;
+        batchRunner.createBuilders().forEach((name, builder) -> {
+            // The report is rewritten after every conversion, holding the latest one of each job
+            if (statsFile != null) {
+                builder.addStatsListener(stats -> batchRunner.getStatsReport().write(statsFile));
+            }
+            jobs.add(PlayfieldWatcher.createJob(name, builder));
+        });
+        new PlayfieldWatcher(jobs).run();
+    }
+
+    /**
+     * Check the headers of the input files, or of the input files of every
+     * job in a batch, in parallel.
+     *
+     * @param commandLine Command line
+     * @param options     Command line options
+     * @return true if every file passed; false otherwise
+     * @throws IOException    Error reading the manifest or listing a directory
+     * @throws ParseException No input files were given
+     */
+    private static boolean runCheck(CommandLine commandLine, Options options) throws IOException, ParseException {
+        List<PlayfieldChecker.Job> jobs = new ArrayList<>();
+        if (commandLine.hasOption(CommandLineOption.BATCH.toOption())) {
+            BatchRunner batchRunner = createBatchRunner(commandLine, options, null);
+            for (PlayfieldGeneratorBuilder builder : batchRunner.createBuilders().values()) {
+                jobs.add(new PlayfieldChecker.Job(Path.of(builder.getInputFile()), builder.withQuiet(true).build()));
+            }
+        } else {
+            // Files and directories can also be listed after the options
+            List<String> inputs = new ArrayList<>(commandLine.getArgList());
+            if (commandLine.hasOption(CommandLineOption.INPUT_FILE.toOption())) {
+                inputs.addFirst(commandLine.getOptionValue(CommandLineOption.INPUT_FILE.toOption()));
+            }
+            if (inputs.isEmpty()) {
+                throw new MissingOptionException(List.of(CommandLineOption.INPUT_FILE.toOption().getOpt()));
+            }
+
+            PlayfieldGenerator generator = PlayfieldGenerator.builder(commandLine).withQuiet(true).build();
+            for (String input : inputs) {
+                for (Path file : PlayfieldChecker.findImages(Path.of(input))) {
+                    jobs.add(new PlayfieldChecker.Job(file, generator));
+                }
+            }
         }
+
+        PlayfieldChecker checker = new PlayfieldChecker(getThreads(commandLine));
+        long start = System.nanoTime();
+        List<ImageCheck> results = checker.check(jobs);
+        return checker.printReport(results, (System.nanoTime() - start) / 1_000_000,
+                commandLine.hasOption(CommandLineOption.QUIET.toOption()));
+    }
+
+    private static int getThreads(CommandLine commandLine) {
+        return commandLine.hasOption(CommandLineOption.JOBS.toOption())
+                ? Integer.parseInt(commandLine.getOptionValue(CommandLineOption.JOBS.toOption()))
+                : Runtime.getRuntime().availableProcessors();
+    }
+
+    private static TablePack createTablePack(CommandLine commandLine) {
+        return commandLine.hasOption(CommandLineOption.PACK_FILE.toOption())
+                ? new TablePack(Path.of(commandLine.getOptionValue(CommandLineOption.PACK_FILE.toOption())))
+                : null;
+    }
+
+    /**
+     * Write the tables every conversion added to the shared pack.
+     *
+     * @param tablePack   Shared pack, or null if none was given
+     * @param commandLine Command line
+     * @throws IOException Error writing the pack file, or two conversions define the same label
+     */
+    private static void writeTablePack(TablePack tablePack, CommandLine commandLine) throws IOException {
+        if (tablePack == null) {
+            return;
+        }
+        TablePacker.Layout layout = tablePack.write();
+        if (!commandLine.hasOption(CommandLineOption.QUIET.toOption())) {
+            System.out.printf("Packed %d tables into %d blobs, %d to %d bytes: %s%n",
+                    layout.placements().size(), layout.blobs().size(), layout.tableBytes(),
+                    layout.getPackedBytes(), tablePack.getFile());
+        }
+    }
+
+    private static BatchRunner createBatchRunner(CommandLine commandLine, Options options, TablePack tablePack) {
+        Path manifestFile = Path.of(commandLine.getOptionValue(CommandLineOption.BATCH.toOption()));
+        int threads = getThreads(commandLine);
+
+        // Cache options given on the command line apply to every job
+        List<String> sharedArguments = new ArrayList<>();
+        for (CommandLineOption option : List.of(CommandLineOption.CACHE, CommandLineOption.CACHE_SIZE)) {
+            if (commandLine.hasOption(option.toOption())) {
+                sharedArguments.add("--" + option.getLongOption());
+                sharedArguments.add(commandLine.getOptionValue(option.toOption()));
+            }
+        }
+
+        return new BatchRunner(manifestFile, threads, options, sharedArguments, tablePack);
     }
 
     private static void showHelp(Options options) {
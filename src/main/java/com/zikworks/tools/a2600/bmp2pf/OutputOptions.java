@@ -0,0 +1,111 @@
+package com.zikworks.tools.a2600.bmp2pf;
+
+import com.zikworks.tools.a2600.bmp2pf.PlayfieldGeneratorBuilder.Compression;
+import com.zikworks.tools.a2600.bmp2pf.impl.DeltaFrames;
+
+/**
+ * The options that decide how converted rows are written out, handed from
+ * the builder to the generator and on to the output writers.
+ *
+ * @param outputSectionPrefix   Prefix for all section labels
+ * @param separateCollisionFile Whether collision data goes to its own file
+ * @param binaryOutput          Whether tables are written to binary files included by the output
+ * @param compression           How repeated rows are folded together
+ * @param pack                  Whether to pack the tables into shared blobs
+ * @param tablePack             Pack file the tables go to instead of the output, or null
+ * @param pageLayout            Whether to plan the pages of the tables instead of aligning each
+ * @param changeMask            Whether to add a PFChanges table
+ * @param skipKernel            Whether to add the store routines and PFSkip table of a skip kernel
+ * @param animation             Whether the frames of an animation are written to one output
+ * @param delta                 Whether frames after the first are written as patch lists
+ * @param deltaBudget           Most cycles each step of a patch list may take
+ */
+public record OutputOptions(String outputSectionPrefix,
+                            boolean separateCollisionFile,
+                            boolean binaryOutput,
+                            Compression compression,
+                            boolean pack,
+                            TablePack tablePack,
+                            boolean pageLayout,
+                            boolean changeMask,
+                            boolean skipKernel,
+                            boolean animation,
+                            boolean delta,
+                            int deltaBudget) {
+    /**
+     * Check the options can be written together.
+     *
+     * @throws IllegalArgumentException The options conflict
+     */
+    public OutputOptions {
+        if (changeMask && compression != Compression.NONE) {
+            throw new IllegalArgumentException("A change mask cannot be used with compression");
+        }
+        if (skipKernel && binaryOutput) {
+            throw new IllegalArgumentException("A skip kernel cannot be written as binary");
+        }
+        if (skipKernel && compression != Compression.NONE) {
+            throw new IllegalArgumentException("A skip kernel cannot be used with compression");
+        }
+        if (skipKernel && pack) {
+            throw new IllegalArgumentException("A skip kernel cannot be packed");
+        }
+        if (skipKernel && tablePack != null) {
+            throw new IllegalArgumentException("A skip kernel cannot be written to a pack file");
+        }
+        if (skipKernel && animation) {
+            throw new IllegalArgumentException("A skip kernel cannot be used with frames");
+        }
+        if (animation && binaryOutput) {
+            throw new IllegalArgumentException("Frames cannot be written as binary");
+        }
+        if (animation && compression != Compression.NONE) {
+            throw new IllegalArgumentException("Frames cannot be compressed");
+        }
+        if (animation && tablePack != null) {
+            throw new IllegalArgumentException("Frames cannot be written to a pack file");
+        }
+        if (delta && !animation) {
+            throw new IllegalArgumentException("Delta frames need frames, from --frames or --frame-height");
+        }
+        if (delta && deltaBudget < DeltaFrames.MIN_CYCLE_BUDGET) {
+            throw new IllegalArgumentException("A delta budget of " + deltaBudget
+                    + " cycles cannot apply a single patch, at least " + DeltaFrames.MIN_CYCLE_BUDGET
+                    + " are needed");
+        }
+    }
+
+    /**
+     * Get these options with another label prefix, as used for the frames
+     * of an animation.
+     *
+     * @param outputSectionPrefix Prefix for all section labels
+     * @return Options with the prefix
+     */
+    public OutputOptions withOutputSectionPrefix(String outputSectionPrefix) {
+        return new OutputOptions(outputSectionPrefix, separateCollisionFile, binaryOutput, compression, pack,
+                tablePack, pageLayout, changeMask, skipKernel, animation, delta, deltaBudget);
+    }
+
+    /**
+     * Get these options with collision data kept in or out of its own file.
+     *
+     * @param separateCollisionFile Whether collision data goes to its own file
+     * @return Options with the collision file setting
+     */
+    public OutputOptions withSeparateCollisionFile(boolean separateCollisionFile) {
+        return new OutputOptions(outputSectionPrefix, separateCollisionFile, binaryOutput, compression, pack,
+                tablePack, pageLayout, changeMask, skipKernel, animation, delta, deltaBudget);
+    }
+
+    /**
+     * Get these options writing the tables to the output instead of a pack
+     * file.
+     *
+     * @return Options without a pack file
+     */
+    public OutputOptions withoutTablePack() {
+        return new OutputOptions(outputSectionPrefix, separateCollisionFile, binaryOutput, compression, pack,
+                null, pageLayout, changeMask, skipKernel, animation, delta, deltaBudget);
+    }
+}
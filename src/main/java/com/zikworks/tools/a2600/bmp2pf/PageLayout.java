@@ -0,0 +1,166 @@
+package com.zikworks.tools.a2600.bmp2pf;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Plans where the tables of an output file go, so that none of them
+ * crosses a page and as few bytes as possible are lost to alignment.
+ * <p>
+ * Without a plan every table is aligned on its own, padding to the next
+ * page whenever it would cross one.  A plan instead groups the tables into
+ * pages with a best fit decreasing bin packing, and only each page is
+ * aligned, so small tables such as collision chunks fill the gaps left
+ * by the larger ones.  Tables longer than a page cannot avoid crossing;
+ * each starts a page of its own, and the end of its last page is filled
+ * like any other.
+ * <p>
+ * Padding is counted as if the output started on a page boundary, with
+ * the alignment check used in the output, which also pads a table ending
+ * exactly on a page boundary.  Space after the last table is not padding,
+ * as whatever follows the output can use it.  Without a plan the check
+ * uses the size symbol of each table, which for the collision chunks
+ * covers only the first few, so the tables that still cross a page are
+ * counted too.
+ */
+public class PageLayout {
+    /**
+     * Size of a 6502 page.
+     */
+    public static final int PAGE_SIZE = 256;
+
+    /**
+     * A table to place.
+     *
+     * @param size      Number of bytes in the table
+     * @param checkSize Size the alignment check uses for the table without a plan, or 0
+     *                  if it follows the table before it, as the collision chunks do
+     */
+    public record Item(int size, int checkSize) {
+    }
+
+    /**
+     * Tables that are aligned together.
+     *
+     * @param items Indexes of the tables, in the order they are written
+     * @param size  Number of bytes in the tables
+     */
+    public record Page(List<Integer> items, int size) {
+    }
+
+    /**
+     * The planned pages.
+     *
+     * @param pages                 Pages, in the order they are written
+     * @param paddingBytes          Bytes lost to alignment with the plan
+     * @param alignedPaddingBytes   Bytes lost to alignment with every table aligned on its own
+     * @param alignedCrossingTables Tables of up to a page that cross one with every table aligned on its own
+     */
+    public record Plan(List<Page> pages, int paddingBytes, int alignedPaddingBytes, int alignedCrossingTables) {
+
+        /**
+         * Get the bytes the plan saves over aligning every table on its own.
+         *
+         * @return Bytes saved, negative if the plan pads more
+         */
+        public int getSavedBytes() {
+            return alignedPaddingBytes - paddingBytes;
+        }
+    }
+
+    /**
+     * Plan the pages of an output file.
+     *
+     * @param items Tables in the order they are written without a plan
+     * @return Planned pages
+     */
+    public Plan plan(List<Item> items) {
+        List<Integer> order = new ArrayList<>();
+        for (int i = 0; i < items.size(); i++) {
+            order.add(i);
+        }
+        order.sort(Comparator.comparingInt((Integer i) -> items.get(i).size()).reversed());
+
+        // Best fit decreasing, with a table longer than a page opening its own run of pages
+        List<Bin> bins = new ArrayList<>();
+        for (int index : order) {
+            int size = items.get(index).size();
+            Bin best = null;
+            if (size <= PAGE_SIZE) {
+                for (Bin bin : bins) {
+                    if (bin.getFree() >= size && (best == null || bin.getFree() < best.getFree())) {
+                        best = bin;
+                    }
+                }
+            }
+            if (best == null) {
+                best = new Bin(size > PAGE_SIZE ? index : -1, (size + PAGE_SIZE - 1) / PAGE_SIZE * PAGE_SIZE);
+                bins.add(best);
+            }
+            best.items.add(index);
+            best.size += size;
+        }
+
+        // Long tables first and full pages next, so the emptiest page ends up last
+        bins.sort(Comparator.comparing((Bin bin) -> bin.first < 0)
+                .thenComparing(bin -> bin.getFree() > 0)
+                .thenComparing(Comparator.comparingInt((Bin bin) -> bin.size).reversed()));
+        List<Page> pages = new ArrayList<>();
+        for (Bin bin : bins) {
+            List<Integer> pageItems = new ArrayList<>(bin.items);
+            pageItems.sort(Comparator.comparing((Integer i) -> i != bin.first).thenComparing(i -> i));
+            pages.add(new Page(List.copyOf(pageItems), bin.size));
+        }
+
+        int address = 0;
+        int padding = 0;
+        for (Page page : pages) {
+            int aligned = align(address, page.size());
+            padding += aligned - address;
+            address = aligned + page.size();
+        }
+
+        address = 0;
+        int alignedPadding = 0;
+        int alignedCrossing = 0;
+        for (Item item : items) {
+            if (item.checkSize() > 0) {
+                int aligned = align(address, item.checkSize());
+                alignedPadding += aligned - address;
+                address = aligned;
+            }
+            if (item.size() <= PAGE_SIZE && address / PAGE_SIZE != (address + item.size() - 1) / PAGE_SIZE) {
+                alignedCrossing++;
+            }
+            address += item.size();
+        }
+        return new Plan(List.copyOf(pages), padding, alignedPadding, alignedCrossing);
+    }
+
+    /**
+     * Get the address a block starts at after the alignment check in the
+     * output, which moves it to the next page if it would cross one.
+     */
+    private static int align(int address, int size) {
+        return address / PAGE_SIZE != (address + size) / PAGE_SIZE
+                ? (address + PAGE_SIZE - 1) / PAGE_SIZE * PAGE_SIZE
+                : address;
+    }
+
+    private static final class Bin {
+        private final int first;
+        private final int capacity;
+        private final List<Integer> items = new ArrayList<>();
+        private int size;
+
+        private Bin(int first, int capacity) {
+            this.first = first;
+            this.capacity = capacity;
+        }
+
+        private int getFree() {
+            return capacity - size;
+        }
+    }
+}
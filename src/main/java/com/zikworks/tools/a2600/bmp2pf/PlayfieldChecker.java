@@ -0,0 +1,129 @@
+package com.zikworks.tools.a2600.bmp2pf;
+
+import javax.imageio.ImageIO;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Checks many input images on a bounded pool of threads, reading only
+ * their headers, so a whole asset tree can be validated without paying
+ * for a conversion of every file.
+ */
+public class PlayfieldChecker {
+
+    /**
+     * An image to check, and the generator whose options it must suit.
+     *
+     * @param file      Image file
+     * @param generator Generator the image is converted with
+     */
+    public record Job(Path file, PlayfieldGenerator generator) {
+    }
+
+    private final int threads;
+
+    /**
+     * Create a new checker.
+     *
+     * @param threads Number of images to check in parallel
+     */
+    public PlayfieldChecker(int threads) {
+        this.threads = threads;
+    }
+
+    /**
+     * Find the images to check under a path.  A directory is searched
+     * recursively for files with a suffix ImageIO can read.
+     *
+     * @param path Image file or directory
+     * @return Image files, sorted by path
+     * @throws IOException Error listing a directory
+     */
+    public static List<Path> findImages(Path path) throws IOException {
+        if (!Files.isDirectory(path)) {
+            return List.of(path);
+        }
+
+        Set<String> suffixes = Stream.of(ImageIO.getReaderFileSuffixes())
+                .map(suffix -> suffix.toLowerCase(Locale.ROOT))
+                .collect(Collectors.toSet());
+        try (Stream<Path> stream = Files.walk(path)) {
+            return stream.filter(Files::isRegularFile)
+                    .filter(file -> {
+                        String name = file.getFileName().toString();
+                        int dot = name.lastIndexOf('.');
+                        return dot > 0 && suffixes.contains(name.substring(dot + 1).toLowerCase(Locale.ROOT));
+                    })
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    /**
+     * Check every image.
+     *
+     * @param jobs Images to check
+     * @return Result of each check, in the order of the jobs
+     * @throws IOException Interrupted while waiting for the checks
+     */
+    public List<ImageCheck> check(List<Job> jobs) throws IOException {
+        List<Future<ImageCheck>> futures = new ArrayList<>();
+        try (ExecutorService executor = Executors.newFixedThreadPool(threads)) {
+            for (Job job : jobs) {
+                futures.add(executor.submit(() -> job.generator().check(job.file())));
+            }
+        }
+
+        List<ImageCheck> results = new ArrayList<>();
+        for (Future<ImageCheck> future : futures) {
+            try {
+                results.add(future.get());
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while waiting for checks", ex);
+            } catch (ExecutionException ex) {
+                throw new IOException("Check failed unexpectedly", ex.getCause());
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Print every problem and warning found, followed by a summary.
+     *
+     * @param results   Results returned by check
+     * @param wallClock Total time taken by the checks in milliseconds
+     * @param quiet     Whether to leave out the warnings
+     * @return true if no image has problems; false otherwise
+     */
+    public boolean printReport(List<ImageCheck> results, long wallClock, boolean quiet) {
+        int failed = 0;
+        int warnings = 0;
+        for (ImageCheck result : results) {
+            for (String problem : result.problems()) {
+                System.out.printf("%s: %s%n", result.file(), problem);
+            }
+            if (!quiet) {
+                for (String warning : result.warnings()) {
+                    System.out.printf("%s: warning: %s%n", result.file(), warning);
+                }
+            }
+            failed += result.isOk() ? 0 : 1;
+            warnings += result.warnings().size();
+        }
+        System.out.printf("%d checked, %d with problems, %d warnings in %d ms%n",
+                results.size(), failed, warnings, wallClock);
+        return failed == 0;
+    }
+}
@@ -2,10 +2,16 @@ package com.zikworks.tools.a2600.bmp2pf;
 
 import org.apache.commons.cli.CommandLine;
 
+import java.awt.image.BufferedImage;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
 
 /**
- * Responsible for generating an ASM compatible playfield.
+ * Responsible for generating an ASM compatible playfield.  Generators are
+ * immutable once built and can be shared between threads; every call to
+ * generate keeps its own working state.
  */
 public interface PlayfieldGenerator {
 
@@ -16,6 +22,64 @@ public interface PlayfieldGenerator {
      */
     void generate() throws IOException;
 
+    /**
+     * Generate an ASM output file from the given input BMP file, using the
+     * options of this generator.
+     *
+     * @param inputFile  Input BMP file
+     * @param outputFile Output ASM file
+     * @throws IOException I/O error during generation
+     */
+    void generate(Path inputFile, Path outputFile) throws IOException;
+
+    /**
+     * Convert an image file in memory, without writing any output.
+     *
+     * @param inputFile Input image file
+     * @return Result of the conversion
+     * @throws IOException Error reading the image, or the image is not valid for this generator
+     */
+    PlayfieldResult convert(Path inputFile) throws IOException;
+
+    /**
+     * Convert an image in memory, without writing any output.
+     *
+     * @param bufferedImage Input image
+     * @return Result of the conversion
+     * @throws IOException The image is not valid for this generator
+     */
+    PlayfieldResult convert(BufferedImage bufferedImage) throws IOException;
+
+    /**
+     * Convert an encoded image in memory, without writing any output.  The
+     * stream is read to the end but not closed.
+     *
+     * @param inputStream Stream with the encoded image, such as a BMP file
+     * @return Result of the conversion
+     * @throws IOException Error reading the image, or the image is not valid for this generator
+     */
+    PlayfieldResult convert(InputStream inputStream) throws IOException;
+
+    /**
+     * Convert an encoded image in memory, without writing any output.  BMP
+     * data is read in place; the buffer's position is not changed.
+     *
+     * @param imageData Encoded image, such as a BMP file
+     * @return Result of the conversion
+     * @throws IOException Error reading the image, or the image is not valid for this generator
+     */
+    PlayfieldResult convert(ByteBuffer imageData) throws IOException;
+
+    /**
+     * Check whether an image file would convert with the options of this
+     * generator, reading only its header.  Every problem found is
+     * reported, rather than stopping at the first one.
+     *
+     * @param inputFile Input image file
+     * @return Problems and warnings found
+     */
+    ImageCheck check(Path inputFile);
+
     /**
      * Create a new PlayfieldGeneratorBuilder.
      *
@@ -25,4 +89,13 @@ public interface PlayfieldGenerator {
     static PlayfieldGeneratorBuilder builder(CommandLine commandLine) {
         return new PlayfieldGeneratorBuilder(commandLine);
     }
+
+    /**
+     * Create a new PlayfieldGeneratorBuilder with default options.
+     *
+     * @return A new PlayfieldGeneratorBuilder
+     */
+    static PlayfieldGeneratorBuilder builder() {
+        return new PlayfieldGeneratorBuilder();
+    }
 }
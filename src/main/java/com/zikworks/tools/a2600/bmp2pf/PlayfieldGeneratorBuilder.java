@@ -1,22 +1,26 @@
 package com.zikworks.tools.a2600.bmp2pf;
 
-import com.zikworks.tools.a2600.bmp2pf.impl.AsymmetricalMirrorPlayfieldLineDataParser;
-import com.zikworks.tools.a2600.bmp2pf.impl.AsymmetricalRepeatPlayfieldLineDataParser;
+import com.zikworks.tools.a2600.bmp2pf.impl.LayoutPlayfieldLineDataParser;
 import com.zikworks.tools.a2600.bmp2pf.impl.PlayfieldGeneratorImpl;
-import com.zikworks.tools.a2600.bmp2pf.impl.SymmetricalMirrorPlayfieldLineDataParser;
-import com.zikworks.tools.a2600.bmp2pf.impl.SymmetricalRepeatPlayfieldLineDataParser;
 import org.apache.commons.cli.CommandLine;
 
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
 /**
  * Help build a PlayfieldGenerator.
  */
 public class PlayfieldGeneratorBuilder {
+    private static final long DEFAULT_CACHE_SIZE_MB = 256;
+    private static final int DEFAULT_DELTA_BUDGET = 1520;
 
     /**
      * Whether the input/output is used with a symmetrical playfield
      * or an asymmetrical one.  Determines the width of the input file.
      */
-    private enum GeneratorMode {
+    public enum GeneratorMode {
         SYMMETRICAL,
         ASYMMETRICAL
     }
@@ -25,22 +29,65 @@ public class PlayfieldGeneratorBuilder {
      * When generating an asymmetrical playfield controls whether the
      * PF registers are in repeat or mirror mode.
      */
-    private enum PlayfieldRegistersMode {
+    public enum PlayfieldRegistersMode {
         REPEAT,
         MIRROR
     }
 
-    private final String inputFile;
-    private final String outputFile;
-    private final boolean fullScale;
-    private final boolean excludeColor;
-    private final int kernelLines;
-    private final int collisionLines;
-    private final int outputBufferLines;
-    private final boolean separateCollisionFile;
-    private final String outputSectionPrefix;
+    /**
+     * How repeated rows are folded together in the output tables, trading
+     * a few kernel cycles for ROM.  A row is the value of every register
+     * section plus the NTSC and PAL colors.
+     */
+    public enum Compression {
+        /**
+         * One entry per row in every table.
+         */
+        NONE,
+        /**
+         * One entry per distinct row in every table, plus a row index table
+         * with the entry of each row.
+         */
+        ROWS,
+        /**
+         * One entry per run of identical rows in every table, plus a table
+         * with the length of each run.
+         */
+        RUNS
+    }
+
+    private String inputFile;
+    private String outputFile;
+    private boolean fullScale;
+    private boolean excludeColor;
+    private int kernelLines = 1;
+    private int collisionLines = 1;
+    private int outputBufferLines;
+    private boolean separateCollisionFile;
+    private String outputSectionPrefix = "";
+    private boolean binaryOutput;
+    private Compression compression = Compression.NONE;
+    private boolean pack;
+    private TablePack tablePack;
+    private boolean pageLayout;
+    private boolean frames;
+    private int frameHeight;
+    private boolean delta;
+    private int deltaBudget = DEFAULT_DELTA_BUDGET;
+    private boolean changeMask;
+    private boolean skipKernel;
+    private boolean parallelRead;
+    private ResultCache resultCache;
+    private boolean quiet;
+    private boolean fromCommandLine;
     private GeneratorMode generatorMode = GeneratorMode.SYMMETRICAL;
-    private PlayfieldRegistersMode playfieldRegistersMode = PlayfieldRegistersMode.REPEAT;
+    private PlayfieldRegistersMode playfieldRegistersMode = PlayfieldRegistersMode.MIRROR;
+    private PlayfieldLayout layout;
+    private Path statsFile;
+    private final List<ConversionStats.Listener> statsListeners = new ArrayList<>();
+
+    PlayfieldGeneratorBuilder() {
+    }
 
     PlayfieldGeneratorBuilder(CommandLine commandLine) {
         this.inputFile = commandLine.getOptionValue(CommandLineOption.INPUT_FILE.toOption());
@@ -52,12 +99,40 @@ public class PlayfieldGeneratorBuilder {
                 ? Integer.parseInt(commandLine.getOptionValue(CommandLineOption.KERNEL.toOption()))
                 : 1;
         this.outputBufferLines = commandLine.hasOption(CommandLineOption.BUFFER_OUTPUT.toOption())
-                ? Integer.parseInt(commandLine.getOptionValue(CommandLineOption.BUFFER_OUTPUT.toOption()))
+                ? checkOutputBufferLines(
+                        Integer.parseInt(commandLine.getOptionValue(CommandLineOption.BUFFER_OUTPUT.toOption())))
                 : 0;
 
         this.outputSectionPrefix = commandLine.hasOption(CommandLineOption.OUTPUT_SECTION_PREFIX.toOption())
                 ? commandLine.getOptionValue(CommandLineOption.OUTPUT_SECTION_PREFIX.toOption())
                 : "";
+        this.binaryOutput = commandLine.hasOption(CommandLineOption.BINARY.toOption());
+        if (commandLine.hasOption(CommandLineOption.COMPRESS.toOption())) {
+            this.compression = parseCompression(commandLine.getOptionValue(CommandLineOption.COMPRESS.toOption()));
+        }
+        this.pack = commandLine.hasOption(CommandLineOption.PACK.toOption());
+        this.pageLayout = commandLine.hasOption(CommandLineOption.PAGE_LAYOUT.toOption());
+        this.frames = commandLine.hasOption(CommandLineOption.FRAMES.toOption());
+        if (commandLine.hasOption(CommandLineOption.FRAME_HEIGHT.toOption())) {
+            this.frameHeight = parseFrameHeight(commandLine.getOptionValue(CommandLineOption.FRAME_HEIGHT.toOption()));
+        }
+        this.delta = commandLine.hasOption(CommandLineOption.DELTA.toOption());
+        if (commandLine.hasOption(CommandLineOption.DELTA_BUDGET.toOption())) {
+            this.deltaBudget = Integer.parseInt(commandLine.getOptionValue(CommandLineOption.DELTA_BUDGET.toOption()));
+        }
+        this.changeMask = commandLine.hasOption(CommandLineOption.CHANGE_MASK.toOption());
+        this.skipKernel = commandLine.hasOption(CommandLineOption.SKIP_KERNEL.toOption());
+        this.parallelRead = commandLine.hasOption(CommandLineOption.PARALLEL_READ.toOption());
+        this.quiet = commandLine.hasOption(CommandLineOption.QUIET.toOption());
+
+        if (commandLine.hasOption(CommandLineOption.CACHE.toOption())) {
+            long cacheSize = commandLine.hasOption(CommandLineOption.CACHE_SIZE.toOption())
+                    ? Long.parseLong(commandLine.getOptionValue(CommandLineOption.CACHE_SIZE.toOption()))
+                    : DEFAULT_CACHE_SIZE_MB;
+            this.resultCache = ResultCache.open(
+                    Path.of(commandLine.getOptionValue(CommandLineOption.CACHE.toOption())),
+                    cacheSize * 1024 * 1024);
+        }
 
         if (commandLine.hasOption(CommandLineOption.NO_COLLISION.toOption())) {
             collisionLines = 0;
@@ -73,6 +148,7 @@ public class PlayfieldGeneratorBuilder {
 
         if (commandLine.hasOption(CommandLineOption.ASYMMETRICAL.toOption())) {
             this.generatorMode = GeneratorMode.ASYMMETRICAL;
+            this.playfieldRegistersMode = PlayfieldRegistersMode.REPEAT;
         } else {
             // Default to mirrored mode
             this.playfieldRegistersMode = PlayfieldRegistersMode.MIRROR;
@@ -82,6 +158,19 @@ public class PlayfieldGeneratorBuilder {
             this.playfieldRegistersMode = PlayfieldRegistersMode.MIRROR;
         }
 
+        if (commandLine.hasOption(CommandLineOption.LAYOUT.toOption())) {
+            this.layout = PlayfieldLayout.parse(commandLine.getOptionValue(CommandLineOption.LAYOUT.toOption()));
+        }
+
+        if (commandLine.hasOption(CommandLineOption.STATS.toOption())) {
+            this.statsFile = Path.of(commandLine.getOptionValue(CommandLineOption.STATS.toOption()));
+            addStatsListener(stats -> stats.write(statsFile));
+        }
+
+        this.fromCommandLine = true;
+    }
+
+    private void printOptions() {
         System.out.println("Running with options:");
         System.out.println(" - Input File: " + inputFile);
         System.out.println(" - Output File: " + outputFile);
@@ -89,11 +178,329 @@ public class PlayfieldGeneratorBuilder {
         System.out.println(" - Number of scan lines per kernel loop: " + kernelLines);
         System.out.println(" - Number of scan lines per collision line: " + collisionLines);
         System.out.println(" - Output Buffer Lines: " + outputBufferLines);
+        System.out.println(" - Binary Output? " + binaryOutput);
+        if (compression != Compression.NONE) {
+            System.out.println(" - Compression: " + compression);
+        }
+        if (pack) {
+            System.out.println(" - Packed Tables? " + pack);
+        }
+        if (tablePack != null) {
+            System.out.println(" - Pack File: " + tablePack.getFile());
+        }
+        if (pageLayout) {
+            System.out.println(" - Page Layout? " + pageLayout);
+        }
+        if (frames) {
+            System.out.println(" - Frames? " + frames);
+        }
+        if (frameHeight > 0) {
+            System.out.println(" - Frame Height: " + frameHeight);
+        }
+        if (delta) {
+            System.out.println(" - Delta Frames? " + delta + ", " + deltaBudget + " cycles per step");
+        }
+        if (changeMask) {
+            System.out.println(" - Change Mask? " + changeMask);
+        }
+        if (skipKernel) {
+            System.out.println(" - Skip Kernel? " + skipKernel);
+        }
+        if (parallelRead) {
+            System.out.println(" - Parallel Read? " + parallelRead);
+        }
+        if (resultCache != null) {
+            System.out.println(" - Cache Directory: " + resultCache.getDirectory());
+        }
+        if (statsFile != null) {
+            System.out.println(" - Stats File: " + statsFile);
+        }
+
+        if (layout != null) {
+            System.out.println(" - Layout: " + layout);
+        } else {
+            String mode = generatorMode == GeneratorMode.SYMMETRICAL
+                    ? " - Mode: " + generatorMode
+                    : String.format(" - Mode: %s (%s)", generatorMode, playfieldRegistersMode);
+            System.out.println(mode);
+        }
+    }
+
+    public PlayfieldGeneratorBuilder withInputFile(String inputFile) {
+        this.inputFile = inputFile;
+        return this;
+    }
+
+    public PlayfieldGeneratorBuilder withOutputFile(String outputFile) {
+        this.outputFile = outputFile;
+        return this;
+    }
+
+    public PlayfieldGeneratorBuilder withFullScale(boolean fullScale) {
+        this.fullScale = fullScale;
+        return this;
+    }
+
+    public PlayfieldGeneratorBuilder withExcludeColor(boolean excludeColor) {
+        this.excludeColor = excludeColor;
+        return this;
+    }
+
+    public PlayfieldGeneratorBuilder withKernelLines(int kernelLines) {
+        this.kernelLines = kernelLines;
+        return this;
+    }
+
+    /**
+     * Set the number of scan lines per collision line.  Values below the
+     * number of kernel lines are raised to it; 0 excludes collision data.
+     *
+     * @param collisionLines Scan lines per collision line
+     * @return This builder
+     */
+    public PlayfieldGeneratorBuilder withCollisionLines(int collisionLines) {
+        this.collisionLines = collisionLines;
+        return this;
+    }
+
+    /**
+     * Set the number of empty lines added before the rows of the image.
+     *
+     * @param outputBufferLines Number of empty lines, 0 or more
+     * @return This builder
+     * @throws IllegalArgumentException The number is negative
+     */
+    public PlayfieldGeneratorBuilder withOutputBufferLines(int outputBufferLines) {
+        this.outputBufferLines = checkOutputBufferLines(outputBufferLines);
+        return this;
+    }
+
+    public PlayfieldGeneratorBuilder withSeparateCollisionFile(boolean separateCollisionFile) {
+        this.separateCollisionFile = separateCollisionFile;
+        return this;
+    }
+
+    public PlayfieldGeneratorBuilder withOutputSectionPrefix(String outputSectionPrefix) {
+        this.outputSectionPrefix = outputSectionPrefix;
+        return this;
+    }
+
+    /**
+     * Write each section as a raw binary file, with the output file
+     * becoming an include that pulls them in with incbin.
+     *
+     * @param binaryOutput Whether to write binary output
+     * @return This builder
+     */
+    public PlayfieldGeneratorBuilder withBinaryOutput(boolean binaryOutput) {
+        this.binaryOutput = binaryOutput;
+        return this;
+    }
+
+    /**
+     * Set how repeated rows are folded together in the output tables.
+     * Collision data is never compressed.
+     *
+     * @param compression Compression to use
+     * @return This builder
+     */
+    public PlayfieldGeneratorBuilder withCompression(Compression compression) {
+        this.compression = compression;
+        return this;
+    }
+
+    /**
+     * Set whether identical and overlapping tables are packed into shared
+     * blobs in the output file.
+     *
+     * @param pack Whether to pack the tables
+     * @return This builder
+     */
+    public PlayfieldGeneratorBuilder withPack(boolean pack) {
+        this.pack = pack;
+        return this;
+    }
+
+    /**
+     * Set the shared pack the tables are handed to.  The output file then
+     * keeps only the header and collision data, and the tables are written
+     * with those of every other conversion when the pack is written.
+     * Conversions with a pack are never cached.
+     *
+     * @param tablePack Pack to use, or null for none
+     * @return This builder
+     */
+    public PlayfieldGeneratorBuilder withTablePack(TablePack tablePack) {
+        this.tablePack = tablePack;
+        return this;
+    }
+
+    /**
+     * Set whether the tables of each output file are grouped into pages,
+     * with each page aligned instead of each table.
+     *
+     * @param pageLayout Whether to plan the pages
+     * @return This builder
+     */
+    public PlayfieldGeneratorBuilder withPageLayout(boolean pageLayout) {
+        this.pageLayout = pageLayout;
+        return this;
+    }
+
+    /**
+     * Set whether every image of a multi-image input file, such as an
+     * animated GIF or a multi-page TIFF, is converted as a frame of an
+     * animation.  All frames are written to one output file.
+     *
+     * @param frames Whether to convert every image
+     * @return This builder
+     */
+    public PlayfieldGeneratorBuilder withFrames(boolean frames) {
+        this.frames = frames;
+        return this;
+    }
+
+    /**
+     * Set the height of the frames of a sprite sheet, which stacks the
+     * frames of an animation from the top down.  Each input image is split
+     * into frames of this many pixel rows, and all frames are written to
+     * one output file.
+     *
+     * @param frameHeight Height of each frame in pixels, or 0 to not split the input
+     * @return This builder
+     */
+    public PlayfieldGeneratorBuilder withFrameHeight(int frameHeight) {
+        this.frameHeight = frameHeight;
+        return this;
+    }
+
+    /**
+     * Set whether the frames after the first are stored as patch lists of
+     * the bytes that change from the frame before, instead of in full.
+     * Only used with frames.
+     *
+     * @param delta Whether to store patch lists
+     * @return This builder
+     */
+    public PlayfieldGeneratorBuilder withDelta(boolean delta) {
+        this.delta = delta;
+        return this;
+    }
+
+    /**
+     * Set the most cycles applying one step of a patch list may take.  A
+     * frame's patch list is split into as many steps as it needs, each
+     * applied in its own vertical blank.  Defaults to 1520, 20 scan lines.
+     *
+     * @param deltaBudget Cycle budget of a step
+     * @return This builder
+     */
+    public PlayfieldGeneratorBuilder withDeltaBudget(int deltaBudget) {
+        this.deltaBudget = deltaBudget;
+        return this;
+    }
+
+    /**
+     * Set whether to add a PFChanges table, holding for every row a bit per
+     * table that is set where the row differs from the row above, so a
+     * kernel can leave out the stores of registers that do not change.
+     *
+     * @param changeMask Whether to add the change mask
+     * @return This builder
+     */
+    public PlayfieldGeneratorBuilder withChangeMask(boolean changeMask) {
+        this.changeMask = changeMask;
+        return this;
+    }
+
+    /**
+     * Set whether to add a PFSkip table and the store routines it points
+     * to, one per set of registers that change together, so a kernel line
+     * stores only what changed without a branch per register.
+     *
+     * @param skipKernel Whether to add the skip kernel tables
+     * @return This builder
+     */
+    public PlayfieldGeneratorBuilder withSkipKernel(boolean skipKernel) {
+        this.skipKernel = skipKernel;
+        return this;
+    }
+
+    /**
+     * Set whether images of 4096 or more kernel lines are read in blocks
+     * of rows on every core of the common fork-join pool.  The output is
+     * the same either way, so this is off unless the speedup has been
+     * measured on the machine running the conversions.
+     *
+     * @param parallelRead Whether to read tall images in parallel
+     * @return This builder
+     */
+    public PlayfieldGeneratorBuilder withParallelRead(boolean parallelRead) {
+        this.parallelRead = parallelRead;
+        return this;
+    }
+
+    /**
+     * Set the cache generated files are kept in.  Files generated from an
+     * unchanged input file with unchanged options are copied from it.
+     *
+     * @param resultCache Cache to use, or null for none
+     * @return This builder
+     */
+    public PlayfieldGeneratorBuilder withResultCache(ResultCache resultCache) {
+        this.resultCache = resultCache;
+        return this;
+    }
+
+    public PlayfieldGeneratorBuilder withQuiet(boolean quiet) {
+        this.quiet = quiet;
+        return this;
+    }
 
-        String mode = generatorMode == GeneratorMode.SYMMETRICAL
-                ? " - Mode: " + generatorMode
-                : String.format(" - Mode: %s (%s)", generatorMode, playfieldRegistersMode);
-        System.out.println(mode);
+    /**
+     * Set the generator mode.  Also resets the PF registers mode to the
+     * default for that mode, mirror when symmetrical and repeat when
+     * asymmetrical.
+     *
+     * @param generatorMode Generator mode
+     * @return This builder
+     */
+    public PlayfieldGeneratorBuilder withGeneratorMode(GeneratorMode generatorMode) {
+        this.generatorMode = generatorMode;
+        this.playfieldRegistersMode = generatorMode == GeneratorMode.SYMMETRICAL
+                ? PlayfieldRegistersMode.MIRROR
+                : PlayfieldRegistersMode.REPEAT;
+        return this;
+    }
+
+    public PlayfieldGeneratorBuilder withPlayfieldRegistersMode(PlayfieldRegistersMode playfieldRegistersMode) {
+        this.playfieldRegistersMode = playfieldRegistersMode;
+        return this;
+    }
+
+    /**
+     * Set a custom register layout, which takes the place of the generator
+     * and PF registers modes.
+     *
+     * @param layout Layout to use, or null to use the one of the modes
+     * @return This builder
+     */
+    public PlayfieldGeneratorBuilder withLayout(PlayfieldLayout layout) {
+        this.layout = layout;
+        return this;
+    }
+
+    /**
+     * Add a listener that receives the stats of every conversion.  Stats
+     * are only measured when there is a listener, or when a flight
+     * recording has the conversion event enabled.
+     *
+     * @param listener Listener to add
+     * @return This builder
+     */
+    public PlayfieldGeneratorBuilder addStatsListener(ConversionStats.Listener listener) {
+        this.statsListeners.add(listener);
+        return this;
     }
 
     public String getInputFile() {
@@ -117,7 +524,7 @@ public class PlayfieldGeneratorBuilder {
     }
 
     public int getCollisionLines() {
-        return collisionLines;
+        return collisionLines > 0 ? Math.max(collisionLines, kernelLines) : 0;
     }
 
     public int getOutputBufferLines() {
@@ -132,28 +539,132 @@ public class PlayfieldGeneratorBuilder {
         return outputSectionPrefix;
     }
 
+    public boolean isBinaryOutput() {
+        return binaryOutput;
+    }
+
+    public Compression getCompression() {
+        return compression;
+    }
+
+    public boolean isPack() {
+        return pack;
+    }
+
+    public TablePack getTablePack() {
+        return tablePack;
+    }
+
+    public boolean isPageLayout() {
+        return pageLayout;
+    }
+
+    public boolean isFrames() {
+        return frames;
+    }
+
+    public int getFrameHeight() {
+        return frameHeight;
+    }
+
+    public boolean isDelta() {
+        return delta;
+    }
+
+    public int getDeltaBudget() {
+        return deltaBudget;
+    }
+
+    public boolean isChangeMask() {
+        return changeMask;
+    }
+
+    public boolean isSkipKernel() {
+        return skipKernel;
+    }
+
+    public boolean isParallelRead() {
+        return parallelRead;
+    }
+
+    public ResultCache getResultCache() {
+        return resultCache;
+    }
+
+    public boolean isQuiet() {
+        return quiet;
+    }
+
+    public List<ConversionStats.Listener> getStatsListeners() {
+        return List.copyOf(statsListeners);
+    }
+
     /**
-     * Build a new PlayfieldGenerator based on the current GeneratorMode.
+     * Get the options deciding how the converted rows are written.
      *
-     * @return A new PlayfieldGenerator
+     * @return Output options
+     * @throws IllegalArgumentException The output options conflict
      */
-    public PlayfieldGenerator build() {
-        PlayfieldLineDataParser parser;
+    public OutputOptions getOutputOptions() {
+        return new OutputOptions(outputSectionPrefix, separateCollisionFile, binaryOutput, compression, pack,
+                tablePack, pageLayout, changeMask, skipKernel, frames || frameHeight > 0, delta, deltaBudget);
+    }
+
+    private static Compression parseCompression(String value) {
+        try {
+            return Compression.valueOf(value.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException ex) {
+            throw new IllegalArgumentException("Invalid compression, expected none, rows or runs: " + value);
+        }
+    }
+
+    private static int checkOutputBufferLines(int outputBufferLines) {
+        if (outputBufferLines < 0) {
+            throw new IllegalArgumentException("Invalid output buffer lines, expected 0 or more: "
+                    + outputBufferLines);
+        }
+        return outputBufferLines;
+    }
+
+    private static int parseFrameHeight(String value) {
+        int frameHeight = Integer.parseInt(value);
+        if (frameHeight <= 0) {
+            throw new IllegalArgumentException("Invalid frame height, expected a positive number: " + value);
+        }
+        return frameHeight;
+    }
+
+    /**
+     * Get the register layout, either the custom one or the one of the
+     * generator and PF registers modes.
+     *
+     * @return Register layout
+     */
+    public PlayfieldLayout getLayout() {
+        if (layout != null) {
+            return layout;
+        }
 
         if (generatorMode == GeneratorMode.ASYMMETRICAL) {
-            if (playfieldRegistersMode == PlayfieldRegistersMode.REPEAT) {
-                parser = new AsymmetricalRepeatPlayfieldLineDataParser();
-            } else {
-                parser = new AsymmetricalMirrorPlayfieldLineDataParser();
-            }
-        } else {
-            if (playfieldRegistersMode == PlayfieldRegistersMode.REPEAT) {
-                parser = new SymmetricalRepeatPlayfieldLineDataParser();
-            } else {
-                parser = new SymmetricalMirrorPlayfieldLineDataParser();
-            }
+            return playfieldRegistersMode == PlayfieldRegistersMode.REPEAT
+                    ? PlayfieldLayout.ASYMMETRICAL_REPEAT
+                    : PlayfieldLayout.ASYMMETRICAL_MIRROR;
         }
+        return playfieldRegistersMode == PlayfieldRegistersMode.REPEAT
+                ? PlayfieldLayout.SYMMETRICAL_REPEAT
+                : PlayfieldLayout.SYMMETRICAL_MIRROR;
+    }
 
-        return new PlayfieldGeneratorImpl(this, parser);
+    /**
+     * Build a new PlayfieldGenerator based on the current layout.  Options
+     * read from a command line are printed first, unless quiet.
+     *
+     * @return A new PlayfieldGenerator
+     */
+    public PlayfieldGenerator build() {
+        if (fromCommandLine && !quiet) {
+            printOptions();
+        }
+        return new PlayfieldGeneratorImpl(this, new LayoutPlayfieldLineDataParser(getLayout()));
     }
 }
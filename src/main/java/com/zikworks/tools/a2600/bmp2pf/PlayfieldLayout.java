@@ -0,0 +1,326 @@
+package com.zikworks.tools.a2600.bmp2pf;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.StringJoiner;
+
+/**
+ * Describes which pixels of a row end up in which bits of the playfield
+ * registers.  A layout is a list of fields, one per output section, each
+ * listing the pixel shown by register bits D7 down to D0.  Pixels are
+ * numbered from 0 at the left of the image.
+ * <p>
+ * Layouts are written as {@code ;} separated entries, for example the
+ * symmetrical mirrored layout:
+ * <pre>
+ * PF0DataA=3-0;PF1DataA=4-11;PF2DataA=19-12;collisions=mirror
+ * </pre>
+ * Each field is a {@code ,} separated list of pixels, ranges such as
+ * {@code 4-11} or {@code 19-12}, and {@code _} for a bit that is always
+ * 0.  Bits not listed are 0 as well.  The other entries are:
+ * <ul>
+ *     <li>{@code width=<n>} : Width of the image in pixels, by default one more than the highest pixel used</li>
+ *     <li>{@code collisions=none|repeat|mirror} : How collision data is widened to twice the width (default none)</li>
+ * </ul>
+ */
+public final class PlayfieldLayout {
+    /**
+     * Widest row a layout can read, the full width of the playfield.
+     */
+    public static final int MAX_WIDTH = 40;
+
+    private static final Set<PlayfieldOutputSection> REGISTER_SECTIONS = EnumSet.range(
+            PlayfieldOutputSection.PF0DataA, PlayfieldOutputSection.PF2DataB);
+    private static final int UNUSED = -1;
+
+    /**
+     * Layout of a symmetrical playfield with PF registers mirrored.
+     */
+    public static final PlayfieldLayout SYMMETRICAL_MIRROR =
+            parse("PF0DataA=3-0;PF1DataA=4-11;PF2DataA=19-12;collisions=mirror");
+
+    /**
+     * Layout of a symmetrical playfield with PF registers repeated.
+     */
+    public static final PlayfieldLayout SYMMETRICAL_REPEAT =
+            parse("PF0DataA=3-0;PF1DataA=4-11;PF2DataA=19-12;collisions=repeat");
+
+    /**
+     * Layout of an asymmetrical playfield with PF registers mirrored.  The
+     * second half is shown right to left, so it is written in reverse.
+     */
+    public static final PlayfieldLayout ASYMMETRICAL_MIRROR =
+            parse("PF0DataA=3-0;PF1DataA=4-11;PF2DataA=19-12;PF2DataB=20-27;PF1DataB=35-28;PF0DataB=36-39");
+
+    /**
+     * Layout of an asymmetrical playfield with PF registers repeated.
+     */
+    public static final PlayfieldLayout ASYMMETRICAL_REPEAT =
+            parse("PF0DataA=3-0;PF1DataA=4-11;PF2DataA=19-12;PF0DataB=23-20;PF1DataB=24-31;PF2DataB=39-32");
+
+    /**
+     * How the collision data of a row is widened to cover both halves of a
+     * symmetrical playfield.
+     */
+    public enum CollisionFill {
+        /**
+         * Collision data is used as is.
+         */
+        NONE,
+        /**
+         * Collision data is repeated for the right half.
+         */
+        REPEAT,
+        /**
+         * Collision data is reversed for the right half.
+         */
+        MIRROR
+    }
+
+    /**
+     * The pixels of one register.
+     *
+     * @param section Output section of the register
+     * @param pixels  Pixel shown by each register bit, from D7 down to D0, -1 for unused bits
+     */
+    public record Field(PlayfieldOutputSection section, int[] pixels) {
+        public Field {
+            pixels = pixels.clone();
+        }
+
+        @Override
+        public int[] pixels() {
+            return pixels.clone();
+        }
+    }
+
+    private final List<Field> fields;
+    private final int width;
+    private final CollisionFill collisionFill;
+
+    private PlayfieldLayout(List<Field> fields, int width, CollisionFill collisionFill) {
+        this.fields = List.copyOf(fields);
+        this.width = width;
+        this.collisionFill = collisionFill;
+    }
+
+    /**
+     * Parse a layout.
+     *
+     * @param spec Layout, in the format described above
+     * @return The layout
+     * @throws IllegalArgumentException The layout is not valid
+     */
+    public static PlayfieldLayout parse(String spec) {
+        List<Field> fields = new ArrayList<>();
+        Set<PlayfieldOutputSection> sections = EnumSet.noneOf(PlayfieldOutputSection.class);
+        int width = 0;
+        int highestPixel = UNUSED;
+        CollisionFill collisionFill = CollisionFill.NONE;
+
+        for (String entry : spec.split(";")) {
+            if (entry.isBlank()) {
+                continue;
+            }
+            int equals = entry.indexOf('=');
+            if (equals < 1) {
+                throw new IllegalArgumentException("Invalid layout entry, expected <name>=<value>: " + entry);
+            }
+            String name = entry.substring(0, equals).trim();
+            String value = entry.substring(equals + 1).trim();
+
+            switch (name) {
+                case "width" -> width = parseNumber(value, entry, MAX_WIDTH + 1);
+                case "collisions" -> collisionFill = parseCollisionFill(value);
+                default -> {
+                    PlayfieldOutputSection section = parseSection(name);
+                    if (!sections.add(section)) {
+                        throw new IllegalArgumentException("Layout lists " + name + " more than once");
+                    }
+                    int[] pixels = parsePixels(value, entry);
+                    for (int pixel : pixels) {
+                        highestPixel = Math.max(highestPixel, pixel);
+                    }
+                    fields.add(new Field(section, pixels));
+                }
+            }
+        }
+
+        if (fields.isEmpty()) {
+            throw new IllegalArgumentException("Layout has no registers: " + spec);
+        }
+        if (width == 0) {
+            width = highestPixel + 1;
+        } else if (highestPixel >= width) {
+            throw new IllegalArgumentException("Layout uses pixel " + highestPixel + " but is " + width + " wide");
+        }
+        int maxWidth = collisionFill == CollisionFill.NONE ? MAX_WIDTH : MAX_WIDTH / 2;
+        if (width > maxWidth) {
+            throw new IllegalArgumentException("Layout is " + width + " pixels wide, at most " + maxWidth
+                    + " are allowed with collisions=" + collisionFill.name().toLowerCase(Locale.ROOT));
+        }
+        return new PlayfieldLayout(fields, width, collisionFill);
+    }
+
+    private static PlayfieldOutputSection parseSection(String name) {
+        for (PlayfieldOutputSection section : REGISTER_SECTIONS) {
+            if (section.name().equals(name)) {
+                return section;
+            }
+        }
+        throw new IllegalArgumentException("Unknown layout entry " + name + ", expected one of "
+                + REGISTER_SECTIONS + ", width or collisions");
+    }
+
+    private static CollisionFill parseCollisionFill(String value) {
+        try {
+            return CollisionFill.valueOf(value.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException ex) {
+            throw new IllegalArgumentException("Invalid layout collisions, expected none, repeat or mirror: " + value);
+        }
+    }
+
+    private static int[] parsePixels(String value, String entry) {
+        List<Integer> pixels = new ArrayList<>();
+        for (String item : value.split(",")) {
+            item = item.trim();
+            int dash = item.indexOf('-');
+            if (item.equals("_")) {
+                pixels.add(UNUSED);
+            } else if (dash > 0) {
+                int from = parseNumber(item.substring(0, dash), entry, MAX_WIDTH);
+                int to = parseNumber(item.substring(dash + 1), entry, MAX_WIDTH);
+                int step = from <= to ? 1 : -1;
+                for (int pixel = from; pixel != to + step; pixel += step) {
+                    pixels.add(pixel);
+                }
+            } else {
+                pixels.add(parseNumber(item, entry, MAX_WIDTH));
+            }
+        }
+
+        if (pixels.size() > Byte.SIZE) {
+            throw new IllegalArgumentException("Layout register has more than 8 bits: " + entry);
+        }
+        int[] bits = new int[Byte.SIZE];
+        Arrays.fill(bits, UNUSED);
+        for (int i = 0; i < pixels.size(); i++) {
+            bits[i] = pixels.get(i);
+        }
+        return bits;
+    }
+
+    private static int parseNumber(String value, String entry, int limit) {
+        try {
+            int number = Integer.parseInt(value.trim());
+            if (number < 0 || number >= limit) {
+                throw new IllegalArgumentException("Layout value out of range 0-" + (limit - 1) + ": " + entry);
+            }
+            return number;
+        } catch (NumberFormatException ex) {
+            throw new IllegalArgumentException("Invalid number in layout: " + entry);
+        }
+    }
+
+    /**
+     * Get the fields, in the order their sections are written.
+     *
+     * @return List of fields
+     */
+    public List<Field> getFields() {
+        return fields;
+    }
+
+    /**
+     * Get the sections of the fields, in the order they are written.
+     *
+     * @return List of output sections
+     */
+    public List<PlayfieldOutputSection> getOutputSections() {
+        return fields.stream().map(Field::section).toList();
+    }
+
+    /**
+     * Get the width of the image in pixels.
+     *
+     * @return Image width
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    public CollisionFill getCollisionFill() {
+        return collisionFill;
+    }
+
+    /**
+     * Get the width of the collision data of a row, once widened by the
+     * collision fill.
+     *
+     * @return Collision width in pixels
+     */
+    public int getCollisionWidth() {
+        return collisionFill == CollisionFill.NONE ? width : width * 2;
+    }
+
+    /**
+     * Format the layout so it can be parsed again, with ranges collapsed.
+     *
+     * @return Layout in the format described above
+     */
+    @Override
+    public String toString() {
+        StringJoiner spec = new StringJoiner(";");
+        for (Field field : fields) {
+            spec.add(field.section().name() + "=" + formatPixels(field.pixels()));
+        }
+        spec.add("width=" + width);
+        if (collisionFill != CollisionFill.NONE) {
+            spec.add("collisions=" + collisionFill.name().toLowerCase(Locale.ROOT));
+        }
+        return spec.toString();
+    }
+
+    private static String formatPixels(int[] pixels) {
+        int count = pixels.length;
+        while (count > 0 && pixels[count - 1] == UNUSED) {
+            count--;
+        }
+
+        StringJoiner items = new StringJoiner(",");
+        int i = 0;
+        while (i < count) {
+            if (pixels[i] == UNUSED) {
+                items.add("_");
+                i++;
+                continue;
+            }
+            int end = i + 1;
+            int step = end < count && pixels[end] != UNUSED ? pixels[end] - pixels[i] : 0;
+            if (step == 1 || step == -1) {
+                while (end < count && pixels[end] != UNUSED && pixels[end] - pixels[end - 1] == step) {
+                    end++;
+                }
+                items.add(pixels[i] + "-" + pixels[end - 1]);
+            } else {
+                items.add(String.valueOf(pixels[i]));
+            }
+            i = end;
+        }
+        return items.toString();
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof PlayfieldLayout layout && toString().equals(layout.toString());
+    }
+
+    @Override
+    public int hashCode() {
+        return toString().hashCode();
+    }
+}
@@ -2,7 +2,7 @@ package com.zikworks.tools.a2600.bmp2pf;
 
 import com.zikworks.tools.a2600.bmp2pf.impl.PlayfieldLineData;
 
-import java.util.Map;
+import java.util.List;
 
 public interface PlayfieldLineDataParser {
 
@@ -13,11 +13,26 @@ public interface PlayfieldLineDataParser {
      */
     int getExpectedWidth();
 
+    /**
+     * Get the width of the collision data this parser leaves in a row.
+     *
+     * @return Collision width in pixels
+     */
+    int getCollisionWidth();
+
+    /**
+     * Get the output sections this parser produces, in the order they are written.
+     *
+     * @return List of output sections
+     */
+    List<PlayfieldOutputSection> getOutputSections();
+
     /**
      * Parse line data into its individual Playfield Register parts.
      *
      * @param lineData Playfield line data to parse
-     * @return Map of output section and byte value for that section
+     * @param table    Table to write the register values to
+     * @param row      Row of the table to write
      */
-    Map<PlayfieldOutputSection, String> parseLineData(PlayfieldLineData lineData);
+    void parseLineData(PlayfieldLineData lineData, PlayfieldTable table, int row);
 }
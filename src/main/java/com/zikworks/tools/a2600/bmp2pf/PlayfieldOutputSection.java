@@ -8,5 +8,6 @@ public enum PlayfieldOutputSection {
     PF1DataB,
     PF2DataB,
     PFColors,
+    PFChanges,
     PFCollision
 }
@@ -0,0 +1,71 @@
+package com.zikworks.tools.a2600.bmp2pf;
+
+import java.util.List;
+
+/**
+ * The in-memory result of converting an image.  Every table is in output
+ * order, with the bottom row of the image first.
+ */
+public interface PlayfieldResult {
+
+    /**
+     * Get the playfield height, the image height plus any buffer lines.
+     *
+     * @return Value of PLAYFIELD_HEIGHT
+     */
+    int getHeight();
+
+    /**
+     * Get the table holding every converted row.  The table is not copied,
+     * so it should be treated as read-only.
+     *
+     * @return Playfield table
+     */
+    PlayfieldTable getTable();
+
+    /**
+     * Get the sections written to the output file, in order.  Collision data
+     * is not included; it is available from getCollisionChunks.
+     *
+     * @return List of output sections
+     */
+    List<PlayfieldOutputSection> getSections();
+
+    /**
+     * Get the bytes of a section, one per row.  PFColors holds the NTSC
+     * colors and PFCollision holds all collision rows back to back.
+     *
+     * @param section Output section
+     * @return Section bytes, or null if the section was not generated
+     */
+    byte[] getSection(PlayfieldOutputSection section);
+
+    /**
+     * Get the PAL colors, one per row.
+     *
+     * @return PAL color bytes, or null if colors were excluded
+     */
+    byte[] getPalColors();
+
+    /**
+     * Get the collision data split into the chunks that get their own
+     * PFCollision label, each holding up to 8 collision rows.
+     *
+     * @return Collision chunks, empty if collision data was excluded
+     */
+    List<byte[]> getCollisionChunks();
+
+    /**
+     * Render the output file as DASM source.
+     *
+     * @return Content of the output file
+     */
+    String render();
+
+    /**
+     * Render the separate collision file as DASM source.
+     *
+     * @return Content of the collision file, or null if collision data is part of the output file
+     */
+    String renderCollisionFile();
+}
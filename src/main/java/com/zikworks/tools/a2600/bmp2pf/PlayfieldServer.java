@@ -0,0 +1,251 @@
+package com.zikworks.tools.a2600.bmp2pf;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.DefaultParser;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+
+import javax.imageio.ImageIO;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.StringJoiner;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Serves conversion requests from a long running JVM, so tools that
+ * convert one asset at a time do not pay for JVM startup every time.
+ * <p>
+ * Requests and responses are single lines of tab separated fields.  A
+ * request is an id followed by command line arguments, where the image
+ * can also be given inline, base64 encoded, with {@code --data}:
+ * <pre>
+ * 7	--file	art/title.bmp	--out	build/title.asm	-a
+ * 8	--data	Qk02...	-k	2
+ * </pre>
+ * The response starts with the request id and either {@code OK} or
+ * {@code ERROR}.  When an output file was written it is followed by its
+ * path; otherwise by {@code HEIGHT=<n>} and a {@code <section>=<base64>}
+ * field per table, including {@code PFColorsPAL} and {@code PFCollision}.
+ * Options the response cannot honor get an {@code ERROR} response instead
+ * of being ignored: those of the whole run in any request, and those that
+ * only shape an output file in a request without one.
+ * <p>
+ * Every request runs on its own virtual thread, so responses can arrive
+ * in a different order than the requests.
+ */
+public class PlayfieldServer {
+    private static final String FIELD_SEPARATOR = "\t";
+    private static final String PAL_COLORS = PlayfieldOutputSection.PFColors.name() + "PAL";
+
+    /**
+     * Options of the whole run, which mean nothing for one request.
+     */
+    private static final Set<CommandLineOption> RUN_OPTIONS = EnumSet.of(
+            CommandLineOption.PACK_FILE,
+            CommandLineOption.BATCH,
+            CommandLineOption.JOBS,
+            CommandLineOption.WATCH,
+            CommandLineOption.CHECK,
+            CommandLineOption.SERVER,
+            CommandLineOption.SOCKET);
+
+    /**
+     * Options that only shape an output file, which the plain tables of a
+     * response cannot hold.
+     */
+    private static final Set<CommandLineOption> OUTPUT_FILE_OPTIONS = EnumSet.of(
+            CommandLineOption.OUTPUT_SECTION_PREFIX,
+            CommandLineOption.SEPARATE_COLLISION,
+            CommandLineOption.BINARY,
+            CommandLineOption.COMPRESS,
+            CommandLineOption.PACK,
+            CommandLineOption.PAGE_LAYOUT,
+            CommandLineOption.SKIP_KERNEL,
+            CommandLineOption.CACHE,
+            CommandLineOption.CACHE_SIZE);
+
+    private final Options options;
+
+    /**
+     * Create a new server.
+     *
+     * @param options Options understood in requests, --data is added to them
+     */
+    public PlayfieldServer(Options options) {
+        this.options = options.addOption(CommandLineOption.DATA.toOption());
+
+        // Decoding from memory, there is no need for ImageIO to cache streams on disk
+        ImageIO.setUseCache(false);
+    }
+
+    /**
+     * Serve requests read from a stream, usually stdin, until it ends.
+     *
+     * @param in  Stream to read requests from
+     * @param out Stream to write responses to
+     * @throws IOException Error reading requests or writing responses
+     */
+    public void serve(InputStream in, OutputStream out) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        Lock writeLock = new ReentrantLock();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                String request = line;
+                executor.submit(() -> {
+                    respond(writer, writeLock, handle(request));
+                    return null;
+                });
+            }
+        }
+    }
+
+    /**
+     * Serve requests on a Unix domain socket until the thread is
+     * interrupted.  Each connection is served like a stream.
+     *
+     * @param socketPath Path of the socket, replaced if it already exists
+     * @throws IOException Error creating the socket or accepting connections
+     */
+    public void serve(Path socketPath) throws IOException {
+        Files.deleteIfExists(socketPath);
+        try (ServerSocketChannel server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+             ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            server.bind(UnixDomainSocketAddress.of(socketPath));
+            socketPath.toFile().deleteOnExit();
+            while (!Thread.currentThread().isInterrupted()) {
+                SocketChannel channel = server.accept();
+                executor.submit(() -> {
+                    try (channel) {
+                        serve(Channels.newInputStream(channel), Channels.newOutputStream(channel));
+                    }
+                    return null;
+                });
+            }
+        } finally {
+            Files.deleteIfExists(socketPath);
+        }
+    }
+
+    /**
+     * Handle one request.
+     *
+     * @param request Request line
+     * @return Response line
+     */
+    public String handle(String request) {
+        String[] fields = request.split(FIELD_SEPARATOR, -1);
+        String id = fields[0];
+        try {
+            List<String> arguments = new ArrayList<>(Arrays.asList(fields).subList(1, fields.length));
+            arguments.add("--" + CommandLineOption.QUIET.getLongOption());
+            CommandLine commandLine = new DefaultParser().parse(options, arguments.toArray(String[]::new));
+            boolean hasFile = commandLine.hasOption(CommandLineOption.INPUT_FILE.toOption());
+            boolean hasData = commandLine.hasOption(CommandLineOption.DATA.toOption());
+            boolean hasOut = commandLine.hasOption(CommandLineOption.OUTPUT_FILE.toOption());
+            for (CommandLineOption option : RUN_OPTIONS) {
+                if (commandLine.hasOption(option.toOption())) {
+                    throw new IOException("--" + option.getLongOption() + " cannot be used in a request");
+                }
+            }
+            if (!hasOut) {
+                for (CommandLineOption option : OUTPUT_FILE_OPTIONS) {
+                    if (commandLine.hasOption(option.toOption())) {
+                        throw new IOException("--" + option.getLongOption() + " requires --out");
+                    }
+                }
+            }
+            PlayfieldGenerator generator = PlayfieldGenerator.builder(commandLine).build();
+
+            if (hasFile == hasData) {
+                throw new IOException("Exactly one of --file or --data is required");
+            }
+
+            if (hasOut) {
+                if (hasData) {
+                    throw new IOException("--out requires --file");
+                }
+                Path outputFile = Path.of(commandLine.getOptionValue(CommandLineOption.OUTPUT_FILE.toOption()));
+                generator.generate(
+                        Path.of(commandLine.getOptionValue(CommandLineOption.INPUT_FILE.toOption())), outputFile);
+                return join(id, "OK", outputFile.toAbsolutePath().normalize().toString());
+            }
+
+            PlayfieldResult result;
+            if (hasFile) {
+                result = generator.convert(Path.of(commandLine.getOptionValue(CommandLineOption.INPUT_FILE.toOption())));
+            } else {
+                byte[] data = Base64.getDecoder().decode(commandLine.getOptionValue(CommandLineOption.DATA.toOption()));
+                result = generator.convert(ByteBuffer.wrap(data));
+            }
+            return formatResult(id, result);
+        } catch (NoSuchFileException ex) {
+            return join(id, "ERROR", "File not found: " + ex.getMessage());
+        } catch (ParseException | IOException | RuntimeException ex) {
+            return join(id, "ERROR", String.valueOf(ex.getMessage()));
+        }
+    }
+
+    private static String formatResult(String id, PlayfieldResult result) {
+        Base64.Encoder encoder = Base64.getEncoder();
+        StringJoiner response = new StringJoiner(FIELD_SEPARATOR);
+        response.add(id).add("OK").add("HEIGHT=" + result.getHeight());
+        for (PlayfieldOutputSection section : result.getSections()) {
+            response.add(section.name() + "=" + encoder.encodeToString(result.getSection(section)));
+        }
+        if (result.getPalColors() != null) {
+            response.add(PAL_COLORS + "=" + encoder.encodeToString(result.getPalColors()));
+        }
+        byte[] collisions = result.getSection(PlayfieldOutputSection.PFCollision);
+        if (collisions != null) {
+            response.add(PlayfieldOutputSection.PFCollision.name() + "=" + encoder.encodeToString(collisions));
+        }
+        return response.toString();
+    }
+
+    private static String join(String id, String status, String value) {
+        // Keep the response on one line
+        return String.join(FIELD_SEPARATOR, id, status, value.replaceAll("[\\t\\r\\n]+", " "));
+    }
+
+    private static void respond(Writer writer, Lock writeLock, String response) throws IOException {
+        // A lock rather than synchronized, so waiting virtual threads do not pin their carrier
+        writeLock.lock();
+        try {
+            writer.write(response);
+            writer.write('\n');
+            writer.flush();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+}
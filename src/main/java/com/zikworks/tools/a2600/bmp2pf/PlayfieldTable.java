@@ -0,0 +1,289 @@
+package com.zikworks.tools.a2600.bmp2pf;
+
+import com.zikworks.tools.a2600.bmp2pf.impl.PlayfieldLineData;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The converted rows of a playfield, held column by column: one byte array
+ * per output section, indexed by row in output order, so the bottom row of
+ * the image comes first.  The table is sized up front from the number of
+ * kernel lines and buffer lines, parsers write straight into it and the
+ * output writers read the columns back as they are.
+ * <p>
+ * Collision rows are only kept for every collisionLines-th kernel line, and
+ * are stored back to back in the PFCollision column.  Each takes a byte
+ * for every 8 pixels of collision data, 5 for the full playfield.
+ * <p>
+ * A table can also hold a PFChanges column, a change mask per row with a
+ * bit for each of the other sections, set where storing the section would
+ * change what its register holds.  It is filled once every other column
+ * is set.
+ * <p>
+ * Rows can be filled from several threads, as long as each row is only
+ * written by one of them.
+ */
+public class PlayfieldTable {
+    private final List<PlayfieldOutputSection> registerSections;
+    private final List<PlayfieldOutputSection> sections;
+    private final int rowCount;
+    private final int collisionLines;
+    private final int collisionRowCount;
+    private final int collisionRowBytes;
+    private final byte[][] columns;
+    private final byte[] palColors;
+
+    /**
+     * Create a new table, with every value 0 and collision rows covering the
+     * full playfield.
+     *
+     * @param registerSections Register sections, in the order they are written
+     * @param excludeColor     Whether to leave out the color columns
+     * @param rowCount         Number of rows, including buffer rows
+     * @param collisionLines   Number of kernel lines per collision row, 0 for no collision data
+     */
+    public PlayfieldTable(List<PlayfieldOutputSection> registerSections,
+                          boolean excludeColor,
+                          int rowCount,
+                          int collisionLines) {
+        this(registerSections, excludeColor, false, rowCount, collisionLines, PlayfieldLayout.MAX_WIDTH);
+    }
+
+    /**
+     * Create a new table, with every value 0.
+     *
+     * @param registerSections Register sections, in the order they are written
+     * @param excludeColor     Whether to leave out the color columns
+     * @param changeMask       Whether to add a PFChanges column
+     * @param rowCount         Number of rows, including buffer rows
+     * @param collisionLines   Number of kernel lines per collision row, 0 for no collision data
+     * @param collisionWidth   Width of the collision data of a row in pixels
+     */
+    public PlayfieldTable(List<PlayfieldOutputSection> registerSections,
+                          boolean excludeColor,
+                          boolean changeMask,
+                          int rowCount,
+                          int collisionLines,
+                          int collisionWidth) {
+        this.registerSections = List.copyOf(registerSections);
+        this.rowCount = rowCount;
+        this.collisionLines = collisionLines;
+        this.collisionRowCount = collisionLines > 0 && rowCount > 0 ? (rowCount - 1) / collisionLines + 1 : 0;
+        this.collisionRowBytes = (collisionWidth + Byte.SIZE - 1) / Byte.SIZE;
+        this.columns = new byte[PlayfieldOutputSection.values().length][];
+
+        List<PlayfieldOutputSection> allSections = new ArrayList<>(registerSections);
+        if (!excludeColor) {
+            allSections.add(PlayfieldOutputSection.PFColors);
+        }
+        if (changeMask) {
+            allSections.add(PlayfieldOutputSection.PFChanges);
+        }
+        this.sections = List.copyOf(allSections);
+
+        for (PlayfieldOutputSection section : sections) {
+            columns[section.ordinal()] = new byte[rowCount];
+        }
+        this.palColors = excludeColor ? null : new byte[rowCount];
+        if (collisionRowCount > 0) {
+            columns[PlayfieldOutputSection.PFCollision.ordinal()] = new byte[collisionRowCount * collisionRowBytes];
+        }
+    }
+
+    /**
+     * Get the number of rows, including buffer rows.
+     *
+     * @return Number of rows
+     */
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * Get the register sections, in the order they are written.
+     *
+     * @return List of register sections
+     */
+    public List<PlayfieldOutputSection> getRegisterSections() {
+        return registerSections;
+    }
+
+    /**
+     * Get the sections written to the output file, in order: the register
+     * sections followed by PFColors unless colors are excluded, and then
+     * PFChanges if the table has a change mask.  Collision data is not
+     * included.
+     *
+     * @return List of output sections
+     */
+    public List<PlayfieldOutputSection> getSections() {
+        return sections;
+    }
+
+    /**
+     * Get the column of a section.  The array is the table's own storage,
+     * not a copy.  PFColors holds the NTSC colors and PFCollision holds all
+     * collision rows back to back.
+     *
+     * @param section Output section
+     * @return Column bytes, or null if the section is not part of this table
+     */
+    public byte[] getColumn(PlayfieldOutputSection section) {
+        return columns[section.ordinal()];
+    }
+
+    /**
+     * Get the PAL colors, one per row.  The array is the table's own
+     * storage, not a copy.
+     *
+     * @return PAL color bytes, or null if colors are excluded
+     */
+    public byte[] getPalColors() {
+        return palColors;
+    }
+
+    /**
+     * Get the number of collision rows.
+     *
+     * @return Number of collision rows, 0 if collision data is excluded
+     */
+    public int getCollisionRowCount() {
+        return collisionRowCount;
+    }
+
+    /**
+     * Get the number of bytes in each collision row.
+     *
+     * @return Bytes per collision row
+     */
+    public int getCollisionRowBytes() {
+        return collisionRowBytes;
+    }
+
+    /**
+     * Set a register value.
+     *
+     * @param section Register section
+     * @param row     Row index
+     * @param value   Register byte value, only the low 8 bits are used
+     */
+    public void set(PlayfieldOutputSection section, int row, int value) {
+        columns[section.ordinal()][row] = (byte) value;
+    }
+
+    /**
+     * Set the colors and collision data of a row from its line data.  The
+     * colors are ignored if they are excluded, and the collisions if the
+     * row does not start a collision row.
+     *
+     * @param row      Row index
+     * @param lineData Line data of the row
+     */
+    public void setLineData(int row, PlayfieldLineData lineData) {
+        if (palColors != null) {
+            columns[PlayfieldOutputSection.PFColors.ordinal()][row] = (byte) lineData.getNtscColor();
+            palColors[row] = (byte) lineData.getPalColor();
+        }
+
+        int collisionRow = getCollisionRow(row);
+        if (collisionRow >= 0) {
+            lineData.getCollisionBytes(
+                    columns[PlayfieldOutputSection.PFCollision.ordinal()], collisionRow * collisionRowBytes);
+        }
+    }
+
+    /**
+     * Get the collision row sampled from a row.  Kernel lines are counted
+     * from the top of the playfield, so the last row is line 0 and is
+     * always sampled.
+     *
+     * @param row Row index
+     * @return Collision row index, or -1 if the row is not sampled
+     */
+    public int getCollisionRow(int row) {
+        int line = rowCount - 1 - row;
+        if (collisionLines == 0 || line % collisionLines != 0) {
+            return -1;
+        }
+        return collisionRowCount - 1 - line / collisionLines;
+    }
+
+    /**
+     * Get the sections whose store on a row changes what the register
+     * holds.  Rows are drawn from the top, so a register holds what was last
+     * stored on the row above, the row drawn before.  When both halves of a
+     * line store a register, the second half store overwrites it in the
+     * middle of every line, so a first half section is compared with the
+     * second half value of the row above, and a second half section with
+     * the first half value of its own row.  Bit i stands for the i-th
+     * section, in output order and leaving out PFChanges; on the top row,
+     * which is drawn first, every bit is set.  PFColors changes when either
+     * its NTSC or PAL color does.
+     *
+     * @param row Row index
+     * @return Change mask of the row
+     */
+    public int getChangedSections(int row) {
+        int mask = 0;
+        int bit = 0;
+        for (PlayfieldOutputSection section : sections) {
+            if (section == PlayfieldOutputSection.PFChanges) {
+                continue;
+            }
+            if (row == rowCount - 1 || isChanged(section, row)) {
+                mask |= 1 << bit;
+            }
+            bit++;
+        }
+        return mask;
+    }
+
+    private boolean isChanged(PlayfieldOutputSection section, int row) {
+        byte[] column = columns[section.ordinal()];
+        PlayfieldOutputSection otherHalf = getOtherHalf(section);
+        if (otherHalf != null && columns[otherHalf.ordinal()] != null) {
+            byte[] otherColumn = columns[otherHalf.ordinal()];
+            return column[row] != (section.ordinal() < otherHalf.ordinal() ? otherColumn[row + 1] : otherColumn[row]);
+        }
+        if (column[row] != column[row + 1]) {
+            return true;
+        }
+        return section == PlayfieldOutputSection.PFColors && palColors[row] != palColors[row + 1];
+    }
+
+    /**
+     * Get the section storing the same register in the other half of a
+     * line.
+     *
+     * @param section Output section
+     * @return Section of the other half, or null if the section is not a register section
+     */
+    private static PlayfieldOutputSection getOtherHalf(PlayfieldOutputSection section) {
+        return switch (section) {
+            case PF0DataA -> PlayfieldOutputSection.PF0DataB;
+            case PF1DataA -> PlayfieldOutputSection.PF1DataB;
+            case PF2DataA -> PlayfieldOutputSection.PF2DataB;
+            case PF0DataB -> PlayfieldOutputSection.PF0DataA;
+            case PF1DataB -> PlayfieldOutputSection.PF1DataA;
+            case PF2DataB -> PlayfieldOutputSection.PF2DataA;
+            default -> null;
+        };
+    }
+
+    /**
+     * Fill the PFChanges column from the other sections.  Call this once
+     * every row has been set.
+     *
+     * @throws IllegalStateException The table has no change mask
+     */
+    public void fillChangeMask() {
+        byte[] changes = columns[PlayfieldOutputSection.PFChanges.ordinal()];
+        if (changes == null) {
+            throw new IllegalStateException("Table has no change mask");
+        }
+        for (int row = 0; row < rowCount; row++) {
+            changes[row] = (byte) getChangedSections(row);
+        }
+    }
+}
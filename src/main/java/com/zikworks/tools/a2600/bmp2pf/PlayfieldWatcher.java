@@ -0,0 +1,144 @@
+package com.zikworks.tools.a2600.bmp2pf;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps converting playfields as their input files change, so a running
+ * JVM can regenerate the output a few milliseconds after an image is
+ * saved.
+ * <p>
+ * The directories holding the input files are watched for changes.  As
+ * editors often write a file in several steps, changes are collected
+ * until none have arrived for a short while, and then only the jobs whose
+ * input file changed are run again.  If changes arrive faster than they
+ * are collected, the events are lost, so every job is run again.
+ */
+public class PlayfieldWatcher {
+    private static final long DEBOUNCE_MILLIS = 200;
+
+    /**
+     * A conversion to keep up to date.
+     *
+     * @param name       Name printed with the results
+     * @param inputFile  Input image file
+     * @param outputFile Output ASM file
+     * @param generator  Generator to run
+     */
+    public record Job(String name, Path inputFile, Path outputFile, PlayfieldGenerator generator) {
+        public Job {
+            inputFile = inputFile.toAbsolutePath().normalize();
+            outputFile = outputFile.toAbsolutePath().normalize();
+        }
+    }
+
+    private final List<Job> jobs;
+
+    public PlayfieldWatcher(List<Job> jobs) {
+        this.jobs = jobs;
+    }
+
+    /**
+     * Create a job from a builder, which must have its input and output
+     * files set.  The generator is built quiet, as the watcher prints its
+     * own messages.
+     *
+     * @param name    Name printed with the results
+     * @param builder Builder with the options of the conversion
+     * @return A new job
+     */
+    public static Job createJob(String name, PlayfieldGeneratorBuilder builder) {
+        return new Job(name,
+                Path.of(builder.getInputFile()),
+                Path.of(builder.getOutputFile()),
+                builder.withQuiet(true).build());
+    }
+
+    /**
+     * Run every job once, then watch for changes until the thread is
+     * interrupted.
+     *
+     * @throws IOException Error watching the input directories
+     */
+    public void run() throws IOException {
+        try (WatchService watchService = FileSystems.getDefault().newWatchService()) {
+            Map<WatchKey, Path> directories = new HashMap<>();
+            for (Job job : jobs) {
+                Path directory = job.inputFile().getParent();
+                if (!directories.containsValue(directory)) {
+                    WatchKey key = directory.register(watchService,
+                            StandardWatchEventKinds.ENTRY_CREATE,
+                            StandardWatchEventKinds.ENTRY_MODIFY);
+                    directories.put(key, directory);
+                }
+            }
+
+            for (Job job : jobs) {
+                runJob(job);
+            }
+            System.out.println("Watching " + jobs.size() + " input files for changes, press Ctrl+C to stop");
+
+            while (!Thread.currentThread().isInterrupted()) {
+                Set<Path> changed = new LinkedHashSet<>();
+                collectChanges(watchService.take(), directories, changed);
+
+                // Wait for the changes to settle
+                WatchKey key;
+                while ((key = watchService.poll(DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS)) != null) {
+                    collectChanges(key, directories, changed);
+                }
+
+                for (Job job : jobs) {
+                    if (changed.contains(job.inputFile())) {
+                        runJob(job);
+                    }
+                }
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } catch (ClosedWatchServiceException ex) {
+            // Stopped while waiting for changes
+        }
+    }
+
+    private void collectChanges(WatchKey key, Map<WatchKey, Path> directories, Set<Path> changed) {
+        Path directory = directories.get(key);
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                // Events were dropped, so any input may have changed
+                for (Job job : jobs) {
+                    changed.add(job.inputFile());
+                }
+            } else if (event.context() instanceof Path fileName) {
+                changed.add(directory.resolve(fileName));
+            }
+        }
+        key.reset();
+    }
+
+    private static void runJob(Job job) {
+        long start = System.nanoTime();
+        try {
+            job.generator().generate(job.inputFile(), job.outputFile());
+            System.out.printf("%s: wrote %s (%d ms)%n",
+                    job.name(), job.outputFile(), (System.nanoTime() - start) / 1_000_000);
+        } catch (NoSuchFileException ex) {
+            System.out.printf("%s: FAILED File not found: %s%n", job.name(), ex.getMessage());
+        } catch (IOException | RuntimeException ex) {
+            System.out.printf("%s: FAILED %s%n", job.name(), ex.getMessage());
+        }
+    }
+}
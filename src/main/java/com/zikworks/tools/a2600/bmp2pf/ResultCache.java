@@ -0,0 +1,198 @@
+package com.zikworks.tools.a2600.bmp2pf;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryNotEmptyException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * An on-disk cache of generated output files, so conversions whose input
+ * file and options have not changed can be skipped.
+ * <p>
+ * Each entry is a directory named after the SHA-256 hash of the input
+ * file's bytes and the generator options, holding every file the
+ * conversion wrote.  When the total size of the entries goes over the
+ * limit the least recently used ones are removed.
+ */
+public class ResultCache {
+    /**
+     * Changed whenever the output format changes, so older entries are not reused.
+     */
+    private static final String CACHE_FORMAT = "1";
+    private static final String STAGING_PREFIX = ".staging-";
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+    private static final Map<Path, ResultCache> OPEN_CACHES = new ConcurrentHashMap<>();
+
+    private final Path directory;
+    private final long maxBytes;
+    private final AtomicInteger hits = new AtomicInteger();
+    private final AtomicInteger misses = new AtomicInteger();
+
+    private ResultCache(Path directory, long maxBytes) {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Get the cache for a directory.  Conversions in the same process that
+     * use the same directory share one instance, and so share its counts.
+     *
+     * @param directory Cache directory, created if it does not exist
+     * @param maxBytes  Total size of the entries to keep
+     * @return The cache
+     * @throws IllegalArgumentException The directory is already open with another size
+     */
+    public static ResultCache open(Path directory, long maxBytes) {
+        Path normalized = directory.toAbsolutePath().normalize();
+        ResultCache cache = OPEN_CACHES.computeIfAbsent(normalized, ign -> new ResultCache(normalized, maxBytes));
+        if (cache.maxBytes != maxBytes) {
+            throw new IllegalArgumentException("Cache " + normalized + " is already open with a size of "
+                    + cache.maxBytes + " bytes, not " + maxBytes);
+        }
+        return cache;
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    public int getHits() {
+        return hits.get();
+    }
+
+    public int getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * Compute the key of a conversion.
+     *
+     * @param inputFile Input image file
+     * @param options   Every option that affects the output, in a stable order
+     * @return Hex encoded key
+     * @throws IOException Error reading the input file
+     */
+    public String computeKey(Path inputFile, String options) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 is not available", ex);
+        }
+
+        digest.update((CACHE_FORMAT + "\n" + options + "\n").getBytes(StandardCharsets.UTF_8));
+        try (InputStream in = new DigestInputStream(Files.newInputStream(inputFile), digest)) {
+            byte[] buffer = new byte[READ_BUFFER_SIZE];
+            while (in.read(buffer) >= 0) {
+                // Reading updates the digest
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * Copy the files of an entry to the target directory, if there is one
+     * for the key.  Counts a hit or a miss.
+     *
+     * @param key             Conversion key
+     * @param targetDirectory Directory to copy the files to
+     * @return true if the entry was found; false otherwise
+     * @throws IOException Error copying the files
+     */
+    public boolean restore(String key, Path targetDirectory) throws IOException {
+        Path entry = directory.resolve(key);
+        try {
+            for (Path file : Utilities.listFiles(entry)) {
+                Utilities.copyAtomically(file, targetDirectory.resolve(file.getFileName()));
+            }
+            Files.setLastModifiedTime(entry, FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (NoSuchFileException ex) {
+            // No entry, or it was evicted while being copied
+            misses.incrementAndGet();
+            return false;
+        }
+        hits.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * Create an empty directory to generate output into before it is
+     * stored.  If it is not stored it is up to the caller to delete it.
+     *
+     * @return New staging directory
+     * @throws IOException Error creating the directory
+     */
+    public Path createStagingDirectory() throws IOException {
+        Files.createDirectories(directory);
+        return Files.createTempDirectory(directory, STAGING_PREFIX);
+    }
+
+    /**
+     * Turn a staging directory into the entry for a key, then evict the
+     * least recently used entries if the cache is over its size limit.
+     * If another conversion stored the same key first, the staging
+     * directory is removed.
+     *
+     * @param key              Conversion key
+     * @param stagingDirectory Directory holding the generated files
+     * @throws IOException Error moving or removing files
+     */
+    public void store(String key, Path stagingDirectory) throws IOException {
+        try {
+            Files.move(stagingDirectory, directory.resolve(key), StandardCopyOption.ATOMIC_MOVE);
+        } catch (FileAlreadyExistsException | DirectoryNotEmptyException ex) {
+            Utilities.deleteDirectory(stagingDirectory);
+        }
+        evict();
+    }
+
+    private synchronized void evict() throws IOException {
+        List<Path> entries;
+        try (Stream<Path> stream = Files.list(directory)) {
+            entries = new ArrayList<>(stream
+                    .filter(Files::isDirectory)
+                    .filter(path -> !path.getFileName().toString().startsWith(STAGING_PREFIX))
+                    .toList());
+        }
+
+        Map<Path, Long> sizes = new HashMap<>();
+        Map<Path, FileTime> lastUsed = new HashMap<>();
+        long total = 0;
+        for (Path entry : entries) {
+            long size = 0;
+            for (Path file : Utilities.listFiles(entry)) {
+                size += Files.size(file);
+            }
+            sizes.put(entry, size);
+            lastUsed.put(entry, Files.getLastModifiedTime(entry));
+            total += size;
+        }
+
+        entries.sort(Comparator.comparing(lastUsed::get));
+        for (Path entry : entries) {
+            if (total <= maxBytes) {
+                break;
+            }
+            Utilities.deleteDirectory(entry);
+            total -= sizes.get(entry);
+        }
+    }
+}
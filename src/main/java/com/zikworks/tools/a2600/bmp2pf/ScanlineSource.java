@@ -0,0 +1,81 @@
+package com.zikworks.tools.a2600.bmp2pf;
+
+import java.awt.image.IndexColorModel;
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Source of image scanlines for a BitmapImageReader.
+ */
+public interface ScanlineSource extends Closeable {
+
+    /**
+     * Get the width of the image in pixels.
+     *
+     * @return Image width
+     */
+    int getWidth();
+
+    /**
+     * Get the height of the image in pixels.
+     *
+     * @return Image height
+     */
+    int getHeight();
+
+    /**
+     * Whether the alpha channel of the pixels is meaningful.
+     *
+     * @return true if the image has an alpha channel; false otherwise
+     */
+    boolean hasAlpha();
+
+    /**
+     * Read a full scanline as ARGB values.
+     *
+     * @param y    Line number to read, 0 being the top of the image
+     * @param argb Array to fill, at least as long as the image width
+     * @return The filled array
+     * @throws IOException Error reading the line
+     */
+    int[] readRow(int y, int[] argb) throws IOException;
+
+    /**
+     * Get the palette of an indexed image, whose rows can also be read as
+     * palette indices with readIndexRow.
+     *
+     * @return Palette of the image, or null if rows can only be read as ARGB values
+     */
+    default IndexColorModel getPalette() {
+        return null;
+    }
+
+    /**
+     * Read a full scanline as indices into the palette.  Sources without
+     * a palette return null, and the line is read with readRow instead.
+     *
+     * @param y       Line number to read, 0 being the top of the image
+     * @param indices Array to fill, at least as long as the image width
+     * @return The filled array, or null if the line cannot be read as indices
+     * @throws IOException Error reading the line
+     */
+    default int[] readIndexRow(int y, int[] indices) throws IOException {
+        return null;
+    }
+
+    /**
+     * Get a source for the same image that can be read from another
+     * thread at the same time as this one.  Closing it does not close
+     * this source.  The default returns this source, which is only right
+     * when readRow keeps no state between calls.
+     *
+     * @return A source for the same image
+     */
+    default ScanlineSource duplicate() {
+        return this;
+    }
+
+    @Override
+    default void close() throws IOException {
+    }
+}
@@ -0,0 +1,151 @@
+package com.zikworks.tools.a2600.bmp2pf;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.ToLongFunction;
+
+/**
+ * Collects the stats of many conversions, such as the jobs of a batch,
+ * and adds them up.  Only the latest conversion of each output file is
+ * kept, so a watcher converting the same files again does not grow it.
+ */
+public class StatsReport implements ConversionStats.Listener {
+    private static final int SLOWEST_COUNT = 5;
+
+    private final Map<String, ConversionStats> conversions = new LinkedHashMap<>();
+
+    @Override
+    public synchronized void conversionFinished(ConversionStats stats) {
+        conversions.put(stats.getOutputFile() != null ? stats.getOutputFile() : stats.getInputFile(), stats);
+    }
+
+    /**
+     * Get the stats of every conversion in the report.
+     *
+     * @return Stats in the order the output files were first converted
+     */
+    public synchronized List<ConversionStats> getConversions() {
+        return List.copyOf(conversions.values());
+    }
+
+    /**
+     * Print the time spent in each stage over all conversions, and the
+     * share of the total it makes up.
+     *
+     * @param out Stream to print to
+     */
+    public void printSummary(PrintStream out) {
+        List<ConversionStats> stats = getConversions();
+        if (stats.isEmpty()) {
+            return;
+        }
+
+        long[] stageNanos = sumStages(stats);
+        long stageTotal = 0;
+        for (long nanos : stageNanos) {
+            stageTotal += nanos;
+        }
+        out.printf("Stages over %d conversions (%d rows, %d bytes written, %d MB allocated):%n",
+                stats.size(), sum(stats, ConversionStats::getRows), sum(stats, ConversionStats::getBytesWritten),
+                sum(stats, ConversionStats::getAllocatedBytes) / (1024 * 1024));
+        for (ConversionStats.Stage stage : ConversionStats.Stage.values()) {
+            long nanos = stageNanos[stage.ordinal()];
+            out.printf(" - %-11s %9s ms %5.1f%%%n", stage.getKey(), ConversionStats.millis(nanos),
+                    stageTotal > 0 ? 100.0 * nanos / stageTotal : 0.0);
+        }
+
+        // Only conversions that were written with compression have a ratio to show
+        List<ConversionStats> compressed = stats.stream()
+                .filter(conversion -> conversion.getCompressedTableBytes() != conversion.getTableBytes())
+                .toList();
+        if (!compressed.isEmpty()) {
+            out.println("Compressed tables:");
+            for (ConversionStats conversion : compressed) {
+                out.printf(" - %s: %d to %d bytes (%.2f:1)%n", conversion.getOutputFile(),
+                        conversion.getTableBytes(), conversion.getCompressedTableBytes(),
+                        conversion.getCompressionRatio());
+            }
+        }
+    }
+
+    /**
+     * Format the report as JSON, with the stats of every conversion and
+     * their totals.
+     *
+     * @return JSON object
+     */
+    public String toJson() {
+        List<ConversionStats> stats = getConversions();
+        String newLine = System.lineSeparator();
+        StringBuilder json = new StringBuilder("{").append(newLine);
+        json.append("  \"conversions\": [");
+        for (int i = 0; i < stats.size(); i++) {
+            json.append(i > 0 ? "," : "").append(newLine).append("    ").append(stats.get(i).toJson());
+        }
+        json.append(newLine).append("  ],").append(newLine);
+
+        List<ConversionStats> slowest = new ArrayList<>(stats);
+        slowest.sort(Comparator.comparingLong(ConversionStats::getTotalNanos).reversed());
+        StringBuilder slowestJson = new StringBuilder("[");
+        for (int i = 0; i < Math.min(SLOWEST_COUNT, slowest.size()); i++) {
+            slowestJson.append(i > 0 ? "," : "")
+                    .append("{\"input\":").append(ConversionStats.quote(slowest.get(i).getInputFile()))
+                    .append(",\"totalMillis\":").append(ConversionStats.millis(slowest.get(i).getTotalNanos()))
+                    .append('}');
+        }
+        slowestJson.append(']');
+
+        json.append("  \"aggregate\": {")
+                .append("\"conversions\":").append(stats.size())
+                .append(",\"cacheHits\":").append(stats.stream().filter(ConversionStats::isCacheHit).count())
+                .append(",\"rows\":").append(sum(stats, ConversionStats::getRows))
+                .append(",\"collisionRows\":").append(sum(stats, ConversionStats::getCollisionRows))
+                .append(",\"tableBytes\":").append(sum(stats, ConversionStats::getTableBytes))
+                .append(",\"compressedTableBytes\":").append(sum(stats, ConversionStats::getCompressedTableBytes))
+                .append(",\"paddingBytes\":").append(sum(stats, ConversionStats::getPaddingBytes))
+                .append(",\"alignedPaddingBytes\":").append(sum(stats, ConversionStats::getAlignedPaddingBytes))
+                .append(",\"alignedCrossingTables\":").append(sum(stats, ConversionStats::getAlignedCrossingTables))
+                .append(",\"registerWrites\":").append(sum(stats, ConversionStats::getRegisterWrites))
+                .append(",\"skippedRegisterWrites\":").append(sum(stats, ConversionStats::getSkippedRegisterWrites))
+                .append(",\"savedCycles\":").append(sum(stats, ConversionStats::getSavedCycles))
+                .append(",\"filesWritten\":").append(sum(stats, ConversionStats::getFilesWritten))
+                .append(",\"bytesWritten\":").append(sum(stats, ConversionStats::getBytesWritten))
+                .append(",\"allocatedBytes\":").append(sum(stats, ConversionStats::getAllocatedBytes))
+                .append(",\"totalMillis\":").append(ConversionStats.millis(sum(stats, ConversionStats::getTotalNanos)))
+                .append(",\"stageMillis\":").append(ConversionStats.stagesToJson(sumStages(stats)))
+                .append(",\"slowest\":").append(slowestJson)
+                .append('}').append(newLine);
+        return json.append('}').append(newLine).toString();
+    }
+
+    /**
+     * Write the report to a JSON file.
+     *
+     * @param file File to write
+     * @throws IOException Error writing the file
+     */
+    public synchronized void write(Path file) throws IOException {
+        Files.writeString(file, toJson());
+    }
+
+    private static long[] sumStages(List<ConversionStats> stats) {
+        long[] stageNanos = new long[ConversionStats.Stage.values().length];
+        for (ConversionStats conversion : stats) {
+            for (ConversionStats.Stage stage : ConversionStats.Stage.values()) {
+                stageNanos[stage.ordinal()] += conversion.getNanos(stage);
+            }
+        }
+        return stageNanos;
+    }
+
+    private static long sum(List<ConversionStats> stats, ToLongFunction<ConversionStats> value) {
+        return stats.stream().mapToLong(value).sum();
+    }
+}
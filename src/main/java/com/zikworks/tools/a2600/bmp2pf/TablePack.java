@@ -0,0 +1,117 @@
+package com.zikworks.tools.a2600.bmp2pf;
+
+import com.zikworks.tools.a2600.bmp2pf.impl.TablePackWriter;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The tables of many conversions, packed into one shared file.  Each
+ * conversion adds its register and color tables here instead of writing
+ * them to its output file, and the shared file is written once all of
+ * them are done, so tables repeated or overlapping between assets are
+ * only stored once.
+ * <p>
+ * Conversions can add their tables from several threads.
+ */
+public class TablePack {
+
+    /**
+     * The tables of one conversion.
+     *
+     * @param source Name of the output file the tables belong to
+     * @param tables Tables of the conversion
+     */
+    public record Source(String source, List<TablePacker.Table> tables) {
+    }
+
+    private final Path file;
+    private final TablePacker packer;
+    private final List<Source> sources = new ArrayList<>();
+
+    /**
+     * Create a pack that keeps blobs within a page.
+     *
+     * @param file File the packed tables are written to
+     */
+    public TablePack(Path file) {
+        this(file, new TablePacker());
+    }
+
+    /**
+     * Create a pack.
+     *
+     * @param file   File the packed tables are written to
+     * @param packer Packer that lays out the tables
+     */
+    public TablePack(Path file, TablePacker packer) {
+        this.file = file;
+        this.packer = packer;
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    /**
+     * Add the tables of a conversion.
+     *
+     * @param source Name of the output file the tables belong to
+     * @param tables Tables of the conversion
+     */
+    public synchronized void add(String source, List<TablePacker.Table> tables) {
+        sources.add(new Source(source, List.copyOf(tables)));
+    }
+
+    /**
+     * Get the tables added so far, sorted by source so the layout does not
+     * depend on the order the conversions finished in.
+     *
+     * @return Tables of every conversion
+     */
+    public synchronized List<Source> getSources() {
+        List<Source> sorted = new ArrayList<>(sources);
+        sorted.sort(Comparator.comparing(Source::source)
+                .thenComparing(source -> source.tables().isEmpty() ? "" : source.tables().getFirst().label()));
+        return sorted;
+    }
+
+    /**
+     * Pack the tables of every conversion.
+     *
+     * @return Layout of the tables, in the order of getSources
+     * @throws IOException Two conversions define the same label
+     */
+    public TablePacker.Layout pack() throws IOException {
+        Map<String, String> sourceOfLabel = new HashMap<>();
+        List<TablePacker.Table> tables = new ArrayList<>();
+        for (Source source : getSources()) {
+            for (TablePacker.Table table : source.tables()) {
+                String other = sourceOfLabel.putIfAbsent(table.label(), source.source());
+                if (other != null) {
+                    throw new IOException("Label " + table.label() + " is defined by both " + other + " and "
+                            + source.source() + ", give them different output section prefixes");
+                }
+                tables.add(table);
+            }
+        }
+        return packer.pack(tables);
+    }
+
+    /**
+     * Pack the tables of every conversion and write them to the file.
+     *
+     * @return Layout of the tables
+     * @throws IOException Error writing the file, or two conversions define the same label
+     */
+    public TablePacker.Layout write() throws IOException {
+        TablePacker.Layout layout = pack();
+        TablePackWriter.write(file, getSources(), layout);
+        return layout;
+    }
+}
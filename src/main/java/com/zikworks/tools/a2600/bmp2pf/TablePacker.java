@@ -0,0 +1,422 @@
+package com.zikworks.tools.a2600.bmp2pf;
+
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Lays out tables so that they share bytes: identical tables are stored
+ * once, tables found inside another table point into it, and the end of
+ * one table is overlapped with the start of another, in the style of a
+ * greedy shortest common superstring.  Every table becomes a label
+ * pointing into a blob.
+ * <p>
+ * Candidates are found by rolling hashes, with tables bucketed by length
+ * and by the hash of their start, so a few hundred tables are packed
+ * without comparing every pair.  Color tables carry their PAL colors, and
+ * only share bytes with color tables whose NTSC and PAL colors both match.
+ * <p>
+ * Overlapping stops at the blob size, by default a page, so an aligned
+ * blob keeps indexed reads of all its tables within one page.  Tables
+ * longer than that get a blob of their own, which can still hold the
+ * tables found inside them, as long as a table that fits in a page is not
+ * found across a page boundary of the blob.
+ */
+public class TablePacker {
+    /**
+     * Size of a 6502 page, the default blob size.
+     */
+    public static final int PAGE_SIZE = 256;
+
+    private static final long HASH_BASE = 0x9E3779B97F4A7C15L;
+    private static final int COLOR_FLAG = 1 << 16;
+
+    /**
+     * A table to pack.
+     *
+     * @param label   Label of the table
+     * @param data    Bytes of the table, NTSC colors for a color table
+     * @param palData PAL colors of a color table, or null for any other table
+     */
+    public record Table(String label, byte[] data, byte[] palData) {
+    }
+
+    /**
+     * Where a table ended up.
+     *
+     * @param label  Label of the table
+     * @param blob   Index of the blob holding the table
+     * @param offset Offset of the table in the blob
+     * @param length Number of bytes in the table
+     */
+    public record Placement(String label, int blob, int offset, int length) {
+    }
+
+    /**
+     * Bytes shared by one or more tables.
+     *
+     * @param data    Bytes of the blob
+     * @param palData PAL colors when the blob holds color tables, otherwise null
+     */
+    public record Blob(byte[] data, byte[] palData) {
+    }
+
+    /**
+     * The packed tables.
+     *
+     * @param blobs      Blobs, in the order of the first table each holds
+     * @param placements Placement of every table, in the order they were given
+     * @param tableBytes Size of all tables before packing
+     */
+    public record Layout(List<Blob> blobs, List<Placement> placements, int tableBytes) {
+
+        /**
+         * Get the size of all blobs.
+         *
+         * @return Size in bytes
+         */
+        public int getPackedBytes() {
+            return blobs.stream().mapToInt(blob -> blob.data().length).sum();
+        }
+    }
+
+    private final int maxBlobSize;
+
+    /**
+     * Create a packer that keeps blobs within a page.
+     */
+    public TablePacker() {
+        this(PAGE_SIZE);
+    }
+
+    /**
+     * Create a packer.
+     *
+     * @param maxBlobSize Largest blob overlapping tables can grow to, 0 for no limit
+     */
+    public TablePacker(int maxBlobSize) {
+        this.maxBlobSize = maxBlobSize;
+    }
+
+    /**
+     * Pack tables into blobs.
+     *
+     * @param tables Tables to pack, with unique labels
+     * @return Layout of the packed tables
+     */
+    public Layout pack(List<Table> tables) {
+        // Identical tables are stored once
+        Map<IntBuffer, Integer> distinctIndex = new LinkedHashMap<>();
+        List<int[]> distinct = new ArrayList<>();
+        int[] distinctOfTable = new int[tables.size()];
+        int tableBytes = 0;
+        for (int i = 0; i < tables.size(); i++) {
+            int[] symbols = toSymbols(tables.get(i));
+            tableBytes += symbols.length;
+            Integer index = distinctIndex.putIfAbsent(IntBuffer.wrap(symbols), distinct.size());
+            if (index == null) {
+                index = distinct.size();
+                distinct.add(symbols);
+            }
+            distinctOfTable[i] = index;
+        }
+
+        Packing packing = new Packing(distinct);
+        packing.findContained(maxBlobSize);
+        packing.overlap(maxBlobSize);
+        List<Blob> blobs = packing.buildBlobs();
+
+        List<Placement> placements = new ArrayList<>();
+        for (int i = 0; i < tables.size(); i++) {
+            int table = distinctOfTable[i];
+            placements.add(new Placement(tables.get(i).label(), packing.blobOf[table], packing.offsetOf[table],
+                    distinct.get(table).length));
+        }
+        return new Layout(blobs, List.copyOf(placements), tableBytes);
+    }
+
+    private static int[] toSymbols(Table table) {
+        int[] symbols = new int[table.data().length];
+        for (int i = 0; i < symbols.length; i++) {
+            symbols[i] = table.palData() == null
+                    ? table.data()[i] & 0xFF
+                    : COLOR_FLAG | (table.palData()[i] & 0xFF) << 8 | table.data()[i] & 0xFF;
+        }
+        return symbols;
+    }
+
+    /**
+     * Working state of packing a list of distinct tables.
+     */
+    private static class Packing {
+        private final List<int[]> tables;
+        private final long[][] prefixHashes;
+        private final long[] powers;
+
+        // A table found inside another one points at it
+        private final int[] container;
+        private final int[] containerOffset;
+
+        // Tables that are not contained are linked into chains, each of which becomes a blob
+        private final int[] next;
+        private final int[] overlapWithNext;
+        private final boolean[] hasPrevious;
+        private final int[] chainParent;
+        private final int[] chainLength;
+
+        private final int[] blobOf;
+        private final int[] offsetOf;
+
+        Packing(List<int[]> tables) {
+            this.tables = tables;
+            int count = tables.size();
+            int maxLength = 0;
+            prefixHashes = new long[count][];
+            for (int i = 0; i < count; i++) {
+                int[] table = tables.get(i);
+                maxLength = Math.max(maxLength, table.length);
+                long[] hashes = new long[table.length + 1];
+                for (int j = 0; j < table.length; j++) {
+                    hashes[j + 1] = hashes[j] * HASH_BASE + table[j] + 1;
+                }
+                prefixHashes[i] = hashes;
+            }
+            powers = new long[maxLength + 1];
+            powers[0] = 1;
+            for (int i = 1; i <= maxLength; i++) {
+                powers[i] = powers[i - 1] * HASH_BASE;
+            }
+
+            container = new int[count];
+            containerOffset = new int[count];
+            next = new int[count];
+            overlapWithNext = new int[count];
+            hasPrevious = new boolean[count];
+            chainParent = new int[count];
+            chainLength = new int[count];
+            blobOf = new int[count];
+            offsetOf = new int[count];
+            Arrays.fill(container, -1);
+            Arrays.fill(next, -1);
+            for (int i = 0; i < count; i++) {
+                chainParent[i] = i;
+                chainLength[i] = tables.get(i).length;
+            }
+        }
+
+        /**
+         * Find the tables that appear inside a longer table.  For each
+         * length the shorter tables have, the windows of that length in
+         * every longer table are hashed and looked up.  Lengths are taken
+         * longest first, so the container of a table is known before
+         * windows inside that table are looked up.
+         *
+         * @param maxBlobSize Largest blob overlapping tables can grow to, 0 for no limit
+         */
+        void findContained(int maxBlobSize) {
+            Map<Integer, List<Integer>> tablesByLength = new TreeMap<>(Comparator.reverseOrder());
+            for (int i = 0; i < tables.size(); i++) {
+                tablesByLength.computeIfAbsent(tables.get(i).length, ign -> new ArrayList<>()).add(i);
+            }
+
+            for (Map.Entry<Integer, List<Integer>> entry : tablesByLength.entrySet()) {
+                int length = entry.getKey();
+                Map<Long, List<Integer>> byHash = new HashMap<>();
+                for (int table : entry.getValue()) {
+                    byHash.computeIfAbsent(hash(table, 0, length), ign -> new ArrayList<>()).add(table);
+                }
+
+                for (int longer = 0; longer < tables.size() && !byHash.isEmpty(); longer++) {
+                    int[] longerTable = tables.get(longer);
+                    if (longerTable.length <= length) {
+                        continue;
+                    }
+                    for (int offset = 0; offset + length <= longerTable.length; offset++) {
+                        List<Integer> candidates = byHash.get(hash(longer, offset, length));
+                        if (candidates == null) {
+                            continue;
+                        }
+                        for (int i = candidates.size() - 1; i >= 0; i--) {
+                            int table = candidates.get(i);
+                            if (Arrays.equals(tables.get(table), 0, length, longerTable, offset, offset + length)
+                                    && staysInPage(longer, offset, length, maxBlobSize)) {
+                                container[table] = longer;
+                                containerOffset[table] = offset;
+                                candidates.remove(i);
+                            }
+                        }
+                        if (candidates.isEmpty()) {
+                            byHash.remove(hash(longer, offset, length));
+                        }
+                    }
+                }
+            }
+        }
+
+        /**
+         * Check a window of a table would be read within one page.  A table
+         * that fits in a blob ends up in an aligned blob of at most that
+         * size, so any window of it does; a longer table gets a blob of its
+         * own, or is itself inside one, so the window is checked at its
+         * offset in that blob.  Windows longer than a page cross one
+         * anyway.
+         */
+        private boolean staysInPage(int table, int offset, int length, int maxBlobSize) {
+            if (maxBlobSize == 0 || tables.get(table).length <= maxBlobSize || length > PAGE_SIZE) {
+                return true;
+            }
+            int start = offset;
+            for (int outer = table; container[outer] >= 0; outer = container[outer]) {
+                start += containerOffset[outer];
+            }
+            return start / PAGE_SIZE == (start + length - 1) / PAGE_SIZE;
+        }
+
+        /**
+         * Link tables end to start by the longest overlap first.  For each
+         * overlap length the starts of the tables that can still follow
+         * another are hashed, and the end of every table that can still be
+         * followed is looked up.  Tables longer than a blob can hold are
+         * left out.
+         *
+         * @param maxBlobSize Largest chain length, 0 for no limit
+         */
+        void overlap(int maxBlobSize) {
+            List<Integer> roots = new ArrayList<>();
+            int longest = 0;
+            int secondLongest = 0;
+            for (int i = 0; i < tables.size(); i++) {
+                if (container[i] < 0 && (maxBlobSize == 0 || tables.get(i).length <= maxBlobSize)) {
+                    roots.add(i);
+                    int length = tables.get(i).length;
+                    secondLongest = Math.max(secondLongest, Math.min(longest, length));
+                    longest = Math.max(longest, length);
+                }
+            }
+
+            for (int overlap = secondLongest - 1; overlap > 0; overlap--) {
+                Map<Long, List<Integer>> byStart = new HashMap<>();
+                for (int table : roots) {
+                    if (!hasPrevious[table] && tables.get(table).length > overlap) {
+                        byStart.computeIfAbsent(hash(table, 0, overlap), ign -> new ArrayList<>()).add(table);
+                    }
+                }
+                if (byStart.isEmpty()) {
+                    continue;
+                }
+
+                for (int table : roots) {
+                    int length = tables.get(table).length;
+                    if (next[table] >= 0 || length <= overlap) {
+                        continue;
+                    }
+                    List<Integer> candidates = byStart.get(hash(table, length - overlap, overlap));
+                    if (candidates == null) {
+                        continue;
+                    }
+                    for (int candidate : candidates) {
+                        if (canLink(table, candidate, overlap, maxBlobSize)) {
+                            link(table, candidate, overlap);
+                            break;
+                        }
+                    }
+                }
+            }
+        }
+
+        private boolean canLink(int table, int candidate, int overlap, int maxBlobSize) {
+            int chain = findChain(table);
+            int candidateChain = findChain(candidate);
+            if (hasPrevious[candidate] || chain == candidateChain) {
+                return false;
+            }
+            if (maxBlobSize > 0 && chainLength[chain] + chainLength[candidateChain] - overlap > maxBlobSize) {
+                return false;
+            }
+            int[] start = tables.get(candidate);
+            int[] end = tables.get(table);
+            return Arrays.equals(end, end.length - overlap, end.length, start, 0, overlap);
+        }
+
+        private void link(int table, int candidate, int overlap) {
+            int chain = findChain(table);
+            int candidateChain = findChain(candidate);
+            next[table] = candidate;
+            overlapWithNext[table] = overlap;
+            hasPrevious[candidate] = true;
+            chainParent[candidateChain] = chain;
+            chainLength[chain] += chainLength[candidateChain] - overlap;
+        }
+
+        private int findChain(int table) {
+            while (chainParent[table] != table) {
+                chainParent[table] = chainParent[chainParent[table]];
+                table = chainParent[table];
+            }
+            return table;
+        }
+
+        /**
+         * Join every chain into a blob, and place every table in one.
+         *
+         * @return Blobs, in the order of their first table
+         */
+        List<Blob> buildBlobs() {
+            List<Blob> blobs = new ArrayList<>();
+            for (int head = 0; head < tables.size(); head++) {
+                if (container[head] >= 0 || hasPrevious[head]) {
+                    continue;
+                }
+
+                int[] symbols = new int[chainLength[findChain(head)]];
+                int offset = 0;
+                for (int table = head; table >= 0; table = next[table]) {
+                    int[] tableSymbols = tables.get(table);
+                    System.arraycopy(tableSymbols, 0, symbols, offset, tableSymbols.length);
+                    blobOf[table] = blobs.size();
+                    offsetOf[table] = offset;
+                    offset += tableSymbols.length - overlapWithNext[table];
+                }
+                blobs.add(toBlob(symbols));
+            }
+
+            for (int table = 0; table < tables.size(); table++) {
+                place(table);
+            }
+            return blobs;
+        }
+
+        private void place(int table) {
+            int outer = container[table];
+            if (outer >= 0) {
+                place(outer);
+                blobOf[table] = blobOf[outer];
+                offsetOf[table] = offsetOf[outer] + containerOffset[table];
+                container[table] = -1;
+            }
+        }
+
+        private static Blob toBlob(int[] symbols) {
+            byte[] data = new byte[symbols.length];
+            byte[] palData = symbols.length > 0 && (symbols[0] & COLOR_FLAG) != 0 ? new byte[symbols.length] : null;
+            for (int i = 0; i < symbols.length; i++) {
+                data[i] = (byte) symbols[i];
+                if (palData != null) {
+                    palData[i] = (byte) (symbols[i] >> 8);
+                }
+            }
+            return new Blob(data, palData);
+        }
+
+        private long hash(int table, int offset, int length) {
+            long[] hashes = prefixHashes[table];
+            return hashes[offset + length] - hashes[offset] * powers[length];
+        }
+    }
+}
@@ -1,30 +1,101 @@
 package com.zikworks.tools.a2600.bmp2pf;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 public class Utilities {
 
+    private static final int[] REVERSED_BYTES = new int[256];
+    private static final String[] BYTE_STRINGS = new String[256];
+
+    static {
+        for (int i = 0; i < 256; i++) {
+            REVERSED_BYTES[i] = Integer.reverse(i) >>> 24;
+            String binary = Integer.toBinaryString(i);
+            BYTE_STRINGS[i] = "0".repeat(8 - binary.length()) + binary;
+        }
+    }
+
+    /**
+     * Convert a byte value to a byte string.
+     *
+     * @param value Byte value, only the low 8 bits are used
+     * @return String of 0's and 1's, most significant bit first
+     */
+    public static String getByte(int value) {
+        return BYTE_STRINGS[value & 0xFF];
+    }
+
+    /**
+     * Reverse the order of the bits in a byte.
+     *
+     * @param value Byte value, only the low 8 bits are used
+     * @return The byte with bit 0 swapped with bit 7, bit 1 with bit 6, etc.
+     */
+    public static int reverseByte(int value) {
+        return REVERSED_BYTES[value & 0xFF];
+    }
+
     /**
-     * Convert a list of bits to a byte string.
+     * Reverse the order of the low bits of a packed value.
      *
-     * @param bits List of bits
-     * @return String of 0's and 1's in the same order as the bits in the list
+     * @param bits  Packed bits
+     * @param count Number of low bits to reverse
+     * @return The low bits in reverse order
      */
-    public static String getByte(List<Boolean> bits) {
-        while (bits.size() < 8) {
-            bits.add(false);
+    public static long reverseBits(long bits, int count) {
+        return count == 0 ? 0 : Long.reverse(bits) >>> (Long.SIZE - count);
+    }
+
+    /**
+     * Copy a file so that readers of the target see either the old or the
+     * new contents, never a partly written file.  The file is copied next
+     * to the target first and then renamed over it.
+     *
+     * @param source File to copy
+     * @param target File to replace
+     * @throws IOException Error copying or renaming the file
+     */
+    public static void copyAtomically(Path source, Path target) throws IOException {
+        Path temporary = Files.createTempFile(target.getParent(), ".bmp2pf-", ".tmp");
+        try {
+            Files.copy(source, temporary, StandardCopyOption.REPLACE_EXISTING);
+            Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary);
         }
-        return bits.stream().map(Utilities::toStr).collect(Collectors.joining(""));
     }
 
     /**
-     * Convert a boolean to a string.
+     * List the regular files in a directory.
      *
-     * @param bit Bit to convert
-     * @return "1" if passed true; "0" if passed false
+     * @param directory Directory to list
+     * @return Files in the directory
+     * @throws IOException Error listing the directory
      */
-    private static String toStr(boolean bit) {
-        return bit ? "1" : "0";
+    public static List<Path> listFiles(Path directory) throws IOException {
+        try (Stream<Path> stream = Files.list(directory)) {
+            return stream.filter(Files::isRegularFile).toList();
+        }
+    }
+
+    /**
+     * Delete a directory and the files in it, if it exists.  Sub-directories
+     * are not supported.
+     *
+     * @param directory Directory to delete
+     * @throws IOException Error deleting the files
+     */
+    public static void deleteDirectory(Path directory) throws IOException {
+        if (Files.isDirectory(directory)) {
+            for (Path file : listFiles(directory)) {
+                Files.deleteIfExists(file);
+            }
+            Files.deleteIfExists(directory);
+        }
     }
 }
@@ -0,0 +1,161 @@
+package com.zikworks.tools.a2600.bmp2pf.impl;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes DASM source as ASCII bytes into a reusable buffer, which is handed
+ * to the target stream in large blocks.  Byte values are written from
+ * precomputed {@code %xxxxxxxx} and {@code $xx} tokens, so emitting a line
+ * does not create any garbage.
+ */
+class AsmEmitter {
+    private static final byte[][] BINARY_TOKENS = new byte[256][];
+    private static final byte[][] HEX_TOKENS = new byte[256][];
+    private static final byte[] LINE_SEPARATOR = ascii(System.lineSeparator());
+    private static final byte[] DATA_LINE_PREFIX = ascii("    .byte ");
+    private static final byte[] SHORT_DATA_LINE_PREFIX = ascii("   .byte ");
+    private static final byte[] COLOR_SEPARATOR = ascii(" ; ");
+    private static final byte[] LIST_SEPARATOR = ascii(", ");
+
+    static {
+        for (int i = 0; i < 256; i++) {
+            String binary = Integer.toBinaryString(i);
+            BINARY_TOKENS[i] = ascii("%" + "0".repeat(8 - binary.length()) + binary);
+            String hex = Integer.toHexString(i);
+            HEX_TOKENS[i] = ascii("$" + (hex.length() == 1 ? "0" : "") + hex);
+        }
+    }
+
+    private final OutputStream target;
+    private final byte[] buffer;
+    private int position;
+
+    /**
+     * Create a new emitter.
+     *
+     * @param target     Stream the buffer is flushed to
+     * @param bufferSize Size of the buffer, which is the size of the blocks written to the target
+     */
+    AsmEmitter(OutputStream target, int bufferSize) {
+        this.target = target;
+        this.buffer = new byte[bufferSize];
+    }
+
+    /**
+     * Write a register data line: {@code     .byte %xxxxxxxx}
+     *
+     * @param value Byte value
+     * @throws IOException Error flushing the buffer
+     */
+    void dataLine(int value) throws IOException {
+        append(DATA_LINE_PREFIX);
+        append(BINARY_TOKENS[value & 0xFF]);
+        append(LINE_SEPARATOR);
+    }
+
+    /**
+     * Write a color data line: {@code    .byte $nn ; $pp}
+     *
+     * @param ntscColor NTSC color
+     * @param palColor  PAL color, written as a comment
+     * @throws IOException Error flushing the buffer
+     */
+    void colorLine(int ntscColor, int palColor) throws IOException {
+        append(SHORT_DATA_LINE_PREFIX);
+        append(HEX_TOKENS[ntscColor & 0xFF]);
+        append(COLOR_SEPARATOR);
+        append(HEX_TOKENS[palColor & 0xFF]);
+        append(LINE_SEPARATOR);
+    }
+
+    /**
+     * Write an index data line: {@code     .byte $nn}
+     *
+     * @param value Byte value
+     * @throws IOException Error flushing the buffer
+     */
+    void indexLine(int value) throws IOException {
+        append(DATA_LINE_PREFIX);
+        append(HEX_TOKENS[value & 0xFF]);
+        append(LINE_SEPARATOR);
+    }
+
+    /**
+     * Write a collision data line: {@code    .byte %xxxxxxxx, %xxxxxxxx, ...}
+     *
+     * @param collisions Collision bytes
+     * @param offset     Index of the first byte to write
+     * @param count      Number of bytes to write
+     * @throws IOException Error flushing the buffer
+     */
+    void collisionLine(byte[] collisions, int offset, int count) throws IOException {
+        append(SHORT_DATA_LINE_PREFIX);
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                append(LIST_SEPARATOR);
+            }
+            append(BINARY_TOKENS[collisions[offset + i] & 0xFF]);
+        }
+        append(LINE_SEPARATOR);
+    }
+
+    /**
+     * Write text followed by a line separator.
+     *
+     * @param text Text to write
+     * @throws IOException Error flushing the buffer
+     */
+    void line(String text) throws IOException {
+        text(text);
+        append(LINE_SEPARATOR);
+    }
+
+    /**
+     * Write an empty line.
+     *
+     * @throws IOException Error flushing the buffer
+     */
+    void line() throws IOException {
+        append(LINE_SEPARATOR);
+    }
+
+    /**
+     * Write text as is.
+     *
+     * @param text Text to write
+     * @throws IOException Error flushing the buffer
+     */
+    void text(String text) throws IOException {
+        append(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Write any buffered bytes to the target stream.
+     *
+     * @throws IOException Error writing to the target
+     */
+    void flush() throws IOException {
+        if (position > 0) {
+            target.write(buffer, 0, position);
+            position = 0;
+        }
+    }
+
+    private void append(byte[] bytes) throws IOException {
+        if (position + bytes.length > buffer.length) {
+            flush();
+            if (bytes.length > buffer.length) {
+                target.write(bytes);
+                return;
+            }
+        }
+        System.arraycopy(bytes, 0, buffer, position, bytes.length);
+        position += bytes.length;
+    }
+
+    private static byte[] ascii(String text) {
+        return text.getBytes(StandardCharsets.US_ASCII);
+    }
+}
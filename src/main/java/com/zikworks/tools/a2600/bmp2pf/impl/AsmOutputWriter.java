@@ -0,0 +1,590 @@
+package com.zikworks.tools.a2600.bmp2pf.impl;
+
+import com.zikworks.tools.a2600.bmp2pf.ConversionStats;
+import com.zikworks.tools.a2600.bmp2pf.OutputOptions;
+import com.zikworks.tools.a2600.bmp2pf.PageLayout;
+import com.zikworks.tools.a2600.bmp2pf.PlayfieldGeneratorBuilder.Compression;
+import com.zikworks.tools.a2600.bmp2pf.PlayfieldOutputSection;
+import com.zikworks.tools.a2600.bmp2pf.PlayfieldTable;
+import com.zikworks.tools.a2600.bmp2pf.TablePack;
+import com.zikworks.tools.a2600.bmp2pf.TablePacker;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Formats a playfield table as DASM source.  The sections are written
+ * column by column straight from the table, and lines are emitted as ASCII
+ * bytes from precomputed tokens, so formatting a row creates no garbage.
+ * <p>
+ * With compression the register and color tables hold one entry per
+ * distinct row or run, followed by the index table and preceded by a
+ * comment, and for runs a macro, showing how a kernel reads them.
+ * <p>
+ * When packed, the tables are laid out by a TablePacker and written as
+ * blobs, with each table's label an equate pointing into one.  With a
+ * shared TablePack the tables are handed to it instead, and only their
+ * collision data stays in the output file.
+ * <p>
+ * With a page layout the tables, and the collision chunks, are grouped
+ * into pages by a PageLayout, and each page is aligned instead of each
+ * table.
+ * <p>
+ * For a skip kernel the tables are followed by a PFSkip table, and
+ * preceded by a comment and the macro holding the store routines it
+ * points to, as written by SkipKernel.
+ */
+class AsmOutputWriter implements PlayfieldOutputWriter {
+    static final String DATA_LINE_PREFIX = "    .byte ";
+    static final int COLLISION_CHUNK_LINES = 8;
+    static final int WRITE_BLOCK_SIZE = 64 * 1024;
+    static final String HEIGHT_SYMBOL = "PLAYFIELD_HEIGHT";
+    static final String OUTPUT_FILE_START = HEIGHT_SYMBOL + " = ";
+    static final String ALIGNMENT_BLOCK = getAlignmentBlock(HEIGHT_SYMBOL);
+    static final String PACK_LABEL = "PFPack";
+
+    private final String outputSectionPrefix;
+    private final boolean separateCollisionFile;
+    private final Compression compression;
+    private final boolean pack;
+    private final TablePack tablePack;
+    private final boolean pageLayout;
+    private final boolean skipKernel;
+    private final String collisionLabel;
+
+    /**
+     * Create a new writer.
+     *
+     * @param options Output options; the tables go to their pack file instead of the output if it has one
+     */
+    AsmOutputWriter(OutputOptions options) {
+        this.outputSectionPrefix = options.outputSectionPrefix();
+        this.separateCollisionFile = options.separateCollisionFile();
+        this.compression = options.compression();
+        this.pack = options.pack();
+        this.tablePack = options.tablePack();
+        this.pageLayout = options.pageLayout();
+        this.skipKernel = options.skipKernel();
+        this.collisionLabel = outputSectionPrefix + PlayfieldOutputSection.PFCollision.name();
+    }
+
+    @Override
+    @SuppressWarnings("ResultOfMethodCallIgnored")
+    public Path write(PlayfieldTable table, Path outputPath, int height, ConversionStats stats)
+            throws IOException {
+        outputPath = outputPath.toAbsolutePath().normalize();
+        outputPath.getParent().toFile().mkdirs();
+
+        Path collisionFile = null;
+        if (separateCollisionFile && table.getCollisionRowCount() > 0) {
+            collisionFile = getSiblingPath(outputPath, "collision", null);
+        }
+
+        CompressedTable compressed = compress(table, compression, stats);
+        TablePacker.Layout layout = pack(getTables(table, compressed, outputSectionPrefix), pack, tablePack,
+                outputPath, stats);
+        List<PageLayout.Plan> plans;
+        try (OutputStream out = stats.countWrites(Files.newOutputStream(outputPath))) {
+            if (collisionFile == null) {
+                plans = write(table, compressed, layout, out, null, height);
+            } else {
+                try (OutputStream collisionOut = stats.countWrites(Files.newOutputStream(collisionFile))) {
+                    plans = write(table, compressed, layout, out, collisionOut, height);
+                }
+            }
+        }
+        for (PageLayout.Plan plan : plans) {
+            stats.addPadding(plan.paddingBytes(), plan.alignedPaddingBytes(), plan.alignedCrossingTables());
+        }
+        return collisionFile;
+    }
+
+    /**
+     * Write the output.
+     *
+     * @param table        Converted rows
+     * @param compressed   Compressed rows, or null if not compressed
+     * @param layout       Packed tables, or null if not packed
+     * @param out          Stream for the output file
+     * @param collisionOut Stream for the collision data when kept separately
+     * @param height       Value of PLAYFIELD_HEIGHT
+     * @return Page layout of each file written, empty without a page layout
+     * @throws IOException Error writing the output
+     */
+    List<PageLayout.Plan> write(PlayfieldTable table, CompressedTable compressed, TablePacker.Layout layout,
+                                OutputStream out, OutputStream collisionOut, int height) throws IOException {
+        AsmEmitter emitter = new AsmEmitter(out, WRITE_BLOCK_SIZE);
+
+        // Write the header portion
+        emitter.line(OUTPUT_FILE_START + height);
+        return writeTables(emitter, table, compressed, layout, collisionOut, height);
+    }
+
+    /**
+     * Write the tables and collision data of a conversion, after the
+     * header of the output file.
+     *
+     * @param emitter      Emitter for the output file
+     * @param table        Converted rows
+     * @param compressed   Compressed rows, or null if not compressed
+     * @param layout       Packed tables, or null if not packed
+     * @param collisionOut Stream for the collision data when kept separately
+     * @param height       Value of PLAYFIELD_HEIGHT
+     * @return Page layout of each file written, empty without a page layout
+     * @throws IOException Error writing the output
+     */
+    List<PageLayout.Plan> writeTables(AsmEmitter emitter, PlayfieldTable table, CompressedTable compressed,
+                                      TablePacker.Layout layout, OutputStream collisionOut, int height)
+            throws IOException {
+        // Write each segment, from the compressed entries when there are any
+        PlayfieldTable rows = table;
+        String sizeSymbol = HEIGHT_SYMBOL;
+        int checkSize = height;
+        if (compressed != null) {
+            writeCompressionHeader(emitter, compressed, outputSectionPrefix);
+            rows = compressed.getEntries();
+            sizeSymbol = compressed.getEntryCountSymbol();
+            checkSize = rows.getRowCount();
+        }
+        List<OutputTable> tables = new ArrayList<>();
+        if (tablePack != null) {
+            emitter.line();
+            emitter.line("; The tables are defined in " + tablePack.getFile().getFileName());
+        } else if (layout != null) {
+            emitter.line();
+            for (TablePacker.Placement placement : layout.placements()) {
+                writePackedLabel(emitter, placement, outputSectionPrefix + PACK_LABEL);
+            }
+            for (int i = 0; i < layout.blobs().size(); i++) {
+                TablePacker.Blob blob = layout.blobs().get(i);
+                String label = outputSectionPrefix + PACK_LABEL + i;
+                int size = blob.data().length;
+                tables.add(new OutputTable(size, String.valueOf(size), size, e -> {
+                    e.line(label);
+                    writeBlob(e, blob);
+                }));
+            }
+        } else {
+            PlayfieldTable sectionRows = rows;
+            for (PlayfieldOutputSection section : rows.getSections()) {
+                tables.add(new OutputTable(rows.getRowCount(), sizeSymbol, checkSize, e -> {
+                    e.line(outputSectionPrefix + section.name());
+                    writeSection(e, sectionRows, section);
+                }));
+            }
+            if (skipKernel) {
+                SkipKernel.writeHeader(emitter, rows, outputSectionPrefix);
+                tables.add(SkipKernel.getSkipTable(rows, outputSectionPrefix, sizeSymbol, checkSize));
+            }
+            if (compressed != null) {
+                tables.add(new OutputTable(compressed.getIndex().length, compressed.getIndexSizeSymbol(),
+                        getIndexCheckSize(compressed, height), e -> {
+                    e.line(outputSectionPrefix + compressed.getIndexLabel());
+                    for (byte value : compressed.getIndex()) {
+                        e.indexLine(value);
+                    }
+                }));
+            }
+        }
+        return writeTables(emitter, table, tables, collisionOut, height);
+    }
+
+    /**
+     * Write only the collision data of a conversion, for a frame whose
+     * tables are written some other way.
+     *
+     * @param emitter      Emitter for the output file
+     * @param table        Converted rows
+     * @param collisionOut Stream for the collision data when kept separately
+     * @param height       Value of PLAYFIELD_HEIGHT
+     * @return Page layout of each file written, empty without a page layout
+     * @throws IOException Error writing the output
+     */
+    List<PageLayout.Plan> writeCollisions(AsmEmitter emitter, PlayfieldTable table, OutputStream collisionOut,
+                                          int height) throws IOException {
+        return writeTables(emitter, table, new ArrayList<>(), collisionOut, height);
+    }
+
+    private List<PageLayout.Plan> writeTables(AsmEmitter emitter, PlayfieldTable table, List<OutputTable> tables,
+                                              OutputStream collisionOut, int height) throws IOException {
+        List<PageLayout.Plan> plans = new ArrayList<>();
+        if (!pageLayout) {
+            writeAligned(emitter, tables);
+        } else if (collisionOut != null || table.getCollisionRowCount() == 0) {
+            writePages(emitter, tables, plans);
+            tables.clear();
+        }
+
+        if (table.getCollisionRowCount() > 0) {
+            if (collisionOut != null) {
+                emitter.flush();
+                emitter = new AsmEmitter(collisionOut, WRITE_BLOCK_SIZE);
+            }
+            if (pageLayout) {
+                tables.addAll(getCollisionTables(table, height));
+                writePages(emitter, tables, plans);
+            } else {
+                writeCollisionFile(emitter, table);
+            }
+        }
+        emitter.flush();
+        return plans;
+    }
+
+    /**
+     * Write tables one after the other, each aligned on its own.
+     *
+     * @param emitter Emitter to write to
+     * @param tables  Tables to write
+     * @throws IOException Error writing the output
+     */
+    static void writeAligned(AsmEmitter emitter, List<OutputTable> tables) throws IOException {
+        for (OutputTable table : tables) {
+            if (table.sizeSymbol() != null) {
+                emitter.text(getAlignmentBlock(table.sizeSymbol()));
+            }
+            table.body().write(emitter);
+        }
+    }
+
+    /**
+     * Plan the pages of tables and write them page by page, aligning each
+     * page instead of each table.
+     *
+     * @param emitter Emitter to write to
+     * @param tables  Tables to write, in the order they are written without a plan
+     * @param plans   Plans of the files written so far, the plan is added to
+     * @throws IOException Error writing the output
+     */
+    static void writePages(AsmEmitter emitter, List<OutputTable> tables, List<PageLayout.Plan> plans)
+            throws IOException {
+        if (tables.isEmpty()) {
+            return;
+        }
+        List<PageLayout.Item> items = new ArrayList<>();
+        for (OutputTable table : tables) {
+            items.add(new PageLayout.Item(table.size(), table.checkSize()));
+        }
+        PageLayout.Plan plan = new PageLayout().plan(items);
+        for (PageLayout.Page page : plan.pages()) {
+            emitter.text(getAlignmentBlock(String.valueOf(page.size())));
+            for (int i = 0; i < page.items().size(); i++) {
+                if (i > 0) {
+                    emitter.line();
+                }
+                tables.get(page.items().get(i)).body().write(emitter);
+            }
+        }
+        plans.add(plan);
+    }
+
+    private static void writeSection(AsmEmitter emitter, PlayfieldTable table, PlayfieldOutputSection section)
+            throws IOException {
+        byte[] column = table.getColumn(section);
+        if (section == PlayfieldOutputSection.PFColors) {
+            byte[] palColors = table.getPalColors();
+            for (int row = 0; row < column.length; row++) {
+                emitter.colorLine(column[row], palColors[row]);
+            }
+        } else {
+            for (byte value : column) {
+                emitter.dataLine(value);
+            }
+        }
+    }
+
+    /**
+     * Write the lines of a packed blob.
+     *
+     * @param emitter Emitter to write to
+     * @param blob    Blob to write
+     * @throws IOException Error writing the output
+     */
+    static void writeBlob(AsmEmitter emitter, TablePacker.Blob blob) throws IOException {
+        byte[] data = blob.data();
+        byte[] palData = blob.palData();
+        for (int i = 0; i < data.length; i++) {
+            if (palData != null) {
+                emitter.colorLine(data[i], palData[i]);
+            } else {
+                emitter.dataLine(data[i]);
+            }
+        }
+    }
+
+    /**
+     * Write the equate that points the label of a packed table into its
+     * blob.
+     *
+     * @param emitter   Emitter to write to
+     * @param placement Placement of the table
+     * @param blobLabel Label of the blobs, followed by their index
+     * @throws IOException Error writing the output
+     */
+    static void writePackedLabel(AsmEmitter emitter, TablePacker.Placement placement, String blobLabel)
+            throws IOException {
+        emitter.line(placement.label() + " = " + blobLabel + placement.blob()
+                + (placement.offset() > 0 ? " + " + placement.offset() : ""));
+    }
+
+    /**
+     * Get the collision chunks and their pointer tables as separate
+     * tables, so a page layout can place each chunk on its own.
+     *
+     * @param table  Converted rows
+     * @param height Value of PLAYFIELD_HEIGHT
+     * @return Collision tables, in the order they are written without a plan
+     */
+    private List<OutputTable> getCollisionTables(PlayfieldTable table, int height) {
+        byte[] collisions = table.getColumn(PlayfieldOutputSection.PFCollision);
+        int collisionRowCount = table.getCollisionRowCount();
+        int rowBytes = table.getCollisionRowBytes();
+        int chunkCount = (collisionRowCount + COLLISION_CHUNK_LINES - 1) / COLLISION_CHUNK_LINES;
+        List<OutputTable> tables = new ArrayList<>();
+        for (int chunk = 0; chunk < chunkCount; chunk++) {
+            int firstRow = chunk * COLLISION_CHUNK_LINES;
+            int lastRow = Math.min(firstRow + COLLISION_CHUNK_LINES, collisionRowCount);
+            String label = collisionLabel + chunk;
+            tables.add(new OutputTable((lastRow - firstRow) * rowBytes,
+                    chunk == 0 ? HEIGHT_SYMBOL : null, chunk == 0 ? height : 0, e -> {
+                e.line(label);
+                for (int i = firstRow; i < lastRow; i++) {
+                    e.collisionLine(collisions, i * rowBytes, rowBytes);
+                }
+            }));
+        }
+        tables.addAll(getCollisionPointerTables(collisionLabel, chunkCount));
+        return tables;
+    }
+
+    private void writeCollisionFile(AsmEmitter emitter, PlayfieldTable table) throws IOException {
+        emitter.text(ALIGNMENT_BLOCK);
+
+        // Collision data is split into chunks of 8 lines, each with its own label
+        byte[] collisions = table.getColumn(PlayfieldOutputSection.PFCollision);
+        int collisionRowCount = table.getCollisionRowCount();
+        int rowBytes = table.getCollisionRowBytes();
+        for (int i = 0; i < collisionRowCount; i++) {
+            if (i % COLLISION_CHUNK_LINES == 0) {
+                emitter.line(collisionLabel + i / COLLISION_CHUNK_LINES);
+            }
+            emitter.collisionLine(collisions, i * rowBytes, rowBytes);
+        }
+
+        int sectionCount = (collisionRowCount + COLLISION_CHUNK_LINES - 1) / COLLISION_CHUNK_LINES;
+        writeCollisionPointers(emitter, collisionLabel, sectionCount);
+    }
+
+    /**
+     * Fold the rows of a table together, and count the bytes of its tables
+     * before and after.
+     *
+     * @param table       Converted rows
+     * @param compression How repeated rows are folded together
+     * @param stats       Stats to count the table bytes in
+     * @return Compressed rows, or null if compression is NONE
+     * @throws IOException The rows cannot be compressed this way
+     */
+    static CompressedTable compress(PlayfieldTable table, Compression compression, ConversionStats stats)
+            throws IOException {
+        if (compression == Compression.NONE) {
+            int tableBytes = table.getRowCount() * table.getSections().size();
+            stats.setTableBytes(tableBytes, tableBytes);
+            return null;
+        }
+        CompressedTable compressed = CompressedTable.compress(table, compression);
+        stats.setTableBytes(compressed.getTableBytes(), compressed.getCompressedBytes());
+        return compressed;
+    }
+
+    /**
+     * Pack the tables of a conversion, or hand them to the shared pack, and
+     * count the bytes left in the packed blobs.
+     *
+     * @param tables     Tables of the conversion
+     * @param pack       Whether to pack the tables into the output file
+     * @param tablePack  Shared pack to hand the tables to instead, or null
+     * @param outputPath Output file the tables belong to
+     * @param stats      Stats to count the table bytes in
+     * @return Packed tables, or null if they are not packed into the output file
+     */
+    static TablePacker.Layout pack(List<TablePacker.Table> tables, boolean pack, TablePack tablePack,
+                                   Path outputPath, ConversionStats stats) {
+        if (tablePack != null) {
+            tablePack.add(outputPath.getFileName().toString(), tables);
+            return null;
+        }
+        if (!pack) {
+            return null;
+        }
+        TablePacker.Layout layout = new TablePacker().pack(tables);
+        stats.setTableBytes(stats.getTableBytes(), layout.getPackedBytes());
+        return layout;
+    }
+
+    /**
+     * Get the register and color tables of a conversion, and its index
+     * table when compressed, in the order they are written.
+     *
+     * @param table               Converted rows
+     * @param compressed          Compressed rows, or null if not compressed
+     * @param outputSectionPrefix Prefix for all section labels
+     * @return Tables to pack
+     */
+    static List<TablePacker.Table> getTables(PlayfieldTable table, CompressedTable compressed,
+                                             String outputSectionPrefix) {
+        PlayfieldTable rows = compressed != null ? compressed.getEntries() : table;
+        List<TablePacker.Table> tables = new ArrayList<>();
+        for (PlayfieldOutputSection section : rows.getSections()) {
+            tables.add(new TablePacker.Table(outputSectionPrefix + section.name(), rows.getColumn(section),
+                    section == PlayfieldOutputSection.PFColors ? rows.getPalColors() : null));
+        }
+        if (compressed != null) {
+            tables.add(new TablePacker.Table(
+                    outputSectionPrefix + compressed.getIndexLabel(), compressed.getIndex(), null));
+        }
+        return tables;
+    }
+
+    /**
+     * Get the value of the symbol the alignment of the index table is
+     * checked against.
+     *
+     * @param compressed Compressed rows
+     * @param height     Value of PLAYFIELD_HEIGHT
+     * @return Value of the index size symbol
+     */
+    static int getIndexCheckSize(CompressedTable compressed, int height) {
+        return compressed.getCompression() == Compression.ROWS ? height : compressed.getEntries().getRowCount();
+    }
+
+    /**
+     * Write the equate holding the number of compressed entries, and a
+     * comment showing how a kernel reads the tables.  Runs also get a
+     * macro that moves to the next row at the end of each kernel line.
+     *
+     * @param emitter             Emitter to write to
+     * @param compressed          Compressed rows
+     * @param outputSectionPrefix Prefix for all section labels
+     * @throws IOException Error writing the output
+     */
+    static void writeCompressionHeader(AsmEmitter emitter, CompressedTable compressed, String outputSectionPrefix)
+            throws IOException {
+        String indexLabel = outputSectionPrefix + compressed.getIndexLabel();
+        String firstLabel = outputSectionPrefix + compressed.getEntries().getSections().getFirst().name();
+        emitter.line(compressed.getEntryCountSymbol() + " = " + compressed.getEntries().getRowCount());
+        emitter.line();
+        if (compressed.getCompression() == Compression.ROWS) {
+            emitter.line("; Each distinct row is stored once.  " + indexLabel + " holds the entry of every row");
+            emitter.line("; and the other tables one entry per distinct row, so a kernel reads a row with:");
+            emitter.line(";     ldy " + indexLabel + ",x");
+            emitter.line(";     lda " + firstLabel + ",y");
+            return;
+        }
+
+        String macroName = outputSectionPrefix + "PFNextRow";
+        emitter.line("; Each run of identical rows is stored once.  " + indexLabel + " holds the length of");
+        emitter.line("; every run and the other tables one entry per run.  Start a kernel with Y set to");
+        emitter.line("; PLAYFIELD_RUNS-1 and a byte of RAM set to " + indexLabel + "+PLAYFIELD_RUNS-1,");
+        emitter.line("; read each table with lda " + firstLabel + ",y and end every kernel line with");
+        emitter.line("; " + macroName + " <RAM byte>, which takes 8 cycles, or 16 when a run ends.");
+        emitter.line();
+        emitter.line("    mac " + macroName);
+        emitter.line("        dec {1}");
+        emitter.line("        bne .sameRun");
+        emitter.line("        dey");
+        emitter.line("        lda " + indexLabel + ",y");
+        emitter.line("        sta {1}");
+        emitter.line(".sameRun");
+        emitter.line("    endm");
+    }
+
+    /**
+     * Get the lines that align a table to the next page if it would
+     * otherwise cross one, so indexed reads of it take constant time.
+     *
+     * @param sizeSymbol Symbol holding the number of entries in the table
+     * @return Alignment lines, with an empty line before and after
+     */
+    static String getAlignmentBlock(String sizeSymbol) {
+        return """
+                
+                    if >. != >[.+(%s)]
+                        align 256
+                    endif
+                
+                """.formatted(sizeSymbol);
+    }
+
+    /**
+     * Write the tables holding the low and high bytes of each collision chunk's address.
+     *
+     * @param emitter        Emitter to write to
+     * @param collisionLabel Label of the collision section, including any prefix
+     * @param chunkCount     Number of collision chunks
+     * @throws IOException Error writing the output
+     */
+    static void writeCollisionPointers(AsmEmitter emitter, String collisionLabel, int chunkCount) throws IOException {
+        for (OutputTable pointers : getCollisionPointerTables(collisionLabel, chunkCount)) {
+            emitter.line();
+            pointers.body().write(emitter);
+        }
+    }
+
+    /**
+     * Get the tables holding the low and high bytes of each collision
+     * chunk's address.  Neither is aligned on its own.
+     *
+     * @param collisionLabel Label of the collision section, including any prefix
+     * @param chunkCount     Number of collision chunks
+     * @return The _Lo and _Hi tables
+     */
+    static List<OutputTable> getCollisionPointerTables(String collisionLabel, int chunkCount) {
+        List<String> chunkLabels = new ArrayList<>();
+        for (int i = 0; i < chunkCount; i++) {
+            chunkLabels.add(collisionLabel + i);
+        }
+        return getPointerTables(collisionLabel, chunkLabels);
+    }
+
+    /**
+     * Get the tables holding the low and high bytes of the address of
+     * each of a list of labels.  Neither is aligned on its own.
+     *
+     * @param label  Label of the tables, followed by _Lo and _Hi
+     * @param labels Labels the tables point to
+     * @return The _Lo and _Hi tables
+     */
+    static List<OutputTable> getPointerTables(String label, List<String> labels) {
+        List<OutputTable> tables = new ArrayList<>();
+        for (String half : List.of("<", ">")) {
+            tables.add(new OutputTable(labels.size(), null, 0, e -> {
+                e.line(label + (half.equals("<") ? "_Lo" : "_Hi"));
+                for (String target : labels) {
+                    e.line(DATA_LINE_PREFIX + "#" + half + target);
+                }
+            }));
+        }
+        return tables;
+    }
+
+    /**
+     * Get the path of a file written next to the output file, named after
+     * the output file's root name with a suffix.
+     *
+     * @param outputPath Output file
+     * @param suffix     Suffix added to the root name
+     * @param extension  Extension of the new file, or null to keep the output file's one
+     * @return Path of the new file
+     */
+    static Path getSiblingPath(Path outputPath, String suffix, String extension) {
+        String[] parts = outputPath.getFileName().toString().split("\\.");
+        String rootName = parts[0];
+        String ext = extension != null ? extension : parts[parts.length - 1];
+        return outputPath.resolveSibling(rootName + "_" + suffix + "." + ext);
+    }
+}
@@ -0,0 +1,282 @@
+package com.zikworks.tools.a2600.bmp2pf.impl;
+
+import com.zikworks.tools.a2600.bmp2pf.ConversionStats;
+import com.zikworks.tools.a2600.bmp2pf.OutputOptions;
+import com.zikworks.tools.a2600.bmp2pf.PageLayout;
+import com.zikworks.tools.a2600.bmp2pf.PlayfieldGeneratorBuilder.Compression;
+import com.zikworks.tools.a2600.bmp2pf.PlayfieldOutputSection;
+import com.zikworks.tools.a2600.bmp2pf.PlayfieldTable;
+import com.zikworks.tools.a2600.bmp2pf.TablePack;
+import com.zikworks.tools.a2600.bmp2pf.TablePacker;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Writes each section as a raw binary file next to the output file, and
+ * the output file itself as a small DASM include that pulls them in with
+ * {@code incbin}.  The include has the same labels and alignment as the
+ * source written by AsmOutputWriter, plus a {@code _Size} equate per
+ * section.  With compression the compressed entries and the index table
+ * are written instead of the rows, and when packed each blob becomes a
+ * binary file with the table labels pointing into it.  A page layout
+ * places the includes the same way as the source output, except that the
+ * collision data stays in one piece.
+ */
+class BinaryOutputWriter implements PlayfieldOutputWriter {
+    private static final String PAL_SUFFIX = "PAL";
+
+    private final String outputSectionPrefix;
+    private final boolean separateCollisionFile;
+    private final Compression compression;
+    private final boolean pack;
+    private final TablePack tablePack;
+    private final boolean pageLayout;
+    private final String collisionLabel;
+
+    /**
+     * Create a new writer.
+     *
+     * @param options Output options; the tables go to their pack file instead of the output if it has one
+     */
+    BinaryOutputWriter(OutputOptions options) {
+        this.outputSectionPrefix = options.outputSectionPrefix();
+        this.separateCollisionFile = options.separateCollisionFile();
+        this.compression = options.compression();
+        this.pack = options.pack();
+        this.tablePack = options.tablePack();
+        this.pageLayout = options.pageLayout();
+        this.collisionLabel = outputSectionPrefix + PlayfieldOutputSection.PFCollision.name();
+    }
+
+    @Override
+    @SuppressWarnings("ResultOfMethodCallIgnored")
+    public Path write(PlayfieldTable table, Path outputPath, int height, ConversionStats stats)
+            throws IOException {
+        outputPath = outputPath.toAbsolutePath().normalize();
+        outputPath.getParent().toFile().mkdirs();
+
+        CompressedTable compressed = AsmOutputWriter.compress(table, compression, stats);
+        TablePacker.Layout layout = AsmOutputWriter.pack(
+                AsmOutputWriter.getTables(table, compressed, outputSectionPrefix), pack, tablePack, outputPath, stats);
+        boolean hasCollisions = table.getCollisionRowCount() > 0;
+        List<PageLayout.Plan> plans = new ArrayList<>();
+        try (OutputStream out = stats.countWrites(Files.newOutputStream(outputPath))) {
+            AsmEmitter emitter = new AsmEmitter(out, AsmOutputWriter.WRITE_BLOCK_SIZE);
+            emitter.line(AsmOutputWriter.OUTPUT_FILE_START + height);
+
+            // Write each section, from the compressed entries when there are any
+            PlayfieldTable rows = table;
+            String sizeSymbol = AsmOutputWriter.HEIGHT_SYMBOL;
+            int checkSize = height;
+            if (compressed != null) {
+                AsmOutputWriter.writeCompressionHeader(emitter, compressed, outputSectionPrefix);
+                rows = compressed.getEntries();
+                sizeSymbol = compressed.getEntryCountSymbol();
+                checkSize = rows.getRowCount();
+            }
+            List<OutputTable> tables = new ArrayList<>();
+            if (tablePack != null) {
+                emitter.line();
+                emitter.line("; The tables are defined in " + tablePack.getFile().getFileName());
+            } else if (layout != null) {
+                tables.addAll(getPackedIncludes(emitter, layout, outputPath, stats));
+            } else {
+                tables.addAll(getIncludes(rows, compressed, sizeSymbol, checkSize, height, outputPath, stats));
+            }
+
+            if (!pageLayout) {
+                AsmOutputWriter.writeAligned(emitter, tables);
+                if (hasCollisions && !separateCollisionFile) {
+                    writeCollisionInclude(emitter, table, height, outputPath, stats);
+                }
+            } else {
+                if (hasCollisions && !separateCollisionFile) {
+                    tables.addAll(getCollisionIncludes(table, height, outputPath, stats));
+                }
+                AsmOutputWriter.writePages(emitter, tables, plans);
+            }
+            emitter.flush();
+        }
+
+        Path collisionFile = null;
+        if (hasCollisions && separateCollisionFile) {
+            collisionFile = AsmOutputWriter.getSiblingPath(outputPath, "collision", null);
+            try (OutputStream out = stats.countWrites(Files.newOutputStream(collisionFile))) {
+                AsmEmitter emitter = new AsmEmitter(out, AsmOutputWriter.WRITE_BLOCK_SIZE);
+                if (pageLayout) {
+                    AsmOutputWriter.writePages(emitter, getCollisionIncludes(table, height, outputPath, stats), plans);
+                } else {
+                    writeCollisionInclude(emitter, table, height, outputPath, stats);
+                }
+                emitter.flush();
+            }
+        }
+        for (PageLayout.Plan plan : plans) {
+            stats.addPadding(plan.paddingBytes(), plan.alignedPaddingBytes(), plan.alignedCrossingTables());
+        }
+        return collisionFile;
+    }
+
+    /**
+     * Get every table as an include of a binary file, with its label and
+     * size.
+     *
+     * @param rows       Rows to write, the compressed entries when compressed
+     * @param compressed Compressed rows, or null if not compressed
+     * @param sizeSymbol Symbol the alignment of each table is checked against
+     * @param checkSize  Value of the size symbol
+     * @param height     Value of PLAYFIELD_HEIGHT
+     * @param outputPath Output file, used to name the binary files
+     * @param stats      Stats to count the binary files in
+     * @return Tables, in the order they are written without a plan
+     */
+    private List<OutputTable> getIncludes(PlayfieldTable rows, CompressedTable compressed, String sizeSymbol,
+                                          int checkSize, int height, Path outputPath, ConversionStats stats) {
+        List<OutputTable> tables = new ArrayList<>();
+        for (PlayfieldOutputSection section : rows.getSections()) {
+            String label = outputSectionPrefix + section.name();
+            byte[] palColors = section == PlayfieldOutputSection.PFColors ? rows.getPalColors() : null;
+            tables.add(new OutputTable(rows.getRowCount(), sizeSymbol, checkSize, e -> {
+                e.line(label + "_Size = " + rows.getRowCount());
+                writeInclude(e, label, rows.getColumn(section), palColors, outputPath, stats);
+            }));
+        }
+
+        if (compressed != null) {
+            String label = outputSectionPrefix + compressed.getIndexLabel();
+            tables.add(new OutputTable(compressed.getIndex().length, compressed.getIndexSizeSymbol(),
+                    AsmOutputWriter.getIndexCheckSize(compressed, height), e -> {
+                e.line(label + "_Size = " + compressed.getIndex().length);
+                writeInclude(e, label, compressed.getIndex(), null, outputPath, stats);
+            }));
+        }
+        return tables;
+    }
+
+    /**
+     * Write the label and size of each packed table, pointing into the
+     * blobs, and get every blob as an include of a binary file.  A color
+     * blob has a PAL twin, picked the same way as the PFColors table.
+     *
+     * @param emitter    Emitter for the include file
+     * @param layout     Packed tables
+     * @param outputPath Output file, used to name the binary files
+     * @param stats      Stats to count the binary files in
+     * @return Blobs, in the order they are written without a plan
+     * @throws IOException Error writing the output
+     */
+    private List<OutputTable> getPackedIncludes(AsmEmitter emitter, TablePacker.Layout layout, Path outputPath,
+                                                ConversionStats stats) throws IOException {
+        String blobLabel = outputSectionPrefix + AsmOutputWriter.PACK_LABEL;
+        emitter.line();
+        for (TablePacker.Placement placement : layout.placements()) {
+            AsmOutputWriter.writePackedLabel(emitter, placement, blobLabel);
+            emitter.line(placement.label() + "_Size = " + placement.length());
+        }
+
+        List<OutputTable> tables = new ArrayList<>();
+        for (int i = 0; i < layout.blobs().size(); i++) {
+            TablePacker.Blob blob = layout.blobs().get(i);
+            String label = blobLabel + i;
+            int size = blob.data().length;
+            tables.add(new OutputTable(size, String.valueOf(size), size,
+                    e -> writeInclude(e, label, blob.data(), blob.palData(), outputPath, stats)));
+        }
+        return tables;
+    }
+
+    /**
+     * Write a table as a binary file, and its label and include.
+     *
+     * @param emitter    Emitter for the include file
+     * @param label      Label of the table, also naming the binary file
+     * @param data       Bytes of the table, NTSC colors for a color table
+     * @param palData    PAL colors of a color table, or null for any other table
+     * @param outputPath Output file, used to name the binary files
+     * @param stats      Stats to count the binary files in
+     * @throws IOException Error writing the output
+     */
+    private static void writeInclude(AsmEmitter emitter, String label, byte[] data, byte[] palData,
+                                     Path outputPath, ConversionStats stats) throws IOException {
+        Path binaryFile = writeBinaryFile(outputPath, label, data, stats);
+        emitter.line(label);
+        if (palData != null) {
+            Path palFile = writeBinaryFile(outputPath, label + PAL_SUFFIX, palData, stats);
+            emitter.line("    ifconst PAL");
+            emitter.line("        incbin \"" + palFile.getFileName() + "\"");
+            emitter.line("    else");
+            emitter.line("        incbin \"" + binaryFile.getFileName() + "\"");
+            emitter.line("    endif");
+        } else {
+            emitter.line("    incbin \"" + binaryFile.getFileName() + "\"");
+        }
+    }
+
+    /**
+     * Write the collision data as one binary file.  Each chunk label is an
+     * equate pointing into it, so the _Lo/_Hi tables are the same as in
+     * the source output.
+     *
+     * @param emitter    Emitter for the include file
+     * @param table      Converted rows
+     * @param height     Value of PLAYFIELD_HEIGHT
+     * @param outputPath Output file, used to name the binary file
+     * @param stats      Stats to count the binary file in
+     * @throws IOException Error writing the output
+     */
+    private void writeCollisionInclude(AsmEmitter emitter, PlayfieldTable table, int height, Path outputPath,
+                                       ConversionStats stats) throws IOException {
+        List<OutputTable> tables = getCollisionIncludes(table, height, outputPath, stats);
+        AsmOutputWriter.writeAligned(emitter, tables.subList(0, 1));
+        AsmOutputWriter.writeCollisionPointers(emitter, collisionLabel, getChunkCount(table));
+    }
+
+    /**
+     * Get the collision data, which is kept in one piece as its chunks
+     * point into one binary file, followed by its pointer tables.
+     *
+     * @param table      Converted rows
+     * @param height     Value of PLAYFIELD_HEIGHT
+     * @param outputPath Output file, used to name the binary file
+     * @param stats      Stats to count the binary file in
+     * @return Collision tables, in the order they are written without a plan
+     */
+    private List<OutputTable> getCollisionIncludes(PlayfieldTable table, int height, Path outputPath,
+                                                   ConversionStats stats) {
+        byte[] collisions = table.getColumn(PlayfieldOutputSection.PFCollision);
+        int chunkCount = getChunkCount(table);
+        int chunkSize = AsmOutputWriter.COLLISION_CHUNK_LINES * table.getCollisionRowBytes();
+
+        List<OutputTable> tables = new ArrayList<>();
+        tables.add(new OutputTable(collisions.length, AsmOutputWriter.HEIGHT_SYMBOL, height, e -> {
+            Path binaryFile = writeBinaryFile(outputPath, collisionLabel, collisions, stats);
+            e.line(collisionLabel + "_Size = " + collisions.length);
+            e.line(collisionLabel + "0");
+            e.line("    incbin \"" + binaryFile.getFileName() + "\"");
+            for (int i = 1; i < chunkCount; i++) {
+                e.line(collisionLabel + i + " = " + collisionLabel + "0 + " + i * chunkSize);
+            }
+        }));
+        tables.addAll(AsmOutputWriter.getCollisionPointerTables(collisionLabel, chunkCount));
+        return tables;
+    }
+
+    private static int getChunkCount(PlayfieldTable table) {
+        return (table.getCollisionRowCount() + AsmOutputWriter.COLLISION_CHUNK_LINES - 1)
+                / AsmOutputWriter.COLLISION_CHUNK_LINES;
+    }
+
+    private static Path writeBinaryFile(Path outputPath, String label, byte[] data, ConversionStats stats)
+            throws IOException {
+        Path binaryFile = AsmOutputWriter.getSiblingPath(outputPath, label, "bin");
+        try (OutputStream out = stats.countWrites(Files.newOutputStream(binaryFile))) {
+            out.write(data);
+        }
+        return binaryFile;
+    }
+}
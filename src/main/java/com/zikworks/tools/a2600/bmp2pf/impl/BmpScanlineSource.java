@@ -0,0 +1,467 @@
+package com.zikworks.tools.a2600.bmp2pf.impl;
+
+import com.zikworks.tools.a2600.bmp2pf.ScanlineSource;
+
+import java.awt.image.IndexColorModel;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads scanlines directly from an uncompressed 8-bit, 24-bit or 32-bit BMP
+ * file, or from BMP data already in memory.  8-bit rows can also be read as
+ * palette indices.  Only the headers and a small block of
+ * scanlines are copied, so the image never has to be decoded as a whole.
+ */
+public class BmpScanlineSource implements ScanlineSource {
+    private static final int FILE_HEADER_SIZE = 14;
+    private static final int INFO_HEADER_SIZE = 40;
+    private static final int V4_HEADER_SIZE = 108;
+    private static final int V5_HEADER_SIZE = 124;
+    private static final int BI_RGB = 0;
+    private static final int BI_BITFIELDS = 3;
+    private static final int READ_BLOCK_SIZE = 64 * 1024;
+    private static final int MAX_PALETTE_ENTRIES = 256;
+
+    private final FileChannel channel;
+    private final ByteBuffer data;
+    private final int width;
+    private final int height;
+    private final boolean topDown;
+    private final int bitCount;
+    private final long dataOffset;
+    private final int stride;
+    private final int rowsPerBlock;
+    private final ByteBuffer blockBuffer;
+    private final int redShift;
+    private final int greenShift;
+    private final int blueShift;
+    private final int alphaShift;
+    private final boolean hasAlpha;
+    private final IndexColorModel palette;
+    private final boolean ownsChannel;
+    private int blockStart = -1;
+    private int blockRows;
+
+    private BmpScanlineSource(FileChannel channel, ByteBuffer data, BmpHeader header, IndexColorModel palette) {
+        this.channel = channel;
+        this.data = data;
+        this.width = header.width;
+        this.height = Math.abs(header.height);
+        this.topDown = header.height < 0;
+        this.bitCount = header.bitCount;
+        this.dataOffset = header.dataOffset;
+        this.stride = (int) header.getStride();
+        this.rowsPerBlock = Math.max(1, READ_BLOCK_SIZE / stride);
+        this.blockBuffer = ByteBuffer.allocate(rowsPerBlock * stride).order(ByteOrder.LITTLE_ENDIAN);
+        this.redShift = Integer.numberOfTrailingZeros(header.redMask);
+        this.greenShift = Integer.numberOfTrailingZeros(header.greenMask);
+        this.blueShift = Integer.numberOfTrailingZeros(header.blueMask);
+        this.alphaShift = Integer.numberOfTrailingZeros(header.alphaMask);
+        this.hasAlpha = header.alphaMask != 0;
+        this.palette = palette;
+        this.ownsChannel = true;
+    }
+
+    private BmpScanlineSource(BmpScanlineSource source) {
+        this.channel = source.channel;
+        this.data = source.data;
+        this.width = source.width;
+        this.height = source.height;
+        this.topDown = source.topDown;
+        this.bitCount = source.bitCount;
+        this.dataOffset = source.dataOffset;
+        this.stride = source.stride;
+        this.rowsPerBlock = source.rowsPerBlock;
+        this.blockBuffer = ByteBuffer.allocate(source.blockBuffer.capacity()).order(ByteOrder.LITTLE_ENDIAN);
+        this.redShift = source.redShift;
+        this.greenShift = source.greenShift;
+        this.blueShift = source.blueShift;
+        this.alphaShift = source.alphaShift;
+        this.hasAlpha = source.hasAlpha;
+        this.palette = source.palette;
+        this.ownsChannel = false;
+    }
+
+    /**
+     * Open a BMP file if it is in one of the layouts this source can read.
+     *
+     * @param path Path to the image file
+     * @return A new source, or null if the file is not a supported BMP file
+     * @throws IOException Error reading the file, or the file is too short for the size in its header
+     */
+    public static BmpScanlineSource open(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            BmpHeader header = BmpHeader.read(channel);
+            if (header == null || !header.isSupported()) {
+                channel.close();
+                return null;
+            }
+            header.checkSize(channel.size());
+
+            IndexColorModel palette = null;
+            if (header.bitCount == 8) {
+                ByteBuffer paletteData = ByteBuffer.allocate(header.getPaletteEntries() * 4);
+                while (paletteData.hasRemaining()) {
+                    if (channel.read(paletteData, header.getPaletteOffset() + paletteData.position()) < 0) {
+                        throw new EOFException("Unexpected end of BMP file in palette");
+                    }
+                }
+                palette = header.createPalette(paletteData.flip());
+            }
+            return new BmpScanlineSource(channel, null, header, palette);
+        } catch (IOException | RuntimeException ex) {
+            channel.close();
+            throw ex;
+        }
+    }
+
+    /**
+     * Read BMP data already in memory if it is in one of the layouts this
+     * source can read.  The data is read in place from its current position.
+     *
+     * @param data Encoded BMP data
+     * @return A new source, or null if the data is not a supported BMP file
+     * @throws IOException The header holds an impossible size, or the data is too short for it
+     */
+    public static BmpScanlineSource open(ByteBuffer data) throws IOException {
+        ByteBuffer slice = data.slice().order(ByteOrder.LITTLE_ENDIAN);
+        BmpHeader header = BmpHeader.read(slice.slice(0, Math.min(slice.limit(), BmpHeader.MAX_SIZE)));
+        if (header == null || !header.isSupported()) {
+            return null;
+        }
+        header.checkSize(slice.limit());
+
+        IndexColorModel palette = null;
+        if (header.bitCount == 8) {
+            int paletteSize = header.getPaletteEntries() * 4;
+            if (header.getPaletteOffset() + paletteSize > slice.limit()) {
+                return null;
+            }
+            palette = header.createPalette(slice.slice(header.getPaletteOffset(), paletteSize));
+        }
+        return new BmpScanlineSource(null, slice, header, palette);
+    }
+
+    @Override
+    public int getWidth() {
+        return width;
+    }
+
+    @Override
+    public int getHeight() {
+        return height;
+    }
+
+    @Override
+    public boolean hasAlpha() {
+        return hasAlpha;
+    }
+
+    @Override
+    public IndexColorModel getPalette() {
+        return palette;
+    }
+
+    @Override
+    public int[] readRow(int y, int[] argb) throws IOException {
+        int rowOffset = getRowOffset(y);
+        if (bitCount == 8) {
+            for (int x = 0; x < width; x++) {
+                argb[x] = palette.getRGB(blockBuffer.get(rowOffset + x) & 0xFF);
+            }
+        } else if (bitCount == 24) {
+            for (int x = 0, offset = rowOffset; x < width; x++, offset += 3) {
+                argb[x] = 0xFF000000
+                        | (blockBuffer.get(offset + 2) & 0xFF) << 16
+                        | (blockBuffer.get(offset + 1) & 0xFF) << 8
+                        | (blockBuffer.get(offset) & 0xFF);
+            }
+        } else {
+            for (int x = 0, offset = rowOffset; x < width; x++, offset += 4) {
+                int pixel = blockBuffer.getInt(offset);
+                int alpha = hasAlpha ? (pixel >>> alphaShift) & 0xFF : 0xFF;
+                argb[x] = alpha << 24
+                        | ((pixel >>> redShift) & 0xFF) << 16
+                        | ((pixel >>> greenShift) & 0xFF) << 8
+                        | ((pixel >>> blueShift) & 0xFF);
+            }
+        }
+        return argb;
+    }
+
+    @Override
+    public int[] readIndexRow(int y, int[] indices) throws IOException {
+        if (palette == null) {
+            return null;
+        }
+        int rowOffset = getRowOffset(y);
+        for (int x = 0; x < width; x++) {
+            indices[x] = blockBuffer.get(rowOffset + x) & 0xFF;
+        }
+        return indices;
+    }
+
+    /**
+     * Get the offset of a row in the block buffer, reading the block that
+     * holds it when needed.
+     *
+     * @param y Line number, 0 being the top of the image
+     * @return Offset of the row's first byte
+     * @throws IOException Error reading the file
+     */
+    private int getRowOffset(int y) throws IOException {
+        // Rows are normally stored bottom-up
+        int fileRow = topDown ? y : height - 1 - y;
+        if (fileRow < blockStart || fileRow >= blockStart + blockRows) {
+            readBlock(fileRow);
+        }
+        return (fileRow - blockStart) * stride;
+    }
+
+    /**
+     * Read a block of consecutive rows containing the given row.  The block
+     * extends in the direction the rows are being read, so sequential reads
+     * in either direction only hit the file once per block.
+     *
+     * @param fileRow Row index in file order
+     * @throws IOException Error reading the file
+     */
+    private void readBlock(int fileRow) throws IOException {
+        int start = fileRow < blockStart ? Math.max(0, fileRow - rowsPerBlock + 1) : fileRow;
+        int rows = Math.min(rowsPerBlock, height - start);
+        long position = dataOffset + (long) start * stride;
+
+        blockBuffer.clear().limit(rows * stride);
+        if (data != null) {
+            if (position + blockBuffer.limit() > data.limit()) {
+                throw new EOFException("Unexpected end of BMP data at row " + fileRow);
+            }
+            blockBuffer.put(0, data, (int) position, blockBuffer.limit());
+        } else {
+            while (blockBuffer.hasRemaining()) {
+                if (channel.read(blockBuffer, position + blockBuffer.position()) < 0) {
+                    throw new EOFException("Unexpected end of BMP file at row " + fileRow);
+                }
+            }
+        }
+        blockStart = start;
+        blockRows = rows;
+    }
+
+    /**
+     * Get a source with its own block buffer that shares the file or data
+     * of this one.  Positional reads on the channel do not interfere with
+     * each other, so both can be read at the same time.
+     *
+     * @return A source for the same image
+     */
+    @Override
+    public ScanlineSource duplicate() {
+        return new BmpScanlineSource(this);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (channel != null && ownsChannel) {
+            channel.close();
+        }
+    }
+
+    /**
+     * The parts of the BMP file and info headers needed to locate and decode scanlines.
+     */
+    static class BmpHeader {
+        static final int MAX_SIZE = FILE_HEADER_SIZE + V5_HEADER_SIZE;
+
+        int headerSize;
+        long dataOffset;
+        int width;
+        int height;
+        int bitCount;
+        int compression;
+        int redMask;
+        int greenMask;
+        int blueMask;
+        int alphaMask;
+
+        /**
+         * Read the headers of a BMP file.
+         *
+         * @param buffer The start of the file, up to MAX_SIZE bytes
+         * @return The header, or null if the data is not a BMP file
+         * @throws IOException The header holds an impossible height
+         */
+        static BmpHeader read(ByteBuffer buffer) throws IOException {
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            if (buffer.limit() < FILE_HEADER_SIZE + INFO_HEADER_SIZE
+                    || buffer.get(0) != 'B' || buffer.get(1) != 'M') {
+                return null;
+            }
+
+            BmpHeader header = new BmpHeader();
+            header.dataOffset = Integer.toUnsignedLong(buffer.getInt(10));
+            header.headerSize = buffer.getInt(14);
+            header.width = buffer.getInt(18);
+            header.height = buffer.getInt(22);
+            if (header.height == Integer.MIN_VALUE) {
+                // A negative height means top-down rows, and this one has no positive row count
+                throw new IOException("Invalid BMP height: " + header.height);
+            }
+            header.bitCount = buffer.getShort(28);
+            header.compression = buffer.getInt(30);
+
+            if (header.bitCount == 32 && header.compression == BI_RGB) {
+                header.redMask = 0x00FF0000;
+                header.greenMask = 0x0000FF00;
+                header.blueMask = 0x000000FF;
+            } else if (header.compression == BI_BITFIELDS
+                    && buffer.limit() >= FILE_HEADER_SIZE + INFO_HEADER_SIZE + 12) {
+                // The masks follow the header, which is also where they sit in the V4/V5 headers
+                int maskOffset = FILE_HEADER_SIZE + INFO_HEADER_SIZE;
+                header.redMask = buffer.getInt(maskOffset);
+                header.greenMask = buffer.getInt(maskOffset + 4);
+                header.blueMask = buffer.getInt(maskOffset + 8);
+                if (header.headerSize >= V4_HEADER_SIZE) {
+                    header.alphaMask = buffer.getInt(maskOffset + 12);
+                }
+            }
+            return header;
+        }
+
+        /**
+         * Read the headers at the start of a BMP file.
+         *
+         * @param channel Channel of the file
+         * @return The header, or null if the file is not a BMP file
+         * @throws IOException Error reading the file
+         */
+        static BmpHeader read(FileChannel channel) throws IOException {
+            ByteBuffer buffer = ByteBuffer.allocate(MAX_SIZE);
+            while (buffer.hasRemaining() && channel.read(buffer, buffer.position()) > 0) {
+                // Keep reading until the buffer is full or the file ends
+            }
+            return read(buffer.flip());
+        }
+
+        /**
+         * Get the offset of the palette, which follows the headers.
+         *
+         * @return Offset of the palette from the start of the file
+         */
+        int getPaletteOffset() {
+            return FILE_HEADER_SIZE + headerSize;
+        }
+
+        /**
+         * Get the number of palette entries.  Like ImageIO, every 4-byte
+         * entry between the headers and the pixels is counted, rather than
+         * trusting the colors used field.
+         *
+         * @return Number of palette entries
+         */
+        int getPaletteEntries() {
+            return (int) ((dataOffset - getPaletteOffset()) / 4);
+        }
+
+        /**
+         * Create the palette from its entries, each stored as blue, green,
+         * red and an unused byte.
+         *
+         * @param paletteData Palette entries
+         * @return Opaque palette, the same one ImageIO creates
+         */
+        IndexColorModel createPalette(ByteBuffer paletteData) {
+            int entries = getPaletteEntries();
+            byte[] red = new byte[entries];
+            byte[] green = new byte[entries];
+            byte[] blue = new byte[entries];
+            for (int i = 0; i < entries; i++) {
+                blue[i] = paletteData.get(i * 4);
+                green[i] = paletteData.get(i * 4 + 1);
+                red[i] = paletteData.get(i * 4 + 2);
+            }
+            return new IndexColorModel(8, entries, red, green, blue);
+        }
+
+        /**
+         * Get the number of bytes per scanline, which are padded to 4 bytes.
+         * The width is taken from the file, so this can exceed an int.
+         *
+         * @return Bytes per scanline
+         */
+        long getStride() {
+            return ((long) bitCount * width + 31) / 32 * 4;
+        }
+
+        /**
+         * Check the rows the header describes fit in the file, so that no
+         * buffer is sized from a header that does not match its file.
+         *
+         * @param size Size of the file or data in bytes
+         * @throws IOException A row is too long to read, or the file is too short for every row
+         */
+        void checkSize(long size) throws IOException {
+            int rows = Math.abs(height);
+            if (getStride() > Integer.MAX_VALUE) {
+                throw new IOException("Invalid BMP width: " + width);
+            }
+            if (dataOffset + getStride() * rows > size) {
+                throw new EOFException("BMP file is truncated, " + size + " bytes is too short for "
+                        + width + "x" + rows + " pixels");
+            }
+        }
+
+        /**
+         * Whether the layout is one that BmpScanlineSource decodes the same way ImageIO does.
+         *
+         * @return true if supported; false otherwise
+         */
+        boolean isSupported() {
+            boolean knownHeader = headerSize == INFO_HEADER_SIZE
+                    || headerSize == V4_HEADER_SIZE
+                    || headerSize == V5_HEADER_SIZE;
+            if (!knownHeader || width <= 0 || height == 0) {
+                return false;
+            }
+
+            if (bitCount == 8) {
+                // ImageIO reads the palettes of other headers differently, leave those to it
+                int entries = getPaletteEntries();
+                return compression == BI_RGB
+                        && headerSize == INFO_HEADER_SIZE
+                        && entries > 0
+                        && entries <= MAX_PALETTE_ENTRIES;
+            }
+
+            if (bitCount == 24) {
+                return compression == BI_RGB;
+            }
+
+            if (bitCount == 32) {
+                if (compression == BI_RGB) {
+                    // ImageIO takes the masks from V4/V5 headers even for BI_RGB, leave those to it
+                    return headerSize == INFO_HEADER_SIZE;
+                }
+                return compression == BI_BITFIELDS
+                        && isByteMask(redMask)
+                        && isByteMask(greenMask)
+                        && isByteMask(blueMask)
+                        && (alphaMask == 0 || isByteMask(alphaMask));
+            }
+
+            return false;
+        }
+
+        private static boolean isByteMask(int mask) {
+            return Integer.bitCount(mask) == 8
+                    && Integer.numberOfTrailingZeros(mask) % 8 == 0
+                    && (mask >>> Integer.numberOfTrailingZeros(mask)) == 0xFF;
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package com.zikworks.tools.a2600.bmp2pf.impl;
+
+import com.zikworks.tools.a2600.bmp2pf.ScanlineSource;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.IndexColorModel;
+import java.awt.image.Raster;
+import java.awt.image.SinglePixelPackedSampleModel;
+
+/**
+ * Reads scanlines from a fully decoded BufferedImage.
+ */
+public class BufferedImageScanlineSource implements ScanlineSource {
+
+    private final BufferedImage bufferedImage;
+    private final boolean hasAlpha;
+    private final IndexColorModel palette;
+
+    public BufferedImageScanlineSource(BufferedImage bufferedImage) {
+        this.bufferedImage = bufferedImage;
+        this.hasAlpha = bufferedImage.getColorModel().hasAlpha();
+        this.palette = bufferedImage.getColorModel() instanceof IndexColorModel indexColorModel
+                ? indexColorModel
+                : null;
+    }
+
+    @Override
+    public int getWidth() {
+        return bufferedImage.getWidth();
+    }
+
+    @Override
+    public int getHeight() {
+        return bufferedImage.getHeight();
+    }
+
+    @Override
+    public boolean hasAlpha() {
+        return hasAlpha;
+    }
+
+    @Override
+    public IndexColorModel getPalette() {
+        return palette;
+    }
+
+    /**
+     * Read a full scanline as palette indices.  8-bit indexed images, as
+     * decoded from GIF, PNG and BMP files, are read straight from the
+     * backing data buffer; packed 1, 2 and 4-bit pixels are unpacked by
+     * the raster.
+     *
+     * @param y       Line number to read
+     * @param indices Array to fill
+     * @return Palette index of each pixel in the line
+     */
+    @Override
+    public int[] readIndexRow(int y, int[] indices) {
+        int imageWidth = bufferedImage.getWidth();
+        Raster raster = bufferedImage.getRaster();
+        DataBuffer dataBuffer = raster.getDataBuffer();
+        if (bufferedImage.getType() == BufferedImage.TYPE_BYTE_INDEXED
+                && raster.getSampleModelTranslateX() == 0
+                && raster.getSampleModelTranslateY() == 0
+                && dataBuffer.getOffset() == 0
+                && raster.getSampleModel() instanceof ComponentSampleModel sampleModel
+                && sampleModel.getPixelStride() == 1) {
+            byte[] data = ((DataBufferByte) dataBuffer).getData();
+            int offset = y * sampleModel.getScanlineStride() + sampleModel.getBandOffsets()[0];
+            for (int x = 0; x < imageWidth; x++) {
+                indices[x] = data[offset + x] & 0xFF;
+            }
+            return indices;
+        }
+        return raster.getSamples(0, y, imageWidth, 1, 0, indices);
+    }
+
+    /**
+     * Read a full scanline as ARGB values.  The 24-bit and 32-bit layouts
+     * produced by ImageIO for BMP files are read straight from the backing
+     * data buffer; anything else goes through a single bulk getRGB call.
+     *
+     * @param y    Line number to read
+     * @param argb Array to fill
+     * @return ARGB values for the line, one per pixel
+     */
+    @Override
+    public int[] readRow(int y, int[] argb) {
+        int imageWidth = bufferedImage.getWidth();
+        Raster raster = bufferedImage.getRaster();
+        DataBuffer dataBuffer = raster.getDataBuffer();
+        boolean untranslated = raster.getSampleModelTranslateX() == 0
+                && raster.getSampleModelTranslateY() == 0
+                && dataBuffer.getNumBanks() == 1
+                && dataBuffer.getOffset() == 0;
+
+        switch (bufferedImage.getType()) {
+            case BufferedImage.TYPE_INT_ARGB, BufferedImage.TYPE_INT_RGB -> {
+                if (untranslated && raster.getSampleModel() instanceof SinglePixelPackedSampleModel sampleModel) {
+                    int[] data = ((DataBufferInt) dataBuffer).getData();
+                    int alpha = hasAlpha ? 0 : 0xFF000000;
+                    int offset = y * sampleModel.getScanlineStride();
+                    for (int x = 0; x < imageWidth; x++) {
+                        argb[x] = data[offset + x] | alpha;
+                    }
+                    return argb;
+                }
+            }
+            case BufferedImage.TYPE_3BYTE_BGR -> {
+                if (untranslated && raster.getSampleModel() instanceof ComponentSampleModel sampleModel) {
+                    byte[] data = ((DataBufferByte) dataBuffer).getData();
+                    int offset = y * sampleModel.getScanlineStride();
+                    for (int x = 0; x < imageWidth; x++, offset += 3) {
+                        argb[x] = 0xFF000000
+                                | (data[offset + 2] & 0xFF) << 16
+                                | (data[offset + 1] & 0xFF) << 8
+                                | (data[offset] & 0xFF);
+                    }
+                    return argb;
+                }
+            }
+            case BufferedImage.TYPE_4BYTE_ABGR -> {
+                if (untranslated && raster.getSampleModel() instanceof ComponentSampleModel sampleModel) {
+                    byte[] data = ((DataBufferByte) dataBuffer).getData();
+                    int offset = y * sampleModel.getScanlineStride();
+                    for (int x = 0; x < imageWidth; x++, offset += 4) {
+                        argb[x] = (data[offset] & 0xFF) << 24
+                                | (data[offset + 3] & 0xFF) << 16
+                                | (data[offset + 2] & 0xFF) << 8
+                                | (data[offset + 1] & 0xFF);
+                    }
+                    return argb;
+                }
+            }
+            default -> {
+            }
+        }
+
+        return bufferedImage.getRGB(0, y, imageWidth, 1, argb, 0, imageWidth);
+    }
+}
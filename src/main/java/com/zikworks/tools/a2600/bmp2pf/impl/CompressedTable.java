@@ -0,0 +1,205 @@
+package com.zikworks.tools.a2600.bmp2pf.impl;
+
+import com.zikworks.tools.a2600.bmp2pf.PlayfieldGeneratorBuilder.Compression;
+import com.zikworks.tools.a2600.bmp2pf.PlayfieldOutputSection;
+import com.zikworks.tools.a2600.bmp2pf.PlayfieldTable;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A playfield table with its repeated rows folded together.  A row is the
+ * value of every register section plus the NTSC and PAL colors, so every
+ * folded table has the same entries and one index register reads them all.
+ * <p>
+ * With {@link Compression#ROWS} each distinct row is kept once, and the
+ * index table holds the entry of every row.  With {@link Compression#RUNS}
+ * each run of identical rows is kept once, and the index table holds the
+ * length of every run.  Entries stay in output order, bottom row first.
+ * Collision data is not part of the compressed table.
+ */
+class CompressedTable {
+    /**
+     * Most entries a row index table can point to with one byte.
+     */
+    static final int MAX_INDEXED_ROWS = 256;
+
+    /**
+     * Longest run one run length byte can hold.
+     */
+    static final int MAX_RUN_LENGTH = 255;
+
+    private final Compression compression;
+    private final PlayfieldTable entries;
+    private final byte[] index;
+    private final int tableBytes;
+
+    private CompressedTable(Compression compression, PlayfieldTable entries, byte[] index, int tableBytes) {
+        this.compression = compression;
+        this.entries = entries;
+        this.index = index;
+        this.tableBytes = tableBytes;
+    }
+
+    /**
+     * Fold the repeated rows of a table together.
+     *
+     * @param table       Converted rows
+     * @param compression How to fold the rows, not NONE
+     * @return Compressed table
+     * @throws IOException The table has more distinct rows than a row index can point to
+     */
+    static CompressedTable compress(PlayfieldTable table, Compression compression) throws IOException {
+        List<byte[]> columns = new ArrayList<>();
+        for (PlayfieldOutputSection section : table.getSections()) {
+            columns.add(table.getColumn(section));
+        }
+        if (table.getPalColors() != null) {
+            columns.add(table.getPalColors());
+        }
+
+        int rowCount = table.getRowCount();
+        List<Integer> entryRows = new ArrayList<>();
+        byte[] index;
+        if (compression == Compression.ROWS) {
+            index = new byte[rowCount];
+            Map<Long, Integer> entryOfRow = new HashMap<>();
+            for (int row = 0; row < rowCount; row++) {
+                Integer entry = entryOfRow.putIfAbsent(getRowKey(columns, row), entryRows.size());
+                if (entry == null) {
+                    entry = entryRows.size();
+                    entryRows.add(row);
+                }
+                index[row] = (byte) (int) entry;
+            }
+            if (entryRows.size() > MAX_INDEXED_ROWS) {
+                throw new IOException("Playfield has " + entryRows.size() + " distinct rows, a row index can point to "
+                        + MAX_INDEXED_ROWS + "; use runs compression instead");
+            }
+        } else {
+            List<Integer> runLengths = new ArrayList<>();
+            long runKey = 0;
+            for (int row = 0; row < rowCount; row++) {
+                long key = getRowKey(columns, row);
+                int last = runLengths.size() - 1;
+                if (last < 0 || key != runKey || runLengths.get(last) == MAX_RUN_LENGTH) {
+                    entryRows.add(row);
+                    runLengths.add(1);
+                    runKey = key;
+                } else {
+                    runLengths.set(last, runLengths.get(last) + 1);
+                }
+            }
+            index = new byte[runLengths.size()];
+            for (int i = 0; i < index.length; i++) {
+                index[i] = (byte) (int) runLengths.get(i);
+            }
+        }
+
+        PlayfieldTable entries = new PlayfieldTable(
+                table.getRegisterSections(), table.getPalColors() == null, entryRows.size(), 0);
+        for (PlayfieldOutputSection section : table.getSections()) {
+            copyRows(table.getColumn(section), entries.getColumn(section), entryRows);
+        }
+        if (table.getPalColors() != null) {
+            copyRows(table.getPalColors(), entries.getPalColors(), entryRows);
+        }
+        return new CompressedTable(compression, entries, index, rowCount * table.getSections().size());
+    }
+
+    /**
+     * Get the compression the table was folded with.
+     *
+     * @return ROWS or RUNS
+     */
+    Compression getCompression() {
+        return compression;
+    }
+
+    /**
+     * Get the folded rows, one per distinct row or run, with the same
+     * sections as the original table and no collision data.
+     *
+     * @return Table of entries
+     */
+    PlayfieldTable getEntries() {
+        return entries;
+    }
+
+    /**
+     * Get the index table: the entry of every row, or the length of every
+     * run.
+     *
+     * @return Index table bytes
+     */
+    byte[] getIndex() {
+        return index;
+    }
+
+    /**
+     * Get the label of the index table, without any prefix.
+     *
+     * @return PFRowIndex or PFRunLength
+     */
+    String getIndexLabel() {
+        return compression == Compression.ROWS ? "PFRowIndex" : "PFRunLength";
+    }
+
+    /**
+     * Get the symbol of the equate holding the number of entries.
+     *
+     * @return PLAYFIELD_ROWS or PLAYFIELD_RUNS
+     */
+    String getEntryCountSymbol() {
+        return compression == Compression.ROWS ? "PLAYFIELD_ROWS" : "PLAYFIELD_RUNS";
+    }
+
+    /**
+     * Get the symbol the alignment of the index table is checked against.
+     * A row index has an entry per row, like the uncompressed tables.
+     *
+     * @return PLAYFIELD_HEIGHT or PLAYFIELD_RUNS
+     */
+    String getIndexSizeSymbol() {
+        return compression == Compression.ROWS ? AsmOutputWriter.HEIGHT_SYMBOL : getEntryCountSymbol();
+    }
+
+    /**
+     * Get the size of the register and color tables before compression.
+     *
+     * @return Size in bytes
+     */
+    int getTableBytes() {
+        return tableBytes;
+    }
+
+    /**
+     * Get the size of the compressed tables, including the index table.
+     *
+     * @return Size in bytes
+     */
+    int getCompressedBytes() {
+        return entries.getRowCount() * entries.getSections().size() + index.length;
+    }
+
+    /**
+     * Pack the values of a row into a long, which is wide enough for six
+     * register sections and both colors.
+     */
+    private static long getRowKey(List<byte[]> columns, int row) {
+        long key = 0;
+        for (byte[] column : columns) {
+            key = key << 8 | column[row] & 0xFF;
+        }
+        return key;
+    }
+
+    private static void copyRows(byte[] source, byte[] target, List<Integer> rows) {
+        for (int i = 0; i < target.length; i++) {
+            target[i] = source[rows.get(i)];
+        }
+    }
+}
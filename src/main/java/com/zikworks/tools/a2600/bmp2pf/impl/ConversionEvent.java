@@ -0,0 +1,145 @@
+package com.zikworks.tools.a2600.bmp2pf.impl;
+
+import com.zikworks.tools.a2600.bmp2pf.ConversionStats;
+import com.zikworks.tools.a2600.bmp2pf.ConversionStats.Stage;
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * Flight recorder event spanning a single conversion, with the time spent
+ * in each stage.  Recorded whenever a recording has it enabled, such as
+ * one started with {@code -XX:StartFlightRecording}.
+ */
+@Name("com.zikworks.bmp2pf.Conversion")
+@Label("Playfield Conversion")
+@Category("bmp2pf")
+@Description("Conversion of an image to playfield data")
+class ConversionEvent extends jdk.jfr.Event {
+
+    @Label("Input File")
+    String inputFile;
+
+    @Label("Output File")
+    String outputFile;
+
+    @Label("Cache Hit")
+    boolean cacheHit;
+
+    @Label("Rows")
+    int rows;
+
+    @Label("Collision Rows")
+    int collisionRows;
+
+    @Label("Table Bytes")
+    @DataAmount
+    int tableBytes;
+
+    @Label("Compressed Table Bytes")
+    @DataAmount
+    int compressedTableBytes;
+
+    @Label("Padding Bytes")
+    @DataAmount
+    int paddingBytes;
+
+    @Label("Aligned Padding Bytes")
+    @DataAmount
+    int alignedPaddingBytes;
+
+    @Label("Aligned Crossing Tables")
+    int alignedCrossingTables;
+
+    @Label("Register Writes")
+    int registerWrites;
+
+    @Label("Skipped Register Writes")
+    int skippedRegisterWrites;
+
+    @Label("Saved Cycles")
+    int savedCycles;
+
+    @Label("Files Written")
+    int filesWritten;
+
+    @Label("Bytes Written")
+    @DataAmount
+    long bytesWritten;
+
+    @Label("Allocated")
+    @DataAmount
+    long allocatedBytes;
+
+    @Label("Decode")
+    @Timespan
+    long decode;
+
+    @Label("Width Check")
+    @Timespan
+    long widthCheck;
+
+    @Label("Read")
+    @Timespan
+    long read;
+
+    @Label("Parse")
+    @Timespan
+    long parse;
+
+    @Label("Encode")
+    @Timespan
+    long encode;
+
+    @Label("Format")
+    @Timespan
+    long format;
+
+    @Label("Write")
+    @Timespan
+    long write;
+
+    @Label("Publish")
+    @Timespan
+    long publish;
+
+    @Label("Cache")
+    @Timespan
+    long cache;
+
+    /**
+     * Copy the stats of a finished conversion into the event.
+     *
+     * @param stats Stats of the conversion
+     */
+    void set(ConversionStats stats) {
+        inputFile = stats.getInputFile();
+        outputFile = stats.getOutputFile();
+        cacheHit = stats.isCacheHit();
+        rows = stats.getRows();
+        collisionRows = stats.getCollisionRows();
+        tableBytes = stats.getTableBytes();
+        compressedTableBytes = stats.getCompressedTableBytes();
+        paddingBytes = stats.getPaddingBytes();
+        alignedPaddingBytes = stats.getAlignedPaddingBytes();
+        alignedCrossingTables = stats.getAlignedCrossingTables();
+        registerWrites = stats.getRegisterWrites();
+        skippedRegisterWrites = stats.getSkippedRegisterWrites();
+        savedCycles = stats.getSavedCycles();
+        filesWritten = stats.getFilesWritten();
+        bytesWritten = stats.getBytesWritten();
+        allocatedBytes = stats.getAllocatedBytes();
+        decode = stats.getNanos(Stage.DECODE);
+        widthCheck = stats.getNanos(Stage.WIDTH_CHECK);
+        read = stats.getNanos(Stage.READ);
+        parse = stats.getNanos(Stage.PARSE);
+        encode = stats.getNanos(Stage.ENCODE);
+        format = stats.getNanos(Stage.FORMAT);
+        write = stats.getNanos(Stage.WRITE);
+        publish = stats.getNanos(Stage.PUBLISH);
+        cache = stats.getNanos(Stage.CACHE);
+    }
+}
@@ -0,0 +1,199 @@
+package com.zikworks.tools.a2600.bmp2pf.impl;
+
+import com.zikworks.tools.a2600.bmp2pf.PlayfieldOutputSection;
+import com.zikworks.tools.a2600.bmp2pf.PlayfieldTable;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The frames of an animation as the first frame plus a patch list per
+ * frame, holding the bytes that change from the frame before.  The first
+ * frame is copied to RAM once, with the tables one after the other, and a
+ * patch list moves the RAM copy on by one frame; the first frame's patch
+ * list follows the last frame, so the animation loops.
+ * <p>
+ * A patch list is split into steps, each applied in one vertical blank
+ * within a cycle budget.  Patches are ordered from the top of the
+ * playfield down, the order a kernel draws the rows in, so a frame still
+ * being patched is only ever wrong below the rows already patched.
+ */
+public class DeltaFrames {
+    /**
+     * Most cycles PFApplyPatches takes per patch: reading the offset and
+     * value across a page, an absolute indexed store and the loop.
+     */
+    static final int PATCH_CYCLES = 31;
+
+    /**
+     * Most cycles PFApplyPatches takes per step on top of its patches:
+     * reading the count and moving the pointer to the next step.
+     */
+    static final int STEP_CYCLES = 30;
+
+    /**
+     * Most patches in a step, as PFApplyPatches reads a step with Y.
+     */
+    static final int MAX_STEP_PATCHES = 127;
+
+    /**
+     * Fewest cycles a step can take and still apply a patch.
+     */
+    public static final int MIN_CYCLE_BUDGET = STEP_CYCLES + PATCH_CYCLES;
+
+    /**
+     * Most bytes of RAM a patch offset can reach.
+     */
+    static final int MAX_RAM_BYTES = 256;
+
+    /**
+     * A byte that changes from the frame before.
+     *
+     * @param offset   Offset of the byte in the RAM copy of the tables
+     * @param section  Section the byte belongs to
+     * @param value    New value, the NTSC color for PFColors
+     * @param palValue New PAL color for PFColors, otherwise unused
+     */
+    record Patch(int offset, PlayfieldOutputSection section, int value, int palValue) {
+    }
+
+    private final List<List<List<Patch>>> frameSteps;
+    private final int ramBytes;
+    private final int stepPatches;
+
+    private DeltaFrames(List<List<List<Patch>>> frameSteps, int ramBytes, int stepPatches) {
+        this.frameSteps = frameSteps;
+        this.ramBytes = ramBytes;
+        this.stepPatches = stepPatches;
+    }
+
+    /**
+     * Find the bytes that change between the frames of an animation.
+     *
+     * @param frames      Converted rows of every frame, all the same height
+     * @param cycleBudget Most cycles each step may take
+     * @return Patch lists of every frame
+     * @throws IOException The tables of a frame do not fit the RAM a patch can reach
+     */
+    static DeltaFrames encode(List<PlayfieldTable> frames, int cycleBudget) throws IOException {
+        PlayfieldTable firstFrame = frames.getFirst();
+        int rowCount = firstFrame.getRowCount();
+        List<PlayfieldOutputSection> sections = firstFrame.getSections();
+        int ramBytes = rowCount * sections.size();
+        if (ramBytes > MAX_RAM_BYTES) {
+            throw new IOException("Delta frames keep the tables in RAM, at most " + MAX_RAM_BYTES
+                    + " bytes, and the tables of a frame take " + ramBytes);
+        }
+
+        int stepPatches = getStepPatches(cycleBudget);
+        List<List<List<Patch>>> frameSteps = new ArrayList<>();
+        for (int i = 0; i < frames.size(); i++) {
+            PlayfieldTable previous = frames.get((i + frames.size() - 1) % frames.size());
+            PlayfieldTable frame = frames.get(i);
+            List<List<Patch>> steps = new ArrayList<>();
+            List<Patch> step = new ArrayList<>();
+            for (int row = rowCount - 1; row >= 0; row--) {
+                for (int s = 0; s < sections.size(); s++) {
+                    Patch patch = getPatch(previous, frame, sections.get(s), row, s * rowCount + row);
+                    if (patch == null) {
+                        continue;
+                    }
+                    if (step.size() == stepPatches) {
+                        steps.add(step);
+                        step = new ArrayList<>();
+                    }
+                    step.add(patch);
+                }
+            }
+            if (!step.isEmpty()) {
+                steps.add(step);
+            }
+            frameSteps.add(steps);
+        }
+        return new DeltaFrames(frameSteps, ramBytes, stepPatches);
+    }
+
+    /**
+     * Get the most patches a step can hold within a cycle budget.
+     *
+     * @param cycleBudget Most cycles each step may take
+     * @return Patches per step
+     * @throws IllegalArgumentException The budget is too small for a single patch
+     */
+    static int getStepPatches(int cycleBudget) {
+        if (cycleBudget < MIN_CYCLE_BUDGET) {
+            throw new IllegalArgumentException("A delta budget of " + cycleBudget
+                    + " cycles cannot apply a single patch, at least " + MIN_CYCLE_BUDGET + " are needed");
+        }
+        return Math.min((cycleBudget - STEP_CYCLES) / PATCH_CYCLES, MAX_STEP_PATCHES);
+    }
+
+    private static Patch getPatch(PlayfieldTable previous, PlayfieldTable frame, PlayfieldOutputSection section,
+                                  int row, int offset) {
+        byte[] oldColumn = previous.getColumn(section);
+        byte[] newColumn = frame.getColumn(section);
+        if (section == PlayfieldOutputSection.PFColors) {
+            byte[] oldPal = previous.getPalColors();
+            byte[] newPal = frame.getPalColors();
+            return oldColumn[row] == newColumn[row] && oldPal[row] == newPal[row]
+                    ? null
+                    : new Patch(offset, section, newColumn[row], newPal[row]);
+        }
+        return oldColumn[row] == newColumn[row] ? null : new Patch(offset, section, newColumn[row], 0);
+    }
+
+    /**
+     * Get the steps of a frame's patch list.
+     *
+     * @param frame Frame number, from 0
+     * @return Steps, each a list of patches, empty when nothing changes
+     */
+    List<List<Patch>> getSteps(int frame) {
+        return frameSteps.get(frame);
+    }
+
+    /**
+     * Get the number of bytes of RAM the tables of a frame take.
+     *
+     * @return Size of the RAM copy
+     */
+    int getRamBytes() {
+        return ramBytes;
+    }
+
+    /**
+     * Get the most patches a step holds.
+     *
+     * @return Patches per step
+     */
+    int getStepPatches() {
+        return stepPatches;
+    }
+
+    /**
+     * Get the most cycles applying one step takes.
+     *
+     * @return Cycles of a full step
+     */
+    int getStepCycles() {
+        return STEP_CYCLES + stepPatches * PATCH_CYCLES;
+    }
+
+    /**
+     * Get the size of every patch list: a count and an offset and value
+     * per patch for each step, and the count of 0 ending each list.
+     *
+     * @return Size in bytes
+     */
+    int getPatchBytes() {
+        int bytes = 0;
+        for (List<List<Patch>> steps : frameSteps) {
+            for (List<Patch> step : steps) {
+                bytes += 1 + 2 * step.size();
+            }
+            bytes++;
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,285 @@
+package com.zikworks.tools.a2600.bmp2pf.impl;
+
+import com.zikworks.tools.a2600.bmp2pf.ConversionStats;
+import com.zikworks.tools.a2600.bmp2pf.OutputOptions;
+import com.zikworks.tools.a2600.bmp2pf.PageLayout;
+import com.zikworks.tools.a2600.bmp2pf.PlayfieldOutputSection;
+import com.zikworks.tools.a2600.bmp2pf.PlayfieldTable;
+import com.zikworks.tools.a2600.bmp2pf.TablePacker;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+/**
+ * Formats the frames of an animation as one DASM source file.  Each frame
+ * is written as a conversion of its own would be, with Frame and its
+ * number added to the prefix of its labels.  The frames are formatted on
+ * the fork-join pool and then written out in order.
+ * <p>
+ * After the frames, each register and color section gets a pair of _Lo
+ * and _Hi tables holding the address of that section in every frame, so
+ * a kernel picks the frame to show with one index, the way the
+ * PFCollision_Lo and _Hi tables pick a collision chunk.  The collision
+ * data of each frame keeps its own chunk pointers.
+ * <p>
+ * With delta frames only the first frame's tables are written, for a
+ * kernel to read from a RAM copy, and each frame instead gets a patch list
+ * of the bytes that change from the frame before, with a macro applying
+ * them in the vertical blank and a pair of _Lo and _Hi tables pointing
+ * to every frame's list.
+ */
+class FrameOutputWriter {
+    static final String FRAMES_SYMBOL = "PLAYFIELD_FRAMES";
+    static final String FRAME_LABEL = "Frame";
+    static final String RAM_BYTES_SYMBOL = "PLAYFIELD_RAM_BYTES";
+    static final String PATCHES_LABEL = "PFPatches";
+
+    private final OutputOptions options;
+    private final String outputSectionPrefix;
+
+    /**
+     * The formatted lines of a frame.
+     *
+     * @param output          Tables, and collision data unless kept separately
+     * @param collisionOutput Collision data when kept separately, or null
+     * @param tableBytes      Size of the register and color tables
+     * @param packedBytes     Size of the tables as written
+     * @param plans           Page layout of each part written
+     */
+    private record Frame(ByteArrayOutputStream output, ByteArrayOutputStream collisionOutput, int tableBytes,
+                         int packedBytes, List<PageLayout.Plan> plans) {
+    }
+
+    /**
+     * Create a new writer.
+     *
+     * @param options Output options, without compression, a pack file or a skip kernel
+     */
+    FrameOutputWriter(OutputOptions options) {
+        this.options = options;
+        this.outputSectionPrefix = options.outputSectionPrefix();
+    }
+
+    /**
+     * Write the output file, and the collision file if collision data is
+     * kept separately.
+     *
+     * @param frames     Converted rows of every frame, all the same height
+     * @param outputPath Output file
+     * @param height     Value of PLAYFIELD_HEIGHT
+     * @param stats      Stats to count the written files and bytes in
+     * @return Path of the collision file, or null if none was written
+     * @throws IOException Error writing to file, or delta frames do not fit in RAM
+     */
+    @SuppressWarnings("ResultOfMethodCallIgnored")
+    Path write(List<PlayfieldTable> frames, Path outputPath, int height, ConversionStats stats)
+            throws IOException {
+        outputPath = outputPath.toAbsolutePath().normalize();
+        outputPath.getParent().toFile().mkdirs();
+
+        PlayfieldTable firstFrame = frames.getFirst();
+        Path collisionFile = null;
+        if (options.separateCollisionFile() && firstFrame.getCollisionRowCount() > 0) {
+            collisionFile = AsmOutputWriter.getSiblingPath(outputPath, "collision", null);
+        }
+
+        DeltaFrames delta = options.delta() ? DeltaFrames.encode(frames, options.deltaBudget()) : null;
+        List<Callable<Frame>> tasks = new ArrayList<>();
+        for (int i = 0; i < frames.size(); i++) {
+            int index = i;
+            boolean separate = collisionFile != null;
+            boolean collisionsOnly = delta != null && i > 0;
+            tasks.add(() -> format(frames.get(index), getFramePrefix(index), separate, height, collisionsOnly));
+        }
+        List<Frame> formatted = ParallelRowReader.invokeAll(tasks);
+
+        try (OutputStream out = stats.countWrites(Files.newOutputStream(outputPath))) {
+            AsmEmitter emitter = new AsmEmitter(out, AsmOutputWriter.WRITE_BLOCK_SIZE);
+            emitter.line(AsmOutputWriter.OUTPUT_FILE_START + height);
+            emitter.line(FRAMES_SYMBOL + " = " + frames.size());
+            if (delta != null) {
+                writeDeltaHeader(emitter, delta, firstFrame);
+            }
+            emitter.flush();
+            for (Frame frame : formatted) {
+                frame.output().writeTo(out);
+            }
+            if (delta != null) {
+                writePatchLists(emitter, delta, frames.size());
+            } else {
+                writeFramePointers(emitter, firstFrame.getSections(), frames.size());
+            }
+            emitter.flush();
+        }
+        if (collisionFile != null) {
+            try (OutputStream collisionOut = stats.countWrites(Files.newOutputStream(collisionFile))) {
+                for (Frame frame : formatted) {
+                    frame.collisionOutput().writeTo(collisionOut);
+                }
+            }
+        }
+
+        int tableBytes = 0;
+        int packedBytes = 0;
+        for (Frame frame : formatted) {
+            tableBytes += frame.tableBytes();
+            packedBytes += frame.packedBytes();
+            for (PageLayout.Plan plan : frame.plans()) {
+                stats.addPadding(plan.paddingBytes(), plan.alignedPaddingBytes(), plan.alignedCrossingTables());
+            }
+        }
+        if (delta != null) {
+            packedBytes += delta.getPatchBytes();
+        }
+        stats.setTableBytes(tableBytes, packedBytes);
+        return collisionFile;
+    }
+
+    /**
+     * Get the prefix of the labels of a frame.
+     *
+     * @param frame Frame number, from 0
+     * @return Prefix for all section labels of the frame
+     */
+    String getFramePrefix(int frame) {
+        return outputSectionPrefix + FRAME_LABEL + frame;
+    }
+
+    private Frame format(PlayfieldTable table, String prefix, boolean separateCollision, int height,
+                         boolean collisionsOnly) throws IOException {
+        int tableBytes = table.getRowCount() * table.getSections().size();
+        AsmOutputWriter writer = new AsmOutputWriter(
+                options.withOutputSectionPrefix(prefix).withSeparateCollisionFile(separateCollision));
+        if (collisionsOnly) {
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            ByteArrayOutputStream collisionOutput = separateCollision ? new ByteArrayOutputStream() : null;
+            List<PageLayout.Plan> plans = writer.writeCollisions(
+                    new AsmEmitter(output, AsmOutputWriter.WRITE_BLOCK_SIZE), table, collisionOutput, height);
+            return new Frame(output, collisionOutput, tableBytes, 0, plans);
+        }
+
+        TablePacker.Layout layout = options.pack()
+                ? new TablePacker().pack(AsmOutputWriter.getTables(table, null, prefix))
+                : null;
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        ByteArrayOutputStream collisionOutput = separateCollision ? new ByteArrayOutputStream() : null;
+        AsmEmitter emitter = new AsmEmitter(output, AsmOutputWriter.WRITE_BLOCK_SIZE);
+        List<PageLayout.Plan> plans = writer.writeTables(emitter, table, null, layout, collisionOutput, height);
+        return new Frame(output, collisionOutput, tableBytes,
+                layout != null ? layout.getPackedBytes() : tableBytes, plans);
+    }
+
+    /**
+     * Write the equates of the RAM copy of the tables, a comment showing
+     * how the patch lists are applied and the macro that applies them.
+     *
+     * @param emitter    Emitter to write to
+     * @param delta      Patch lists of every frame
+     * @param firstFrame Converted rows of the first frame
+     * @throws IOException Error writing the output
+     */
+    private void writeDeltaHeader(AsmEmitter emitter, DeltaFrames delta, PlayfieldTable firstFrame)
+            throws IOException {
+        emitter.line(RAM_BYTES_SYMBOL + " = " + delta.getRamBytes());
+        List<PlayfieldOutputSection> sections = firstFrame.getSections();
+        for (int i = 0; i < sections.size(); i++) {
+            emitter.line(outputSectionPrefix + sections.get(i).name() + "_Offset = "
+                    + i * firstFrame.getRowCount());
+        }
+
+        String macroName = outputSectionPrefix + "PFApplyPatches";
+        emitter.line();
+        emitter.line("; Only frame 0 is stored in full.  Copy each of its tables to " + RAM_BYTES_SYMBOL);
+        emitter.line("; bytes of RAM at the table's _Offset, and read the tables there.  Every frame's");
+        emitter.line("; " + PATCHES_LABEL + " list changes the RAM copy from the frame before, frame 0's from the");
+        emitter.line("; last frame.  A list is a series of steps, each a count of patches followed by their");
+        emitter.line("; RAM offsets and values, and ends with a count of 0.  Point 2 bytes of zero page RAM");
+        emitter.line("; at a list and apply a step in each vertical blank with");
+        emitter.line("; " + macroName + " <pointer>, <RAM copy>, <RAM byte>, which takes at most "
+                + delta.getStepCycles() + " cycles");
+        emitter.line("; for a step of " + delta.getStepPatches()
+                + " patches and leaves the pointer on the count of 0.");
+        emitter.line();
+        emitter.line("    mac " + macroName);
+        emitter.line("        ldy #0");
+        emitter.line("        lda ({1}),y");
+        emitter.line("        beq .done");
+        emitter.line("        sta {3}");
+        emitter.line(".patch");
+        emitter.line("        iny");
+        emitter.line("        lda ({1}),y");
+        emitter.line("        tax");
+        emitter.line("        iny");
+        emitter.line("        lda ({1}),y");
+        emitter.line("        sta {2},x");
+        emitter.line("        dec {3}");
+        emitter.line("        bne .patch");
+        emitter.line("        tya");
+        emitter.line("        sec");
+        emitter.line("        adc {1}");
+        emitter.line("        sta {1}");
+        emitter.line("        bcc .done");
+        emitter.line("        inc {1}+1");
+        emitter.line(".done");
+        emitter.line("    endm");
+    }
+
+    /**
+     * Write the patch list of every frame, and the tables pointing to
+     * them.
+     *
+     * @param emitter    Emitter to write to
+     * @param delta      Patch lists of every frame
+     * @param frameCount Number of frames
+     * @throws IOException Error writing the output
+     */
+    private void writePatchLists(AsmEmitter emitter, DeltaFrames delta, int frameCount) throws IOException {
+        List<String> labels = new ArrayList<>();
+        for (int i = 0; i < frameCount; i++) {
+            String label = getFramePrefix(i) + PATCHES_LABEL;
+            labels.add(label);
+            emitter.line();
+            emitter.line(label);
+            for (List<DeltaFrames.Patch> step : delta.getSteps(i)) {
+                emitter.indexLine(step.size());
+                for (DeltaFrames.Patch patch : step) {
+                    emitter.indexLine(patch.offset());
+                    if (patch.section() == PlayfieldOutputSection.PFColors) {
+                        emitter.colorLine(patch.value(), patch.palValue());
+                    } else {
+                        emitter.dataLine(patch.value());
+                    }
+                }
+            }
+            emitter.indexLine(0);
+        }
+        for (OutputTable pointers : AsmOutputWriter.getPointerTables(outputSectionPrefix + PATCHES_LABEL, labels)) {
+            emitter.line();
+            pointers.body().write(emitter);
+        }
+    }
+
+    private void writeFramePointers(AsmEmitter emitter, List<PlayfieldOutputSection> sections, int frameCount)
+            throws IOException {
+        emitter.line();
+        emitter.line("; Address of each frame's tables, indexed by frame number");
+        for (PlayfieldOutputSection section : sections) {
+            List<String> labels = new ArrayList<>();
+            for (int i = 0; i < frameCount; i++) {
+                labels.add(getFramePrefix(i) + section.name());
+            }
+            String label = outputSectionPrefix + section.name();
+            for (OutputTable pointers : AsmOutputWriter.getPointerTables(label, labels)) {
+                emitter.line();
+                pointers.body().write(emitter);
+            }
+        }
+    }
+}
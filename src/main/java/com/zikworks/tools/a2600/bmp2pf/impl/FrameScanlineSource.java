@@ -0,0 +1,87 @@
+package com.zikworks.tools.a2600.bmp2pf.impl;
+
+import com.zikworks.tools.a2600.bmp2pf.ScanlineSource;
+
+import java.awt.image.IndexColorModel;
+import java.io.IOException;
+
+/**
+ * Reads the scanlines of one frame of a sprite sheet, a band of rows of a
+ * taller image with the frames stacked from the top down.  Rows are read
+ * straight from the sheet's source, so a BMP sheet is still read a few
+ * scanlines at a time.
+ */
+class FrameScanlineSource implements ScanlineSource {
+
+    private final ScanlineSource sheet;
+    private final int top;
+    private final int height;
+    private final boolean ownsSheet;
+
+    /**
+     * Create a view of a frame.  Closing it does not close the sheet.
+     *
+     * @param sheet  Source of the whole sheet
+     * @param top    Row of the sheet the frame starts at
+     * @param height Height of the frame in pixels
+     */
+    FrameScanlineSource(ScanlineSource sheet, int top, int height) {
+        this(sheet, top, height, false);
+    }
+
+    private FrameScanlineSource(ScanlineSource sheet, int top, int height, boolean ownsSheet) {
+        this.sheet = sheet;
+        this.top = top;
+        this.height = height;
+        this.ownsSheet = ownsSheet;
+    }
+
+    @Override
+    public int getWidth() {
+        return sheet.getWidth();
+    }
+
+    @Override
+    public int getHeight() {
+        return height;
+    }
+
+    @Override
+    public boolean hasAlpha() {
+        return sheet.hasAlpha();
+    }
+
+    @Override
+    public int[] readRow(int y, int[] argb) throws IOException {
+        return sheet.readRow(top + y, argb);
+    }
+
+    @Override
+    public IndexColorModel getPalette() {
+        return sheet.getPalette();
+    }
+
+    @Override
+    public int[] readIndexRow(int y, int[] indices) throws IOException {
+        return sheet.readIndexRow(top + y, indices);
+    }
+
+    /**
+     * Get a view of the same frame over a duplicate of the sheet, which is
+     * closed along with it.
+     *
+     * @return A source for the same frame
+     */
+    @Override
+    public ScanlineSource duplicate() {
+        ScanlineSource duplicate = sheet.duplicate();
+        return duplicate == sheet ? this : new FrameScanlineSource(duplicate, top, height, true);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (ownsSheet) {
+            sheet.close();
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package com.zikworks.tools.a2600.bmp2pf.impl;
+
+import org.w3c.dom.Node;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.metadata.IIOMetadata;
+import javax.imageio.metadata.IIOMetadataNode;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.AlphaComposite;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Decodes every image of a multi-image file, such as an animated GIF or a
+ * multi-page TIFF, as the frames of an animation.  The file is decoded
+ * once, in order, and the frames are then converted on their own.
+ * <p>
+ * The images of a GIF only cover the part of the logical screen that
+ * changes from the frame before.  Each is drawn onto the screen at its
+ * position, and the screen is disposed of as its graphic control extension
+ * says before the next one is drawn; the background is restored as
+ * transparent.  Images of any other format are whole frames.
+ */
+final class ImageFrames {
+    private static final String GIF_STREAM_METADATA = "javax_imageio_gif_stream_1.0";
+    private static final String GIF_IMAGE_METADATA = "javax_imageio_gif_image_1.0";
+
+    private ImageFrames() {
+    }
+
+    /**
+     * Decode every image of a file.
+     *
+     * @param inputPath Image file
+     * @return Frames, in the order they are stored
+     * @throws IOException Error reading the file, or the format is not supported
+     */
+    static List<BufferedImage> read(Path inputPath) throws IOException {
+        try (ImageInputStream inputStream = ImageIO.createImageInputStream(inputPath.toFile())) {
+            ImageReader reader = ImageHeader.getImageReader(inputStream, inputPath);
+            try {
+                // Counting the images and reading GIF positions needs seeking and metadata
+                reader.setInput(inputStream, false, false);
+                int imageCount = reader.getNumImages(true);
+                if (imageCount <= 0) {
+                    throw new IOException("Image file has no images: " + inputPath);
+                }
+                if ("gif".equalsIgnoreCase(reader.getFormatName())) {
+                    return readGif(reader, imageCount);
+                }
+                List<BufferedImage> images = new ArrayList<>();
+                for (int i = 0; i < imageCount; i++) {
+                    images.add(reader.read(i, reader.getDefaultReadParam()));
+                }
+                return images;
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private static List<BufferedImage> readGif(ImageReader reader, int imageCount) throws IOException {
+        IIOMetadataNode screen = getNode(reader.getStreamMetadata(), GIF_STREAM_METADATA, "LogicalScreenDescriptor");
+        int width = getAttribute(screen, "logicalScreenWidth", 0);
+        int height = getAttribute(screen, "logicalScreenHeight", 0);
+        if (width <= 0 || height <= 0) {
+            width = reader.getWidth(0);
+            height = reader.getHeight(0);
+        }
+
+        BufferedImage canvas = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        List<BufferedImage> frames = new ArrayList<>();
+        for (int i = 0; i < imageCount; i++) {
+            BufferedImage image = reader.read(i, reader.getDefaultReadParam());
+            IIOMetadata metadata = reader.getImageMetadata(i);
+            IIOMetadataNode descriptor = getNode(metadata, GIF_IMAGE_METADATA, "ImageDescriptor");
+            IIOMetadataNode control = getNode(metadata, GIF_IMAGE_METADATA, "GraphicControlExtension");
+            int left = getAttribute(descriptor, "imageLeftPosition", 0);
+            int top = getAttribute(descriptor, "imageTopPosition", 0);
+            String disposal = control == null ? "none" : control.getAttribute("disposalMethod");
+
+            BufferedImage previous = disposal.equals("restoreToPrevious") ? copy(canvas) : null;
+            Graphics2D graphics = canvas.createGraphics();
+            try {
+                graphics.drawImage(image, left, top, null);
+                frames.add(copy(canvas));
+                if (disposal.equals("restoreToBackgroundColor")) {
+                    graphics.setComposite(AlphaComposite.Clear);
+                    graphics.fillRect(left, top, image.getWidth(), image.getHeight());
+                }
+            } finally {
+                graphics.dispose();
+            }
+            if (previous != null) {
+                canvas = previous;
+            }
+        }
+        return frames;
+    }
+
+    private static BufferedImage copy(BufferedImage image) {
+        BufferedImage copy = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_ARGB);
+        image.copyData(copy.getRaster());
+        return copy;
+    }
+
+    private static IIOMetadataNode getNode(IIOMetadata metadata, String format, String name) {
+        if (metadata == null) {
+            return null;
+        }
+        for (Node node = metadata.getAsTree(format).getFirstChild(); node != null; node = node.getNextSibling()) {
+            if (node.getNodeName().equals(name)) {
+                return (IIOMetadataNode) node;
+            }
+        }
+        return null;
+    }
+
+    private static int getAttribute(IIOMetadataNode node, String name, int defaultValue) {
+        if (node == null || node.getAttribute(name).isEmpty()) {
+            return defaultValue;
+        }
+        return Integer.parseInt(node.getAttribute(name));
+    }
+}
@@ -0,0 +1,84 @@
+package com.zikworks.tools.a2600.bmp2pf.impl;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageTypeSpecifier;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.image.ColorModel;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+
+/**
+ * Size and pixel format of an image file, read from its headers without
+ * decoding any pixels.  BMP files that BmpScanlineSource reads directly
+ * are parsed by it; any other format is asked through its ImageIO reader,
+ * which only reads as far as the image header.
+ *
+ * @param format       Format name, such as bmp or png
+ * @param width        Width in pixels
+ * @param height       Height in pixels
+ * @param bitDepth     Bits per pixel
+ * @param channelBits  Bits of the smallest color channel, 8 for palette images
+ * @param hasAlpha     Whether the image has an alpha channel
+ */
+record ImageHeader(String format, int width, int height, int bitDepth, int channelBits, boolean hasAlpha) {
+
+    /**
+     * Read the header of an image file.
+     *
+     * @param path Image file
+     * @return Header of the image
+     * @throws IOException Error reading the file, or the format is not supported
+     */
+    static ImageHeader read(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            BmpScanlineSource.BmpHeader header = BmpScanlineSource.BmpHeader.read(channel);
+            if (header != null && header.isSupported()) {
+                header.checkSize(channel.size());
+                return new ImageHeader("bmp", header.width, Math.abs(header.height), header.bitCount, 8, header.alphaMask != 0);
+            }
+        }
+
+        try (ImageInputStream inputStream = ImageIO.createImageInputStream(path.toFile())) {
+            ImageReader reader = getImageReader(inputStream, path);
+            try {
+                ImageTypeSpecifier type = reader.getRawImageType(0);
+                if (type == null) {
+                    type = reader.getImageTypes(0).next();
+                }
+                ColorModel colorModel = type.getColorModel();
+                int channelBits = Integer.MAX_VALUE;
+                for (int i = 0; i < colorModel.getNumColorComponents(); i++) {
+                    channelBits = Math.min(channelBits, colorModel.getComponentSize(i));
+                }
+                return new ImageHeader(reader.getFormatName().toLowerCase(), reader.getWidth(0),
+                        reader.getHeight(0), colorModel.getPixelSize(), channelBits, colorModel.hasAlpha());
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * Get an ImageIO reader for an image, with the stream set as its input.
+     *
+     * @param inputStream Stream of the image, or null if it could not be created
+     * @param path        Image file, for error messages
+     * @return Reader for the image, to be disposed by the caller
+     * @throws IOException The format is not supported
+     */
+    static ImageReader getImageReader(ImageInputStream inputStream, Path path) throws IOException {
+        Iterator<ImageReader> readers = inputStream == null
+                ? null
+                : ImageIO.getImageReaders(inputStream);
+        if (readers == null || !readers.hasNext()) {
+            throw new IOException("Unsupported image format: " + path);
+        }
+        ImageReader reader = readers.next();
+        reader.setInput(inputStream, true, true);
+        return reader;
+    }
+}
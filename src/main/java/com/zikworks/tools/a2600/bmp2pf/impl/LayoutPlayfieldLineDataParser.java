@@ -0,0 +1,128 @@
+package com.zikworks.tools.a2600.bmp2pf.impl;
+
+import com.zikworks.tools.a2600.bmp2pf.PlayfieldLayout;
+import com.zikworks.tools.a2600.bmp2pf.PlayfieldLineDataParser;
+import com.zikworks.tools.a2600.bmp2pf.PlayfieldOutputSection;
+import com.zikworks.tools.a2600.bmp2pf.PlayfieldTable;
+import com.zikworks.tools.a2600.bmp2pf.Utilities;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Parses rows with a PlayfieldLayout.  The layout is compiled once into a
+ * 256 entry lookup table for every group of 8 pixels that feeds a
+ * register, so a register byte is a couple of table lookups per row
+ * whatever the layout.
+ */
+public class LayoutPlayfieldLineDataParser implements PlayfieldLineDataParser {
+    private static final int CHUNK_COUNT = (PlayfieldLayout.MAX_WIDTH + Byte.SIZE - 1) / Byte.SIZE;
+
+    /**
+     * Lookup tables of one register.
+     *
+     * @param section Output section of the register
+     * @param shifts  Shift of each pixel group used, in bits
+     * @param tables  Register bits for every value of each pixel group, left-most pixel in bit 0
+     */
+    private record CompiledField(PlayfieldOutputSection section, int[] shifts, int[][] tables) {
+    }
+
+    private final PlayfieldLayout layout;
+    private final List<PlayfieldOutputSection> outputSections;
+    private final CompiledField[] fields;
+
+    public LayoutPlayfieldLineDataParser(PlayfieldLayout layout) {
+        this.layout = layout;
+        this.outputSections = layout.getOutputSections();
+        this.fields = layout.getFields().stream()
+                .map(LayoutPlayfieldLineDataParser::compile)
+                .toArray(CompiledField[]::new);
+    }
+
+    /**
+     * Build the lookup tables of a register.
+     *
+     * @param field Layout field of the register
+     * @return Compiled field
+     */
+    private static CompiledField compile(PlayfieldLayout.Field field) {
+        int[] pixels = field.pixels();
+        List<Integer> shifts = new ArrayList<>();
+        List<int[]> tables = new ArrayList<>();
+
+        for (int chunk = 0; chunk < CHUNK_COUNT; chunk++) {
+            int[] table = new int[256];
+            boolean used = false;
+            for (int bit = 0; bit < pixels.length; bit++) {
+                int pixel = pixels[bit];
+                if (pixel >= 0 && pixel / Byte.SIZE == chunk) {
+                    int registerBit = 1 << (Byte.SIZE - 1 - bit);
+                    int pixelBit = 1 << (pixel % Byte.SIZE);
+                    for (int value = 0; value < table.length; value++) {
+                        if ((value & pixelBit) != 0) {
+                            table[value] |= registerBit;
+                        }
+                    }
+                    used = true;
+                }
+            }
+            if (used) {
+                shifts.add(chunk * Byte.SIZE);
+                tables.add(table);
+            }
+        }
+
+        return new CompiledField(
+                field.section(),
+                shifts.stream().mapToInt(Integer::intValue).toArray(),
+                tables.toArray(int[][]::new));
+    }
+
+    public PlayfieldLayout getLayout() {
+        return layout;
+    }
+
+    @Override
+    public int getExpectedWidth() {
+        return layout.getWidth();
+    }
+
+    @Override
+    public int getCollisionWidth() {
+        return layout.getCollisionWidth();
+    }
+
+    @Override
+    public List<PlayfieldOutputSection> getOutputSections() {
+        return outputSections;
+    }
+
+    @Override
+    public void parseLineData(PlayfieldLineData lineData, PlayfieldTable table, int row) {
+        long bits = lineData.getBits();
+        for (CompiledField field : fields) {
+            int value = 0;
+            for (int i = 0; i < field.shifts().length; i++) {
+                value |= field.tables()[i][(int) (bits >>> field.shifts()[i]) & 0xFF];
+            }
+            table.set(field.section(), row, value);
+        }
+
+        // Narrow layouts widen the collision data to both halves of the playfield
+        long collisions = lineData.getCollisions();
+        int width = lineData.getCollisionWidth();
+        switch (layout.getCollisionFill()) {
+            case REPEAT -> lineData.withCollisions(collisions | (collisions << width), width * 2);
+            case MIRROR -> lineData.withCollisions(
+                    collisions | (Utilities.reverseBits(collisions, width) << width), width * 2);
+            case NONE -> {
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return layout.toString();
+    }
+}
@@ -1,6 +1,7 @@
 package com.zikworks.tools.a2600.bmp2pf.impl;
 
 import com.zikworks.tools.a2600.bmp2pf.BitmapImageReader;
+import com.zikworks.tools.a2600.bmp2pf.ScanlineSource;
 
 import java.awt.image.BufferedImage;
 import java.io.IOException;
@@ -14,6 +15,10 @@ public class NarrowBitmapImageReader extends BitmapImageReader {
         super(bufferedImage, kernelLines);
     }
 
+    public NarrowBitmapImageReader(ScanlineSource scanlineSource, int kernelLines) {
+        super(scanlineSource, kernelLines);
+    }
+
     @Override
     public void checkWidth(int expectedWidth) throws IOException {
         if (getImageWidth() != expectedWidth) {
@@ -30,15 +35,15 @@ public class NarrowBitmapImageReader extends BitmapImageReader {
     @Override
     protected PlayfieldLineData readLine(int line) {
         PlayfieldLineData playfieldLineData = new PlayfieldLineData();
+        int[] pixels = getPixels(line);
         int width = getImageWidth();
         for (int x = 0; x < width; x++) {
-            int rgb = getRGB(x, line);
-            boolean bit = getBit(rgb);
-            int ntsc = bit ? getNtscColor(rgb) : 0;
-            int pal = bit ? getPalColor(rgb) : 0;
-            boolean collide = isCollision(rgb);
-
-            playfieldLineData.withNtscColor(ntsc).withPalColor(pal).withBit(bit).withCollide(collide);
+            int pixel = pixels[x];
+            playfieldLineData
+                    .withNtscColor(pixel & 0xFF)
+                    .withPalColor((pixel >>> 8) & 0xFF)
+                    .withBit((pixel & PIXEL_BIT) != 0)
+                    .withCollide((pixel & PIXEL_COLLIDE) != 0);
         }
 
         return playfieldLineData;
@@ -0,0 +1,23 @@
+package com.zikworks.tools.a2600.bmp2pf.impl;
+
+import java.io.IOException;
+
+/**
+ * A table of an output file, with its label and lines written by its body
+ * so the writers can lay tables out in any order.
+ *
+ * @param size       Number of bytes in the table
+ * @param sizeSymbol Symbol or value the alignment of the table is checked against,
+ *                   or null if it follows the table before it
+ * @param checkSize  Value of the size symbol, or 0 if there is none
+ * @param body       Writes the label and lines of the table
+ */
+record OutputTable(int size, String sizeSymbol, int checkSize, OutputTable.Body body) {
+
+    /**
+     * Writes the label and lines of a table.
+     */
+    interface Body {
+        void write(AsmEmitter emitter) throws IOException;
+    }
+}
@@ -0,0 +1,149 @@
+package com.zikworks.tools.a2600.bmp2pf.impl;
+
+import com.zikworks.tools.a2600.bmp2pf.BitmapImageReader;
+import com.zikworks.tools.a2600.bmp2pf.ConversionStats;
+import com.zikworks.tools.a2600.bmp2pf.PlayfieldLineDataParser;
+import com.zikworks.tools.a2600.bmp2pf.PlayfieldTable;
+import com.zikworks.tools.a2600.bmp2pf.ScanlineSource;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Function;
+
+/**
+ * Reads and parses the rows of a tall image on a fork-join pool.
+ * <p>
+ * The kernel lines are split into fixed size blocks, each read and parsed
+ * by its own task.  Every block fills its own range of rows in the
+ * playfield table, so the tasks need no coordination and the table ends
+ * up the same as when reading the rows one at a time.  Each task times
+ * its own rows and merges them into the stats of the conversion.
+ */
+class ParallelRowReader {
+    /**
+     * Number of kernel lines read by each task.
+     */
+    static final int BLOCK_LINES = 2048;
+
+    private final PlayfieldLineDataParser parser;
+    private final Function<ScanlineSource, BitmapImageReader> readerFactory;
+
+    /**
+     * Create a new reader.
+     *
+     * @param parser        Parser for the rows
+     * @param readerFactory Creates a bitmap image reader for a scanline source
+     */
+    ParallelRowReader(PlayfieldLineDataParser parser,
+                      Function<ScanlineSource, BitmapImageReader> readerFactory) {
+        this.parser = parser;
+        this.readerFactory = readerFactory;
+    }
+
+    /**
+     * Whether reading an image in parallel is worth it.
+     *
+     * @param lineCount Number of kernel lines in the image
+     * @return true if the image should be read in parallel; false otherwise
+     */
+    static boolean isWorthwhile(int lineCount) {
+        return lineCount >= 2 * BLOCK_LINES && ForkJoinPool.getCommonPoolParallelism() > 1;
+    }
+
+    /**
+     * Read every kernel line of the image into the table.  The last kernel
+     * line goes into firstRow and the first one into the last row.
+     *
+     * @param scanlineSource Source of the image scanlines
+     * @param lineCount      Number of kernel lines in the image
+     * @param table          Table to fill
+     * @param firstRow       Row of the table for the last kernel line
+     * @param stats          Stats of the conversion
+     * @throws IOException Error reading the image
+     */
+    void readRows(ScanlineSource scanlineSource, int lineCount, PlayfieldTable table, int firstRow,
+                  ConversionStats stats) throws IOException {
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (int end = lineCount; end > 0; end -= BLOCK_LINES) {
+            int start = Math.max(0, end - BLOCK_LINES);
+            int row = firstRow + lineCount - end;
+            int blockEnd = end;
+            tasks.add(() -> {
+                readBlock(scanlineSource, start, blockEnd, table, row, stats);
+                return null;
+            });
+        }
+        invokeAll(tasks);
+    }
+
+    /**
+     * Run tasks on the fork-join pool and wait for all of them.
+     *
+     * @param tasks Tasks to run
+     * @param <T>   Type of the task results
+     * @return Result of each task, in the order of the tasks
+     * @throws IOException A task failed to read or write
+     */
+    static <T> List<T> invokeAll(List<Callable<T>> tasks) throws IOException {
+        List<ForkJoinTask<T>> forkJoinTasks = new ArrayList<>();
+        for (Callable<T> task : tasks) {
+            forkJoinTasks.add(ForkJoinTask.adapt(task));
+        }
+
+        try {
+            ForkJoinTask.invokeAll(forkJoinTasks);
+        } catch (RuntimeException ex) {
+            // I/O errors arrive wrapped, possibly more than once when rethrown from another thread
+            for (Throwable cause = ex.getCause(); cause != null; cause = cause.getCause()) {
+                if (cause instanceof IOException ioException) {
+                    throw ioException;
+                }
+            }
+            throw ex;
+        }
+
+        List<T> results = new ArrayList<>();
+        for (ForkJoinTask<T> task : forkJoinTasks) {
+            results.add(task.join());
+        }
+        return results;
+    }
+
+    /**
+     * Read and parse a range of kernel lines, from the last one up.
+     *
+     * @param imageSource Source of the image, duplicated for this task
+     * @param start       First kernel line in the range
+     * @param end         Kernel line after the range
+     * @param table       Table to fill
+     * @param firstRow    Row of the table for the last kernel line in the range
+     * @param stats       Stats of the conversion
+     * @throws IOException Error reading the image
+     */
+    private void readBlock(ScanlineSource imageSource, int start, int end, PlayfieldTable table, int firstRow,
+                           ConversionStats stats) throws IOException {
+        ConversionStats blockStats = stats.createChild();
+        ScanlineSource scanlineSource = imageSource.duplicate();
+        try {
+            BitmapImageReader bitmapImageReader = readerFactory.apply(scanlineSource);
+            for (int line = end - 1, row = firstRow; line >= start; line--, row++) {
+                long time = blockStats.start();
+                PlayfieldLineData lineData = bitmapImageReader.read(line);
+                time = blockStats.lap(ConversionStats.Stage.READ, time);
+                parser.parseLineData(lineData, table, row);
+                time = blockStats.lap(ConversionStats.Stage.PARSE, time);
+                table.setLineData(row, lineData);
+                blockStats.lap(ConversionStats.Stage.ENCODE, time);
+            }
+            stats.merge(blockStats);
+        } finally {
+            if (scanlineSource != imageSource) {
+                scanlineSource.close();
+            }
+        }
+    }
+}
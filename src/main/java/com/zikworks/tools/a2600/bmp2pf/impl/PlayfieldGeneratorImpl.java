@@ -1,40 +1,46 @@
 package com.zikworks.tools.a2600.bmp2pf.impl;
 
 import com.zikworks.tools.a2600.bmp2pf.BitmapImageReader;
+import com.zikworks.tools.a2600.bmp2pf.ConversionStats;
+import com.zikworks.tools.a2600.bmp2pf.ConversionStats.Stage;
+import com.zikworks.tools.a2600.bmp2pf.ImageCheck;
+import com.zikworks.tools.a2600.bmp2pf.OutputOptions;
 import com.zikworks.tools.a2600.bmp2pf.PlayfieldGenerator;
 import com.zikworks.tools.a2600.bmp2pf.PlayfieldGeneratorBuilder;
+import com.zikworks.tools.a2600.bmp2pf.PlayfieldGeneratorBuilder.Compression;
 import com.zikworks.tools.a2600.bmp2pf.PlayfieldLineDataParser;
-import com.zikworks.tools.a2600.bmp2pf.PlayfieldOutputSection;
+import com.zikworks.tools.a2600.bmp2pf.PlayfieldResult;
+import com.zikworks.tools.a2600.bmp2pf.PlayfieldTable;
+import com.zikworks.tools.a2600.bmp2pf.ResultCache;
+import com.zikworks.tools.a2600.bmp2pf.ScanlineSource;
 import com.zikworks.tools.a2600.bmp2pf.Utilities;
+import jdk.jfr.FlightRecorder;
 
 import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
 import java.awt.image.BufferedImage;
-import java.io.File;
-import java.io.FileWriter;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
-import java.util.LinkedHashMap;
-import java.util.LinkedList;
 import java.util.List;
-import java.util.Map;
-import java.util.stream.IntStream;
+import java.util.concurrent.Callable;
 
 /**
- * An abstract class the contains all the methods that are used regardless
- * of symmetrical or asymmetrical playfield generation.
+ * Converts images with a PlayfieldLineDataParser, which decides the
+ * layout of the registers, and writes them the way the output options
+ * say.  One generator converts any number of images, from several threads
+ * at once.
  */
 public class PlayfieldGeneratorImpl implements PlayfieldGenerator {
-    private static final String DATA_LINE_PREFIX = "    .byte ";
-    private static final String BYTE_PREFIX = DATA_LINE_PREFIX + "%";
-    private static final String OUTPUT_FILE_START = "PLAYFIELD_HEIGHT = ";
-    private static final String ALIGNMENT_BLOCK = """
-            
-                if >. != >[.+(PLAYFIELD_HEIGHT)]
-                    align 256
-                endif
-            
-            """;
+    private static final String STAGING_PREFIX = ".bmp2pf-";
 
     private final String inputFile;
     private final String outputFile;
@@ -43,11 +49,14 @@ public class PlayfieldGeneratorImpl implements PlayfieldGenerator {
     private final int kernelLines;
     private final int collisionLines;
     private final int outputBufferLines;
-    private final boolean separateCollisionFile;
-    private final String outputSectionPrefix;
+    private final boolean frames;
+    private final int frameHeight;
+    private final boolean parallelRead;
+    private final boolean quiet;
+    private final ResultCache resultCache;
+    private final List<ConversionStats.Listener> statsListeners;
+    private final OutputOptions outputOptions;
     private final PlayfieldLineDataParser parser;
-    private final Map<PlayfieldOutputSection, List<String>> outputMap;
-    private int lineCount = 0;
 
     public PlayfieldGeneratorImpl(PlayfieldGeneratorBuilder builder, PlayfieldLineDataParser parser) {
         this.inputFile = builder.getInputFile();
@@ -57,188 +66,632 @@ public class PlayfieldGeneratorImpl implements PlayfieldGenerator {
         this.kernelLines = builder.getKernelLines();
         this.collisionLines = builder.getCollisionLines();
         this.outputBufferLines = builder.getOutputBufferLines();
-        this.separateCollisionFile = builder.isSeparateCollisionFile();
-        this.outputSectionPrefix = builder.getOutputSectionPrefix();
+        this.frames = builder.isFrames();
+        this.frameHeight = builder.getFrameHeight();
+        this.parallelRead = builder.isParallelRead();
+        this.quiet = builder.isQuiet();
+        this.outputOptions = builder.getOutputOptions();
+        // A cache hit would leave the shared pack without this conversion's tables
+        this.resultCache = outputOptions.tablePack() == null ? builder.getResultCache() : null;
+        this.statsListeners = builder.getStatsListeners();
         this.parser = parser;
-        this.outputMap = new LinkedHashMap<>();
     }
 
     /**
      * Generate the ASM output file from the input BMP file.
+     * <p>
+     * Lines are read from the bottom of the image up, which is the order the
+     * output tables are written in, into a table holding a byte per register
+     * and row.  Each section is then formatted straight from its column, so
+     * memory use does not grow with the number of formatted lines.
      *
      * @throws IOException I/O error during generation
      */
+    @Override
     public void generate() throws IOException {
-        // Open image and create reader
-        BufferedImage bufferedImage = ImageIO.read(new File(inputFile));
-        BitmapImageReader bitmapImageReader = fullScale
-                ? new WideBitmapImageReader(bufferedImage, kernelLines)
-                : new NarrowBitmapImageReader(bufferedImage, kernelLines);
+        if (inputFile == null || outputFile == null) {
+            throw new IllegalStateException("Input and output files have not been set");
+        }
+        generate(Path.of(inputFile), Path.of(outputFile));
+    }
 
-        System.out.println("Reading input file: " + inputFile);
+    /**
+     * Generate an ASM output file from the given input BMP file.  All
+     * working state lives in a PlayfieldTable, so this can be called
+     * concurrently.  When a result cache is set, unchanged conversions are
+     * copied from it instead.
+     * <p>
+     * The files are generated into a staging directory and then moved or
+     * copied over the old ones, so anything reading the output, such as
+     * an assembler started by a watcher, never sees a half-written file.
+     *
+     * @param inputFile  Input BMP file
+     * @param outputFile Output ASM file
+     * @throws IOException I/O error during generation
+     */
+    @Override
+    public void generate(Path inputFile, Path outputFile) throws IOException {
+        outputFile = outputFile.toAbsolutePath().normalize();
+        Path outputDirectory = outputFile.getParent();
+        Files.createDirectories(outputDirectory);
 
-        // Verify input file is correct width
-        int expectedWidth = parser.getExpectedWidth();
-        bitmapImageReader.checkWidth(expectedWidth);
+        ConversionEvent event = beginEvent();
+        ConversionStats stats = createStats(event, inputFile.toString(), outputFile.toString());
 
-        while (bitmapImageReader.hasNext()) {
-            PlayfieldLineData lineData = bitmapImageReader.next();
-            var parsedLine = parser.parseLineData(lineData);
-            addParsedLineToOutputMap(parsedLine);
-            addColorData(lineData);
-            addCollisionData(lineData);
+        String key = null;
+        if (resultCache != null) {
+            long start = stats.start();
+            key = resultCache.computeKey(inputFile, getCacheOptions(outputFile));
+            boolean restored = resultCache.restore(key, outputDirectory);
+            stats.lap(Stage.CACHE, start);
+            if (restored) {
+                if (!quiet) {
+                    System.out.println("Output for " + inputFile + " is unchanged, copied from cache");
+                }
+                stats.setCacheHit(true);
+                finishStats(event, stats);
+                return;
+            }
         }
 
-        // Add any extra empty lines
-        for (int i = 0; i < outputBufferLines; i++) {
-            var bits = new ArrayList<>(IntStream.range(0, expectedWidth).mapToObj(ign -> Boolean.FALSE).toList());
-            PlayfieldLineData lineData = new PlayfieldLineData().withBits(bits).withCollisions(bits);
-            var parsedLine = parser.parseLineData(lineData);
-            addParsedLineToOutputMap(parsedLine);
-            addColorData(lineData);
-            addCollisionData(lineData);
+        // A staging directory in the cache then becomes the cache entry
+        Path stagingDirectory = resultCache != null
+                ? resultCache.createStagingDirectory()
+                : Files.createTempDirectory(outputDirectory, STAGING_PREFIX);
+        try {
+            Path collisionFile = writeOutput(inputFile, stagingDirectory.resolve(outputFile.getFileName()), stats);
+            long start = stats.start();
+            for (Path file : Utilities.listFiles(stagingDirectory)) {
+                Path target = outputDirectory.resolve(file.getFileName());
+                if (resultCache != null) {
+                    Utilities.copyAtomically(file, target);
+                } else {
+                    Files.move(file, target, StandardCopyOption.ATOMIC_MOVE);
+                }
+            }
+            start = stats.lap(Stage.PUBLISH, start);
+            if (resultCache != null) {
+                resultCache.store(key, stagingDirectory);
+                stats.lap(Stage.CACHE, start);
+            }
+            printOutputFiles(outputFile,
+                    collisionFile == null ? null : outputDirectory.resolve(collisionFile.getFileName()));
+        } finally {
+            Utilities.deleteDirectory(stagingDirectory);
         }
+        finishStats(event, stats);
+    }
 
-        // Finally write output file
-        writeOutputFile(bufferedImage.getHeight());
+    /**
+     * Read the input file and write the output files.
+     *
+     * @param inputFile  Input BMP file
+     * @param outputFile Output ASM file
+     * @param stats      Stats of the conversion
+     * @return Path of the collision file, or null if none was written
+     * @throws IOException I/O error during generation
+     */
+    private Path writeOutput(Path inputFile, Path outputFile, ConversionStats stats) throws IOException {
+        if (isAnimation()) {
+            return writeFrames(inputFile, outputFile, stats);
+        }
+
+        // Open image and read it into a table
+        long start = stats.start();
+        try (ScanlineSource scanlineSource = openScanlineSource(inputFile)) {
+            stats.lap(Stage.DECODE, start);
+            if (!quiet) {
+                System.out.println("Reading input file: " + inputFile);
+            }
+
+            PlayfieldTable table = readTable(scanlineSource, stats);
+            countRegisterWrites(table, stats);
+
+            // Finally write output file
+            PlayfieldOutputWriter writer = outputOptions.binaryOutput()
+                    ? new BinaryOutputWriter(outputOptions)
+                    : new AsmOutputWriter(outputOptions);
+            long writeNanos = stats.getNanos(Stage.WRITE);
+            start = stats.start();
+            Path collisionFile = writer.write(
+                    table, outputFile, scanlineSource.getHeight() + outputBufferLines, stats);
+
+            // Writes are timed by the writer's streams, the rest is formatting
+            stats.lap(Stage.FORMAT, start);
+            stats.add(Stage.FORMAT, writeNanos - stats.getNanos(Stage.WRITE));
+            printTableStats(stats);
+            return collisionFile;
+        }
     }
 
-    private void addParsedLineToOutputMap(Map<PlayfieldOutputSection, String> parsedLineData) {
-        parsedLineData.forEach((section, data) -> {
-            List<String> sectionData = getSectionDataFromOutputMap(section);
-            sectionData.addFirst(BYTE_PREFIX + data);
-        });
+    /**
+     * Read every frame of the input file, and write them all to the output
+     * files.  The input is decoded once, and the frames are then read into
+     * tables and formatted in parallel.
+     *
+     * @param inputFile  Input image file
+     * @param outputFile Output ASM file
+     * @param stats      Stats of the conversion
+     * @return Path of the collision file, or null if none was written
+     * @throws IOException I/O error during generation, or the frames differ in height
+     */
+    private Path writeFrames(Path inputFile, Path outputFile, ConversionStats stats) throws IOException {
+        long start = stats.start();
+        List<ScanlineSource> images = new ArrayList<>();
+        try {
+            if (frames) {
+                for (BufferedImage image : ImageFrames.read(inputFile)) {
+                    images.add(new BufferedImageScanlineSource(image));
+                }
+            } else {
+                images.add(openScanlineSource(inputFile));
+            }
+            List<ScanlineSource> frameSources = splitFrames(images);
+            stats.lap(Stage.DECODE, start);
+            if (!quiet) {
+                System.out.println("Reading input file: " + inputFile + ", " + frameSources.size() + " frames");
+            }
+
+            List<Callable<PlayfieldTable>> tasks = new ArrayList<>();
+            for (ScanlineSource frameSource : frameSources) {
+                tasks.add(() -> readFrame(frameSource, stats));
+            }
+            List<PlayfieldTable> tables = ParallelRowReader.invokeAll(tasks);
+            int rows = 0;
+            int collisionRows = 0;
+            for (PlayfieldTable table : tables) {
+                rows += table.getRowCount();
+                collisionRows += table.getCollisionRowCount();
+                countRegisterWrites(table, stats);
+            }
+            int height = frameSources.getFirst().getHeight();
+            stats.setImageSize(frameSources.getFirst().getWidth(), height * frameSources.size(), rows, collisionRows);
+
+            FrameOutputWriter writer = new FrameOutputWriter(outputOptions);
+            long writeNanos = stats.getNanos(Stage.WRITE);
+            start = stats.start();
+            Path collisionFile = writer.write(tables, outputFile, height + outputBufferLines, stats);
+            stats.lap(Stage.FORMAT, start);
+            stats.add(Stage.FORMAT, writeNanos - stats.getNanos(Stage.WRITE));
+            printTableStats(stats);
+            return collisionFile;
+        } finally {
+            for (ScanlineSource image : images) {
+                image.close();
+            }
+        }
     }
 
     /**
-     * Add the color data to the output map.
+     * Split the input images into frames of the frame height, and check
+     * every frame is as high as the first.
      *
-     * @param lineData Playfield line data
+     * @param images Input images
+     * @return Frames, from the top of the first image down
+     * @throws IOException An image does not split into whole frames, or the frames differ in height
      */
-    private void addColorData(PlayfieldLineData lineData) {
-        String ntsc = Integer.toHexString(lineData.getNtscColor());
-        if (ntsc.length() == 1) {
-            ntsc = "0" + ntsc;
+    private List<ScanlineSource> splitFrames(List<ScanlineSource> images) throws IOException {
+        List<ScanlineSource> frameSources = new ArrayList<>();
+        for (ScanlineSource image : images) {
+            if (frameHeight == 0) {
+                frameSources.add(image);
+                continue;
+            }
+            if (image.getHeight() % frameHeight != 0) {
+                throw new IOException("Image height " + image.getHeight() + " is not a multiple of the frame height "
+                        + frameHeight);
+            }
+            for (int top = 0; top < image.getHeight(); top += frameHeight) {
+                frameSources.add(new FrameScanlineSource(image, top, frameHeight));
+            }
+        }
+        int height = frameSources.getFirst().getHeight();
+        for (int i = 1; i < frameSources.size(); i++) {
+            if (frameSources.get(i).getHeight() != height) {
+                throw new IOException("Frame " + i + " is " + frameSources.get(i).getHeight()
+                        + " pixels high, the first frame is " + height);
+            }
         }
+        return frameSources;
+    }
 
-        String pal = Integer.toHexString(lineData.getPalColor());
-        if (pal.length() == 1) {
-            pal = "0" + pal;
+    /**
+     * Read a frame into a new table, from a duplicate of its source so
+     * frames can be read at the same time.
+     *
+     * @param frameSource Source of the frame scanlines
+     * @param stats       Stats of the conversion
+     * @return Table holding every row of the frame
+     * @throws IOException Error reading the image
+     */
+    private PlayfieldTable readFrame(ScanlineSource frameSource, ConversionStats stats) throws IOException {
+        ConversionStats frameStats = stats.createChild();
+        ScanlineSource scanlineSource = frameSource.duplicate();
+        try {
+            PlayfieldTable table = readTable(scanlineSource, frameStats);
+            stats.merge(frameStats);
+            return table;
+        } finally {
+            if (scanlineSource != frameSource) {
+                scanlineSource.close();
+            }
         }
+    }
 
-        String line = String.format("   .byte $%s ; $%s", ntsc, pal);
+    /**
+     * Whether the input is converted as the frames of an animation.
+     *
+     * @return true if every image or band of rows of the input is a frame; false otherwise
+     */
+    private boolean isAnimation() {
+        return outputOptions.animation();
+    }
+
+    /**
+     * Count the register writes a kernel makes drawing a table, and the
+     * writes and cycles a change mask or skip kernel saves.  A change mask
+     * covers every table and saves a store per register that does not
+     * change; a skip kernel covers the tables its routines store, and
+     * spends its dispatch on every row.
+     *
+     * @param table Converted rows
+     * @param stats Stats of the conversion
+     */
+    private void countRegisterWrites(PlayfieldTable table, ConversionStats stats) {
+        boolean skipKernel = outputOptions.skipKernel();
+        if (!outputOptions.changeMask() && !skipKernel) {
+            return;
+        }
+        int bits = skipKernel
+                ? SkipKernel.getStoredBits(table)
+                : (1 << SkipKernel.getMaskedSections(table).size()) - 1;
+        int writes = 0;
+        int skipped = 0;
+        for (int row = 0; row < table.getRowCount(); row++) {
+            writes += Integer.bitCount(bits);
+            skipped += Integer.bitCount(bits & ~table.getChangedSections(row));
+        }
+        int savedCycles = skipped * SkipKernel.STORE_CYCLES
+                - (skipKernel ? table.getRowCount() * SkipKernel.DISPATCH_CYCLES : 0);
+        stats.addRegisterWrites(writes, skipped, savedCycles);
+    }
 
-        List<String> sectionData = getSectionDataFromOutputMap(PlayfieldOutputSection.PFColors);
-        sectionData.addFirst(line);
+    private void printTableStats(ConversionStats stats) {
+        boolean delta = outputOptions.delta();
+        boolean packed = outputOptions.pack() && outputOptions.tablePack() == null;
+        if (!quiet && (outputOptions.compression() != Compression.NONE || packed || delta)) {
+            System.out.printf("%s tables from %d to %d bytes (%.2f:1)%n",
+                    delta ? "Delta frame" : packed ? "Packed" : "Compressed",
+                    stats.getTableBytes(), stats.getCompressedTableBytes(), stats.getCompressionRatio());
+        }
+        if (!quiet && outputOptions.pageLayout()) {
+            System.out.printf("Page layout pads %d bytes instead of %d (saving %d), tables crossing a page: "
+                            + "0 instead of %d%n",
+                    stats.getPaddingBytes(), stats.getAlignedPaddingBytes(),
+                    stats.getAlignedPaddingBytes() - stats.getPaddingBytes(), stats.getAlignedCrossingTables());
+        }
+        boolean skipKernel = outputOptions.skipKernel();
+        if (!quiet && (outputOptions.changeMask() || skipKernel)) {
+            System.out.printf("%s skips %d of %d register writes, saving %s%d cycles%s%n",
+                    skipKernel ? "Skip kernel" : "Change mask", stats.getSkippedRegisterWrites(),
+                    stats.getRegisterWrites(), skipKernel ? "" : "up to ", stats.getSavedCycles(),
+                    skipKernel ? " after dispatch" : "");
+        }
     }
 
-    private void addCollisionData(PlayfieldLineData lineData) {
-        if (collisionLines > 0 && (lineCount++ % collisionLines == 0)) {
-            List<Boolean> collisions = lineData.getCollisions();
-            List<String> bytes = new ArrayList<>();
-            int chunkSize = 8;
-            for (int i = 0; i < collisions.size(); i += chunkSize) {
-                int end = Math.min(i + chunkSize, collisions.size());
-                var sublist = new ArrayList<>(collisions.subList(i, end));
-                String byteData = "%" + Utilities.getByte(sublist);
-                bytes.add(byteData);
+    /**
+     * Start the flight recorder event of a new conversion.  Loading an
+     * event class starts up the flight recorder, which takes longer than
+     * converting a small image, so events are only created once a
+     * recording has been started.
+     *
+     * @return Started event, or null if the flight recorder is not running
+     */
+    private static ConversionEvent beginEvent() {
+        if (!FlightRecorder.isInitialized()) {
+            return null;
+        }
+        ConversionEvent event = new ConversionEvent();
+        event.begin();
+        return event;
+    }
+
+    /**
+     * Create the stats of a new conversion.  Stages are only timed when
+     * someone is listening, or a flight recording has the event enabled.
+     *
+     * @param event      Flight recorder event of the conversion, or null
+     * @param inputFile  Description of the input
+     * @param outputFile Output file, or null when converting in memory
+     * @return Stats of the conversion
+     */
+    private ConversionStats createStats(ConversionEvent event, String inputFile, String outputFile) {
+        boolean enabled = !statsListeners.isEmpty() || (event != null && event.isEnabled());
+        return new ConversionStats(enabled, inputFile, outputFile);
+    }
+
+    /**
+     * Stop the clock of a finished conversion, and hand its stats to the
+     * flight recorder and the listeners.
+     *
+     * @param event Flight recorder event of the conversion, or null
+     * @param stats Stats of the conversion
+     * @throws IOException A listener failed to handle the stats
+     */
+    private void finishStats(ConversionEvent event, ConversionStats stats) throws IOException {
+        stats.finish();
+        if (event != null) {
+            event.end();
+            if (event.shouldCommit()) {
+                event.set(stats);
+                event.commit();
             }
+        }
+        for (ConversionStats.Listener listener : statsListeners) {
+            listener.conversionFinished(stats);
+        }
+    }
 
-            String line = "   .byte " + String.join(", ", bytes);
-            List<String> sectionData = getSectionDataFromOutputMap(PlayfieldOutputSection.PFCollision);
-            sectionData.addFirst(line);
+    private void printOutputFiles(Path outputFile, Path collisionFile) {
+        if (!quiet) {
+            System.out.println("\nWrote output file: " + outputFile);
+            if (collisionFile != null) {
+                System.out.println("Wrote collision file: " + collisionFile);
+            }
         }
     }
 
     /**
-     * Write the output file.
+     * Describe every option that affects the generated files, for the
+     * result cache key.  The output file name is included because the
+     * names of the collision and binary files are derived from it.
      *
-     * @throws IOException Error writing to file
+     * @param outputFile Output ASM file
+     * @return Options in a stable order
      */
-    @SuppressWarnings("ResultOfMethodCallIgnored")
-    private void writeOutputFile(int imageHeight) throws IOException {
-        Path collisionFile = null;
-        Path outputPath = Path.of(outputFile).toAbsolutePath().normalize();
-        outputPath.getParent().toFile().mkdirs();
+    private String getCacheOptions(Path outputFile) {
+        return String.join(";",
+                "layout=" + parser,
+                "fullScale=" + fullScale,
+                "excludeColor=" + excludeColor,
+                "kernelLines=" + kernelLines,
+                "collisionLines=" + collisionLines,
+                "outputBufferLines=" + outputBufferLines,
+                "separateCollisionFile=" + outputOptions.separateCollisionFile(),
+                "outputSectionPrefix=" + outputOptions.outputSectionPrefix(),
+                "binaryOutput=" + outputOptions.binaryOutput(),
+                "compression=" + outputOptions.compression(),
+                "pack=" + outputOptions.pack(),
+                "pageLayout=" + outputOptions.pageLayout(),
+                "frames=" + frames,
+                "frameHeight=" + frameHeight,
+                "deltaBudget=" + (outputOptions.delta() ? outputOptions.deltaBudget() : 0),
+                "changeMask=" + outputOptions.changeMask(),
+                "skipKernel=" + outputOptions.skipKernel(),
+                "outputFile=" + outputFile.getFileName());
+    }
 
-        try (FileWriter writer = new FileWriter(outputPath.toString(), false)) {
-            // Write the header portion
-            int length = imageHeight + outputBufferLines;
-            writer.write(OUTPUT_FILE_START + length + System.lineSeparator());
+    @Override
+    public PlayfieldResult convert(Path inputFile) throws IOException {
+        ConversionEvent event = beginEvent();
+        ConversionStats stats = createStats(event, inputFile.toString(), null);
+        long start = stats.start();
+        try (ScanlineSource scanlineSource = openScanlineSource(inputFile)) {
+            stats.lap(Stage.DECODE, start);
+            return convert(scanlineSource, event, stats);
+        }
+    }
 
-            // Write each segment
-            var keySet = outputMap.keySet();
-            for (PlayfieldOutputSection section : keySet) {
-                if (section == PlayfieldOutputSection.PFCollision) {
-                    continue;
-                }
+    @Override
+    public PlayfieldResult convert(BufferedImage bufferedImage) throws IOException {
+        ConversionEvent event = beginEvent();
+        return convert(new BufferedImageScanlineSource(bufferedImage), event,
+                createStats(event, "BufferedImage", null));
+    }
 
-                if (excludeColor && (section == PlayfieldOutputSection.PFColors)) {
-                    continue;
-                }
+    @Override
+    public PlayfieldResult convert(InputStream inputStream) throws IOException {
+        return convert(ByteBuffer.wrap(inputStream.readAllBytes()));
+    }
 
-                writer.write(ALIGNMENT_BLOCK);
-                writer.write(outputSectionPrefix + section.name() + System.lineSeparator());
-                for (String dataLine : outputMap.get(section)) {
-                    writer.write(dataLine + System.lineSeparator());
-                }
+    @Override
+    public PlayfieldResult convert(ByteBuffer imageData) throws IOException {
+        ConversionEvent event = beginEvent();
+        ConversionStats stats = createStats(event, imageData.remaining() + " bytes", null);
+        long start = stats.start();
+        ScanlineSource scanlineSource = BmpScanlineSource.open(imageData);
+        if (scanlineSource == null) {
+            ByteBuffer data = imageData.duplicate();
+            byte[] bytes = new byte[data.remaining()];
+            data.get(bytes);
+            BufferedImage bufferedImage = ImageIO.read(new ByteArrayInputStream(bytes));
+            if (bufferedImage == null) {
+                throw new IOException("Unsupported image format");
             }
+            scanlineSource = new BufferedImageScanlineSource(bufferedImage);
+        }
+        stats.lap(Stage.DECODE, start);
+        return convert(scanlineSource, event, stats);
+    }
 
-            List<String> data = outputMap.get(PlayfieldOutputSection.PFCollision);
-            if (data != null) {
-                if (separateCollisionFile) {
-                    Path fileName = outputPath.getFileName();
-                    String[] parts = fileName.toString().split("\\.");
-                    String rootName = parts[0];
-                    String ext = parts[parts.length - 1];
-                    String newName = rootName + "_collision." + ext;
-                    collisionFile = outputPath.resolveSibling(newName);
-                    try (FileWriter collisionWriter = new FileWriter(collisionFile.toString(), false)) {
-                        writeCollisionFile(collisionWriter, data);
-                    }
-                } else {
-                    writeCollisionFile(writer, data);
-                }
-            }
+    private PlayfieldResult convert(ScanlineSource scanlineSource, ConversionEvent event, ConversionStats stats)
+            throws IOException {
+        if (isAnimation()) {
+            throw new IOException("Frames can only be converted to an output file");
+        }
+        PlayfieldTable table = readTable(scanlineSource, stats);
+        countRegisterWrites(table, stats);
+        PlayfieldResult result = new PlayfieldResultImpl(
+                table, scanlineSource.getHeight() + outputBufferLines, outputOptions.withoutTablePack());
+        finishStats(event, stats);
+        return result;
+    }
+
+    @Override
+    public ImageCheck check(Path inputFile) {
+        List<String> problems = new ArrayList<>();
+        List<String> warnings = new ArrayList<>();
+        ImageHeader header;
+        try {
+            header = ImageHeader.read(inputFile);
+        } catch (NoSuchFileException ex) {
+            return new ImageCheck(inputFile, null, List.of("File not found"), List.of());
+        } catch (IOException ex) {
+            return new ImageCheck(inputFile, null, List.of(String.valueOf(ex.getMessage())), List.of());
         }
 
-        System.out.println("\nWrote output file: " + outputFile);
-        if (collisionFile != null) {
-            System.out.println("Wrote collision file: " + collisionFile);
+        int expectedWidth = getExpectedImageWidth();
+        if (header.width() != expectedWidth) {
+            problems.add("Image width is " + header.width() + ", required image width=" + expectedWidth);
         }
+        if (header.height() <= 0) {
+            problems.add("Image has no rows");
+        } else if (frameHeight > 0 && header.height() % frameHeight != 0) {
+            problems.add("Image height " + header.height() + " is not a multiple of the frame height "
+                    + frameHeight);
+        } else if ((frameHeight > 0 ? frameHeight : header.height()) % kernelLines != 0) {
+            warnings.add((frameHeight > 0 ? "Frame height " + frameHeight : "Image height " + header.height())
+                    + " is not a multiple of " + kernelLines + " kernel lines");
+        }
+        if (header.channelBits() < 8) {
+            warnings.add(header.channelBits() + "-bit color channels cannot hold every NTSC and PAL color");
+        }
+        if (header.hasAlpha()) {
+            warnings.add("Image has an alpha channel, fully transparent pixels are left off");
+        }
+
+        String description = String.format("%s %dx%d, %d-bit",
+                header.format(), header.width(), header.height(), header.bitDepth());
+        return new ImageCheck(inputFile, description, List.copyOf(problems), List.copyOf(warnings));
     }
 
-    private void writeCollisionFile(FileWriter writer, List<String> data) throws IOException {
-        writer.write(ALIGNMENT_BLOCK);
-        int sectionCount = 0;
-        int chunkSize = 8;
-        for (int i = 0; i < data.size(); i += chunkSize, sectionCount++) {
-            int end = Math.min(i + chunkSize, data.size());
-            var sublist = new ArrayList<>(data.subList(i, end));
-            String sectionName = outputSectionPrefix + PlayfieldOutputSection.PFCollision.name() + sectionCount;
-            writer.write(sectionName + System.lineSeparator());
-            for (String dataLine : sublist) {
-                writer.write(dataLine + System.lineSeparator());
+    /**
+     * Get the width in pixels input images must have.
+     *
+     * @return Expected image width
+     */
+    private int getExpectedImageWidth() {
+        return fullScale ? parser.getExpectedWidth() * 4 : parser.getExpectedWidth();
+    }
+
+    /**
+     * Check an input image has the width the parser reads.
+     *
+     * @param imageWidth Width of the image in pixels
+     * @throws IOException The image has another width
+     */
+    private void checkWidth(int imageWidth) throws IOException {
+        int expectedWidth = getExpectedImageWidth();
+        if (imageWidth != expectedWidth) {
+            throw new IOException("Invalid file format, required image width=" + expectedWidth);
+        }
+    }
+
+    /**
+     * Read and parse every row of the image, bottom-up, into a new table.
+     * The table holds all the working state of a conversion, so one
+     * generator can convert many images, including from several threads.
+     *
+     * @param scanlineSource Source of the image scanlines
+     * @param stats          Stats of the conversion
+     * @return Table holding every row, buffer rows first
+     * @throws IOException Error reading the image
+     */
+    private PlayfieldTable readTable(ScanlineSource scanlineSource, ConversionStats stats) throws IOException {
+        try {
+            // Verify input file is correct width, before a row buffer is sized from it
+            long start = stats.start();
+            checkWidth(scanlineSource.getWidth());
+            stats.lap(Stage.WIDTH_CHECK, start);
+
+            BitmapImageReader bitmapImageReader = createBitmapImageReader(scanlineSource);
+            int expectedWidth = parser.getExpectedWidth();
+
+            int lineCount = bitmapImageReader.getLineCount();
+            PlayfieldTable table = new PlayfieldTable(parser.getOutputSections(), excludeColor,
+                    outputOptions.changeMask(), lineCount + outputBufferLines, collisionLines,
+                    parser.getCollisionWidth());
+            stats.setImageSize(scanlineSource.getWidth(), scanlineSource.getHeight(),
+                    table.getRowCount(), table.getCollisionRowCount());
+
+            // Extra empty lines end up at the start of each table
+            int row = 0;
+            for (; row < outputBufferLines; row++) {
+                PlayfieldLineData lineData = new PlayfieldLineData()
+                        .withBits(0, expectedWidth)
+                        .withCollisions(0, expectedWidth);
+                addLine(table, row, lineData, stats, stats.start());
+            }
+
+            // Tall images can be split into blocks of rows read on every core
+            if (parallelRead && ParallelRowReader.isWorthwhile(lineCount)) {
+                new ParallelRowReader(parser, this::createBitmapImageReader)
+                        .readRows(scanlineSource, lineCount, table, row, stats);
+            } else {
+                bitmapImageReader.bottomUp();
+                while (bitmapImageReader.hasNext()) {
+                    start = stats.start();
+                    PlayfieldLineData lineData = bitmapImageReader.next();
+                    addLine(table, row++, lineData, stats, stats.lap(Stage.READ, start));
+                }
             }
+
+            // The change mask compares neighbouring rows, so it waits for all of them
+            if (outputOptions.changeMask()) {
+                table.fillChangeMask();
+            }
+            return table;
+        } catch (UncheckedIOException ex) {
+            throw ex.getCause();
         }
+    }
+
+    private BitmapImageReader createBitmapImageReader(ScanlineSource scanlineSource) {
+        return fullScale
+                ? new WideBitmapImageReader(scanlineSource, kernelLines)
+                : new NarrowBitmapImageReader(scanlineSource, kernelLines);
+    }
 
-        String sectionName = outputSectionPrefix + PlayfieldOutputSection.PFCollision.name();
-        writer.write(System.lineSeparator());
-        writer.write(sectionName + "_Lo" + System.lineSeparator());
-        for (int i = 0; i < sectionCount; i++) {
-            String dataLine = DATA_LINE_PREFIX + "#<" + sectionName + i;
-            writer.write(dataLine + System.lineSeparator());
+    /**
+     * Open the input file.  Uncompressed 24-bit and 32-bit BMP files are read
+     * a few scanlines at a time straight from disk; any other format is fully
+     * decoded through ImageIO, once its header shows the width is right.
+     *
+     * @param inputPath Input image file
+     * @return Source of the image scanlines
+     * @throws IOException Error reading the file, or the format is not supported
+     */
+    private ScanlineSource openScanlineSource(Path inputPath) throws IOException {
+        ScanlineSource scanlineSource = BmpScanlineSource.open(inputPath);
+        if (scanlineSource != null) {
+            return scanlineSource;
         }
 
-        writer.write(System.lineSeparator());
-        writer.write(sectionName + "_Hi" + System.lineSeparator());
-        for (int i = 0; i < sectionCount; i++) {
-            String dataLine = DATA_LINE_PREFIX + "#>" + sectionName + i;
-            writer.write(dataLine + System.lineSeparator());
+        try (ImageInputStream inputStream = ImageIO.createImageInputStream(inputPath.toFile())) {
+            ImageReader reader = ImageHeader.getImageReader(inputStream, inputPath);
+            try {
+                checkWidth(reader.getWidth(0));
+                return new BufferedImageScanlineSource(reader.read(0, reader.getDefaultReadParam()));
+            } finally {
+                reader.dispose();
+            }
         }
     }
 
-    private List<String> getSectionDataFromOutputMap(PlayfieldOutputSection section) {
-        return outputMap.computeIfAbsent(section, ign -> new LinkedList<>());
+    /**
+     * Parse a row into the table, and store its colors and collision bits.
+     *
+     * @param table    Table to fill
+     * @param row      Row of the table
+     * @param lineData Line data of the row
+     * @param stats    Stats of the conversion
+     * @param start    Time the row was read at, to time parsing from
+     */
+    private void addLine(PlayfieldTable table, int row, PlayfieldLineData lineData, ConversionStats stats,
+                         long start) {
+        parser.parseLineData(lineData, table, row);
+        start = stats.lap(Stage.PARSE, start);
+        table.setLineData(row, lineData);
+        stats.lap(Stage.ENCODE, start);
     }
 }
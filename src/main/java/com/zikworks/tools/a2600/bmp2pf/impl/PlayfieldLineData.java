@@ -1,13 +1,19 @@
 package com.zikworks.tools.a2600.bmp2pf.impl;
 
-import java.util.ArrayList;
-import java.util.List;
+import com.zikworks.tools.a2600.bmp2pf.Utilities;
 
+/**
+ * A single row of playfield data.  Pixels and collisions are packed into a
+ * long with the left-most pixel in bit 0, so a full 40 pixel row fits in
+ * one value.
+ */
 public class PlayfieldLineData {
     private int ntscColor;
     private int palColor;
-    private List<Boolean> bits = new ArrayList<>();
-    private List<Boolean> collisions = new ArrayList<>();
+    private long bits;
+    private int width;
+    private long collisions;
+    private int collisionWidth;
 
     public int getNtscColor() {
         return ntscColor;
@@ -31,32 +37,85 @@ public class PlayfieldLineData {
         return this;
     }
 
-    public List<Boolean> getBits() {
+    /**
+     * Get the packed pixel bits, left-most pixel in bit 0.
+     *
+     * @return Packed pixel bits
+     */
+    public long getBits() {
         return bits;
     }
 
+    /**
+     * Get the number of pixel bits in this row.
+     *
+     * @return Number of pixel bits
+     */
+    public int getWidth() {
+        return width;
+    }
+
     public PlayfieldLineData withBit(boolean bit) {
-        bits.add(bit);
+        if (bit) {
+            bits |= 1L << width;
+        }
+        width++;
         return this;
     }
 
-    public PlayfieldLineData withBits(List<Boolean> bits) {
+    public PlayfieldLineData withBits(long bits, int width) {
         this.bits = bits;
+        this.width = width;
         return this;
     }
 
-    public List<Boolean> getCollisions() {
+    /**
+     * Get the packed collision bits, left-most pixel in bit 0.
+     *
+     * @return Packed collision bits
+     */
+    public long getCollisions() {
         return collisions;
     }
 
+    /**
+     * Get the number of collision bits in this row.
+     *
+     * @return Number of collision bits
+     */
+    public int getCollisionWidth() {
+        return collisionWidth;
+    }
+
+    /**
+     * Pack the collision bits into bytes, 8 pixels per byte with the
+     * left-most pixel in the most significant bit.
+     *
+     * @param collisionBytes Array to write the bytes to
+     * @param offset         Index of the first byte to write
+     * @return Number of bytes written
+     */
+    public int getCollisionBytes(byte[] collisionBytes, int offset) {
+        int count = 0;
+        for (int i = 0; i < collisionWidth; i += 8) {
+            int chunk = (int) (collisions >>> i) & 0xFF;
+            collisionBytes[offset + count++] = (byte) Utilities.reverseByte(chunk);
+        }
+        return count;
+    }
+
     @SuppressWarnings("UnusedReturnValue")
     public PlayfieldLineData withCollide(boolean collide) {
-        collisions.add(collide);
+        if (collide) {
+            collisions |= 1L << collisionWidth;
+        }
+        collisionWidth++;
         return this;
     }
 
-    public PlayfieldLineData withCollisions(List<Boolean> collisions) {
+    public PlayfieldLineData withCollisions(long collisions, int collisionWidth) {
         this.collisions = collisions;
+        this.collisionWidth = collisionWidth;
         return this;
     }
 }
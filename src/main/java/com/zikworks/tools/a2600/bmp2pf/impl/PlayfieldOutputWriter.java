@@ -0,0 +1,26 @@
+package com.zikworks.tools.a2600.bmp2pf.impl;
+
+import com.zikworks.tools.a2600.bmp2pf.ConversionStats;
+import com.zikworks.tools.a2600.bmp2pf.PlayfieldTable;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Writes the table of a conversion to the output files.
+ */
+interface PlayfieldOutputWriter {
+
+    /**
+     * Write the output file, and the collision file if collision data is
+     * kept separately.
+     *
+     * @param table      Converted rows
+     * @param outputPath Output file
+     * @param height     Value of PLAYFIELD_HEIGHT
+     * @param stats      Stats to count the written files and bytes in
+     * @return Path of the collision file, or null if none was written
+     * @throws IOException Error writing to file
+     */
+    Path write(PlayfieldTable table, Path outputPath, int height, ConversionStats stats) throws IOException;
+}
@@ -0,0 +1,113 @@
+package com.zikworks.tools.a2600.bmp2pf.impl;
+
+import com.zikworks.tools.a2600.bmp2pf.OutputOptions;
+import com.zikworks.tools.a2600.bmp2pf.PlayfieldGeneratorBuilder.Compression;
+import com.zikworks.tools.a2600.bmp2pf.PlayfieldOutputSection;
+import com.zikworks.tools.a2600.bmp2pf.PlayfieldResult;
+import com.zikworks.tools.a2600.bmp2pf.PlayfieldTable;
+import com.zikworks.tools.a2600.bmp2pf.TablePacker;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The result of a conversion, backed by its playfield table.
+ */
+class PlayfieldResultImpl implements PlayfieldResult {
+    private final PlayfieldTable table;
+    private final int height;
+    private final OutputOptions options;
+
+    /**
+     * Create a new result.
+     *
+     * @param table   Converted rows
+     * @param height  Value of PLAYFIELD_HEIGHT
+     * @param options Output options the result is rendered with, without a pack file
+     */
+    PlayfieldResultImpl(PlayfieldTable table, int height, OutputOptions options) {
+        this.table = table;
+        this.height = height;
+        this.options = options;
+    }
+
+    @Override
+    public int getHeight() {
+        return height;
+    }
+
+    @Override
+    public PlayfieldTable getTable() {
+        return table;
+    }
+
+    @Override
+    public List<PlayfieldOutputSection> getSections() {
+        return table.getSections();
+    }
+
+    @Override
+    public byte[] getSection(PlayfieldOutputSection section) {
+        byte[] column = table.getColumn(section);
+        return column == null ? null : column.clone();
+    }
+
+    @Override
+    public byte[] getPalColors() {
+        byte[] palColors = table.getPalColors();
+        return palColors == null ? null : palColors.clone();
+    }
+
+    @Override
+    public List<byte[]> getCollisionChunks() {
+        List<byte[]> chunks = new ArrayList<>();
+        byte[] collisions = table.getColumn(PlayfieldOutputSection.PFCollision);
+        if (collisions != null) {
+            int chunkSize = AsmOutputWriter.COLLISION_CHUNK_LINES * table.getCollisionRowBytes();
+            for (int i = 0; i < collisions.length; i += chunkSize) {
+                chunks.add(Arrays.copyOfRange(collisions, i, Math.min(i + chunkSize, collisions.length)));
+            }
+        }
+        return chunks;
+    }
+
+    @Override
+    public String render() {
+        return render(false);
+    }
+
+    @Override
+    public String renderCollisionFile() {
+        return options.separateCollisionFile() ? render(true) : null;
+    }
+
+    /**
+     * Format the table through an AsmOutputWriter.
+     *
+     * @param collisionFile Whether to return the collision file rather than the output file
+     * @return Rendered source
+     */
+    private String render(boolean collisionFile) {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        ByteArrayOutputStream collisionOutput = new ByteArrayOutputStream();
+        try {
+            CompressedTable compressed = options.compression() == Compression.NONE
+                    ? null
+                    : CompressedTable.compress(table, options.compression());
+            TablePacker.Layout layout = options.pack()
+                    ? new TablePacker().pack(
+                            AsmOutputWriter.getTables(table, compressed, options.outputSectionPrefix()))
+                    : null;
+            new AsmOutputWriter(options).write(table, compressed, layout, output,
+                    options.separateCollisionFile() ? collisionOutput : null, height);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        return (collisionFile ? collisionOutput : output).toString(StandardCharsets.UTF_8);
+    }
+}
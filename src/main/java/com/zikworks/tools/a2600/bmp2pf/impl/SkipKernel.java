@@ -0,0 +1,187 @@
+package com.zikworks.tools.a2600.bmp2pf.impl;
+
+import com.zikworks.tools.a2600.bmp2pf.PlayfieldOutputSection;
+import com.zikworks.tools.a2600.bmp2pf.PlayfieldTable;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * Groups the tables of a conversion for a kernel that only stores the
+ * registers that change from one row to the next, without a branch per
+ * register.  Rows are grouped by the registers they change: each group
+ * gets a store routine, and a PFSkip table holds the low byte of the
+ * routine of every row, so a kernel line jumps through it to store
+ * exactly what changed.  All routines sit in one page, so the high byte
+ * of the jump never changes.
+ * <p>
+ * Only the first half registers and COLUPF are stored this way.  The B
+ * registers of an asymmetric playfield have to be stored at a set cycle
+ * in the middle of the line, which a kernel still does itself.  As those
+ * stores overwrite the registers on every line, a first half register is
+ * only skipped where it matches the second half of the row above.
+ */
+final class SkipKernel {
+    /**
+     * Label of the table holding the low byte of each row's store routine.
+     */
+    static final String SKIP_LABEL = "PFSkip";
+
+    /**
+     * Cycles a kernel line takes to store a register: an absolute indexed
+     * load and a zero page store.
+     */
+    static final int STORE_CYCLES = 7;
+
+    /**
+     * Cycles a kernel line takes to jump to its store routine and back:
+     * reading PFSkip, storing it in the pointer, the indirect jump and the
+     * jump back at the end of the routine.
+     */
+    static final int DISPATCH_CYCLES = 15;
+
+    private static final String STORES_LABEL = "PFStores";
+    private static final String STORE_LABEL = "PFStore";
+    private static final int LOAD_BYTES = 3;
+    private static final int STORE_BYTES = 2;
+    private static final int JUMP_BYTES = 3;
+
+    private SkipKernel() {
+    }
+
+    /**
+     * Get the bits of the change mask the store routines cover, those of
+     * the first half registers and PFColors.
+     *
+     * @param table Converted rows
+     * @return Mask of the stored sections, with the bits of getChangedSections
+     */
+    static int getStoredBits(PlayfieldTable table) {
+        int bits = 0;
+        List<PlayfieldOutputSection> sections = getMaskedSections(table);
+        for (int i = 0; i < sections.size(); i++) {
+            if (getRegister(sections.get(i)) != null) {
+                bits |= 1 << i;
+            }
+        }
+        return bits;
+    }
+
+    /**
+     * Get the sections the store routine of a row stores, those it covers
+     * whose store changes what the register holds.
+     *
+     * @param table Converted rows
+     * @param row   Row index
+     * @return Mask of the stored sections, with the bits of getChangedSections
+     */
+    static int getStoreMask(PlayfieldTable table, int row) {
+        return table.getChangedSections(row) & getStoredBits(table);
+    }
+
+    /**
+     * Get the sections a change mask has a bit for, in bit order.
+     *
+     * @param table Converted rows
+     * @return Every section but PFChanges
+     */
+    static List<PlayfieldOutputSection> getMaskedSections(PlayfieldTable table) {
+        List<PlayfieldOutputSection> sections = new ArrayList<>(table.getSections());
+        sections.remove(PlayfieldOutputSection.PFChanges);
+        return sections;
+    }
+
+    /**
+     * Write the comment showing how a kernel uses the store routines, and
+     * the macro that defines them.
+     *
+     * @param emitter             Emitter to write to
+     * @param table               Converted rows
+     * @param outputSectionPrefix Prefix for all section labels
+     * @throws IOException Error writing the output
+     */
+    static void writeHeader(AsmEmitter emitter, PlayfieldTable table, String outputSectionPrefix)
+            throws IOException {
+        List<PlayfieldOutputSection> sections = getMaskedSections(table);
+        TreeSet<Integer> masks = new TreeSet<>();
+        for (int row = 0; row < table.getRowCount(); row++) {
+            masks.add(getStoreMask(table, row));
+        }
+        int size = 0;
+        for (int mask : masks) {
+            size += Integer.bitCount(mask) * (LOAD_BYTES + STORE_BYTES) + JUMP_BYTES;
+        }
+
+        String skipLabel = outputSectionPrefix + SKIP_LABEL;
+        String storesLabel = outputSectionPrefix + STORES_LABEL;
+        String macroName = outputSectionPrefix + "PFSkipStores";
+        emitter.line();
+        emitter.line("; " + skipLabel + " holds the low byte of the routine storing the registers each row");
+        emitter.line("; changes from the row above.  Add " + macroName + " <return label> to the kernel's");
+        emitter.line("; bank, set the high byte of a pointer to >" + storesLabel + " and, with Y set to the row,");
+        emitter.line("; store a kernel line's registers with:");
+        emitter.line(";     lda " + skipLabel + ",y");
+        emitter.line(";     sta <pointer>");
+        emitter.line(";     jmp (<pointer>)");
+        emitter.line("; which takes " + DISPATCH_CYCLES + " cycles with the jump back, and " + STORE_CYCLES
+                + " more per register stored.");
+        emitter.line();
+        emitter.line("    mac " + macroName);
+        emitter.text(AsmOutputWriter.getAlignmentBlock(String.valueOf(size)));
+        emitter.line(storesLabel);
+        for (int mask : masks) {
+            emitter.line(getStoreLabel(outputSectionPrefix, mask));
+            for (int i = 0; i < sections.size(); i++) {
+                if ((mask & 1 << i) != 0) {
+                    emitter.line("        lda " + outputSectionPrefix + sections.get(i).name() + ",y");
+                    emitter.line("        sta " + getRegister(sections.get(i)));
+                }
+            }
+            emitter.line("        jmp {1}");
+        }
+        emitter.line("    endm");
+    }
+
+    /**
+     * Get the PFSkip table, aligned like the other tables so it is read in
+     * constant time.
+     *
+     * @param table               Converted rows
+     * @param outputSectionPrefix Prefix for all section labels
+     * @param sizeSymbol          Symbol the alignment of the table is checked against
+     * @param checkSize           Value of the size symbol
+     * @return PFSkip table
+     */
+    static OutputTable getSkipTable(PlayfieldTable table, String outputSectionPrefix, String sizeSymbol,
+                                    int checkSize) {
+        return new OutputTable(table.getRowCount(), sizeSymbol, checkSize, e -> {
+            e.line(outputSectionPrefix + SKIP_LABEL);
+            for (int row = 0; row < table.getRowCount(); row++) {
+                e.line(AsmOutputWriter.DATA_LINE_PREFIX + "#<"
+                        + getStoreLabel(outputSectionPrefix, getStoreMask(table, row)));
+            }
+        });
+    }
+
+    private static String getStoreLabel(String outputSectionPrefix, int mask) {
+        return outputSectionPrefix + STORE_LABEL + String.format("%02X", mask);
+    }
+
+    /**
+     * Get the register a store routine writes a section to.
+     *
+     * @param section Output section
+     * @return Register name, or null if the section is not stored by the routines
+     */
+    private static String getRegister(PlayfieldOutputSection section) {
+        return switch (section) {
+            case PF0DataA -> "PF0";
+            case PF1DataA -> "PF1";
+            case PF2DataA -> "PF2";
+            case PFColors -> "COLUPF";
+            default -> null;
+        };
+    }
+}
@@ -0,0 +1,59 @@
+package com.zikworks.tools.a2600.bmp2pf.impl;
+
+import com.zikworks.tools.a2600.bmp2pf.TablePack;
+import com.zikworks.tools.a2600.bmp2pf.TablePacker;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Writes the tables of a TablePack as DASM source: the labels of every
+ * conversion's tables, grouped by output file, followed by the blobs they
+ * point into.
+ */
+public final class TablePackWriter {
+
+    private TablePackWriter() {
+    }
+
+    /**
+     * Write a packed file.
+     *
+     * @param file    File to write
+     * @param sources Tables of every conversion, in the order they were packed
+     * @param layout  Layout of the packed tables
+     * @throws IOException Error writing the file
+     */
+    @SuppressWarnings("ResultOfMethodCallIgnored")
+    public static void write(Path file, List<TablePack.Source> sources, TablePacker.Layout layout)
+            throws IOException {
+        file = file.toAbsolutePath().normalize();
+        file.getParent().toFile().mkdirs();
+
+        try (OutputStream out = Files.newOutputStream(file)) {
+            AsmEmitter emitter = new AsmEmitter(out, AsmOutputWriter.WRITE_BLOCK_SIZE);
+            int placement = 0;
+            for (TablePack.Source source : sources) {
+                if (placement > 0) {
+                    emitter.line();
+                }
+                emitter.line("; " + source.source());
+                for (int i = 0; i < source.tables().size(); i++) {
+                    AsmOutputWriter.writePackedLabel(
+                            emitter, layout.placements().get(placement++), AsmOutputWriter.PACK_LABEL);
+                }
+            }
+
+            for (int i = 0; i < layout.blobs().size(); i++) {
+                TablePacker.Blob blob = layout.blobs().get(i);
+                emitter.text(AsmOutputWriter.getAlignmentBlock(String.valueOf(blob.data().length)));
+                emitter.line(AsmOutputWriter.PACK_LABEL + i);
+                AsmOutputWriter.writeBlob(emitter, blob);
+            }
+            emitter.flush();
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package com.zikworks.tools.a2600.bmp2pf.impl;
 
 import com.zikworks.tools.a2600.bmp2pf.BitmapImageReader;
+import com.zikworks.tools.a2600.bmp2pf.ScanlineSource;
 
 import java.awt.image.BufferedImage;
 import java.io.IOException;
@@ -14,6 +15,10 @@ public class WideBitmapImageReader extends BitmapImageReader {
         super(bufferedImage, kernelLines);
     }
 
+    public WideBitmapImageReader(ScanlineSource scanlineSource, int kernelLines) {
+        super(scanlineSource, kernelLines);
+    }
+
     @Override
     public void checkWidth(int expectedWidth) throws IOException {
         expectedWidth *= 4;
@@ -41,15 +46,15 @@ public class WideBitmapImageReader extends BitmapImageReader {
         int wideNtsc = 0;
         int widePal = 0;
 
+        int[] pixels = getPixels(line);
         int width = getImageWidth();
         for (int x = 0; x < width; x++) {
-            int rgb = getRGB(x, line);
-            boolean bit = getBit(rgb);
-            int ntsc = bit ? getNtscColor(rgb) : 0;
-            int pal = bit ? getPalColor(rgb) : 0;
-            boolean collide = isCollision(rgb);
+            int pixel = pixels[x];
+            int ntsc = pixel & 0xFF;
+            int pal = (pixel >>> 8) & 0xFF;
+            boolean collide = (pixel & PIXEL_COLLIDE) != 0;
 
-            widePixel += (bit) ? 1 : 0;
+            widePixel += (pixel & PIXEL_BIT) != 0 ? 1 : 0;
             if (wideNtsc == 0) {
                 wideNtsc = ntsc;
             }
@@ -0,0 +1,74 @@
+package com.zikworks.tools.a2600.bmp2pf;
+
+import com.zikworks.tools.a2600.bmp2pf.impl.BufferedImageScanlineSource;
+import com.zikworks.tools.a2600.bmp2pf.impl.PlayfieldLineData;
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.IndexColorModel;
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+class BitmapImageReaderTest {
+    @Test
+    void readsArgbRowsWhenTheSourceCannotReadIndices() throws IOException {
+        BufferedImage rgbImage = TestImages.read("symmetrical/normal-24bit.bmp");
+        BufferedImage image = new BufferedImage(rgbImage.getWidth(), rgbImage.getHeight(),
+                BufferedImage.TYPE_BYTE_INDEXED);
+        image.createGraphics().drawImage(rgbImage, 0, 0, null);
+        ScanlineSource indexed = new BufferedImageScanlineSource(image);
+        // Keeps the palette but leaves out readIndexRow
+        ScanlineSource argbOnly = new ScanlineSource() {
+            @Override
+            public int getWidth() {
+                return indexed.getWidth();
+            }
+
+            @Override
+            public int getHeight() {
+                return indexed.getHeight();
+            }
+
+            @Override
+            public boolean hasAlpha() {
+                return indexed.hasAlpha();
+            }
+
+            @Override
+            public int[] readRow(int y, int[] argb) throws IOException {
+                return indexed.readRow(y, argb);
+            }
+
+            @Override
+            public IndexColorModel getPalette() {
+                return indexed.getPalette();
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        assertNotNull(argbOnly.getPalette());
+
+        BitmapImageReader expected = createReader(indexed);
+        BitmapImageReader actual = createReader(argbOnly);
+        for (int y = 0; y < image.getHeight(); y++) {
+            assertArrayEquals(expected.getPixels(y).clone(), actual.getPixels(y), "row " + y);
+        }
+    }
+
+    private static BitmapImageReader createReader(ScanlineSource scanlineSource) {
+        return new BitmapImageReader(scanlineSource, 1) {
+            @Override
+            public void checkWidth(int expectedWidth) {
+            }
+
+            @Override
+            protected PlayfieldLineData readLine(int line) {
+                return null;
+            }
+        };
+    }
+}
@@ -0,0 +1,68 @@
+package com.zikworks.tools.a2600.bmp2pf;
+
+import com.zikworks.tools.a2600.bmp2pf.PlayfieldGeneratorBuilder.Compression;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.nio.file.Path;
+import java.util.function.UnaryOperator;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OutputOptionsTest {
+    @ParameterizedTest
+    @ValueSource(ints = {-1, 0, 60})
+    void rejectsADeltaBudgetTooSmallForAPatch(int deltaBudget) {
+        PlayfieldGeneratorBuilder builder = PlayfieldGenerator.builder().withQuiet(true).withFrameHeight(10)
+                .withDeltaBudget(deltaBudget);
+
+        assertDoesNotThrow(builder::getOutputOptions);
+        IllegalArgumentException ex = assertThrows(IllegalArgumentException.class,
+                () -> builder.withDelta(true).getOutputOptions());
+        assertTrue(ex.getMessage().contains("at least 61"), ex.getMessage());
+    }
+
+    @ParameterizedTest
+    @MethodSource("conflicts")
+    void namesTheOptionsThatConflict(UnaryOperator<PlayfieldGeneratorBuilder> options, String message) {
+        PlayfieldGeneratorBuilder builder = options.apply(PlayfieldGenerator.builder().withQuiet(true));
+
+        IllegalArgumentException ex = assertThrows(IllegalArgumentException.class, builder::getOutputOptions);
+        assertEquals(message, ex.getMessage());
+    }
+
+    static Stream<Arguments> conflicts() {
+        TablePack tablePack = new TablePack(Path.of("pack.asm"));
+        return Stream.of(
+                conflict(b -> b.withChangeMask(true).withCompression(Compression.ROWS),
+                        "A change mask cannot be used with compression"),
+                conflict(b -> b.withSkipKernel(true).withBinaryOutput(true),
+                        "A skip kernel cannot be written as binary"),
+                conflict(b -> b.withSkipKernel(true).withCompression(Compression.RUNS),
+                        "A skip kernel cannot be used with compression"),
+                conflict(b -> b.withSkipKernel(true).withPack(true),
+                        "A skip kernel cannot be packed"),
+                conflict(b -> b.withSkipKernel(true).withTablePack(tablePack),
+                        "A skip kernel cannot be written to a pack file"),
+                conflict(b -> b.withSkipKernel(true).withFrames(true),
+                        "A skip kernel cannot be used with frames"),
+                conflict(b -> b.withFrameHeight(10).withBinaryOutput(true),
+                        "Frames cannot be written as binary"),
+                conflict(b -> b.withFrames(true).withCompression(Compression.ROWS),
+                        "Frames cannot be compressed"),
+                conflict(b -> b.withFrames(true).withTablePack(tablePack),
+                        "Frames cannot be written to a pack file"),
+                conflict(b -> b.withDelta(true),
+                        "Delta frames need frames, from --frames or --frame-height"));
+    }
+
+    private static Arguments conflict(UnaryOperator<PlayfieldGeneratorBuilder> options, String message) {
+        return Arguments.of(options, message);
+    }
+}
@@ -0,0 +1,119 @@
+package com.zikworks.tools.a2600.bmp2pf;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PageLayoutTest {
+    @Test
+    void fillsThePagesOfLargeTablesWithSmallOnes() {
+        List<PageLayout.Item> items = List.of(
+                new PageLayout.Item(200, 200),
+                new PageLayout.Item(200, 200),
+                new PageLayout.Item(40, 40),
+                new PageLayout.Item(50, 50));
+
+        PageLayout.Plan plan = new PageLayout().plan(items);
+
+        assertEquals(List.of(new PageLayout.Page(List.of(0, 3), 250), new PageLayout.Page(List.of(1, 2), 240)),
+                plan.pages());
+        assertEquals(6, plan.paddingBytes());
+        assertEquals(56 + 16, plan.alignedPaddingBytes());
+        assertEquals(0, plan.alignedCrossingTables());
+        assertPagesKeepTablesInAPage(items, plan);
+    }
+
+    @Test
+    void startsAPageWithEachTableLongerThanAPage() {
+        List<PageLayout.Item> items = List.of(
+                new PageLayout.Item(100, 100),
+                new PageLayout.Item(300, 300),
+                new PageLayout.Item(150, 150),
+                new PageLayout.Item(256, 256));
+
+        PageLayout.Plan plan = new PageLayout().plan(items);
+
+        assertEquals(new PageLayout.Page(List.of(1, 2), 450), plan.pages().get(0));
+        assertPagesKeepTablesInAPage(items, plan);
+    }
+
+    @Test
+    void countsTheTablesCrossingAPageWithoutAPlan() {
+        // Collision chunks follow the first one without an alignment check of their own
+        List<PageLayout.Item> items = List.of(
+                new PageLayout.Item(200, 200),
+                new PageLayout.Item(40, 40),
+                new PageLayout.Item(40, 0),
+                new PageLayout.Item(40, 0));
+
+        PageLayout.Plan plan = new PageLayout().plan(items);
+
+        assertEquals(1, plan.alignedCrossingTables());
+        assertEquals(0, plan.alignedPaddingBytes());
+        assertPagesKeepTablesInAPage(items, plan);
+    }
+
+    @Test
+    void neverLetsATableOfUpToAPageCrossOne() {
+        Random random = new Random(1);
+        for (int run = 0; run < 500; run++) {
+            List<PageLayout.Item> items = new ArrayList<>();
+            int count = 1 + random.nextInt(40);
+            for (int i = 0; i < count; i++) {
+                int size = random.nextInt(10) == 0
+                        ? 1 + random.nextInt(3 * PageLayout.PAGE_SIZE)
+                        : 1 + random.nextInt(random.nextBoolean() ? 16 : PageLayout.PAGE_SIZE);
+                items.add(new PageLayout.Item(size, i > 0 && random.nextInt(4) == 0 ? 0 : size));
+            }
+
+            PageLayout.Plan plan = new PageLayout().plan(items);
+
+            assertPagesKeepTablesInAPage(items, plan);
+            assertTrue(plan.paddingBytes() >= 0);
+        }
+    }
+
+    /**
+     * Lay out the pages of a plan the way the output does, aligning each
+     * page to the next page boundary if it would cross one, and check every
+     * table is placed once and none of up to a page crosses one.
+     */
+    private static void assertPagesKeepTablesInAPage(List<PageLayout.Item> items, PageLayout.Plan plan) {
+        boolean[] placed = new boolean[items.size()];
+        int address = 0;
+        int padding = 0;
+        for (PageLayout.Page page : plan.pages()) {
+            int pageSize = 0;
+            for (int item : page.items()) {
+                pageSize += items.get(item).size();
+            }
+            assertEquals(pageSize, page.size());
+
+            if (address / PageLayout.PAGE_SIZE != (address + page.size()) / PageLayout.PAGE_SIZE) {
+                int aligned = (address + PageLayout.PAGE_SIZE - 1) / PageLayout.PAGE_SIZE * PageLayout.PAGE_SIZE;
+                padding += aligned - address;
+                address = aligned;
+            }
+            for (int item : page.items()) {
+                int size = items.get(item).size();
+                assertFalse(placed[item], "table " + item + " placed twice");
+                placed[item] = true;
+                if (size <= PageLayout.PAGE_SIZE) {
+                    assertEquals(address / PageLayout.PAGE_SIZE, (address + size - 1) / PageLayout.PAGE_SIZE,
+                            "table " + item + " of " + size + " bytes at " + address);
+                }
+                address += size;
+            }
+        }
+        for (int item = 0; item < items.size(); item++) {
+            assertTrue(placed[item], "table " + item + " not placed");
+        }
+        assertEquals(padding, plan.paddingBytes());
+    }
+}
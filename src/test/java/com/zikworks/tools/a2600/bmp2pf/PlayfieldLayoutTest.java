@@ -0,0 +1,119 @@
+package com.zikworks.tools.a2600.bmp2pf;
+
+import com.zikworks.tools.a2600.bmp2pf.PlayfieldGeneratorBuilder.GeneratorMode;
+import com.zikworks.tools.a2600.bmp2pf.PlayfieldGeneratorBuilder.PlayfieldRegistersMode;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PlayfieldLayoutTest {
+    @TempDir
+    Path tempDir;
+
+    /**
+     * The expected files were generated by the symmetrical and asymmetrical,
+     * mirrored and repeated parser classes the layouts replaced.
+     */
+    @ParameterizedTest
+    @CsvSource({
+            "symmetrical-mirror, symmetrical/normal-32bit.bmp, SYMMETRICAL, MIRROR, false, 1, 1, 0, false",
+            "symmetrical-repeat, symmetrical/normal-24bit.bmp, SYMMETRICAL, REPEAT, false, 2, 4, 3, false",
+            "symmetrical-mirror-full, symmetrical/fullscale-32bit.bmp, SYMMETRICAL, MIRROR, true, 1, 1, 0, true",
+            "symmetrical-repeat-full, symmetrical/fullscale-24bit.bmp, SYMMETRICAL, REPEAT, true, 3, 3, 0, false",
+            "asymmetrical-repeat, asymmetrical/normal-32bit.bmp, ASYMMETRICAL, REPEAT, false, 1, 1, 0, false",
+            "asymmetrical-mirror, asymmetrical/normal-32bit.bmp, ASYMMETRICAL, MIRROR, false, 2, 2, 5, true",
+            "asymmetrical-repeat-full, asymmetrical/fullscale-32bit.bmp, ASYMMETRICAL, REPEAT, true, 3, 6, 0, false",
+            "asymmetrical-mirror-full, asymmetrical/fullscale-32bit.bmp, ASYMMETRICAL, MIRROR, true, 1, 0, 0, false"
+    })
+    void generatesTheSameOutputAsTheParsersItReplaced(String name, String resource, GeneratorMode generatorMode,
+                                                     PlayfieldRegistersMode registersMode, boolean fullScale,
+                                                     int kernelLines, int collisionLines, int outputBufferLines,
+                                                     boolean excludeColor) throws IOException {
+        Path outputFile = tempDir.resolve(name + ".asm");
+        PlayfieldGenerator.builder()
+                .withGeneratorMode(generatorMode)
+                .withPlayfieldRegistersMode(registersMode)
+                .withFullScale(fullScale)
+                .withKernelLines(kernelLines)
+                .withCollisionLines(collisionLines)
+                .withOutputBufferLines(outputBufferLines)
+                .withExcludeColor(excludeColor)
+                .withQuiet(true)
+                .build()
+                .generate(TestImages.path(resource), outputFile);
+
+        assertEquals(Files.readString(TestImages.path("expected/" + name + ".asm")), Files.readString(outputFile));
+    }
+
+    @Test
+    void sizesCollisionRowsFromTheLayout() throws IOException {
+        BufferedImage image = TestImages.read("symmetrical/normal-32bit.bmp");
+        PlayfieldTable full = PlayfieldGenerator.builder().withQuiet(true).build().convert(image).getTable();
+        PlayfieldResult narrow = PlayfieldGenerator.builder()
+                .withLayout(PlayfieldLayout.parse("PF1DataA=0-7;PF2DataA=11-8"))
+                .withQuiet(true)
+                .build()
+                .convert(image.getSubimage(0, 0, 12, image.getHeight()));
+
+        // 12 pixels of collision data take 2 bytes, with the last 4 bits left 0
+        PlayfieldTable table = narrow.getTable();
+        assertEquals(2, table.getCollisionRowBytes());
+        byte[] collisions = table.getColumn(PlayfieldOutputSection.PFCollision);
+        byte[] fullCollisions = full.getColumn(PlayfieldOutputSection.PFCollision);
+        assertEquals(table.getCollisionRowCount() * 2, collisions.length);
+        for (int row = 0; row < table.getCollisionRowCount(); row++) {
+            int fullOffset = row * full.getCollisionRowBytes();
+            assertEquals(fullCollisions[fullOffset], collisions[row * 2]);
+            assertEquals(fullCollisions[fullOffset + 1] & 0xF0, collisions[row * 2 + 1] & 0xFF);
+        }
+        assertTrue(narrow.render().contains("PFCollision0\n   .byte %11111111, %11110000\n"));
+
+        PlayfieldTable mirrored = PlayfieldGenerator.builder()
+                .withLayout(PlayfieldLayout.parse("PF1DataA=0-7;PF2DataA=11-8;collisions=mirror"))
+                .withQuiet(true)
+                .build()
+                .convert(image.getSubimage(0, 0, 12, image.getHeight()))
+                .getTable();
+        assertEquals(3, mirrored.getCollisionRowBytes());
+    }
+
+    @Test
+    void parsesItsOwnFormat() {
+        for (PlayfieldLayout layout : new PlayfieldLayout[]{
+                PlayfieldLayout.SYMMETRICAL_MIRROR, PlayfieldLayout.SYMMETRICAL_REPEAT,
+                PlayfieldLayout.ASYMMETRICAL_MIRROR, PlayfieldLayout.ASYMMETRICAL_REPEAT}) {
+            assertEquals(layout, PlayfieldLayout.parse(layout.toString()));
+        }
+        assertEquals("PF0DataA=3-0;PF1DataA=4-11;PF2DataA=19-12;width=20;collisions=mirror",
+                PlayfieldLayout.SYMMETRICAL_MIRROR.toString());
+    }
+
+    @Test
+    void readsTheSpecifiedWidth() {
+        PlayfieldLayout layout = PlayfieldLayout.parse("PF1DataA=0-7;width=12");
+
+        assertEquals(12, layout.getWidth());
+        assertEquals(7, PlayfieldLayout.parse("PF1DataA=_,0-6").getWidth());
+    }
+
+    @Test
+    void rejectsInvalidLayouts() {
+        assertThrows(IllegalArgumentException.class, () -> PlayfieldLayout.parse("width=8"));
+        assertThrows(IllegalArgumentException.class, () -> PlayfieldLayout.parse("PF1DataA=0-8"));
+        assertThrows(IllegalArgumentException.class, () -> PlayfieldLayout.parse("PF1DataA=0-7;PF1DataA=8-15"));
+        assertThrows(IllegalArgumentException.class, () -> PlayfieldLayout.parse("PF1DataA=0-7;width=4"));
+        assertThrows(IllegalArgumentException.class,
+                () -> PlayfieldLayout.parse("PF1DataA=0-7;width=24;collisions=repeat"));
+        assertThrows(IllegalArgumentException.class, () -> PlayfieldLayout.parse("PFColors=0-7"));
+    }
+}
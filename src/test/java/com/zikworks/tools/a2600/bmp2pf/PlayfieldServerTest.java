@@ -0,0 +1,33 @@
+package com.zikworks.tools.a2600.bmp2pf;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PlayfieldServerTest {
+    private final PlayfieldServer server = new PlayfieldServer(Main.createOptions());
+
+    @Test
+    void answersAHeaderWithNoRowsWithAnError() {
+        // A 54-byte file whose header declares 2 billion rows
+        ByteBuffer bmp = ByteBuffer.allocate(54).order(ByteOrder.LITTLE_ENDIAN);
+        bmp.put((byte) 'B').put((byte) 'M').putInt(54).putInt(0).putInt(54)
+                .putInt(40).putInt(20).putInt(2_000_000_000).putShort((short) 1).putShort((short) 24);
+
+        String response = server.handle("1\t--data\t" + Base64.getEncoder().encodeToString(bmp.array()));
+
+        assertEquals("1\tERROR", response.substring(0, response.lastIndexOf('\t')));
+    }
+
+    @Test
+    void answersNegativeBufferLinesWithAnError() {
+        String response = server.handle("2\t--file\t" + TestImages.path("symmetrical/normal-24bit.bmp") + "\t-b\t-3");
+
+        assertTrue(response.startsWith("2\tERROR\tInvalid output buffer lines"), response);
+    }
+}
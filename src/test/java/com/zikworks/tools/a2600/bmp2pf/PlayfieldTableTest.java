@@ -0,0 +1,221 @@
+package com.zikworks.tools.a2600.bmp2pf;
+
+import com.zikworks.tools.a2600.bmp2pf.impl.PlayfieldLineData;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class PlayfieldTableTest {
+    private static final List<PlayfieldOutputSection> SYMMETRICAL_SECTIONS = List.of(
+            PlayfieldOutputSection.PF0DataA, PlayfieldOutputSection.PF1DataA, PlayfieldOutputSection.PF2DataA);
+    private static final List<PlayfieldOutputSection> ASYMMETRICAL_SECTIONS = List.of(
+            PlayfieldOutputSection.PF0DataA, PlayfieldOutputSection.PF1DataA, PlayfieldOutputSection.PF2DataA,
+            PlayfieldOutputSection.PF0DataB, PlayfieldOutputSection.PF1DataB, PlayfieldOutputSection.PF2DataB);
+
+    @Test
+    void sizesEveryColumnFromTheRowCount() {
+        PlayfieldTable table = new PlayfieldTable(SYMMETRICAL_SECTIONS, false, 7, 3);
+
+        assertEquals(7, table.getRowCount());
+        assertEquals(List.of(PlayfieldOutputSection.PF0DataA, PlayfieldOutputSection.PF1DataA,
+                PlayfieldOutputSection.PF2DataA, PlayfieldOutputSection.PFColors), table.getSections());
+        for (PlayfieldOutputSection section : table.getSections()) {
+            assertEquals(7, table.getColumn(section).length, section.name());
+        }
+        assertEquals(7, table.getPalColors().length);
+        assertEquals(3, table.getCollisionRowCount());
+        assertEquals(3 * table.getCollisionRowBytes(),
+                table.getColumn(PlayfieldOutputSection.PFCollision).length);
+    }
+
+    @Test
+    void leavesOutExcludedColorsAndCollisions() {
+        PlayfieldTable table = new PlayfieldTable(SYMMETRICAL_SECTIONS, true, 7, 0);
+
+        assertEquals(SYMMETRICAL_SECTIONS, table.getSections());
+        assertNull(table.getColumn(PlayfieldOutputSection.PFColors));
+        assertNull(table.getPalColors());
+        assertEquals(0, table.getCollisionRowCount());
+        assertNull(table.getColumn(PlayfieldOutputSection.PFCollision));
+    }
+
+    @Test
+    void samplesCollisionRowsFromTheTopOfThePlayfield() {
+        // The last row is the top kernel line, so sampling starts there
+        PlayfieldTable table = new PlayfieldTable(SYMMETRICAL_SECTIONS, false, 7, 3);
+
+        assertEquals(2, table.getCollisionRow(6));
+        assertEquals(-1, table.getCollisionRow(5));
+        assertEquals(-1, table.getCollisionRow(4));
+        assertEquals(1, table.getCollisionRow(3));
+        assertEquals(-1, table.getCollisionRow(2));
+        assertEquals(-1, table.getCollisionRow(1));
+        assertEquals(0, table.getCollisionRow(0));
+    }
+
+    @Test
+    void storesTheColorsAndSampledCollisionsOfARow() {
+        PlayfieldTable table = new PlayfieldTable(SYMMETRICAL_SECTIONS, false, 4, 2);
+        for (int row = 0; row < table.getRowCount(); row++) {
+            table.setLineData(row, new PlayfieldLineData()
+                    .withNtscColor(0x10 + row)
+                    .withPalColor(0x20 + row)
+                    .withCollisions(1L << row, PlayfieldLayout.MAX_WIDTH));
+        }
+
+        assertArrayEquals(new byte[]{0x10, 0x11, 0x12, 0x13}, table.getColumn(PlayfieldOutputSection.PFColors));
+        assertArrayEquals(new byte[]{0x20, 0x21, 0x22, 0x23}, table.getPalColors());
+        // Rows 1 and 3 are sampled, pixel 0 is the high bit of the first byte
+        assertArrayEquals(new byte[]{0x40, 0, 0, 0, 0, 0x10, 0, 0, 0, 0},
+                table.getColumn(PlayfieldOutputSection.PFCollision));
+    }
+
+    @Test
+    void setsRegisterBytesInTheirColumn() {
+        PlayfieldTable table = new PlayfieldTable(SYMMETRICAL_SECTIONS, true, 3, 0);
+        table.set(PlayfieldOutputSection.PF1DataA, 1, 0x1A5);
+
+        assertArrayEquals(new byte[]{0, (byte) 0xA5, 0}, table.getColumn(PlayfieldOutputSection.PF1DataA));
+        assertArrayEquals(new byte[3], table.getColumn(PlayfieldOutputSection.PF0DataA));
+    }
+
+    @Test
+    void keepsTheBottomLineOfTheImageInTheFirstRow() throws Exception {
+        PlayfieldTable table = PlayfieldGenerator.builder()
+                .withQuiet(true)
+                .build()
+                .convert(TestImages.read("symmetrical/normal-32bit.bmp"))
+                .getTable();
+
+        assertNotNull(table);
+        assertEquals(30, table.getRowCount());
+        // The floor at the bottom of the image collides everywhere, the line above it nowhere
+        byte[] collisions = table.getColumn(PlayfieldOutputSection.PFCollision);
+        assertEquals(0, table.getCollisionRow(0));
+        for (int i = 0; i < table.getCollisionRowBytes(); i++) {
+            assertEquals((byte) 0xFF, collisions[i]);
+            assertEquals(0, collisions[table.getCollisionRowBytes() + i]);
+        }
+    }
+
+    @Test
+    void comparesFirstHalfRegistersWithTheSecondHalfOfTheRowAbove() {
+        // The second half stores of the top row leave PF1 holding 0x22 and PF2 holding 0x11
+        PlayfieldTable table = new PlayfieldTable(ASYMMETRICAL_SECTIONS, true, true, 2, 0, PlayfieldLayout.MAX_WIDTH);
+        table.set(PlayfieldOutputSection.PF1DataA, 1, 0x11);
+        table.set(PlayfieldOutputSection.PF1DataB, 1, 0x22);
+        table.set(PlayfieldOutputSection.PF2DataA, 1, 0x22);
+        table.set(PlayfieldOutputSection.PF2DataB, 1, 0x11);
+        table.set(PlayfieldOutputSection.PF1DataA, 0, 0x11);
+        table.set(PlayfieldOutputSection.PF1DataB, 0, 0x11);
+        table.set(PlayfieldOutputSection.PF2DataA, 0, 0x11);
+        table.set(PlayfieldOutputSection.PF2DataB, 0, 0x22);
+
+        table.fillChangeMask();
+
+        // PF1DataA matches the row above but not PF1 after its second half, PF2DataA the other way round
+        assertEquals(0b111111, table.getColumn(PlayfieldOutputSection.PFChanges)[1]);
+        assertEquals(0b100010, table.getChangedSections(0));
+        assertEquals(0b100010, table.getColumn(PlayfieldOutputSection.PFChanges)[0]);
+    }
+
+    @Test
+    void setsAChangeMaskBitForEveryStoreThatChangesARegister() {
+        // Rows mostly repeat the row above or the other half of the line, so most bits are clear
+        Random random = new Random(1);
+        PlayfieldTable table = new PlayfieldTable(ASYMMETRICAL_SECTIONS, false, true, 200, 0,
+                PlayfieldLayout.MAX_WIDTH);
+        for (int row = table.getRowCount() - 1; row >= 0; row--) {
+            for (int i = 0; i < ASYMMETRICAL_SECTIONS.size(); i++) {
+                PlayfieldOutputSection section = ASYMMETRICAL_SECTIONS.get(i);
+                PlayfieldOutputSection otherHalf = ASYMMETRICAL_SECTIONS.get((i + 3) % 6);
+                int above = row == table.getRowCount() - 1 ? 0 : table.getColumn(section)[row + 1];
+                int choice = random.nextInt(8);
+                table.set(section, row, choice == 0 ? random.nextInt(256)
+                        : choice < 3 && row < table.getRowCount() - 1 ? table.getColumn(otherHalf)[row + 1]
+                        : above);
+            }
+            byte[] colors = table.getColumn(PlayfieldOutputSection.PFColors);
+            byte[] palColors = table.getPalColors();
+            if (row < table.getRowCount() - 1) {
+                colors[row] = random.nextInt(8) == 0 ? (byte) random.nextInt(256) : colors[row + 1];
+                palColors[row] = random.nextInt(8) == 0 ? (byte) random.nextInt(256) : palColors[row + 1];
+            }
+        }
+
+        table.fillChangeMask();
+
+        assertChangeMaskMatchesTheRegisters(table);
+    }
+
+    @Test
+    void fillsTheChangeMaskOfAConvertedImage() throws Exception {
+        for (PlayfieldGeneratorBuilder.GeneratorMode mode : PlayfieldGeneratorBuilder.GeneratorMode.values()) {
+            PlayfieldTable table = PlayfieldGenerator.builder()
+                    .withGeneratorMode(mode)
+                    .withChangeMask(true)
+                    .withOutputBufferLines(2)
+                    .withQuiet(true)
+                    .build()
+                    .convert(TestImages.read(mode == PlayfieldGeneratorBuilder.GeneratorMode.SYMMETRICAL
+                            ? "symmetrical/normal-32bit.bmp"
+                            : "asymmetrical/normal-32bit.bmp"))
+                    .getTable();
+
+            assertEquals(PlayfieldOutputSection.PFChanges, table.getSections().getLast());
+            assertChangeMaskMatchesTheRegisters(table);
+        }
+    }
+
+    @Test
+    void rejectsFillingAMissingChangeMask() {
+        PlayfieldTable table = new PlayfieldTable(SYMMETRICAL_SECTIONS, false, 4, 0);
+
+        assertNull(table.getColumn(PlayfieldOutputSection.PFChanges));
+        assertThrows(IllegalStateException.class, table::fillChangeMask);
+    }
+
+    /**
+     * Draw the rows from the top the way a kernel stores them, first half
+     * sections and then second half ones, keeping what each register holds,
+     * and check every bit of the PFChanges column is set exactly where a
+     * store changes its register, or on the top row.
+     */
+    private static void assertChangeMaskMatchesTheRegisters(PlayfieldTable table) {
+        List<PlayfieldOutputSection> masked = table.getSections().stream()
+                .filter(section -> section != PlayfieldOutputSection.PFChanges)
+                .toList();
+        byte[] changes = table.getColumn(PlayfieldOutputSection.PFChanges);
+        Map<String, Integer> registers = new HashMap<>();
+        for (int row = table.getRowCount() - 1; row >= 0; row--) {
+            int expected = 0;
+            for (boolean secondHalf : new boolean[]{false, true}) {
+                for (int bit = 0; bit < masked.size(); bit++) {
+                    PlayfieldOutputSection section = masked.get(bit);
+                    if (section.name().endsWith("B") != secondHalf) {
+                        continue;
+                    }
+                    int value = table.getColumn(section)[row] & 0xFF;
+                    if (section == PlayfieldOutputSection.PFColors) {
+                        value = value << 8 | table.getPalColors()[row] & 0xFF;
+                    }
+                    Integer held = registers.put(section.name().substring(0, 3), value);
+                    if (row == table.getRowCount() - 1 || held != value) {
+                        expected |= 1 << bit;
+                    }
+                }
+            }
+            assertEquals(expected, changes[row] & 0xFF, "row " + row);
+            assertEquals(expected, table.getChangedSections(row), "row " + row);
+        }
+    }
+}
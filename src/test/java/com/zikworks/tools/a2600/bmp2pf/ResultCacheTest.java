@@ -0,0 +1,22 @@
+package com.zikworks.tools.a2600.bmp2pf;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ResultCacheTest {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void sharesADirectoryOnlyAtTheSameSize() {
+        ResultCache cache = ResultCache.open(tempDir.resolve("cache"), 1024);
+
+        assertSame(cache, ResultCache.open(tempDir.resolve("other/../cache"), 1024));
+        assertThrows(IllegalArgumentException.class, () -> ResultCache.open(tempDir.resolve("cache"), 2048));
+    }
+}
@@ -0,0 +1,158 @@
+package com.zikworks.tools.a2600.bmp2pf;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TablePackerTest {
+    @Test
+    void storesIdenticalAndContainedTablesOnce() {
+        byte[] data = randomBytes(new Random(1), 100);
+        List<TablePacker.Table> tables = List.of(
+                new TablePacker.Table("Long", data, null),
+                new TablePacker.Table("Same", data.clone(), null),
+                new TablePacker.Table("Inside", Arrays.copyOfRange(data, 20, 60), null));
+
+        TablePacker.Layout layout = new TablePacker().pack(tables);
+
+        assertEquals(1, layout.blobs().size());
+        assertEquals(240, layout.tableBytes());
+        assertEquals(100, layout.getPackedBytes());
+        assertEquals(new TablePacker.Placement("Inside", 0, 20, 40), layout.placements().get(2));
+        assertRebuildsTheTables(tables, layout, true);
+    }
+
+    @Test
+    void overlapsTheEndOfOneTableWithTheStartOfAnother() {
+        byte[] data = randomBytes(new Random(2), 150);
+        List<TablePacker.Table> tables = List.of(
+                new TablePacker.Table("First", Arrays.copyOfRange(data, 0, 100), null),
+                new TablePacker.Table("Second", Arrays.copyOfRange(data, 60, 150), null));
+
+        TablePacker.Layout layout = new TablePacker().pack(tables);
+
+        assertEquals(1, layout.blobs().size());
+        assertEquals(150, layout.getPackedBytes());
+        assertEquals(new TablePacker.Placement("Second", 0, 60, 90), layout.placements().get(1));
+        assertRebuildsTheTables(tables, layout, true);
+    }
+
+    @Test
+    void keepsColorTablesApartFromOtherTables() {
+        byte[] data = randomBytes(new Random(3), 50);
+        byte[] palData = randomBytes(new Random(4), 50);
+        List<TablePacker.Table> tables = List.of(
+                new TablePacker.Table("Data", data, null),
+                new TablePacker.Table("Colors", data.clone(), palData),
+                new TablePacker.Table("OtherColors", data.clone(), randomBytes(new Random(5), 50)));
+
+        TablePacker.Layout layout = new TablePacker().pack(tables);
+
+        assertEquals(3, layout.blobs().size());
+        assertNull(layout.blobs().get(0).palData());
+        assertRebuildsTheTables(tables, layout, true);
+    }
+
+    @Test
+    void doesNotFindATableAcrossAPageOfALongerTable() {
+        // Bytes 200 to 300 of the long table cross from its first page into the second
+        byte[] data = randomBytes(new Random(6), 400);
+        List<TablePacker.Table> tables = List.of(
+                new TablePacker.Table("Long", data, null),
+                new TablePacker.Table("Crossing", Arrays.copyOfRange(data, 200, 300), null),
+                new TablePacker.Table("InPage", Arrays.copyOfRange(data, 280, 380), null));
+
+        TablePacker.Layout layout = new TablePacker().pack(tables);
+
+        assertEquals(new TablePacker.Placement("Crossing", 1, 0, 100), layout.placements().get(1));
+        assertEquals(new TablePacker.Placement("InPage", 0, 280, 100), layout.placements().get(2));
+        assertEquals(500, layout.getPackedBytes());
+        assertRebuildsTheTables(tables, layout, true);
+    }
+
+    @Test
+    void checksTheOffsetOfATableInsideALongTableInsideAnother() {
+        // Middle sits at 100 in Long, so bytes 100 to 200 of Middle cross the second page of Long
+        byte[] data = randomBytes(new Random(7), 700);
+        List<TablePacker.Table> tables = List.of(
+                new TablePacker.Table("Long", data, null),
+                new TablePacker.Table("Middle", Arrays.copyOfRange(data, 100, 500), null),
+                new TablePacker.Table("Crossing", Arrays.copyOfRange(data, 200, 300), null));
+
+        TablePacker.Layout layout = new TablePacker().pack(tables);
+
+        assertEquals(new TablePacker.Placement("Middle", 0, 100, 400), layout.placements().get(1));
+        assertEquals(1, layout.placements().get(2).blob());
+        assertRebuildsTheTables(tables, layout, true);
+    }
+
+    @Test
+    void rebuildsEveryTableFromItsPlacement() {
+        // Tables cut from a few shared sources, so they are often identical,
+        // inside one another or overlapping
+        Random random = new Random(8);
+        List<byte[]> sources = List.of(randomBytes(random, 600), randomBytes(random, 300), new byte[400]);
+        byte[] palSource = randomBytes(random, 600);
+        List<TablePacker.Table> tables = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            int source = random.nextInt(sources.size());
+            byte[] data = sources.get(source);
+            int length = 1 + random.nextInt(i % 10 == 0 ? data.length : 120);
+            int start = random.nextInt(data.length - length + 1);
+            byte[] palData = source == 0 && i % 3 == 0 ? Arrays.copyOfRange(palSource, start, start + length) : null;
+            tables.add(new TablePacker.Table("Table" + i, Arrays.copyOfRange(data, start, start + length), palData));
+        }
+
+        for (int maxBlobSize : new int[]{TablePacker.PAGE_SIZE, 0}) {
+            TablePacker.Layout layout = new TablePacker(maxBlobSize).pack(tables);
+
+            assertTrue(layout.getPackedBytes() < layout.tableBytes());
+            assertRebuildsTheTables(tables, layout, maxBlobSize == TablePacker.PAGE_SIZE);
+        }
+    }
+
+    /**
+     * Check every table can be read back from its placement, and, when the
+     * blobs are kept within a page, that with blobs aligned like the output
+     * does none that fits in a page crosses one.
+     */
+    private static void assertRebuildsTheTables(List<TablePacker.Table> tables, TablePacker.Layout layout,
+                                                boolean inPages) {
+        assertEquals(tables.size(), layout.placements().size());
+        for (int i = 0; i < tables.size(); i++) {
+            TablePacker.Table table = tables.get(i);
+            TablePacker.Placement placement = layout.placements().get(i);
+            TablePacker.Blob blob = layout.blobs().get(placement.blob());
+            int end = placement.offset() + placement.length();
+
+            assertEquals(table.label(), placement.label());
+            assertEquals(table.data().length, placement.length(), table.label());
+            assertArrayEquals(table.data(), Arrays.copyOfRange(blob.data(), placement.offset(), end), table.label());
+            if (table.palData() == null) {
+                assertNull(blob.palData(), table.label());
+            } else {
+                assertArrayEquals(table.palData(), Arrays.copyOfRange(blob.palData(), placement.offset(), end),
+                        table.label());
+            }
+            if (inPages && placement.length() <= TablePacker.PAGE_SIZE
+                    && blob.data().length > TablePacker.PAGE_SIZE) {
+                assertEquals(placement.offset() / TablePacker.PAGE_SIZE, (end - 1) / TablePacker.PAGE_SIZE,
+                        table.label());
+            }
+        }
+    }
+
+    private static byte[] randomBytes(Random random, int length) {
+        byte[] data = new byte[length];
+        random.nextBytes(data);
+        return data;
+    }
+}
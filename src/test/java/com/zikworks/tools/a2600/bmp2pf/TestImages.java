@@ -0,0 +1,72 @@
+package com.zikworks.tools.a2600.bmp2pf;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.file.Path;
+
+/**
+ * Loads the test images and builds new ones from their rows.
+ */
+public final class TestImages {
+    private TestImages() {
+    }
+
+    /**
+     * Get the path of a test resource.
+     *
+     * @param resource Path of the resource under the test resources, like symmetrical/normal-32bit.bmp
+     * @return Path of the resource file
+     */
+    public static Path path(String resource) {
+        URL url = TestImages.class.getResource("/" + resource);
+        if (url == null) {
+            throw new IllegalArgumentException("No test resource " + resource);
+        }
+        try {
+            return Path.of(url.toURI());
+        } catch (URISyntaxException ex) {
+            throw new IllegalArgumentException("Invalid test resource " + resource, ex);
+        }
+    }
+
+    /**
+     * Read a test image.
+     *
+     * @param resource Path of the image under the test resources, like symmetrical/normal-32bit.bmp
+     * @return Decoded image
+     */
+    public static BufferedImage read(String resource) {
+        try (InputStream inputStream = TestImages.class.getResourceAsStream("/" + resource)) {
+            if (inputStream == null) {
+                throw new IllegalArgumentException("No test image " + resource);
+            }
+            return ImageIO.read(inputStream);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    /**
+     * Build a taller image from the rows of an image.  Rows are taken in a
+     * shuffled order, so that neighbouring rows of the new image differ.
+     *
+     * @param image  Image to take the rows from
+     * @param height Height of the new image
+     * @return New image of the same width
+     */
+    public static BufferedImage stack(BufferedImage image, int height) {
+        BufferedImage tall = new BufferedImage(image.getWidth(), height, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < height; y++) {
+            int sourceY = (int) ((y * 7L + y / image.getHeight()) % image.getHeight());
+            for (int x = 0; x < image.getWidth(); x++) {
+                tall.setRGB(x, y, image.getRGB(x, sourceY));
+            }
+        }
+        return tall;
+    }
+}
@@ -0,0 +1,115 @@
+package com.zikworks.tools.a2600.bmp2pf.impl;
+
+import com.zikworks.tools.a2600.bmp2pf.PlayfieldGenerator;
+import com.zikworks.tools.a2600.bmp2pf.TestImages;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BmpScanlineSourceTest {
+    private static final int HEADERS_SIZE = 54;
+
+    @TempDir
+    Path tempDir;
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "symmetrical/normal-24bit.bmp",
+            "symmetrical/normal-32bit.bmp",
+            "asymmetrical/fullscale-32bit.bmp"
+    })
+    void readsTheSameRowsAsImageIO(String resource) throws IOException {
+        BufferedImage image = TestImages.read(resource);
+
+        try (BmpScanlineSource source = BmpScanlineSource.open(TestImages.path(resource))) {
+            assertNotNull(source);
+            assertEquals(image.getWidth(), source.getWidth());
+            assertEquals(image.getHeight(), source.getHeight());
+            int[] row = new int[source.getWidth()];
+            for (int y = 0; y < source.getHeight(); y++) {
+                assertArrayEquals(image.getRGB(0, y, image.getWidth(), 1, null, 0, image.getWidth()),
+                        source.readRow(y, row), "row " + y);
+            }
+        }
+    }
+
+    /**
+     * Headers whose rows do not fit in the file are rejected before any
+     * buffer is sized from them, from a file, from memory and by a check.
+     */
+    @ParameterizedTest
+    @CsvSource({
+            // A stride past an int, which used to wrap and divide by zero
+            "32, 134217728, 1, 0",
+            // A row buffer of 200 million pixels
+            "24, 200000000, 1, 0",
+            // A table of 2 billion rows
+            "24, 40, 2000000000, 0",
+            // Top-down rows
+            "32, 40, -2000000000, 0",
+            // One row short
+            "24, 40, 3, 2"
+    })
+    void rejectsHeadersTheFileIsTooShortFor(int bitCount, int width, int height, int rows) throws IOException {
+        byte[] bmp = createBmp(bitCount, width, height, rows);
+        Path path = Files.write(tempDir.resolve("image.bmp"), bmp);
+
+        assertThrows(IOException.class, () -> BmpScanlineSource.open(path));
+        assertThrows(IOException.class, () -> BmpScanlineSource.open(ByteBuffer.wrap(bmp)));
+        assertThrows(IOException.class, () -> ImageHeader.read(path));
+    }
+
+    @Test
+    void rejectsAHeightWithNoRowCount() throws IOException {
+        Path path = Files.write(tempDir.resolve("image.bmp"), createBmp(24, 40, Integer.MIN_VALUE, 1));
+
+        IOException ex = assertThrows(IOException.class, () -> BmpScanlineSource.open(path));
+        assertTrue(ex.getMessage().contains("height"), ex.getMessage());
+    }
+
+    @Test
+    void rejectsAWideImageBeforeReadingItsRows() throws IOException {
+        // The file holds every row, so the width check is what rejects it
+        Path path = Files.write(tempDir.resolve("image.bmp"), createBmp(24, 1_000_000, 1, 1));
+
+        IOException ex = assertThrows(IOException.class,
+                () -> PlayfieldGenerator.builder().withQuiet(true).build().convert(path));
+        assertTrue(ex.getMessage().contains("required image width=20"), ex.getMessage());
+    }
+
+    /**
+     * Create an uncompressed BMP file with a 40-byte info header, holding
+     * a number of rows of black pixels whatever height its header says.
+     */
+    private static byte[] createBmp(int bitCount, int width, int height, int rows) {
+        int dataSize = Math.toIntExact(((long) bitCount * width + 31) / 32 * 4 * rows);
+        ByteBuffer buffer = ByteBuffer.allocate(HEADERS_SIZE + dataSize).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.put((byte) 'B').put((byte) 'M')
+                .putInt(buffer.capacity())
+                .putInt(0)
+                .putInt(HEADERS_SIZE)
+                .putInt(40)
+                .putInt(width)
+                .putInt(height)
+                .putShort((short) 1)
+                .putShort((short) bitCount)
+                .putInt(0)
+                .putInt(dataSize);
+        return buffer.array();
+    }
+}
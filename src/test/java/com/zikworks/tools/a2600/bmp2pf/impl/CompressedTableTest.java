@@ -0,0 +1,122 @@
+package com.zikworks.tools.a2600.bmp2pf.impl;
+
+import com.zikworks.tools.a2600.bmp2pf.PlayfieldGenerator;
+import com.zikworks.tools.a2600.bmp2pf.PlayfieldGeneratorBuilder.Compression;
+import com.zikworks.tools.a2600.bmp2pf.PlayfieldGeneratorBuilder.GeneratorMode;
+import com.zikworks.tools.a2600.bmp2pf.PlayfieldOutputSection;
+import com.zikworks.tools.a2600.bmp2pf.PlayfieldTable;
+import com.zikworks.tools.a2600.bmp2pf.TestImages;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CompressedTableTest {
+    /**
+     * Reading every row through the index must give back the rows of the
+     * table that was compressed, in the same order.
+     */
+    @ParameterizedTest
+    @CsvSource({
+            "symmetrical/normal-32bit.bmp, SYMMETRICAL, 0, false, ROWS",
+            "symmetrical/normal-32bit.bmp, SYMMETRICAL, 0, false, RUNS",
+            "symmetrical/normal-24bit.bmp, SYMMETRICAL, 500, true, ROWS",
+            "symmetrical/normal-24bit.bmp, SYMMETRICAL, 500, true, RUNS",
+            "asymmetrical/normal-32bit.bmp, ASYMMETRICAL, 0, false, ROWS",
+            "asymmetrical/normal-32bit.bmp, ASYMMETRICAL, 300, false, RUNS"
+    })
+    void expandsBackToTheOriginalRows(String resource, GeneratorMode mode, int height, boolean excludeColor,
+                                      Compression compression) throws IOException {
+        BufferedImage image = TestImages.read(resource);
+        if (height > 0) {
+            image = TestImages.stack(image, height);
+        }
+        PlayfieldTable table = PlayfieldGenerator.builder()
+                .withGeneratorMode(mode)
+                .withExcludeColor(excludeColor)
+                .withQuiet(true)
+                .build()
+                .convert(image)
+                .getTable();
+
+        CompressedTable compressed = CompressedTable.compress(table, compression);
+
+        assertEquals(compression, compressed.getCompression());
+        assertEquals(table.getSections(), compressed.getEntries().getSections());
+        assertTrue(compressed.getEntries().getRowCount() <= table.getRowCount());
+        assertEquals(table.getRowCount() * table.getSections().size(), compressed.getTableBytes());
+        for (PlayfieldOutputSection section : table.getSections()) {
+            assertArrayEquals(table.getColumn(section),
+                    expand(compressed, compressed.getEntries().getColumn(section)), section.name());
+        }
+        if (table.getPalColors() == null) {
+            assertNull(compressed.getEntries().getPalColors());
+        } else {
+            assertArrayEquals(table.getPalColors(), expand(compressed, compressed.getEntries().getPalColors()),
+                    "PAL colors");
+        }
+    }
+
+    @Test
+    void splitsRunsLongerThanARunLengthByte() throws IOException {
+        int rowCount = 2 * CompressedTable.MAX_RUN_LENGTH + 10;
+        PlayfieldTable table = new PlayfieldTable(List.of(PlayfieldOutputSection.PF0DataA), true, rowCount, 0);
+
+        CompressedTable compressed = CompressedTable.compress(table, Compression.RUNS);
+
+        byte maxRun = (byte) CompressedTable.MAX_RUN_LENGTH;
+        assertArrayEquals(new byte[]{maxRun, maxRun, 10}, compressed.getIndex());
+        assertEquals(3, compressed.getEntries().getRowCount());
+    }
+
+    @Test
+    void rejectsMoreDistinctRowsThanARowIndexCanPointTo() {
+        int rowCount = CompressedTable.MAX_INDEXED_ROWS + 1;
+        PlayfieldTable table = new PlayfieldTable(List.of(PlayfieldOutputSection.PF0DataA,
+                PlayfieldOutputSection.PF1DataA), true, rowCount, 0);
+        for (int row = 0; row < rowCount; row++) {
+            table.set(PlayfieldOutputSection.PF0DataA, row, row);
+            table.set(PlayfieldOutputSection.PF1DataA, row, row >> 8);
+        }
+
+        assertThrows(IOException.class, () -> CompressedTable.compress(table, Compression.ROWS));
+    }
+
+    /**
+     * Expand a column of entries to a column with a value per row, the way a
+     * kernel reads it through the index table.
+     */
+    private static byte[] expand(CompressedTable compressed, byte[] entries) {
+        byte[] index = compressed.getIndex();
+        if (compressed.getCompression() == Compression.ROWS) {
+            byte[] rows = new byte[index.length];
+            for (int row = 0; row < rows.length; row++) {
+                rows[row] = entries[index[row] & 0xFF];
+            }
+            return rows;
+        }
+
+        assertEquals(index.length, entries.length);
+        int rowCount = 0;
+        for (byte runLength : index) {
+            rowCount += runLength & 0xFF;
+        }
+        byte[] rows = new byte[rowCount];
+        int row = 0;
+        for (int run = 0; run < index.length; run++) {
+            for (int i = 0; i < (index[run] & 0xFF); i++) {
+                rows[row++] = entries[run];
+            }
+        }
+        return rows;
+    }
+}
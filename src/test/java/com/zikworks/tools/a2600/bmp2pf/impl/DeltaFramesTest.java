@@ -0,0 +1,164 @@
+package com.zikworks.tools.a2600.bmp2pf.impl;
+
+import com.zikworks.tools.a2600.bmp2pf.PlayfieldOutputSection;
+import com.zikworks.tools.a2600.bmp2pf.PlayfieldTable;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DeltaFramesTest {
+    private static final List<PlayfieldOutputSection> SYMMETRICAL_SECTIONS = List.of(
+            PlayfieldOutputSection.PF0DataA, PlayfieldOutputSection.PF1DataA, PlayfieldOutputSection.PF2DataA);
+    private static final List<PlayfieldOutputSection> ASYMMETRICAL_SECTIONS = List.of(
+            PlayfieldOutputSection.PF0DataA, PlayfieldOutputSection.PF1DataA, PlayfieldOutputSection.PF2DataA,
+            PlayfieldOutputSection.PF0DataB, PlayfieldOutputSection.PF1DataB, PlayfieldOutputSection.PF2DataB);
+
+    /**
+     * Applying each frame's patch list to a RAM copy of the first frame must
+     * give every frame in turn, and then the first frame again.
+     */
+    @ParameterizedTest
+    @CsvSource({
+            "false, false, 16, 5, 1000",
+            "false, true, 32, 8, 200",
+            "true, false, 20, 4, 61",
+            "true, true, 36, 6, 4000"
+    })
+    void patchesRebuildEveryFrame(boolean asymmetrical, boolean excludeColor, int rowCount, int frameCount,
+                                  int cycleBudget) throws IOException {
+        List<PlayfieldTable> frames = createFrames(new Random(rowCount), asymmetrical ? ASYMMETRICAL_SECTIONS
+                : SYMMETRICAL_SECTIONS, excludeColor, rowCount, frameCount);
+
+        DeltaFrames delta = DeltaFrames.encode(frames, cycleBudget);
+
+        List<PlayfieldOutputSection> sections = frames.getFirst().getSections();
+        assertEquals(rowCount * sections.size(), delta.getRamBytes());
+        assertEquals(DeltaFrames.getStepPatches(cycleBudget), delta.getStepPatches());
+        assertTrue(delta.getStepCycles() <= cycleBudget);
+
+        byte[] ram = toRam(frames.getFirst());
+        byte[] palRam = toPalRam(frames.getFirst());
+        for (int i = 1; i <= frameCount; i++) {
+            PlayfieldTable frame = frames.get(i % frameCount);
+            int lastRow = rowCount;
+            for (List<DeltaFrames.Patch> step : delta.getSteps(i % frameCount)) {
+                assertTrue(!step.isEmpty() && step.size() <= delta.getStepPatches());
+                for (DeltaFrames.Patch patch : step) {
+                    int row = patch.offset() % rowCount;
+                    assertTrue(row <= lastRow, "patches go from the top of the playfield down");
+                    assertEquals(sections.get(patch.offset() / rowCount), patch.section());
+                    lastRow = row;
+                    ram[patch.offset()] = (byte) patch.value();
+                    if (patch.section() == PlayfieldOutputSection.PFColors) {
+                        palRam[row] = (byte) patch.palValue();
+                    }
+                }
+            }
+            assertArrayEquals(toRam(frame), ram, "frame " + i % frameCount);
+            assertArrayEquals(toPalRam(frame), palRam, "PAL colors of frame " + i % frameCount);
+        }
+    }
+
+    @Test
+    void onlyPatchesTheBytesThatChange() throws IOException {
+        PlayfieldTable first = new PlayfieldTable(SYMMETRICAL_SECTIONS, false, 8, 0);
+        PlayfieldTable second = new PlayfieldTable(SYMMETRICAL_SECTIONS, false, 8, 0);
+        second.set(PlayfieldOutputSection.PF1DataA, 2, 0x55);
+        second.getPalColors()[6] = 0x34;
+
+        DeltaFrames delta = DeltaFrames.encode(List.of(first, second), 1000);
+
+        assertEquals(List.of(List.of(
+                new DeltaFrames.Patch(3 * 8 + 6, PlayfieldOutputSection.PFColors, 0, 0x34),
+                new DeltaFrames.Patch(8 + 2, PlayfieldOutputSection.PF1DataA, 0x55, 0))), delta.getSteps(1));
+        assertEquals(List.of(List.of(
+                new DeltaFrames.Patch(3 * 8 + 6, PlayfieldOutputSection.PFColors, 0, 0),
+                new DeltaFrames.Patch(8 + 2, PlayfieldOutputSection.PF1DataA, 0, 0))), delta.getSteps(0));
+        assertEquals(2 * (1 + 2 * 2 + 1), delta.getPatchBytes());
+    }
+
+    @Test
+    void rejectsTablesLargerThanThePatchableRam() {
+        List<PlayfieldTable> frames = List.of(new PlayfieldTable(SYMMETRICAL_SECTIONS, false, 65, 0));
+
+        assertThrows(IOException.class, () -> DeltaFrames.encode(frames, 1000));
+    }
+
+    @Test
+    void fitsStepsToTheCycleBudget() {
+        assertThrows(IllegalArgumentException.class, () -> DeltaFrames.getStepPatches(
+                DeltaFrames.STEP_CYCLES + DeltaFrames.PATCH_CYCLES - 1));
+        assertEquals(1, DeltaFrames.getStepPatches(DeltaFrames.STEP_CYCLES + DeltaFrames.PATCH_CYCLES));
+        assertEquals(3, DeltaFrames.getStepPatches(DeltaFrames.STEP_CYCLES + 4 * DeltaFrames.PATCH_CYCLES - 1));
+        assertEquals(DeltaFrames.MAX_STEP_PATCHES, DeltaFrames.getStepPatches(100_000));
+    }
+
+    /**
+     * Create frames that each change a few rows of the one before, with
+     * the odd frame changing most of them.
+     */
+    private static List<PlayfieldTable> createFrames(Random random, List<PlayfieldOutputSection> registerSections,
+                                                     boolean excludeColor, int rowCount, int frameCount) {
+        List<PlayfieldTable> frames = new ArrayList<>();
+        PlayfieldTable previous = null;
+        for (int i = 0; i < frameCount; i++) {
+            PlayfieldTable frame = new PlayfieldTable(registerSections, excludeColor, rowCount, 0);
+            int changes = i == 2 ? rowCount * 4 : 1 + random.nextInt(rowCount / 2);
+            for (PlayfieldOutputSection section : frame.getSections()) {
+                byte[] column = frame.getColumn(section);
+                if (previous == null) {
+                    random.nextBytes(column);
+                } else {
+                    System.arraycopy(previous.getColumn(section), 0, column, 0, rowCount);
+                }
+            }
+            if (frame.getPalColors() != null) {
+                if (previous == null) {
+                    random.nextBytes(frame.getPalColors());
+                } else {
+                    System.arraycopy(previous.getPalColors(), 0, frame.getPalColors(), 0, rowCount);
+                }
+            }
+            for (int change = 0; previous != null && change < changes; change++) {
+                int row = random.nextInt(rowCount);
+                List<PlayfieldOutputSection> sections = frame.getSections();
+                PlayfieldOutputSection section = sections.get(random.nextInt(sections.size()));
+                if (section == PlayfieldOutputSection.PFColors && random.nextBoolean()) {
+                    frame.getPalColors()[row] = (byte) random.nextInt(256);
+                } else {
+                    frame.getColumn(section)[row] = (byte) random.nextInt(256);
+                }
+            }
+            frames.add(frame);
+            previous = frame;
+        }
+        return frames;
+    }
+
+    /**
+     * Lay out the tables of a frame the way they are copied to RAM, one
+     * after the other.
+     */
+    private static byte[] toRam(PlayfieldTable frame) {
+        List<PlayfieldOutputSection> sections = frame.getSections();
+        byte[] ram = new byte[frame.getRowCount() * sections.size()];
+        for (int s = 0; s < sections.size(); s++) {
+            System.arraycopy(frame.getColumn(sections.get(s)), 0, ram, s * frame.getRowCount(), frame.getRowCount());
+        }
+        return ram;
+    }
+
+    private static byte[] toPalRam(PlayfieldTable frame) {
+        return frame.getPalColors() == null ? new byte[0] : frame.getPalColors().clone();
+    }
+}
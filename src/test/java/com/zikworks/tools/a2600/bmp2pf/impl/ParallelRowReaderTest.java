@@ -0,0 +1,77 @@
+package com.zikworks.tools.a2600.bmp2pf.impl;
+
+import com.zikworks.tools.a2600.bmp2pf.BitmapImageReader;
+import com.zikworks.tools.a2600.bmp2pf.ConversionStats;
+import com.zikworks.tools.a2600.bmp2pf.PlayfieldGenerator;
+import com.zikworks.tools.a2600.bmp2pf.PlayfieldGeneratorBuilder;
+import com.zikworks.tools.a2600.bmp2pf.PlayfieldGeneratorBuilder.GeneratorMode;
+import com.zikworks.tools.a2600.bmp2pf.PlayfieldOutputSection;
+import com.zikworks.tools.a2600.bmp2pf.PlayfieldTable;
+import com.zikworks.tools.a2600.bmp2pf.ScanlineSource;
+import com.zikworks.tools.a2600.bmp2pf.TestImages;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ParallelRowReaderTest {
+    /**
+     * Reading the rows of a tall image in blocks must fill the table exactly
+     * like reading them one at a time.  The reader is called directly, so
+     * the blocks are used whatever the number of cores.
+     */
+    @ParameterizedTest
+    @CsvSource({
+            "symmetrical/normal-32bit.bmp, SYMMETRICAL, false, 1, 0",
+            "symmetrical/fullscale-24bit.bmp, SYMMETRICAL, true, 2, 3",
+            "asymmetrical/normal-32bit.bmp, ASYMMETRICAL, false, 3, 0",
+            "asymmetrical/fullscale-32bit.bmp, ASYMMETRICAL, true, 1, 0"
+    })
+    void readsTheSameRowsAsTheSequentialPath(String resource, GeneratorMode mode, boolean fullScale,
+                                             int kernelLines, int outputBufferLines) throws IOException {
+        BufferedImage image = TestImages.stack(TestImages.read(resource),
+                (2 * ParallelRowReader.BLOCK_LINES + 123) * kernelLines);
+        PlayfieldGeneratorBuilder builder = PlayfieldGenerator.builder()
+                .withGeneratorMode(mode)
+                .withFullScale(fullScale)
+                .withKernelLines(kernelLines)
+                .withCollisionLines(kernelLines)
+                .withOutputBufferLines(outputBufferLines)
+                .withQuiet(true);
+        PlayfieldTable expected = builder.build().convert(image).getTable();
+
+        LayoutPlayfieldLineDataParser parser = new LayoutPlayfieldLineDataParser(builder.getLayout());
+        PlayfieldTable actual = new PlayfieldTable(parser.getOutputSections(), false, expected.getRowCount(),
+                builder.getCollisionLines());
+        ParallelRowReader reader = new ParallelRowReader(parser, scanlineSource -> createReader(
+                scanlineSource, fullScale, kernelLines));
+        int lineCount = image.getHeight() / kernelLines;
+        for (int row = 0; row < outputBufferLines; row++) {
+            PlayfieldLineData lineData = new PlayfieldLineData()
+                    .withBits(0, parser.getExpectedWidth())
+                    .withCollisions(0, parser.getExpectedWidth());
+            parser.parseLineData(lineData, actual, row);
+            actual.setLineData(row, lineData);
+        }
+        reader.readRows(new BufferedImageScanlineSource(image), lineCount, actual, outputBufferLines,
+                new ConversionStats(false, resource, null));
+
+        assertEquals(expected.getSections(), actual.getSections());
+        for (PlayfieldOutputSection section : expected.getSections()) {
+            assertArrayEquals(expected.getColumn(section), actual.getColumn(section), section.name());
+        }
+        assertArrayEquals(expected.getPalColors(), actual.getPalColors(), "PAL colors");
+        assertArrayEquals(expected.getColumn(PlayfieldOutputSection.PFCollision),
+                actual.getColumn(PlayfieldOutputSection.PFCollision), "collisions");
+    }
+
+    private static BitmapImageReader createReader(ScanlineSource scanlineSource, boolean fullScale, int kernelLines) {
+        return fullScale
+                ? new WideBitmapImageReader(scanlineSource, kernelLines)
+                : new NarrowBitmapImageReader(scanlineSource, kernelLines);
+    }
+}
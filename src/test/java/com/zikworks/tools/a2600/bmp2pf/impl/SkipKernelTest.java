@@ -0,0 +1,51 @@
+package com.zikworks.tools.a2600.bmp2pf.impl;
+
+import com.zikworks.tools.a2600.bmp2pf.PlayfieldLayout;
+import com.zikworks.tools.a2600.bmp2pf.PlayfieldOutputSection;
+import com.zikworks.tools.a2600.bmp2pf.PlayfieldTable;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SkipKernelTest {
+    @Test
+    void storesTheFirstHalfRegistersAndColorsOfASymmetricalPlayfield() {
+        PlayfieldTable table = new PlayfieldTable(List.of(PlayfieldOutputSection.PF0DataA,
+                PlayfieldOutputSection.PF1DataA, PlayfieldOutputSection.PF2DataA), false, true, 4, 0,
+                PlayfieldLayout.MAX_WIDTH);
+
+        assertEquals(List.of(PlayfieldOutputSection.PF0DataA, PlayfieldOutputSection.PF1DataA,
+                PlayfieldOutputSection.PF2DataA, PlayfieldOutputSection.PFColors), SkipKernel.getMaskedSections(table));
+        assertEquals(0b1111, SkipKernel.getStoredBits(table));
+    }
+
+    @Test
+    void storesFirstHalfRegistersTheSecondHalfOfTheRowAboveChanged() {
+        PlayfieldTable table = new PlayfieldTable(List.of(PlayfieldOutputSection.PF0DataA,
+                PlayfieldOutputSection.PF1DataA, PlayfieldOutputSection.PF2DataA, PlayfieldOutputSection.PF0DataB,
+                PlayfieldOutputSection.PF1DataB, PlayfieldOutputSection.PF2DataB), false, true, 2, 0,
+                PlayfieldLayout.MAX_WIDTH);
+        // Each row draws PF1 as 0x11 on the left and 0x22 on the right, so every line needs both stores
+        for (int row = 0; row < 2; row++) {
+            table.set(PlayfieldOutputSection.PF1DataA, row, 0x11);
+            table.set(PlayfieldOutputSection.PF1DataB, row, 0x22);
+            table.set(PlayfieldOutputSection.PF2DataA, row, 0x33);
+            table.set(PlayfieldOutputSection.PF2DataB, row, 0x33);
+        }
+
+        // The routines store the A registers and COLUPF, the kernel the B registers
+        assertEquals(0b1000111, SkipKernel.getStoredBits(table));
+        assertEquals(0b1000111, SkipKernel.getStoreMask(table, 1));
+        assertEquals(0b0000010, SkipKernel.getStoreMask(table, 0));
+    }
+
+    @Test
+    void leavesOutColorsThatAreNotWritten() {
+        PlayfieldTable table = new PlayfieldTable(List.of(PlayfieldOutputSection.PF1DataA,
+                PlayfieldOutputSection.PF2DataA), true, true, 4, 0, PlayfieldLayout.MAX_WIDTH);
+
+        assertEquals(0b11, SkipKernel.getStoredBits(table));
+    }
+}
@@ -0,0 +1,199 @@
+PLAYFIELD_HEIGHT = 60
+
+    if >. != >[.+(PLAYFIELD_HEIGHT)]
+        align 256
+    endif
+
+PF0DataA
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %01000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %10000000
+    .byte %00010000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %10000000
+    .byte %00010000
+
+    if >. != >[.+(PLAYFIELD_HEIGHT)]
+        align 256
+    endif
+
+PF1DataA
+    .byte %00000000
+    .byte %00000000
+    .byte %00000001
+    .byte %00001000
+    .byte %01000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000100
+    .byte %00100000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000100
+    .byte %00100000
+    .byte %00000000
+    .byte %00000000
+
+    if >. != >[.+(PLAYFIELD_HEIGHT)]
+        align 256
+    endif
+
+PF2DataA
+    .byte %00100000
+    .byte %00000100
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %01000000
+    .byte %00001000
+    .byte %00000001
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %01000000
+    .byte %00001000
+    .byte %00000001
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00100000
+
+    if >. != >[.+(PLAYFIELD_HEIGHT)]
+        align 256
+    endif
+
+PF0DataB
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00100000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00100000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %10000000
+    .byte %00010000
+    .byte %00000000
+
+    if >. != >[.+(PLAYFIELD_HEIGHT)]
+        align 256
+    endif
+
+PF1DataB
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000010
+    .byte %00010000
+    .byte %10000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000010
+    .byte %00010000
+    .byte %10000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000100
+    .byte %00100000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+
+    if >. != >[.+(PLAYFIELD_HEIGHT)]
+        align 256
+    endif
+
+PF2DataB
+    .byte %10000000
+    .byte %00010000
+    .byte %00000010
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %10000000
+    .byte %00010000
+    .byte %00000010
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %01000000
+    .byte %00001000
+    .byte %00000001
+    .byte %00000000
+    .byte %00000000
+    .byte %01000000
+    .byte %00001000
+    .byte %00000001
+
+    if >. != >[.+(PLAYFIELD_HEIGHT)]
+        align 256
+    endif
+
+PFColors
+   .byte $4e ; $ae
+   .byte $4e ; $ae
+   .byte $4e ; $ae
+   .byte $4e ; $ae
+   .byte $4e ; $ae
+   .byte $4e ; $ae
+   .byte $4e ; $ae
+   .byte $4e ; $ae
+   .byte $4e ; $ae
+   .byte $4e ; $ae
+   .byte $4e ; $ae
+   .byte $4e ; $ae
+   .byte $4e ; $ae
+   .byte $4e ; $ae
+   .byte $ae ; $4e
+   .byte $ae ; $4e
+   .byte $ae ; $4e
+   .byte $ae ; $4e
+   .byte $ae ; $4e
+   .byte $ae ; $4e
+
+    if >. != >[.+(PLAYFIELD_HEIGHT)]
+        align 256
+    endif
+
+PFCollision0
+   .byte %00000000, %00000010, %00000000, %00000000, %00001000
+   .byte %00000000, %00000000, %00100000, %00000000, %00001000
+   .byte %10000000, %00000000, %00100000, %00000000, %00010000
+   .byte %10000000, %00000000, %01000000, %00000000, %10000000
+
+PFCollision_Lo
+    .byte #<PFCollision0
+
+PFCollision_Hi
+    .byte #>PFCollision0
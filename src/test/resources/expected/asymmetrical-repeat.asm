@@ -0,0 +1,556 @@
+PLAYFIELD_HEIGHT = 60
+
+    if >. != >[.+(PLAYFIELD_HEIGHT)]
+        align 256
+    endif
+
+PF0DataA
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %10000000
+    .byte %01000000
+    .byte %00100000
+    .byte %00010000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %10000000
+    .byte %01000000
+    .byte %00100000
+    .byte %00010000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %10000000
+    .byte %01000000
+    .byte %00100000
+    .byte %00010000
+
+    if >. != >[.+(PLAYFIELD_HEIGHT)]
+        align 256
+    endif
+
+PF1DataA
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000001
+    .byte %00000010
+    .byte %00000100
+    .byte %00001000
+    .byte %00010000
+    .byte %00100000
+    .byte %01000000
+    .byte %10000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000001
+    .byte %00000010
+    .byte %00000100
+    .byte %00001000
+    .byte %00010000
+    .byte %00100000
+    .byte %01000000
+    .byte %10000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000001
+    .byte %00000010
+    .byte %00000100
+    .byte %00001000
+    .byte %00010000
+    .byte %00100000
+    .byte %01000000
+    .byte %10000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+
+    if >. != >[.+(PLAYFIELD_HEIGHT)]
+        align 256
+    endif
+
+PF2DataA
+    .byte %10000000
+    .byte %01000000
+    .byte %00100000
+    .byte %00010000
+    .byte %00001000
+    .byte %00000100
+    .byte %00000010
+    .byte %00000001
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %10000000
+    .byte %01000000
+    .byte %00100000
+    .byte %00010000
+    .byte %00001000
+    .byte %00000100
+    .byte %00000010
+    .byte %00000001
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %10000000
+    .byte %01000000
+    .byte %00100000
+    .byte %00010000
+    .byte %00001000
+    .byte %00000100
+    .byte %00000010
+    .byte %00000001
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %10000000
+    .byte %01000000
+    .byte %00100000
+
+    if >. != >[.+(PLAYFIELD_HEIGHT)]
+        align 256
+    endif
+
+PF0DataB
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %10000000
+    .byte %01000000
+    .byte %00100000
+    .byte %00010000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %10000000
+    .byte %01000000
+    .byte %00100000
+    .byte %00010000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %10000000
+    .byte %01000000
+    .byte %00100000
+    .byte %00010000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+
+    if >. != >[.+(PLAYFIELD_HEIGHT)]
+        align 256
+    endif
+
+PF1DataB
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000001
+    .byte %00000010
+    .byte %00000100
+    .byte %00001000
+    .byte %00010000
+    .byte %00100000
+    .byte %01000000
+    .byte %10000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000001
+    .byte %00000010
+    .byte %00000100
+    .byte %00001000
+    .byte %00010000
+    .byte %00100000
+    .byte %01000000
+    .byte %10000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000001
+    .byte %00000010
+    .byte %00000100
+    .byte %00001000
+    .byte %00010000
+    .byte %00100000
+    .byte %01000000
+    .byte %10000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+
+    if >. != >[.+(PLAYFIELD_HEIGHT)]
+        align 256
+    endif
+
+PF2DataB
+    .byte %00000000
+    .byte %00000000
+    .byte %10000000
+    .byte %01000000
+    .byte %00100000
+    .byte %00010000
+    .byte %00001000
+    .byte %00000100
+    .byte %00000010
+    .byte %00000001
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %10000000
+    .byte %01000000
+    .byte %00100000
+    .byte %00010000
+    .byte %00001000
+    .byte %00000100
+    .byte %00000010
+    .byte %00000001
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %10000000
+    .byte %01000000
+    .byte %00100000
+    .byte %00010000
+    .byte %00001000
+    .byte %00000100
+    .byte %00000010
+    .byte %00000001
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %10000000
+    .byte %01000000
+    .byte %00100000
+    .byte %00010000
+    .byte %00001000
+    .byte %00000100
+    .byte %00000010
+    .byte %00000001
+
+    if >. != >[.+(PLAYFIELD_HEIGHT)]
+        align 256
+    endif
+
+PFColors
+   .byte $4e ; $ae
+   .byte $4e ; $ae
+   .byte $4e ; $ae
+   .byte $4e ; $ae
+   .byte $4e ; $ae
+   .byte $4e ; $ae
+   .byte $4e ; $ae
+   .byte $4e ; $ae
+   .byte $4e ; $ae
+   .byte $4e ; $ae
+   .byte $4e ; $ae
+   .byte $4e ; $ae
+   .byte $4e ; $ae
+   .byte $4e ; $ae
+   .byte $4e ; $ae
+   .byte $4e ; $ae
+   .byte $4e ; $ae
+   .byte $4e ; $ae
+   .byte $4e ; $ae
+   .byte $4e ; $ae
+   .byte $4e ; $ae
+   .byte $4e ; $ae
+   .byte $4e ; $ae
+   .byte $4e ; $ae
+   .byte $4e ; $ae
+   .byte $4e ; $ae
+   .byte $4e ; $ae
+   .byte $4e ; $ae
+   .byte $4e ; $ae
+   .byte $4e ; $ae
+   .byte $4e ; $ae
+   .byte $4e ; $ae
+   .byte $4e ; $ae
+   .byte $4e ; $ae
+   .byte $4e ; $ae
+   .byte $4e ; $ae
+   .byte $4e ; $ae
+   .byte $4e ; $ae
+   .byte $4e ; $ae
+   .byte $4e ; $ae
+   .byte $4e ; $ae
+   .byte $4e ; $ae
+   .byte $ae ; $4e
+   .byte $ae ; $4e
+   .byte $ae ; $4e
+   .byte $ae ; $4e
+   .byte $ae ; $4e
+   .byte $ae ; $4e
+   .byte $ae ; $4e
+   .byte $ae ; $4e
+   .byte $ae ; $4e
+   .byte $ae ; $4e
+   .byte $ae ; $4e
+   .byte $ae ; $4e
+   .byte $ae ; $4e
+   .byte $ae ; $4e
+   .byte $ae ; $4e
+   .byte $ae ; $4e
+   .byte $ae ; $4e
+   .byte $ae ; $4e
+
+    if >. != >[.+(PLAYFIELD_HEIGHT)]
+        align 256
+    endif
+
+PFCollision0
+   .byte %00000000, %00000000, %00010000, %00000000, %00000000
+   .byte %00000000, %00000000, %00100000, %00000000, %00000000
+   .byte %00000000, %00000000, %01000000, %00000000, %00000001
+   .byte %00000000, %00000000, %10000000, %00000000, %00000010
+   .byte %00000000, %00000001, %00000000, %00000000, %00000100
+   .byte %00000000, %00000010, %00000000, %00000000, %00001000
+   .byte %00000000, %00000100, %00000000, %00000000, %00010000
+   .byte %00000000, %00001000, %00000000, %00000000, %00100000
+PFCollision1
+   .byte %00000000, %00010000, %00000000, %00000000, %01000000
+   .byte %00000000, %00100000, %00000000, %00000000, %10000000
+   .byte %00000000, %01000000, %00000000, %00000001, %00000000
+   .byte %00000000, %10000000, %00000000, %00000010, %00000000
+   .byte %00000001, %00000000, %00000000, %00000100, %00000000
+   .byte %00000010, %00000000, %00000000, %00001000, %00000000
+   .byte %00000100, %00000000, %00000000, %00010000, %00000000
+   .byte %00001000, %00000000, %00000000, %00100000, %00000000
+PFCollision2
+   .byte %00010000, %00000000, %00000000, %01000000, %00000000
+   .byte %00100000, %00000000, %00000000, %10000000, %00000000
+   .byte %01000000, %00000000, %00000001, %00000000, %00000000
+   .byte %10000000, %00000000, %00000010, %00000000, %00000000
+   .byte %00000000, %00000000, %00000100, %00000000, %00000001
+   .byte %00000000, %00000000, %00001000, %00000000, %00000010
+   .byte %00000000, %00000000, %00010000, %00000000, %00000100
+   .byte %00000000, %00000000, %00100000, %00000000, %00001000
+PFCollision3
+   .byte %00000000, %00000000, %01000000, %00000000, %00010000
+   .byte %00000000, %00000000, %10000000, %00000000, %00100000
+   .byte %00000000, %00000001, %00000000, %00000000, %01000000
+   .byte %00000000, %00000010, %00000000, %00000000, %10000000
+   .byte %00000000, %00000100, %00000000, %00000001, %00000000
+   .byte %00000000, %00001000, %00000000, %00000010, %00000000
+   .byte %00000000, %00010000, %00000000, %00000100, %00000000
+   .byte %00000000, %00100000, %00000000, %00001000, %00000000
+PFCollision4
+   .byte %00000000, %01000000, %00000000, %00010000, %00000000
+   .byte %00000000, %10000000, %00000000, %00100000, %00000000
+   .byte %00000001, %00000000, %00000000, %01000000, %00000000
+   .byte %00000010, %00000000, %00000000, %10000000, %00000000
+   .byte %00000100, %00000000, %00000001, %00000000, %00000000
+   .byte %00001000, %00000000, %00000010, %00000000, %00000001
+   .byte %00010000, %00000000, %00000100, %00000000, %00000010
+   .byte %00100000, %00000000, %00001000, %00000000, %00000100
+PFCollision5
+   .byte %01000000, %00000000, %00010000, %00000000, %00001000
+   .byte %10000000, %00000000, %00100000, %00000000, %00010000
+   .byte %00000000, %00000000, %01000000, %00000000, %00100000
+   .byte %00000000, %00000000, %10000000, %00000000, %01000000
+   .byte %00000000, %00000001, %00000000, %00000000, %10000000
+   .byte %00000000, %00000010, %00000000, %00000001, %00000000
+   .byte %00000000, %00000100, %00000000, %00000010, %00000000
+   .byte %00000000, %00001000, %00000000, %00000100, %00000000
+PFCollision6
+   .byte %00000000, %00010000, %00000000, %00001000, %00000000
+   .byte %00000000, %00100000, %00000000, %00010000, %00000000
+   .byte %00000000, %01000000, %00000000, %00100000, %00000000
+   .byte %00000000, %10000000, %00000000, %01000000, %00000000
+   .byte %00000001, %00000000, %00000000, %10000000, %00000001
+   .byte %00000010, %00000000, %00000001, %00000000, %00000010
+   .byte %00000100, %00000000, %00000010, %00000000, %00000100
+   .byte %00001000, %00000000, %00000100, %00000000, %00001000
+PFCollision7
+   .byte %00010000, %00000000, %00001000, %00000000, %00010000
+   .byte %00100000, %00000000, %00010000, %00000000, %00100000
+   .byte %01000000, %00000000, %00100000, %00000000, %01000000
+   .byte %10000000, %00000000, %01000000, %00000000, %10000000
+
+PFCollision_Lo
+    .byte #<PFCollision0
+    .byte #<PFCollision1
+    .byte #<PFCollision2
+    .byte #<PFCollision3
+    .byte #<PFCollision4
+    .byte #<PFCollision5
+    .byte #<PFCollision6
+    .byte #<PFCollision7
+
+PFCollision_Hi
+    .byte #>PFCollision0
+    .byte #>PFCollision1
+    .byte #>PFCollision2
+    .byte #>PFCollision3
+    .byte #>PFCollision4
+    .byte #>PFCollision5
+    .byte #>PFCollision6
+    .byte #>PFCollision7
@@ -0,0 +1,196 @@
+PLAYFIELD_HEIGHT = 30
+
+    if >. != >[.+(PLAYFIELD_HEIGHT)]
+        align 256
+    endif
+
+PF0DataA
+    .byte %00000000
+    .byte %11000000
+    .byte %00110000
+    .byte %01010000
+    .byte %00000000
+    .byte %11110000
+    .byte %00100000
+    .byte %01000000
+    .byte %11110000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %10000000
+    .byte %01000000
+    .byte %00100000
+    .byte %00010000
+
+    if >. != >[.+(PLAYFIELD_HEIGHT)]
+        align 256
+    endif
+
+PF1DataA
+    .byte %00000000
+    .byte %00110011
+    .byte %11001100
+    .byte %10101010
+    .byte %00000000
+    .byte %01010011
+    .byte %10101001
+    .byte %10001000
+    .byte %10001011
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000001
+    .byte %00000010
+    .byte %00000100
+    .byte %00001000
+    .byte %00010000
+    .byte %00100000
+    .byte %01000000
+    .byte %10000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+
+    if >. != >[.+(PLAYFIELD_HEIGHT)]
+        align 256
+    endif
+
+PF2DataA
+    .byte %00000000
+    .byte %11001100
+    .byte %00110011
+    .byte %01010101
+    .byte %00000000
+    .byte %00101011
+    .byte %01010100
+    .byte %01000101
+    .byte %01000111
+    .byte %00000000
+    .byte %10000000
+    .byte %01000000
+    .byte %00100000
+    .byte %00010000
+    .byte %00001000
+    .byte %00000100
+    .byte %00000010
+    .byte %00000001
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+
+    if >. != >[.+(PLAYFIELD_HEIGHT)]
+        align 256
+    endif
+
+PFColors
+   .byte $00 ; $00
+   .byte $f6 ; $66
+   .byte $fe ; $0e
+   .byte $0e ; $fe
+   .byte $00 ; $00
+   .byte $7b ; $21
+   .byte $7b ; $21
+   .byte $7b ; $21
+   .byte $7b ; $21
+   .byte $00 ; $00
+   .byte $82 ; $22
+   .byte $82 ; $22
+   .byte $82 ; $22
+   .byte $82 ; $22
+   .byte $82 ; $22
+   .byte $82 ; $22
+   .byte $82 ; $22
+   .byte $82 ; $22
+   .byte $82 ; $22
+   .byte $82 ; $22
+   .byte $82 ; $22
+   .byte $82 ; $22
+   .byte $82 ; $22
+   .byte $82 ; $22
+   .byte $82 ; $22
+   .byte $82 ; $22
+   .byte $82 ; $22
+   .byte $82 ; $22
+   .byte $82 ; $22
+   .byte $82 ; $22
+
+    if >. != >[.+(PLAYFIELD_HEIGHT)]
+        align 256
+    endif
+
+PFCollision0
+   .byte %11111111, %11111111, %11111111, %11111111, %11111111
+   .byte %00000000, %00000000, %00000000, %00000000, %00000000
+   .byte %00000000, %00000000, %00000000, %00000000, %00000000
+   .byte %00000000, %00000000, %00000000, %00000000, %00000000
+   .byte %00000000, %00000000, %00000000, %00000000, %00000000
+   .byte %11110101, %00111101, %01000010, %10111100, %10101111
+   .byte %01001010, %10010010, %10100101, %01001001, %01010010
+   .byte %00101000, %10001010, %00100100, %01010001, %00010100
+PFCollision1
+   .byte %11111000, %10111110, %00100100, %01111101, %00011111
+   .byte %00000000, %00000000, %00000000, %00000000, %00000000
+   .byte %00000000, %00000000, %00000000, %00000000, %00000000
+   .byte %00000000, %00000000, %00000000, %00000000, %00000000
+   .byte %00000000, %00000000, %00000000, %00000000, %00000000
+   .byte %00000000, %00000000, %00000000, %00000000, %00000000
+   .byte %00000000, %00000000, %00000000, %00000000, %00000000
+   .byte %00000000, %00000000, %00000000, %00000000, %00000000
+PFCollision2
+   .byte %00000000, %00000000, %00000000, %00000000, %00000000
+   .byte %00000000, %00000000, %00000000, %00000000, %00000000
+   .byte %00000000, %00000000, %00000000, %00000000, %00000000
+   .byte %00000000, %00000000, %00000000, %00000000, %00000000
+   .byte %00000000, %00000000, %00000000, %00000000, %00000000
+   .byte %00000000, %00000000, %00000000, %00000000, %00000000
+   .byte %00000000, %00000000, %00000000, %00000000, %00000000
+   .byte %00000000, %00000000, %00000000, %00000000, %00000000
+PFCollision3
+   .byte %00000000, %00000000, %00000000, %00000000, %00000000
+   .byte %00000000, %00000000, %00000000, %00000000, %00000000
+   .byte %00000000, %00000000, %00000000, %00000000, %00000000
+   .byte %00000000, %00000000, %00000000, %00000000, %00000000
+   .byte %00000000, %00000000, %00000000, %00000000, %00000000
+   .byte %00000000, %00000000, %00000000, %00000000, %00000000
+
+PFCollision_Lo
+    .byte #<PFCollision0
+    .byte #<PFCollision1
+    .byte #<PFCollision2
+    .byte #<PFCollision3
+
+PFCollision_Hi
+    .byte #>PFCollision0
+    .byte #>PFCollision1
+    .byte #>PFCollision2
+    .byte #>PFCollision3
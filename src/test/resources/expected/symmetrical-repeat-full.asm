@@ -0,0 +1,76 @@
+PLAYFIELD_HEIGHT = 27
+
+    if >. != >[.+(PLAYFIELD_HEIGHT)]
+        align 256
+    endif
+
+PF0DataA
+    .byte %00000000
+    .byte %11100000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %10000000
+    .byte %00010000
+
+    if >. != >[.+(PLAYFIELD_HEIGHT)]
+        align 256
+    endif
+
+PF1DataA
+    .byte %00000000
+    .byte %11111111
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000100
+    .byte %00100000
+    .byte %00000000
+    .byte %00000000
+
+    if >. != >[.+(PLAYFIELD_HEIGHT)]
+        align 256
+    endif
+
+PF2DataA
+    .byte %00000000
+    .byte %01111111
+    .byte %01000000
+    .byte %00001000
+    .byte %00000001
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+    .byte %00000000
+
+    if >. != >[.+(PLAYFIELD_HEIGHT)]
+        align 256
+    endif
+
+PFColors
+   .byte $00 ; $00
+   .byte $24 ; $1c
+   .byte $fe ; $0e
+   .byte $fe ; $0e
+   .byte $fe ; $0e
+   .byte $fe ; $0e
+   .byte $fe ; $0e
+   .byte $fe ; $0e
+   .byte $fe ; $0e
+
+    if >. != >[.+(PLAYFIELD_HEIGHT)]
+        align 256
+    endif
+
+PFCollision0
+   .byte %11111111, %11111111, %11011111, %11111111, %11111101
+   .byte %11111111, %10111111, %11111111, %11111011, %11111111
+   .byte %01111111, %11111111, %11110111, %11111111, %11111111
+
+PFCollision_Lo
+    .byte #<PFCollision0
+
+PFCollision_Hi
+    .byte #>PFCollision0